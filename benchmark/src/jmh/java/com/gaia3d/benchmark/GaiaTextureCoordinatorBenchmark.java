@@ -0,0 +1,105 @@
+package com.gaia3d.benchmark;
+
+import com.gaia3d.basic.exchangable.GaiaBuffer;
+import com.gaia3d.basic.exchangable.GaiaBufferDataSet;
+import com.gaia3d.basic.model.GaiaMaterial;
+import com.gaia3d.basic.model.GaiaTexture;
+import com.gaia3d.basic.types.AttributeType;
+import com.gaia3d.basic.types.TextureType;
+import com.gaia3d.command.mago.GlobalOptions;
+import com.gaia3d.process.postprocess.batch.GaiaTextureCoordinator;
+import com.gaia3d.process.tileprocess.tile.LevelOfDetail;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the atlas packing of the GaiaTextureCoordinator on generated textures of random power of two sizes.
+ * The materials and texcoords are rebuilt before every invocation because the packing rewrites them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class GaiaTextureCoordinatorBenchmark {
+    /* 16 x 16 quads of texcoords per material */
+    private static final int QUAD_COUNT = 256;
+
+    @Param({"16", "64", "256"})
+    private int textureCount;
+
+    private List<BufferedImage> images;
+    private List<GaiaMaterial> materials;
+    private List<GaiaBufferDataSet> bufferDataSets;
+
+    @Setup(Level.Trial)
+    public void setupImages() {
+        GlobalOptions.getInstance().setPhotorealistic(false);
+
+        Random random = new Random(42);
+        images = new ArrayList<>(textureCount);
+        for (int i = 0; i < textureCount; i++) {
+            int width = 32 << random.nextInt(5);
+            int height = 32 << random.nextInt(5);
+            BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = image.createGraphics();
+            graphics.setColor(new Color(random.nextInt(0xFFFFFF)));
+            graphics.fillRect(0, 0, width, height);
+            graphics.dispose();
+            images.add(image);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void setupMaterials() {
+        materials = new ArrayList<>(textureCount);
+        bufferDataSets = new ArrayList<>(textureCount);
+        for (int i = 0; i < textureCount; i++) {
+            BufferedImage image = images.get(i);
+            GaiaTexture texture = new GaiaTexture();
+            texture.setType(TextureType.DIFFUSE);
+            texture.setPath("texture-" + i + ".jpg");
+            texture.setBufferedImage(image);
+            texture.setWidth(image.getWidth());
+            texture.setHeight(image.getHeight());
+
+            List<GaiaTexture> textures = new ArrayList<>();
+            textures.add(texture);
+            GaiaMaterial material = new GaiaMaterial();
+            material.setId(i);
+            material.getTextures().put(TextureType.DIFFUSE, textures);
+            materials.add(material);
+
+            GaiaBuffer texcoordBuffer = new GaiaBuffer();
+            texcoordBuffer.setAttributeType(AttributeType.TEXCOORD);
+            texcoordBuffer.setFloats(createTexcoords());
+            GaiaBufferDataSet bufferDataSet = new GaiaBufferDataSet();
+            bufferDataSet.setMaterialId(i);
+            bufferDataSet.getBuffers().put(AttributeType.TEXCOORD, texcoordBuffer);
+            bufferDataSets.add(bufferDataSet);
+        }
+    }
+
+    @Benchmark
+    public BufferedImage batchTextures() {
+        GaiaTextureCoordinator textureCoordinator = new GaiaTextureCoordinator("benchmark-atlas", materials, bufferDataSets);
+        return textureCoordinator.batchTextures(LevelOfDetail.LOD0);
+    }
+
+    private float[] createTexcoords() {
+        int size = (int) Math.sqrt(QUAD_COUNT) + 1;
+        float[] texcoords = new float[size * size * 2];
+        int index = 0;
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                texcoords[index++] = (float) x / (size - 1);
+                texcoords[index++] = (float) y / (size - 1);
+            }
+        }
+        return texcoords;
+    }
+}
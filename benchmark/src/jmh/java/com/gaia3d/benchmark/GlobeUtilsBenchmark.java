@@ -0,0 +1,77 @@
+package com.gaia3d.benchmark;
+
+import com.gaia3d.util.GlobeUtils;
+import org.joml.Vector3d;
+import org.locationtech.proj4j.BasicCoordinateTransform;
+import org.locationtech.proj4j.CRSFactory;
+import org.locationtech.proj4j.CoordinateReferenceSystem;
+import org.locationtech.proj4j.ProjCoordinate;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the coordinate transforms of GlobeUtils on random points of a 10 km square in EPSG:5186.
+ * transform creates a new transformer for every point, transformReused is the same projection with one transformer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class GlobeUtilsBenchmark {
+    private static final int POINT_COUNT = 100000;
+
+    private CoordinateReferenceSystem source;
+    private double[] coordinates;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        source = new CRSFactory().createFromName("EPSG:5186");
+        Random random = new Random(42);
+        coordinates = new double[POINT_COUNT * 3];
+        for (int i = 0; i < POINT_COUNT; i++) {
+            coordinates[i * 3] = 200000.0 + random.nextDouble() * 10000.0;
+            coordinates[i * 3 + 1] = 550000.0 + random.nextDouble() * 10000.0;
+            coordinates[i * 3 + 2] = random.nextDouble() * 100.0;
+        }
+    }
+
+    @Benchmark
+    public void transform(Blackhole blackhole) {
+        for (int i = 0; i < POINT_COUNT; i++) {
+            ProjCoordinate coordinate = new ProjCoordinate(coordinates[i * 3], coordinates[i * 3 + 1], coordinates[i * 3 + 2]);
+            blackhole.consume(GlobeUtils.transform(source, coordinate));
+        }
+    }
+
+    @Benchmark
+    public void transformReused(Blackhole blackhole) {
+        BasicCoordinateTransform transformer = new BasicCoordinateTransform(source, GlobeUtils.wgs84);
+        ProjCoordinate result = new ProjCoordinate();
+        for (int i = 0; i < POINT_COUNT; i++) {
+            ProjCoordinate coordinate = new ProjCoordinate(coordinates[i * 3], coordinates[i * 3 + 1], coordinates[i * 3 + 2]);
+            blackhole.consume(transformer.transform(coordinate, result));
+        }
+    }
+
+    @Benchmark
+    public void geographicToCartesianWgs84(Blackhole blackhole) {
+        for (int i = 0; i < POINT_COUNT; i++) {
+            double longitude = 126.0 + coordinates[i * 3] * 1.0e-6;
+            double latitude = 37.0 + coordinates[i * 3 + 1] * 1.0e-6;
+            blackhole.consume(GlobeUtils.geographicToCartesianWgs84(longitude, latitude, coordinates[i * 3 + 2]));
+        }
+    }
+
+    @Benchmark
+    public void cartesianToGeographicWgs84(Blackhole blackhole) {
+        for (int i = 0; i < POINT_COUNT; i++) {
+            double longitude = 126.0 + coordinates[i * 3] * 1.0e-6;
+            double latitude = 37.0 + coordinates[i * 3 + 1] * 1.0e-6;
+            double[] cartesian = GlobeUtils.geographicToCartesianWgs84(longitude, latitude, coordinates[i * 3 + 2]);
+            Vector3d geographic = GlobeUtils.cartesianToGeographicWgs84(cartesian[0], cartesian[1], cartesian[2]);
+            blackhole.consume(geographic);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.gaia3d.benchmark;
+
+import com.gaia3d.basic.model.GaiaNode;
+import com.gaia3d.basic.model.GaiaScene;
+import com.gaia3d.command.mago.GlobalOptions;
+import com.gaia3d.converter.EasySceneCreator;
+import com.gaia3d.converter.jgltf.GltfWriter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the glb encoding throughput of the GltfWriter on a grid mesh of about 1M triangles.
+ * The fill benchmarks compare the element by element buffer fill with the bulk transfer on the same positions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class GltfWriterBenchmark {
+    /* 708 x 708 vertices, 2 x 707 x 707 = 999,698 triangles */
+    private static final int GRID_SIZE = 708;
+
+    @Param({"false", "true"})
+    private boolean quantization;
+
+    private GaiaScene scene;
+    private float[] positions;
+    private ByteBuffer positionsBuffer;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        GlobalOptions.getInstance().setUseQuantization(quantization);
+
+        EasySceneCreator easySceneCreator = new EasySceneCreator();
+        scene = easySceneCreator.createScene(new File("benchmark-grid.glb"));
+        GaiaNode rootNode = scene.getNodes().get(0);
+        GaiaNode gridNode = easySceneCreator.createGridNode(GRID_SIZE, GRID_SIZE);
+        rootNode.getChildren().add(gridNode);
+
+        positions = gridNode.getMeshes().get(0).getPositions();
+        positionsBuffer = ByteBuffer.allocate(positions.length * Float.BYTES);
+        positionsBuffer.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    @Benchmark
+    public int writeGlb() {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        new GltfWriter().writeGlb(scene, outputStream);
+        return outputStream.size();
+    }
+
+    @Benchmark
+    public void fillBoxed(Blackhole blackhole) {
+        positionsBuffer.clear();
+        for (Float position : positions) {
+            positionsBuffer.putFloat(position);
+        }
+        blackhole.consume(positionsBuffer);
+    }
+
+    @Benchmark
+    public void fillBulk(Blackhole blackhole) {
+        positionsBuffer.clear();
+        positionsBuffer.asFloatBuffer().put(positions);
+        blackhole.consume(positionsBuffer);
+    }
+}
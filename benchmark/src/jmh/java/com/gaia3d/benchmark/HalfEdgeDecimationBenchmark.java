@@ -0,0 +1,60 @@
+package com.gaia3d.benchmark;
+
+import com.gaia3d.basic.geometry.GaiaBoundingBox;
+import com.gaia3d.basic.halfedge.DecimateParameters;
+import com.gaia3d.basic.halfedge.HalfEdgeScene;
+import com.gaia3d.basic.halfedge.HalfEdgeUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures HalfEdgeSurface.doTrianglesReduction on a generated terrain net.
+ * The net is a gentle wave with noise, so flat regions collapse while the ridges keep their edges.
+ * The scene is rebuilt before every invocation because the reduction collapses it in place.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class HalfEdgeDecimationBenchmark {
+    @Param({"64", "128", "256"})
+    private int gridSize;
+
+    private float[][] depthValues;
+    private GaiaBoundingBox boundingBox;
+    private DecimateParameters decimateParameters;
+    private HalfEdgeScene halfEdgeScene;
+
+    @Setup(Level.Trial)
+    public void setupNet() {
+        depthValues = new float[gridSize][gridSize];
+        Random random = new Random(42);
+        for (int c = 0; c < gridSize; c++) {
+            for (int r = 0; r < gridSize; r++) {
+                double wave = Math.sin(c * 0.1) * Math.cos(r * 0.1) * 0.25 + 0.5;
+                depthValues[c][r] = (float) (wave + random.nextDouble() * 0.002);
+            }
+        }
+        boundingBox = new GaiaBoundingBox();
+        boundingBox.addPoint(0.0, 0.0, 0.0);
+        boundingBox.addPoint(gridSize, gridSize, gridSize * 0.1);
+
+        // the values of the first decimation level of the photorealistic tiler
+        decimateParameters = new DecimateParameters();
+        decimateParameters.setBasicValues(6.0, 0.4, 0.9, 32.0, 1000000, 1, 1.0);
+    }
+
+    @Setup(Level.Invocation)
+    public void setupScene() {
+        halfEdgeScene = HalfEdgeUtils.getHalfEdgeSceneRectangularNet(gridSize, gridSize, depthValues, boundingBox);
+    }
+
+    @Benchmark
+    public int doTrianglesReduction() {
+        halfEdgeScene.doTrianglesReduction(decimateParameters);
+        return halfEdgeScene.getTrianglesCount();
+    }
+}
@@ -0,0 +1,159 @@
+package com.gaia3d.benchmark;
+
+import com.gaia3d.basic.pointcloud.GaiaPointCloudHeader;
+import com.gaia3d.basic.pointcloud.GaiaPointCloudTemp;
+import com.gaia3d.command.mago.GlobalOptions;
+import com.gaia3d.converter.pointcloud.LasConverter;
+import org.apache.commons.io.FileUtils;
+import org.joml.Vector3d;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures LasConverter.loadToTemp on a generated LAS 1.2 file (point format 2 with RGB) of a point grid.
+ * The temp grid of 4 x 4 files is recreated before every invocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class LasConverterBenchmark {
+    private static final int HEADER_SIZE = 227;
+    private static final int RECORD_LENGTH = 26;
+    private static final double SCALE = 0.001;
+    private static final int TEMP_GRID_SIZE = 4;
+
+    @Param({"1000000"})
+    private int pointCount;
+
+    private File directory;
+    private File lasFile;
+    private LasConverter converter;
+    private GaiaPointCloudHeader pointCloudHeader;
+
+    @Setup(Level.Trial)
+    public void setupFile() throws IOException {
+        GlobalOptions globalOptions = GlobalOptions.getInstance();
+        globalOptions.setCrs(GlobalOptions.DEFAULT_CRS);
+        globalOptions.setPointRatio(100);
+
+        directory = Files.createTempDirectory("las-benchmark").toFile();
+        lasFile = new File(directory, "grid.las");
+        writeLasFile(lasFile, pointCount);
+        converter = new LasConverter();
+    }
+
+    @Setup(Level.Invocation)
+    public void setupTemps() {
+        pointCloudHeader = converter.readHeader(lasFile);
+        GaiaPointCloudTemp[][] tempGrid = new GaiaPointCloudTemp[TEMP_GRID_SIZE][TEMP_GRID_SIZE];
+        Vector3d volume = pointCloudHeader.getSrsBoundingBox().getVolume();
+        Vector3d offset = pointCloudHeader.getSrsBoundingBox().getMinPosition();
+        for (int i = 0; i < TEMP_GRID_SIZE; i++) {
+            for (int j = 0; j < TEMP_GRID_SIZE; j++) {
+                GaiaPointCloudTemp temp = new GaiaPointCloudTemp(new File(directory, i + "-" + j + ".bin"));
+                temp.getQuantizedVolumeScale()[0] = volume.x;
+                temp.getQuantizedVolumeScale()[1] = volume.y;
+                temp.getQuantizedVolumeScale()[2] = volume.z;
+                temp.getQuantizedVolumeOffset()[0] = offset.x;
+                temp.getQuantizedVolumeOffset()[1] = offset.y;
+                temp.getQuantizedVolumeOffset()[2] = offset.z;
+                temp.writeHeader();
+                tempGrid[i][j] = temp;
+            }
+        }
+        pointCloudHeader.setTempGrid(tempGrid);
+    }
+
+    @TearDown(Level.Invocation)
+    public void closeTemps() throws IOException {
+        for (GaiaPointCloudTemp[] temps : pointCloudHeader.getTempGrid()) {
+            for (GaiaPointCloudTemp temp : temps) {
+                temp.getOutputStream().close();
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFiles() throws IOException {
+        FileUtils.deleteDirectory(directory);
+    }
+
+    @Benchmark
+    public GaiaPointCloudHeader loadToTemp() {
+        converter.loadToTemp(pointCloudHeader, lasFile);
+        return pointCloudHeader;
+    }
+
+    /**
+     * Writes a square grid of points on a gentle slope, one point per 10 cm.
+     */
+    private void writeLasFile(File file, int count) throws IOException {
+        int size = (int) Math.ceil(Math.sqrt(count));
+        double extent = (size - 1) * 0.1;
+        double maxZ = extent * 0.05;
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.put("LASF".getBytes(StandardCharsets.US_ASCII));
+        header.putShort((short) 0); // file source id
+        header.putShort((short) 0); // global encoding
+        header.put(new byte[16]); // project guid
+        header.put((byte) 1); // version major
+        header.put((byte) 2); // version minor
+        header.put(fixedLength("mago-benchmark", 32)); // system identifier
+        header.put(fixedLength("mago-benchmark", 32)); // generating software
+        header.putShort((short) 1); // creation day of year
+        header.putShort((short) 2024); // creation year
+        header.putShort((short) HEADER_SIZE);
+        header.putInt(HEADER_SIZE); // offset to point data
+        header.putInt(0); // variable length records
+        header.put((byte) 2); // point data format
+        header.putShort((short) RECORD_LENGTH);
+        header.putInt(count);
+        header.putInt(count); // points by return
+        header.put(new byte[16]);
+        header.putDouble(SCALE).putDouble(SCALE).putDouble(SCALE);
+        header.putDouble(0.0).putDouble(0.0).putDouble(0.0);
+        header.putDouble(extent).putDouble(0.0); // max x, min x
+        header.putDouble(extent).putDouble(0.0); // max y, min y
+        header.putDouble(maxZ).putDouble(0.0); // max z, min z
+
+        try (OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(file), 1 << 16)) {
+            outputStream.write(header.array());
+            ByteBuffer record = ByteBuffer.allocate(RECORD_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < count; i++) {
+                double x = (i % size) * 0.1;
+                double y = (i / size) * 0.1;
+                double z = (x + y) * 0.025;
+                record.clear();
+                record.putInt((int) Math.round(x / SCALE));
+                record.putInt((int) Math.round(y / SCALE));
+                record.putInt((int) Math.round(z / SCALE));
+                record.putShort((short) 0); // intensity
+                record.put((byte) 0x09); // return number 1 of 1
+                record.put((byte) 2); // classification, ground
+                record.put((byte) 0); // scan angle
+                record.put((byte) 0); // user data
+                record.putShort((short) 0); // point source id
+                record.putShort((short) ((i % 256) << 8)); // red
+                record.putShort((short) (((i / size) % 256) << 8)); // green
+                record.putShort((short) 0x8000); // blue
+                outputStream.write(record.array());
+            }
+        }
+    }
+
+    private byte[] fixedLength(String text, int length) {
+        byte[] bytes = new byte[length];
+        byte[] textBytes = text.getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(textBytes, 0, bytes, 0, Math.min(textBytes.length, length));
+        return bytes;
+    }
+}
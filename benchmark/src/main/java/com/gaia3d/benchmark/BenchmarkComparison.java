@@ -0,0 +1,99 @@
+package com.gaia3d.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Compares two JMH JSON result files, usually the results of two commits.
+ * A benchmark regresses when its score got worse by more than the threshold and the difference is larger than the score errors.
+ * The table is printed to the standard output, the exit code is 1 when a benchmark regressed.
+ * usage : BenchmarkComparison baseline.json current.json [thresholdPercent]
+ */
+public class BenchmarkComparison {
+    private static final double DEFAULT_THRESHOLD = 10.0;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || args[0].isEmpty()) {
+            System.err.println("usage : BenchmarkComparison <baseline.json> <current.json> [thresholdPercent]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_THRESHOLD;
+        Map<String, JsonNode> baseline = readResults(new File(args[0]));
+        Map<String, JsonNode> current = readResults(new File(args[1]));
+
+        int regressions = 0;
+        System.out.println(String.format("%-90s %14s %14s %9s", "Benchmark", "Baseline", "Current", "Change"));
+        for (Map.Entry<String, JsonNode> entry : current.entrySet()) {
+            String name = entry.getKey();
+            JsonNode currentResult = entry.getValue();
+            JsonNode baselineResult = baseline.get(name);
+            JsonNode currentMetric = currentResult.get("primaryMetric");
+            String unit = currentMetric.get("scoreUnit").asText();
+            if (baselineResult == null) {
+                System.out.println(String.format("%-90s %14s %14.3f %9s %s", name, "-", currentMetric.get("score").asDouble(), "new", unit));
+                continue;
+            }
+
+            JsonNode baselineMetric = baselineResult.get("primaryMetric");
+            double baselineScore = baselineMetric.get("score").asDouble();
+            double currentScore = currentMetric.get("score").asDouble();
+            double error = getError(baselineMetric) + getError(currentMetric);
+            double change = baselineScore != 0.0 ? (currentScore - baselineScore) / baselineScore * 100.0 : 0.0;
+
+            // throughput is better when higher, the time modes are better when lower
+            boolean higherIsBetter = "thrpt".equals(currentResult.get("mode").asText());
+            double worsening = higherIsBetter ? -change : change;
+            boolean isRegression = worsening > threshold && Math.abs(currentScore - baselineScore) > error;
+            if (isRegression) {
+                regressions++;
+            }
+            System.out.println(String.format("%-90s %14.3f %14.3f %+8.1f%% %s%s", name, baselineScore, currentScore, change, unit, isRegression ? "  << REGRESSION" : ""));
+        }
+        for (String name : baseline.keySet()) {
+            if (!current.containsKey(name)) {
+                System.out.println(String.format("%-90s %14.3f %14s %9s", name, baseline.get(name).get("primaryMetric").get("score").asDouble(), "-", "removed"));
+            }
+        }
+
+        if (regressions > 0) {
+            System.out.printf("%d benchmarks regressed by more than %.1f%%%n", regressions, threshold);
+            System.exit(1);
+        }
+        System.out.printf("No benchmark regressed by more than %.1f%%%n", threshold);
+    }
+
+    /**
+     * Reads the results keyed by the benchmark name and its parameters.
+     */
+    private static Map<String, JsonNode> readResults(File file) throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        JsonNode root = objectMapper.readTree(file);
+        Map<String, JsonNode> results = new LinkedHashMap<>();
+        for (JsonNode result : root) {
+            StringBuilder name = new StringBuilder(result.get("benchmark").asText().replace("com.gaia3d.benchmark.", ""));
+            JsonNode params = result.get("params");
+            if (params != null) {
+                List<String> keys = new ArrayList<>();
+                params.fieldNames().forEachRemaining(keys::add);
+                Collections.sort(keys);
+                for (String key : keys) {
+                    name.append(" ").append(key).append("=").append(params.get(key).asText());
+                }
+            }
+            results.put(name.toString(), result);
+        }
+        return results;
+    }
+
+    private static double getError(JsonNode metric) {
+        JsonNode error = metric.get("scoreError");
+        if (error == null || !error.isNumber()) {
+            return 0.0;
+        }
+        return error.asDouble();
+    }
+}
@@ -338,6 +338,9 @@ public class GaiaSet implements Serializable {
         for (GaiaMaterial material : this.materials) {
             gaiaSet.getMaterials().add(material.clone());
         }
+        if (this.attribute != null) {
+            gaiaSet.setAttribute(this.attribute.getCopy());
+        }
         gaiaSet.setProjectName(this.projectName);
         gaiaSet.setFilePath(this.filePath);
         gaiaSet.setFolderPath(this.folderPath);
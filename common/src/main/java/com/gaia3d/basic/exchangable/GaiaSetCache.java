@@ -0,0 +1,186 @@
+package com.gaia3d.basic.exchangable;
+
+import com.gaia3d.basic.model.GaiaMaterial;
+import com.gaia3d.basic.model.GaiaTexture;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.WritableRaster;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Least recently used cache of the decoded temp files and texture images.
+ * A temp file is read once for every LOD content it belongs to, the cache keeps the decoded objects within a byte budget.
+ * The cached objects are never handed out, the callers get copies they can modify.
+ * The cache is disabled until a budget is set, the tiling pipeline enables it for the post-process stage only.
+ */
+@Slf4j
+public class GaiaSetCache {
+    private static final GaiaSetCache instance = new GaiaSetCache();
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    @Getter
+    private long maxBytes = 0;
+    @Getter
+    private long usedBytes = 0;
+
+    @Getter
+    private long setHits = 0;
+    @Getter
+    private long setMisses = 0;
+    @Getter
+    private long imageHits = 0;
+    @Getter
+    private long imageMisses = 0;
+    @Getter
+    private long evictions = 0;
+
+    public static GaiaSetCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * Reads the temp file or copies its cached decoded set.
+     */
+    public GaiaSet readFile(Path path) throws FileNotFoundException {
+        String key = getKey(path.toFile());
+        GaiaSet cached = (GaiaSet) get(key, true);
+        if (cached != null) {
+            return cached.clone();
+        }
+        GaiaSet gaiaSet = GaiaSet.readFile(path);
+        if (gaiaSet != null) {
+            put(key, gaiaSet.clone(), getByteLength(gaiaSet));
+        }
+        return gaiaSet;
+    }
+
+    /**
+     * Copies the cached decoded image of the file.
+     * @return the copied image or null if the image is not cached
+     */
+    public BufferedImage getImage(File file) {
+        BufferedImage cached = (BufferedImage) get(getKey(file), false);
+        if (cached == null) {
+            return null;
+        }
+        return copyImage(cached);
+    }
+
+    public void putImage(File file, BufferedImage image) {
+        if (image != null) {
+            put(getKey(file), copyImage(image), getByteLength(image));
+        }
+    }
+
+    public synchronized void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+        evict();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        usedBytes = 0;
+    }
+
+    public synchronized void logStatistics() {
+        log.info("[Cache] GaiaSet hits : {}, misses : {}", setHits, setMisses);
+        log.info("[Cache] Image hits : {}, misses : {}", imageHits, imageMisses);
+        log.info("[Cache] Evictions : {}, used : {} / {} MB", evictions, usedBytes / 1024 / 1024, maxBytes / 1024 / 1024);
+    }
+
+    private synchronized Object get(String key, boolean isSet) {
+        if (maxBytes <= 0) {
+            return null;
+        }
+        Entry entry = entries.get(key);
+        if (isSet && entry != null) {
+            setHits++;
+        } else if (isSet) {
+            setMisses++;
+        } else if (entry != null) {
+            imageHits++;
+        } else {
+            imageMisses++;
+        }
+        return entry != null ? entry.value : null;
+    }
+
+    private synchronized void put(String key, Object value, long byteLength) {
+        if (maxBytes <= 0 || byteLength > maxBytes) {
+            return;
+        }
+        Entry previous = entries.put(key, new Entry(value, byteLength));
+        if (previous != null) {
+            usedBytes -= previous.byteLength;
+        }
+        usedBytes += byteLength;
+        evict();
+    }
+
+    private void evict() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (usedBytes > maxBytes && iterator.hasNext()) {
+            Entry eldest = iterator.next();
+            iterator.remove();
+            usedBytes -= eldest.byteLength;
+            evictions++;
+        }
+    }
+
+    private String getKey(File file) {
+        return file.getAbsolutePath() + "@" + file.lastModified();
+    }
+
+    private long getByteLength(GaiaSet gaiaSet) {
+        long byteLength = 0;
+        for (GaiaBufferDataSet bufferDataSet : gaiaSet.getBufferDataList()) {
+            for (GaiaBuffer buffer : bufferDataSet.getBuffers().values()) {
+                if (buffer.getFloats() != null) {
+                    byteLength += buffer.getFloats().length * 4L;
+                }
+                if (buffer.getInts() != null) {
+                    byteLength += buffer.getInts().length * 4L;
+                }
+                if (buffer.getShorts() != null) {
+                    byteLength += buffer.getShorts().length * 2L;
+                }
+                if (buffer.getBytes() != null) {
+                    byteLength += buffer.getBytes().length;
+                }
+            }
+        }
+        for (GaiaMaterial material : gaiaSet.getMaterials()) {
+            for (List<GaiaTexture> textures : material.getTextures().values()) {
+                for (GaiaTexture texture : textures) {
+                    if (texture != null && texture.getByteBuffer() != null) {
+                        byteLength += texture.getByteBuffer().capacity();
+                    }
+                }
+            }
+        }
+        return byteLength;
+    }
+
+    private long getByteLength(BufferedImage image) {
+        DataBuffer dataBuffer = image.getRaster().getDataBuffer();
+        return (long) dataBuffer.getSize() * dataBuffer.getNumBanks() * DataBuffer.getDataTypeSize(dataBuffer.getDataType()) / 8;
+    }
+
+    private BufferedImage copyImage(BufferedImage image) {
+        ColorModel colorModel = image.getColorModel();
+        WritableRaster raster = image.copyData(null);
+        return new BufferedImage(colorModel, raster, colorModel.isAlphaPremultiplied(), null);
+    }
+
+    private record Entry(Object value, long byteLength) {
+    }
+}
@@ -0,0 +1,223 @@
+package com.gaia3d.basic.geometry;
+
+import com.gaia3d.basic.model.GaiaFace;
+import com.gaia3d.basic.model.GaiaSurface;
+import com.gaia3d.basic.model.GaiaVertex;
+import lombok.extern.slf4j.Slf4j;
+import org.joml.Vector3d;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Welds coincident vertices using a hash grid of quantized positions.
+ * The cell size equals the welding error, so every vertex is only compared with the vertices of its own cell and the 26 neighbor cells.
+ * Vertices on cell borders are welded too, and the welding runs in expected linear time.
+ * The weldable test is GaiaVertex.isWeldable, so the checkTexCoord, checkNormal, checkColor and checkBatchId options keep their meaning.
+ */
+@Slf4j
+public class GaiaVertexWelder {
+    private static final double MIN_CELL_SIZE = 1e-9;
+    private static final int EMPTY = -1;
+
+    private final double error;
+    private final boolean checkTexCoord;
+    private final boolean checkNormal;
+    private final boolean checkColor;
+    private final boolean checkBatchId;
+
+    // open addressing hash table : cell key -> first vertex index of the cell chain
+    private long[] cellKeys;
+    private int[] cellHeads;
+    private int cellMask;
+
+    public GaiaVertexWelder(double error, boolean checkTexCoord, boolean checkNormal, boolean checkColor, boolean checkBatchId) {
+        this.error = error;
+        this.checkTexCoord = checkTexCoord;
+        this.checkNormal = checkNormal;
+        this.checkColor = checkColor;
+        this.checkBatchId = checkBatchId;
+    }
+
+    /**
+     * Finds the master vertex of every vertex.
+     * A vertex that is not welded to a previous vertex is its own master, and each master absorbs the following weldable vertices,
+     * the same greedy order used by the octree based welding.
+     * @param vertices the vertices to weld
+     * @return the master vertex index of each vertex
+     */
+    public int[] findMasterIndices(List<GaiaVertex> vertices) {
+        int verticesCount = vertices.size();
+        int[] masterIndices = new int[verticesCount];
+        Arrays.fill(masterIndices, EMPTY);
+        if (verticesCount == 0) {
+            return masterIndices;
+        }
+
+        double cellSize = Math.max(error, MIN_CELL_SIZE);
+        long[] cellCoords = new long[verticesCount * 3];
+        int[] nextInCell = new int[verticesCount];
+        initCellTable(verticesCount);
+
+        // insert in reverse order, so the cell chains are sorted by vertex index
+        for (int i = verticesCount - 1; i >= 0; i--) {
+            Vector3d position = vertices.get(i).getPosition();
+            long cellX = (long) Math.floor(position.x / cellSize);
+            long cellY = (long) Math.floor(position.y / cellSize);
+            long cellZ = (long) Math.floor(position.z / cellSize);
+            cellCoords[i * 3] = cellX;
+            cellCoords[i * 3 + 1] = cellY;
+            cellCoords[i * 3 + 2] = cellZ;
+
+            int slot = reserveSlot(hashCell(cellX, cellY, cellZ));
+            nextInCell[i] = cellHeads[slot];
+            cellHeads[slot] = i;
+        }
+
+        for (int i = 0; i < verticesCount; i++) {
+            if (masterIndices[i] != EMPTY) {
+                continue;
+            }
+            masterIndices[i] = i;
+
+            GaiaVertex vertex = vertices.get(i);
+            long cellX = cellCoords[i * 3];
+            long cellY = cellCoords[i * 3 + 1];
+            long cellZ = cellCoords[i * 3 + 2];
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    for (int dz = -1; dz <= 1; dz++) {
+                        // different cells can share a hash key, the weldable test discards the false candidates
+                        int head = findCellHead(hashCell(cellX + dx, cellY + dy, cellZ + dz));
+                        for (int j = head; j != EMPTY; j = nextInCell[j]) {
+                            if (j <= i || masterIndices[j] != EMPTY) {
+                                continue;
+                            }
+                            if (vertex.isWeldable(vertices.get(j), error, checkTexCoord, checkNormal, checkColor, checkBatchId)) {
+                                masterIndices[j] = i;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        cellKeys = null;
+        cellHeads = null;
+        return masterIndices;
+    }
+
+    /**
+     * Makes the map of every vertex to its master vertex.
+     */
+    public Map<GaiaVertex, GaiaVertex> getWeldableVertexMap(List<GaiaVertex> vertices, Map<GaiaVertex, GaiaVertex> mapVertexToVertexMaster) {
+        if (mapVertexToVertexMaster == null) {
+            mapVertexToVertexMaster = new HashMap<>();
+        }
+        int[] masterIndices = findMasterIndices(vertices);
+        int verticesCount = vertices.size();
+        for (int i = 0; i < verticesCount; i++) {
+            mapVertexToVertexMaster.put(vertices.get(i), vertices.get(masterIndices[i]));
+        }
+        return mapVertexToVertexMaster;
+    }
+
+    /**
+     * Welds the vertices and updates the face indices of the surfaces.
+     * Faces that become degenerated (repeated indices) are removed, and the welded (non master) vertices are cleared.
+     * @param vertices the vertices referenced by the surfaces
+     * @param surfaces the surfaces to update
+     * @return the new vertices list, containing only the master vertices in their original order
+     */
+    public List<GaiaVertex> weld(List<GaiaVertex> vertices, List<GaiaSurface> surfaces) {
+        int[] masterIndices = findMasterIndices(vertices);
+        int verticesCount = vertices.size();
+
+        int[] newIndices = new int[verticesCount];
+        List<GaiaVertex> newVertices = new ArrayList<>();
+        for (int i = 0; i < verticesCount; i++) {
+            if (masterIndices[i] == i) {
+                newIndices[i] = newVertices.size();
+                newVertices.add(vertices.get(i));
+            }
+        }
+
+        for (GaiaSurface surface : surfaces) {
+            List<GaiaFace> faces = surface.getFaces();
+            List<GaiaFace> newFaces = new ArrayList<>(faces.size());
+            for (GaiaFace face : faces) {
+                int[] indices = face.getIndices();
+                for (int k = 0; k < indices.length; k++) {
+                    indices[k] = newIndices[masterIndices[indices[k]]];
+                }
+                if (!hasRepeatedIndices(indices)) {
+                    newFaces.add(face);
+                }
+            }
+            if (newFaces.size() != faces.size()) {
+                surface.setFaces(newFaces);
+            }
+        }
+
+        // delete no used vertices
+        for (int i = 0; i < verticesCount; i++) {
+            if (masterIndices[i] != i) {
+                vertices.get(i).clear();
+            }
+        }
+        return newVertices;
+    }
+
+    private boolean hasRepeatedIndices(int[] indices) {
+        for (int k = 0; k < indices.length; k++) {
+            for (int m = k + 1; m < indices.length; m++) {
+                if (indices[k] == indices[m]) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void initCellTable(int verticesCount) {
+        int capacity = Integer.highestOneBit(Math.max(verticesCount, 8)) << 2;
+        cellKeys = new long[capacity];
+        cellHeads = new int[capacity];
+        Arrays.fill(cellHeads, EMPTY);
+        cellMask = capacity - 1;
+    }
+
+    /**
+     * Finds the table slot of the key, the slot is reserved if the key is new.
+     * The table holds at most one key per vertex and has at least twice that capacity, so probing always ends.
+     */
+    private int reserveSlot(long key) {
+        int slot = (int) (key ^ (key >>> 32)) & cellMask;
+        while (cellHeads[slot] != EMPTY && cellKeys[slot] != key) {
+            slot = (slot + 1) & cellMask;
+        }
+        cellKeys[slot] = key;
+        return slot;
+    }
+
+    private int findCellHead(long key) {
+        int slot = (int) (key ^ (key >>> 32)) & cellMask;
+        while (cellHeads[slot] != EMPTY) {
+            if (cellKeys[slot] == key) {
+                return cellHeads[slot];
+            }
+            slot = (slot + 1) & cellMask;
+        }
+        return EMPTY;
+    }
+
+    private long hashCell(long cellX, long cellY, long cellZ) {
+        long hash = cellX * 73856093L;
+        hash ^= cellY * 19349663L;
+        hash ^= cellZ * 83492791L;
+        return hash ^ (hash >>> 29);
+    }
+}
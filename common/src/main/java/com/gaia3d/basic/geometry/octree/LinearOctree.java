@@ -0,0 +1,401 @@
+package com.gaia3d.basic.geometry.octree;
+
+import com.gaia3d.basic.geometry.GaiaBoundingBox;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Octree of points stored in primitive arrays.
+ * The nodes are rows of the node arrays and the 8 children of a node are consecutive rows.
+ * The items are indices of the points, they are partitioned in place so every node owns a range of the item array.
+ * The children follow the numbering of GaiaOctree.
+ */
+@Slf4j
+public class LinearOctree {
+    // neighbor directions, in the order of GaiaOctree.hasNeighbor()
+    public static final int LEFT = 0;
+    public static final int RIGHT = 1;
+    public static final int FRONT = 2;
+    public static final int REAR = 3;
+    public static final int BOTTOM = 4;
+    public static final int TOP = 5;
+
+    private static final int[] CHILD_X = {0, 1, 1, 0, 0, 1, 1, 0};
+    private static final int[] CHILD_Y = {0, 0, 1, 1, 0, 0, 1, 1};
+    private static final int[] CHILD_Z = {0, 0, 0, 0, 1, 1, 1, 1};
+
+    @Getter
+    @Setter
+    private int maxDepth = 5;
+    @Getter
+    @Setter
+    private double minBoxSize = 0.0;
+    @Getter
+    @Setter
+    private int minItemCount = 1;
+    @Getter
+    @Setter
+    private boolean cube = false;
+
+    private final double[] positions;
+    private final int[] items;
+    private double[] rootBounds; // computed from the positions when null
+
+    @Getter
+    private int nodeCount = 0;
+    private double[] bounds; // minX, minY, minZ, maxX, maxY, maxZ per node
+    private int[] coordinates; // depth, x, y, z per node
+    private int[] firstChildren; // -1 for the leaves
+    private int[] itemStarts;
+    private int[] itemEnds;
+
+    /**
+     * @param positions x, y, z of each item
+     */
+    public LinearOctree(double[] positions) {
+        this.positions = positions;
+        int itemCount = positions.length / 3;
+        this.items = new int[itemCount];
+        for (int i = 0; i < itemCount; i++) {
+            items[i] = i;
+        }
+    }
+
+    /**
+     * Fixes the box of the root instead of fitting it to the positions, the positions outside the box go to the border nodes.
+     */
+    public void setRootBounds(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+        this.rootBounds = new double[]{minX, minY, minZ, maxX, maxY, maxZ};
+    }
+
+    /**
+     * Splits the nodes until they are deeper than maxDepth, smaller than minBoxSize on an axis or hold less than minItemCount items.
+     */
+    public void makeTree() {
+        int capacity = Math.max(64, items.length / 4 * 8 + 1);
+        bounds = new double[capacity * 6];
+        coordinates = new int[capacity * 4];
+        firstChildren = new int[capacity];
+        itemStarts = new int[capacity];
+        itemEnds = new int[capacity];
+        nodeCount = 0;
+
+        double[] box = rootBounds != null ? rootBounds : calculateBounds();
+        int root = addNode(box[0], box[1], box[2], box[3], box[4], box[5], 0, 0, 0, 0, 0, items.length);
+
+        int[] childIndices = new int[items.length];
+        int[] sortedItems = new int[items.length];
+        int[] stack = new int[64];
+        int stackSize = 0;
+        stack[stackSize++] = root;
+        while (stackSize > 0) {
+            int node = stack[--stackSize];
+            if (!isSplittable(node)) {
+                continue;
+            }
+            int firstChild = split(node, childIndices, sortedItems);
+            if (stack.length < stackSize + 8) {
+                stack = Arrays.copyOf(stack, stack.length * 2);
+            }
+            for (int i = 7; i >= 0; i--) {
+                stack[stackSize++] = firstChild + i;
+            }
+        }
+    }
+
+    public boolean isLeaf(int node) {
+        return firstChildren[node] < 0;
+    }
+
+    public int getChild(int node, int index) {
+        return firstChildren[node] < 0 ? -1 : firstChildren[node] + index;
+    }
+
+    public int getItemStart(int node) {
+        return itemStarts[node];
+    }
+
+    public int getItemEnd(int node) {
+        return itemEnds[node];
+    }
+
+    public int getItemCount(int node) {
+        return itemEnds[node] - itemStarts[node];
+    }
+
+    public int getItem(int index) {
+        return items[index];
+    }
+
+    public int getDepth(int node) {
+        return coordinates[node * 4];
+    }
+
+    public GaiaOctreeCoordinate getCoordinate(int node) {
+        int offset = node * 4;
+        GaiaOctreeCoordinate coordinate = new GaiaOctreeCoordinate();
+        coordinate.setDepthAndCoord(coordinates[offset], coordinates[offset + 1], coordinates[offset + 2], coordinates[offset + 3]);
+        return coordinate;
+    }
+
+    public GaiaBoundingBox getBoundingBox(int node) {
+        int offset = node * 6;
+        return new GaiaBoundingBox(bounds[offset], bounds[offset + 1], bounds[offset + 2], bounds[offset + 3], bounds[offset + 4], bounds[offset + 5], true);
+    }
+
+    /**
+     * @return the leaves holding at least one item
+     */
+    public int[] getLeavesWithItems() {
+        int count = 0;
+        int[] leaves = new int[nodeCount];
+        for (int node = 0; node < nodeCount; node++) {
+            if (isLeaf(node) && itemEnds[node] > itemStarts[node]) {
+                leaves[count++] = node;
+            }
+        }
+        return Arrays.copyOf(leaves, count);
+    }
+
+    /**
+     * Visits the leaves holding at least one item depth first, the children in their numbering order.
+     * This is the order of the recursive object octrees, unlike the order of the node rows.
+     */
+    public void forEachLeafWithItems(IntConsumer consumer) {
+        if (nodeCount == 0) {
+            return;
+        }
+        int[] stack = new int[64];
+        int stackSize = 0;
+        stack[stackSize++] = 0;
+        while (stackSize > 0) {
+            int node = stack[--stackSize];
+            if (itemEnds[node] == itemStarts[node]) {
+                continue;
+            }
+            if (isLeaf(node)) {
+                consumer.accept(node);
+                continue;
+            }
+            if (stack.length < stackSize + 8) {
+                stack = Arrays.copyOf(stack, stack.length * 2);
+            }
+            for (int i = 7; i >= 0; i--) {
+                stack[stackSize++] = firstChildren[node] + i;
+            }
+        }
+    }
+
+    /**
+     * @return the leaf containing the point or -1 if the point is outside the tree
+     */
+    public int findLeaf(double x, double y, double z) {
+        if (nodeCount == 0 || !contains(0, x, y, z)) {
+            return -1;
+        }
+        int node = 0;
+        while (!isLeaf(node)) {
+            int offset = node * 6;
+            double midX = (bounds[offset] + bounds[offset + 3]) / 2.0;
+            double midY = (bounds[offset + 1] + bounds[offset + 4]) / 2.0;
+            double midZ = (bounds[offset + 2] + bounds[offset + 5]) / 2.0;
+            node = firstChildren[node] + getChildIndex(x >= midX, y >= midY, z >= midZ);
+        }
+        return node;
+    }
+
+    /**
+     * Finds the node sharing a face with the node, at the same depth or the leaf above it when the tree is not split that deep.
+     * @param direction LEFT, RIGHT, FRONT, REAR, BOTTOM or TOP
+     * @return the neighbor node or -1 on the border of the tree
+     */
+    public int findNeighbor(int node, int direction) {
+        int offset = node * 4;
+        int depth = coordinates[offset];
+        int x = coordinates[offset + 1] + (direction == LEFT ? -1 : direction == RIGHT ? 1 : 0);
+        int y = coordinates[offset + 2] + (direction == FRONT ? -1 : direction == REAR ? 1 : 0);
+        int z = coordinates[offset + 3] + (direction == BOTTOM ? -1 : direction == TOP ? 1 : 0);
+        int size = 1 << depth;
+        if (x < 0 || y < 0 || z < 0 || x >= size || y >= size || z >= size) {
+            return -1;
+        }
+        int neighbor = 0;
+        for (int level = depth - 1; level >= 0 && !isLeaf(neighbor); level--) {
+            neighbor = firstChildren[neighbor] + getChildIndex(((x >> level) & 1) == 1, ((y >> level) & 1) == 1, ((z >> level) & 1) == 1);
+        }
+        return neighbor;
+    }
+
+    /**
+     * Visits the items closer than the distance to the point, the search crosses the leaf borders.
+     */
+    public void forEachItemWithinDistance(double x, double y, double z, double distance, IntConsumer consumer) {
+        if (nodeCount == 0) {
+            return;
+        }
+        double squaredDistance = distance * distance;
+        int[] stack = new int[64];
+        int stackSize = 0;
+        stack[stackSize++] = 0;
+        while (stackSize > 0) {
+            int node = stack[--stackSize];
+            if (itemEnds[node] == itemStarts[node] || getSquaredDistanceToBox(node, x, y, z) > squaredDistance) {
+                continue;
+            }
+            if (isLeaf(node)) {
+                for (int i = itemStarts[node]; i < itemEnds[node]; i++) {
+                    int item = items[i];
+                    double dx = positions[item * 3] - x;
+                    double dy = positions[item * 3 + 1] - y;
+                    double dz = positions[item * 3 + 2] - z;
+                    if (dx * dx + dy * dy + dz * dz < squaredDistance) {
+                        consumer.accept(item);
+                    }
+                }
+            } else {
+                if (stack.length < stackSize + 8) {
+                    stack = Arrays.copyOf(stack, stack.length * 2);
+                }
+                for (int i = 0; i < 8; i++) {
+                    stack[stackSize++] = firstChildren[node] + i;
+                }
+            }
+        }
+    }
+
+    private boolean isSplittable(int node) {
+        int offset = node * 6;
+        if (coordinates[node * 4] >= maxDepth) {
+            return false;
+        }
+        if (itemEnds[node] - itemStarts[node] < Math.max(minItemCount, 1)) {
+            return false;
+        }
+        double sizeX = bounds[offset + 3] - bounds[offset];
+        double sizeY = bounds[offset + 4] - bounds[offset + 1];
+        double sizeZ = bounds[offset + 5] - bounds[offset + 2];
+        return sizeX >= minBoxSize && sizeY >= minBoxSize && sizeZ >= minBoxSize;
+    }
+
+    /**
+     * Creates the 8 children of the node and partitions its items among them.
+     * @return the first child
+     */
+    private int split(int node, int[] childIndices, int[] sortedItems) {
+        int boundsOffset = node * 6;
+        double minX = bounds[boundsOffset];
+        double minY = bounds[boundsOffset + 1];
+        double minZ = bounds[boundsOffset + 2];
+        double maxX = bounds[boundsOffset + 3];
+        double maxY = bounds[boundsOffset + 4];
+        double maxZ = bounds[boundsOffset + 5];
+        double midX = (minX + maxX) / 2.0;
+        double midY = (minY + maxY) / 2.0;
+        double midZ = (minZ + maxZ) / 2.0;
+
+        // counting sort of the item range by child index
+        int start = itemStarts[node];
+        int end = itemEnds[node];
+        int[] counts = new int[9];
+        for (int i = start; i < end; i++) {
+            int item = items[i];
+            int childIndex = getChildIndex(positions[item * 3] >= midX, positions[item * 3 + 1] >= midY, positions[item * 3 + 2] >= midZ);
+            childIndices[i] = childIndex;
+            counts[childIndex + 1]++;
+        }
+        for (int i = 1; i < 9; i++) {
+            counts[i] += counts[i - 1];
+        }
+        int[] childStarts = Arrays.copyOf(counts, 9);
+        for (int i = start; i < end; i++) {
+            sortedItems[start + counts[childIndices[i]]++] = items[i];
+        }
+        System.arraycopy(sortedItems, start, items, start, end - start);
+
+        int coordinateOffset = node * 4;
+        int depth = coordinates[coordinateOffset] + 1;
+        int x = coordinates[coordinateOffset + 1] * 2;
+        int y = coordinates[coordinateOffset + 2] * 2;
+        int z = coordinates[coordinateOffset + 3] * 2;
+        int firstChild = nodeCount;
+        for (int i = 0; i < 8; i++) {
+            addNode(CHILD_X[i] == 0 ? minX : midX, CHILD_Y[i] == 0 ? minY : midY, CHILD_Z[i] == 0 ? minZ : midZ,
+                    CHILD_X[i] == 0 ? midX : maxX, CHILD_Y[i] == 0 ? midY : maxY, CHILD_Z[i] == 0 ? midZ : maxZ,
+                    depth, x + CHILD_X[i], y + CHILD_Y[i], z + CHILD_Z[i], start + childStarts[i], start + childStarts[i + 1]);
+        }
+        firstChildren[node] = firstChild;
+        return firstChild;
+    }
+
+    private int addNode(double minX, double minY, double minZ, double maxX, double maxY, double maxZ, int depth, int x, int y, int z, int itemStart, int itemEnd) {
+        if (nodeCount == firstChildren.length) {
+            int capacity = nodeCount * 2;
+            bounds = Arrays.copyOf(bounds, capacity * 6);
+            coordinates = Arrays.copyOf(coordinates, capacity * 4);
+            firstChildren = Arrays.copyOf(firstChildren, capacity);
+            itemStarts = Arrays.copyOf(itemStarts, capacity);
+            itemEnds = Arrays.copyOf(itemEnds, capacity);
+        }
+        int node = nodeCount++;
+        int boundsOffset = node * 6;
+        bounds[boundsOffset] = minX;
+        bounds[boundsOffset + 1] = minY;
+        bounds[boundsOffset + 2] = minZ;
+        bounds[boundsOffset + 3] = maxX;
+        bounds[boundsOffset + 4] = maxY;
+        bounds[boundsOffset + 5] = maxZ;
+        int coordinateOffset = node * 4;
+        coordinates[coordinateOffset] = depth;
+        coordinates[coordinateOffset + 1] = x;
+        coordinates[coordinateOffset + 2] = y;
+        coordinates[coordinateOffset + 3] = z;
+        firstChildren[node] = -1;
+        itemStarts[node] = itemStart;
+        itemEnds[node] = itemEnd;
+        return node;
+    }
+
+    private double[] calculateBounds() {
+        double[] result = new double[]{Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE};
+        if (items.length == 0) {
+            return new double[6];
+        }
+        for (int i = 0; i < positions.length; i += 3) {
+            for (int axis = 0; axis < 3; axis++) {
+                result[axis] = Math.min(result[axis], positions[i + axis]);
+                result[axis + 3] = Math.max(result[axis + 3], positions[i + axis]);
+            }
+        }
+        if (cube) {
+            // Only modify the maximum values
+            double size = Math.max(result[3] - result[0], Math.max(result[4] - result[1], result[5] - result[2]));
+            result[3] = result[0] + size;
+            result[4] = result[1] + size;
+            result[5] = result[2] + size;
+        }
+        return result;
+    }
+
+    private boolean contains(int node, double x, double y, double z) {
+        int offset = node * 6;
+        return x >= bounds[offset] && y >= bounds[offset + 1] && z >= bounds[offset + 2]
+                && x <= bounds[offset + 3] && y <= bounds[offset + 4] && z <= bounds[offset + 5];
+    }
+
+    private double getSquaredDistanceToBox(int node, double x, double y, double z) {
+        int offset = node * 6;
+        double dx = Math.max(Math.max(bounds[offset] - x, 0.0), x - bounds[offset + 3]);
+        double dy = Math.max(Math.max(bounds[offset + 1] - y, 0.0), y - bounds[offset + 4]);
+        double dz = Math.max(Math.max(bounds[offset + 2] - z, 0.0), z - bounds[offset + 5]);
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private static int getChildIndex(boolean isUpperX, boolean isUpperY, boolean isUpperZ) {
+        int index = isUpperY ? (isUpperX ? 2 : 3) : (isUpperX ? 1 : 0);
+        return isUpperZ ? index + 4 : index;
+    }
+}
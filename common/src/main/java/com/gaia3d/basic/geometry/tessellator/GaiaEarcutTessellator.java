@@ -0,0 +1,872 @@
+package com.gaia3d.basic.geometry.tessellator;
+
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.joml.Vector3d;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Ear clipping tessellator that works over primitive coordinate arrays.
+ * The polygon rings are kept as a doubly linked list stored in primitive arrays (no node objects),
+ * holes are bridged into the exterior ring, and when the polygon is big the ear test is accelerated with z-order (morton) hashing.
+ * The resulting triangle indices are written into a reusable int buffer, so one instance can tessellate many polygons without allocations.
+ * Not thread safe, use one instance per thread.
+ */
+@Slf4j
+@NoArgsConstructor
+public class GaiaEarcutTessellator {
+    private static final int NULL = -1;
+    private static final int HASH_MIN_VERTEX_COUNT = 80;
+
+    // linked list nodes
+    private int nodesCount = 0;
+    private int[] nodeIdx = new int[64];
+    private double[] nodeX = new double[64];
+    private double[] nodeY = new double[64];
+    private int[] nodePrev = new int[64];
+    private int[] nodeNext = new int[64];
+    private int[] nodeZ = new int[64];
+    private int[] nodePrevZ = new int[64];
+    private int[] nodeNextZ = new int[64];
+    private boolean[] nodeSteiner = new boolean[64];
+
+    // result triangle indices
+    private int indicesCount = 0;
+    private int[] indices = new int[192];
+
+    // projected 2d coordinates for 3d polygons
+    private double[] projected = new double[128];
+    private int[] holeStarts = new int[8];
+    private int[] holeQueue = new int[8];
+
+    private double minX;
+    private double minY;
+    private double invSize;
+
+    /**
+     * The reusable index buffer. Only the first getIndicesCount() values are valid.
+     */
+    public int[] getIndices() {
+        return indices;
+    }
+
+    public int getIndicesCount() {
+        return indicesCount;
+    }
+
+    /**
+     * Tessellates a 2d polygon with holes.
+     * @param coords x, y interleaved coordinates of the exterior ring followed by the hole rings
+     * @param verticesCount number of vertices used from coords
+     * @param holeIndices start vertex index of each hole ring (can be null)
+     * @param holesCount number of holes
+     * @return the number of triangle indices written into getIndices()
+     */
+    public int tessellate2D(double[] coords, int verticesCount, int[] holeIndices, int holesCount) {
+        indicesCount = 0;
+        nodesCount = 0;
+        if (verticesCount < 3) {
+            return 0;
+        }
+        ensureNodesCapacity(verticesCount + holesCount * 2 + 2);
+
+        int outerEnd = holesCount > 0 ? holeIndices[0] : verticesCount;
+        int outerNode = linkedList(coords, 0, outerEnd, true);
+        if (outerNode == NULL || nodeNext[outerNode] == nodePrev[outerNode]) {
+            return 0;
+        }
+
+        if (holesCount > 0) {
+            outerNode = eliminateHoles(coords, verticesCount, holeIndices, holesCount, outerNode);
+        }
+
+        invSize = 0;
+        if (verticesCount > HASH_MIN_VERTEX_COUNT) {
+            minX = Double.MAX_VALUE;
+            minY = Double.MAX_VALUE;
+            double maxX = -Double.MAX_VALUE;
+            double maxY = -Double.MAX_VALUE;
+            for (int i = 0; i < outerEnd; i++) {
+                double x = coords[i * 2];
+                double y = coords[i * 2 + 1];
+                minX = Math.min(minX, x);
+                minY = Math.min(minY, y);
+                maxX = Math.max(maxX, x);
+                maxY = Math.max(maxY, y);
+            }
+            // minX, minY and invSize are used to transform coords into integers for z-order calculation
+            invSize = Math.max(maxX - minX, maxY - minY);
+            invSize = invSize != 0 ? 32767 / invSize : 0;
+        }
+
+        earcutLinked(outerNode, 0);
+        return indicesCount;
+    }
+
+    /**
+     * Tessellates a planar 3d polygon with holes.
+     * The polygon is projected to the axis aligned plane that best fits its normal,
+     * and the triangles keep the winding of the exterior ring.
+     * @param coords x, y, z interleaved coordinates of the exterior ring followed by the hole rings
+     * @param verticesCount number of vertices used from coords
+     * @param holeIndices start vertex index of each hole ring (can be null)
+     * @param holesCount number of holes
+     * @return the number of triangle indices written into getIndices()
+     */
+    public int tessellate3D(double[] coords, int verticesCount, int[] holeIndices, int holesCount) {
+        int outerEnd = holesCount > 0 ? holeIndices[0] : verticesCount;
+
+        // Newell normal of the exterior ring
+        double normalX = 0;
+        double normalY = 0;
+        double normalZ = 0;
+        for (int i = 0, j = outerEnd - 1; i < outerEnd; j = i++) {
+            double xi = coords[i * 3], yi = coords[i * 3 + 1], zi = coords[i * 3 + 2];
+            double xj = coords[j * 3], yj = coords[j * 3 + 1], zj = coords[j * 3 + 2];
+            normalX += (yj - yi) * (zj + zi);
+            normalY += (zj - zi) * (xj + xi);
+            normalZ += (xj - xi) * (yj + yi);
+        }
+
+        // project to the best plane, keeping a right-handed (u, v) system
+        int axisU;
+        int axisV;
+        double normalSign;
+        double absX = Math.abs(normalX);
+        double absY = Math.abs(normalY);
+        double absZ = Math.abs(normalZ);
+        if (absZ >= absX && absZ >= absY) {
+            axisU = 0;
+            axisV = 1;
+            normalSign = normalZ;
+        } else if (absX >= absY) {
+            axisU = 1;
+            axisV = 2;
+            normalSign = normalX;
+        } else {
+            axisU = 2;
+            axisV = 0;
+            normalSign = normalY;
+        }
+
+        if (projected.length < verticesCount * 2) {
+            projected = new double[verticesCount * 2];
+        }
+        for (int i = 0; i < verticesCount; i++) {
+            projected[i * 2] = coords[i * 3 + axisU];
+            projected[i * 2 + 1] = coords[i * 3 + axisV];
+        }
+
+        tessellate2D(projected, verticesCount, holeIndices, holesCount);
+
+        // the 2d tessellation is always counter-clockwise, so reverse the triangles of clockwise projected polygons
+        if (normalSign < 0) {
+            for (int i = 0; i < indicesCount; i += 3) {
+                int temp = indices[i + 1];
+                indices[i + 1] = indices[i + 2];
+                indices[i + 2] = temp;
+            }
+        }
+        return indicesCount;
+    }
+
+    /**
+     * Same contract as GaiaTessellator.tessellate3D(points3dArray, resultTrianglesIndices).
+     * The result indices refer to the positions of the input list.
+     */
+    public void tessellate3D(List<Vector3d> points3dArray, List<Integer> resultTrianglesIndices) {
+        int pointsCount = points3dArray.size();
+        double[] coords = new double[pointsCount * 3];
+        fillCoords(points3dArray, coords, 0);
+        tessellate3D(coords, pointsCount, null, 0);
+        for (int i = 0; i < indicesCount; i++) {
+            resultTrianglesIndices.add(indices[i]);
+        }
+    }
+
+    /**
+     * Same contract as GaiaTessellator.tessellate3D(points3dArray, interiorPolygons, resultPolygonPoints, resultTrianglesIndices).
+     * The result points are the exterior points followed by the points of every interior polygon.
+     */
+    public void tessellate3D(List<Vector3d> points3dArray, List<List<Vector3d>> interiorPolygons, List<Vector3d> resultPolygonPoints, List<Integer> resultTrianglesIndices) {
+        int holesCount = interiorPolygons.size();
+        int pointsCount = points3dArray.size();
+        for (List<Vector3d> interiorPolygon : interiorPolygons) {
+            pointsCount += interiorPolygon.size();
+        }
+        if (holeStarts.length < holesCount) {
+            holeStarts = new int[holesCount];
+        }
+
+        double[] coords = new double[pointsCount * 3];
+        int offset = fillCoords(points3dArray, coords, 0);
+        resultPolygonPoints.addAll(points3dArray);
+        for (int i = 0; i < holesCount; i++) {
+            List<Vector3d> interiorPolygon = interiorPolygons.get(i);
+            holeStarts[i] = offset;
+            offset = fillCoords(interiorPolygon, coords, offset);
+            resultPolygonPoints.addAll(interiorPolygon);
+        }
+
+        tessellate3D(coords, pointsCount, holeStarts, holesCount);
+        for (int i = 0; i < indicesCount; i++) {
+            resultTrianglesIndices.add(indices[i]);
+        }
+    }
+
+    private int fillCoords(List<Vector3d> points, double[] coords, int offset) {
+        for (Vector3d point : points) {
+            coords[offset * 3] = point.x;
+            coords[offset * 3 + 1] = point.y;
+            coords[offset * 3 + 2] = point.z;
+            offset++;
+        }
+        return offset;
+    }
+
+    // main ear slicing loop which triangulates a polygon (given as a linked list)
+    private void earcutLinked(int ear, int pass) {
+        if (ear == NULL) {
+            return;
+        }
+
+        // interlink polygon nodes in z-order
+        if (pass == 0 && invSize != 0) {
+            indexCurve(ear);
+        }
+
+        int stop = ear;
+        // iterate through ears, slicing them one by one
+        while (nodePrev[ear] != nodeNext[ear]) {
+            int prev = nodePrev[ear];
+            int next = nodeNext[ear];
+
+            if (invSize != 0 ? isEarHashed(ear) : isEar(ear)) {
+                addTriangle(nodeIdx[prev], nodeIdx[ear], nodeIdx[next]);
+                removeNode(ear);
+
+                // skipping the next vertex leads to less sliver triangles
+                ear = nodeNext[next];
+                stop = nodeNext[next];
+                continue;
+            }
+
+            ear = next;
+
+            // if we looped through the whole remaining polygon and can't find any more ears
+            if (ear == stop) {
+                if (pass == 0) {
+                    // try filtering points and slicing again
+                    earcutLinked(filterPoints(ear, NULL), 1);
+                } else if (pass == 1) {
+                    // if this didn't work, try curing all small self-intersections locally
+                    ear = cureLocalIntersections(filterPoints(ear, NULL));
+                    earcutLinked(ear, 2);
+                } else if (pass == 2) {
+                    // as a last resort, try splitting the remaining polygon into two
+                    splitEarcut(ear);
+                }
+                break;
+            }
+        }
+    }
+
+    // check whether a polygon node forms a valid ear with adjacent nodes
+    private boolean isEar(int ear) {
+        int a = nodePrev[ear];
+        int b = ear;
+        int c = nodeNext[ear];
+        if (area(a, b, c) >= 0) {
+            return false; // reflex, can't be an ear
+        }
+
+        double ax = nodeX[a], bx = nodeX[b], cx = nodeX[c];
+        double ay = nodeY[a], by = nodeY[b], cy = nodeY[c];
+
+        // triangle bbox
+        double x0 = Math.min(ax, Math.min(bx, cx));
+        double y0 = Math.min(ay, Math.min(by, cy));
+        double x1 = Math.max(ax, Math.max(bx, cx));
+        double y1 = Math.max(ay, Math.max(by, cy));
+
+        // now make sure we don't have other points inside the potential ear
+        int p = nodeNext[c];
+        while (p != a) {
+            if (isPointBlockingEar(p, a, c, x0, y0, x1, y1, ax, ay, bx, by, cx, cy)) {
+                return false;
+            }
+            p = nodeNext[p];
+        }
+        return true;
+    }
+
+    private boolean isEarHashed(int ear) {
+        int a = nodePrev[ear];
+        int b = ear;
+        int c = nodeNext[ear];
+        if (area(a, b, c) >= 0) {
+            return false; // reflex, can't be an ear
+        }
+
+        double ax = nodeX[a], bx = nodeX[b], cx = nodeX[c];
+        double ay = nodeY[a], by = nodeY[b], cy = nodeY[c];
+
+        // triangle bbox
+        double x0 = Math.min(ax, Math.min(bx, cx));
+        double y0 = Math.min(ay, Math.min(by, cy));
+        double x1 = Math.max(ax, Math.max(bx, cx));
+        double y1 = Math.max(ay, Math.max(by, cy));
+
+        // z-order range for the current triangle bbox
+        int minZ = zOrder(x0, y0);
+        int maxZ = zOrder(x1, y1);
+
+        int p = nodePrevZ[ear];
+        int n = nodeNextZ[ear];
+
+        // look for points inside the triangle in both directions
+        while (p != NULL && nodeZ[p] >= minZ && n != NULL && nodeZ[n] <= maxZ) {
+            if (isPointBlockingEar(p, a, c, x0, y0, x1, y1, ax, ay, bx, by, cx, cy)) {
+                return false;
+            }
+            p = nodePrevZ[p];
+            if (isPointBlockingEar(n, a, c, x0, y0, x1, y1, ax, ay, bx, by, cx, cy)) {
+                return false;
+            }
+            n = nodeNextZ[n];
+        }
+
+        // look for remaining points in decreasing z-order
+        while (p != NULL && nodeZ[p] >= minZ) {
+            if (isPointBlockingEar(p, a, c, x0, y0, x1, y1, ax, ay, bx, by, cx, cy)) {
+                return false;
+            }
+            p = nodePrevZ[p];
+        }
+
+        // look for remaining points in increasing z-order
+        while (n != NULL && nodeZ[n] <= maxZ) {
+            if (isPointBlockingEar(n, a, c, x0, y0, x1, y1, ax, ay, bx, by, cx, cy)) {
+                return false;
+            }
+            n = nodeNextZ[n];
+        }
+        return true;
+    }
+
+    private boolean isPointBlockingEar(int p, int a, int c, double x0, double y0, double x1, double y1, double ax, double ay, double bx, double by, double cx, double cy) {
+        double px = nodeX[p];
+        double py = nodeY[p];
+        return px >= x0 && px <= x1 && py >= y0 && py <= y1 && p != a && p != c
+                && pointInTriangle(ax, ay, bx, by, cx, cy, px, py)
+                && area(nodePrev[p], p, nodeNext[p]) >= 0;
+    }
+
+    // go through all polygon nodes and cure small local self-intersections
+    private int cureLocalIntersections(int start) {
+        int p = start;
+        do {
+            int a = nodePrev[p];
+            int b = nodeNext[nodeNext[p]];
+
+            if (!equals(a, b) && intersects(a, p, nodeNext[p], b) && locallyInside(a, b) && locallyInside(b, a)) {
+                addTriangle(nodeIdx[a], nodeIdx[p], nodeIdx[b]);
+
+                // remove two nodes involved
+                removeNode(p);
+                removeNode(nodeNext[p]);
+
+                p = start = b;
+            }
+            p = nodeNext[p];
+        } while (p != start);
+
+        return filterPoints(p, NULL);
+    }
+
+    // try splitting polygon into two and triangulate them independently
+    private void splitEarcut(int start) {
+        // look for a valid diagonal that divides the polygon into two
+        int a = start;
+        do {
+            int b = nodeNext[nodeNext[a]];
+            while (b != nodePrev[a]) {
+                if (nodeIdx[a] != nodeIdx[b] && isValidDiagonal(a, b)) {
+                    // split the polygon in two by the diagonal
+                    int c = splitPolygon(a, b);
+
+                    // filter colinear points around the cuts
+                    a = filterPoints(a, nodeNext[a]);
+                    c = filterPoints(c, nodeNext[c]);
+
+                    // run earcut on each half
+                    earcutLinked(a, 0);
+                    earcutLinked(c, 0);
+                    return;
+                }
+                b = nodeNext[b];
+            }
+            a = nodeNext[a];
+        } while (a != start);
+    }
+
+    // link every hole into the outer loop, producing a single-ring polygon without holes
+    private int eliminateHoles(double[] coords, int verticesCount, int[] holeIndices, int holesCount, int outerNode) {
+        if (holeQueue.length < holesCount) {
+            holeQueue = new int[holesCount];
+        }
+        int queueCount = 0;
+        for (int i = 0; i < holesCount; i++) {
+            int start = holeIndices[i];
+            int end = i < holesCount - 1 ? holeIndices[i + 1] : verticesCount;
+            int list = linkedList(coords, start, end, false);
+            if (list == NULL) {
+                continue;
+            }
+            if (list == nodeNext[list]) {
+                nodeSteiner[list] = true;
+            }
+            holeQueue[queueCount++] = getLeftmost(list);
+        }
+
+        // process holes from left to right (insertion sort, the holes count is small)
+        for (int i = 1; i < queueCount; i++) {
+            int node = holeQueue[i];
+            int j = i - 1;
+            while (j >= 0 && nodeX[holeQueue[j]] > nodeX[node]) {
+                holeQueue[j + 1] = holeQueue[j];
+                j--;
+            }
+            holeQueue[j + 1] = node;
+        }
+
+        for (int i = 0; i < queueCount; i++) {
+            outerNode = eliminateHole(holeQueue[i], outerNode);
+        }
+        return outerNode;
+    }
+
+    // find a bridge between vertices that connects hole with an outer ring and link it
+    private int eliminateHole(int hole, int outerNode) {
+        int bridge = findHoleBridge(hole, outerNode);
+        if (bridge == NULL) {
+            return outerNode;
+        }
+
+        int bridgeReverse = splitPolygon(bridge, hole);
+
+        // filter collinear points around the cuts
+        filterPoints(bridgeReverse, nodeNext[bridgeReverse]);
+        return filterPoints(bridge, nodeNext[bridge]);
+    }
+
+    // David Eberly's algorithm for finding a bridge between hole and outer polygon
+    private int findHoleBridge(int hole, int outerNode) {
+        int p = outerNode;
+        double hx = nodeX[hole];
+        double hy = nodeY[hole];
+        double qx = -Double.MAX_VALUE;
+        int m = NULL;
+
+        // find a segment intersected by a ray from the hole's leftmost point to the left;
+        // segment's endpoint with lesser x will be potential connection point
+        do {
+            int next = nodeNext[p];
+            if (hy <= nodeY[p] && hy >= nodeY[next] && nodeY[next] != nodeY[p]) {
+                double x = nodeX[p] + (hy - nodeY[p]) * (nodeX[next] - nodeX[p]) / (nodeY[next] - nodeY[p]);
+                if (x <= hx && x > qx) {
+                    qx = x;
+                    m = nodeX[p] < nodeX[next] ? p : next;
+                    if (x == hx) {
+                        return m; // hole touches outer segment; pick leftmost endpoint
+                    }
+                }
+            }
+            p = next;
+        } while (p != outerNode);
+
+        if (m == NULL) {
+            return NULL;
+        }
+
+        // look for points inside the triangle of hole point, segment intersection and endpoint;
+        // if there are no points found, we have a valid connection;
+        // otherwise choose the point of the minimum angle with the ray as connection point
+        int stop = m;
+        double mx = nodeX[m];
+        double my = nodeY[m];
+        double tanMin = Double.MAX_VALUE;
+
+        p = m;
+        do {
+            double px = nodeX[p];
+            double py = nodeY[p];
+            if (hx >= px && px >= mx && hx != px
+                    && pointInTriangle(hy < my ? hx : qx, hy, mx, my, hy < my ? qx : hx, hy, px, py)) {
+                double tan = Math.abs(hy - py) / (hx - px); // tangential
+                if (locallyInside(p, hole)
+                        && (tan < tanMin || (tan == tanMin && (px > nodeX[m] || (px == nodeX[m] && sectorContainsSector(m, p)))))) {
+                    m = p;
+                    tanMin = tan;
+                }
+            }
+            p = nodeNext[p];
+        } while (p != stop);
+
+        return m;
+    }
+
+    // whether sector in vertex m contains sector in vertex p in the same coordinates
+    private boolean sectorContainsSector(int m, int p) {
+        return area(nodePrev[m], m, nodePrev[p]) < 0 && area(nodeNext[p], m, nodeNext[m]) < 0;
+    }
+
+    // interlink polygon nodes in z-order
+    private void indexCurve(int start) {
+        int p = start;
+        do {
+            if (nodeZ[p] == 0) {
+                nodeZ[p] = zOrder(nodeX[p], nodeY[p]);
+            }
+            nodePrevZ[p] = nodePrev[p];
+            nodeNextZ[p] = nodeNext[p];
+            p = nodeNext[p];
+        } while (p != start);
+
+        nodeNextZ[nodePrevZ[p]] = NULL;
+        nodePrevZ[p] = NULL;
+
+        sortLinked(p);
+    }
+
+    // Simon Tatham's linked list merge sort algorithm
+    private int sortLinked(int list) {
+        int inSize = 1;
+        int numMerges;
+        do {
+            int p = list;
+            int tail = NULL;
+            list = NULL;
+            numMerges = 0;
+
+            while (p != NULL) {
+                numMerges++;
+                int q = p;
+                int pSize = 0;
+                for (int i = 0; i < inSize; i++) {
+                    pSize++;
+                    q = nodeNextZ[q];
+                    if (q == NULL) {
+                        break;
+                    }
+                }
+                int qSize = inSize;
+
+                while (pSize > 0 || (qSize > 0 && q != NULL)) {
+                    int e;
+                    if (pSize != 0 && (qSize == 0 || q == NULL || nodeZ[p] <= nodeZ[q])) {
+                        e = p;
+                        p = nodeNextZ[p];
+                        pSize--;
+                    } else {
+                        e = q;
+                        q = nodeNextZ[q];
+                        qSize--;
+                    }
+
+                    if (tail != NULL) {
+                        nodeNextZ[tail] = e;
+                    } else {
+                        list = e;
+                    }
+                    nodePrevZ[e] = tail;
+                    tail = e;
+                }
+                p = q;
+            }
+
+            nodeNextZ[tail] = NULL;
+            inSize *= 2;
+        } while (numMerges > 1);
+
+        return list;
+    }
+
+    // z-order of a point given coords and inverse of the longer side of data bbox
+    private int zOrder(double px, double py) {
+        // coords are transformed into non-negative 15-bit integer range
+        int x = (int) ((px - minX) * invSize);
+        int y = (int) ((py - minY) * invSize);
+
+        x = (x | (x << 8)) & 0x00FF00FF;
+        x = (x | (x << 4)) & 0x0F0F0F0F;
+        x = (x | (x << 2)) & 0x33333333;
+        x = (x | (x << 1)) & 0x55555555;
+
+        y = (y | (y << 8)) & 0x00FF00FF;
+        y = (y | (y << 4)) & 0x0F0F0F0F;
+        y = (y | (y << 2)) & 0x33333333;
+        y = (y | (y << 1)) & 0x55555555;
+
+        return x | (y << 1);
+    }
+
+    // find the leftmost node of a polygon ring
+    private int getLeftmost(int start) {
+        int p = start;
+        int leftmost = start;
+        do {
+            if (nodeX[p] < nodeX[leftmost] || (nodeX[p] == nodeX[leftmost] && nodeY[p] < nodeY[leftmost])) {
+                leftmost = p;
+            }
+            p = nodeNext[p];
+        } while (p != start);
+        return leftmost;
+    }
+
+    // check if a point lies within a convex triangle
+    private boolean pointInTriangle(double ax, double ay, double bx, double by, double cx, double cy, double px, double py) {
+        return (cx - px) * (ay - py) >= (ax - px) * (cy - py)
+                && (ax - px) * (by - py) >= (bx - px) * (ay - py)
+                && (bx - px) * (cy - py) >= (cx - px) * (by - py);
+    }
+
+    // check if a diagonal between two polygon nodes is valid (lies in polygon interior)
+    private boolean isValidDiagonal(int a, int b) {
+        return nodeIdx[nodeNext[a]] != nodeIdx[b] && nodeIdx[nodePrev[a]] != nodeIdx[b] && !intersectsPolygon(a, b) // doesn't intersect other edges
+                && ((locallyInside(a, b) && locallyInside(b, a) && middleInside(a, b) // locally visible
+                && (area(nodePrev[a], a, nodePrev[b]) != 0 || area(a, nodePrev[b], b) != 0)) // does not create opposite-facing sectors
+                || (equals(a, b) && area(nodePrev[a], a, nodeNext[a]) > 0 && area(nodePrev[b], b, nodeNext[b]) > 0)); // special zero-length case
+    }
+
+    // signed area of a triangle
+    private double area(int p, int q, int r) {
+        return (nodeY[q] - nodeY[p]) * (nodeX[r] - nodeX[q]) - (nodeX[q] - nodeX[p]) * (nodeY[r] - nodeY[q]);
+    }
+
+    // check if two points are equal
+    private boolean equals(int p1, int p2) {
+        return nodeX[p1] == nodeX[p2] && nodeY[p1] == nodeY[p2];
+    }
+
+    // check if two segments intersect
+    private boolean intersects(int p1, int q1, int p2, int q2) {
+        int o1 = sign(area(p1, q1, p2));
+        int o2 = sign(area(p1, q1, q2));
+        int o3 = sign(area(p2, q2, p1));
+        int o4 = sign(area(p2, q2, q1));
+
+        if (o1 != o2 && o3 != o4) {
+            return true; // general case
+        }
+        if (o1 == 0 && onSegment(p1, p2, q1)) {
+            return true; // p1, q1 and p2 are collinear and p2 lies on p1q1
+        }
+        if (o2 == 0 && onSegment(p1, q2, q1)) {
+            return true; // p1, q1 and q2 are collinear and q2 lies on p1q1
+        }
+        if (o3 == 0 && onSegment(p2, p1, q2)) {
+            return true; // p2, q2 and p1 are collinear and p1 lies on p2q2
+        }
+        return o4 == 0 && onSegment(p2, q1, q2); // p2, q2 and q1 are collinear and q1 lies on p2q2
+    }
+
+    // for collinear points p, q, r, check if point q lies on segment pr
+    private boolean onSegment(int p, int q, int r) {
+        return nodeX[q] <= Math.max(nodeX[p], nodeX[r]) && nodeX[q] >= Math.min(nodeX[p], nodeX[r])
+                && nodeY[q] <= Math.max(nodeY[p], nodeY[r]) && nodeY[q] >= Math.min(nodeY[p], nodeY[r]);
+    }
+
+    private int sign(double num) {
+        return num > 0 ? 1 : num < 0 ? -1 : 0;
+    }
+
+    // check if a polygon diagonal intersects any polygon segments
+    private boolean intersectsPolygon(int a, int b) {
+        int p = a;
+        do {
+            int next = nodeNext[p];
+            if (nodeIdx[p] != nodeIdx[a] && nodeIdx[next] != nodeIdx[a] && nodeIdx[p] != nodeIdx[b] && nodeIdx[next] != nodeIdx[b]
+                    && intersects(p, next, a, b)) {
+                return true;
+            }
+            p = next;
+        } while (p != a);
+        return false;
+    }
+
+    // check if a polygon diagonal is locally inside the polygon
+    private boolean locallyInside(int a, int b) {
+        return area(nodePrev[a], a, nodeNext[a]) < 0
+                ? area(a, b, nodeNext[a]) >= 0 && area(a, nodePrev[a], b) >= 0
+                : area(a, b, nodePrev[a]) < 0 || area(a, nodeNext[a], b) < 0;
+    }
+
+    // check if the middle point of a polygon diagonal is inside the polygon
+    private boolean middleInside(int a, int b) {
+        int p = a;
+        boolean inside = false;
+        double px = (nodeX[a] + nodeX[b]) / 2;
+        double py = (nodeY[a] + nodeY[b]) / 2;
+        do {
+            int next = nodeNext[p];
+            if (((nodeY[p] > py) != (nodeY[next] > py)) && nodeY[next] != nodeY[p]
+                    && (px < (nodeX[next] - nodeX[p]) * (py - nodeY[p]) / (nodeY[next] - nodeY[p]) + nodeX[p])) {
+                inside = !inside;
+            }
+            p = next;
+        } while (p != a);
+        return inside;
+    }
+
+    // link two polygon vertices with a bridge; if the vertices belong to the same ring, it splits polygon into two;
+    // if one belongs to the outer ring and another to a hole, it merges it into a single ring
+    private int splitPolygon(int a, int b) {
+        int a2 = createNode(nodeIdx[a], nodeX[a], nodeY[a]);
+        int b2 = createNode(nodeIdx[b], nodeX[b], nodeY[b]);
+        int an = nodeNext[a];
+        int bp = nodePrev[b];
+
+        nodeNext[a] = b;
+        nodePrev[b] = a;
+
+        nodeNext[a2] = an;
+        nodePrev[an] = a2;
+
+        nodeNext[b2] = a2;
+        nodePrev[a2] = b2;
+
+        nodeNext[bp] = b2;
+        nodePrev[b2] = bp;
+
+        return b2;
+    }
+
+    // create a circular doubly linked list from polygon points in the specified winding order
+    private int linkedList(double[] coords, int start, int end, boolean clockwise) {
+        int last = NULL;
+        if (clockwise == (signedArea(coords, start, end) > 0)) {
+            for (int i = start; i < end; i++) {
+                last = insertNode(i, coords[i * 2], coords[i * 2 + 1], last);
+            }
+        } else {
+            for (int i = end - 1; i >= start; i--) {
+                last = insertNode(i, coords[i * 2], coords[i * 2 + 1], last);
+            }
+        }
+
+        if (last != NULL && equals(last, nodeNext[last])) {
+            int next = nodeNext[last];
+            removeNode(last);
+            last = next;
+        }
+        return last;
+    }
+
+    // eliminate colinear or duplicate points
+    private int filterPoints(int start, int end) {
+        if (start == NULL) {
+            return start;
+        }
+        if (end == NULL) {
+            end = start;
+        }
+
+        int p = start;
+        boolean again;
+        do {
+            again = false;
+            if (!nodeSteiner[p] && (equals(p, nodeNext[p]) || area(nodePrev[p], p, nodeNext[p]) == 0)) {
+                removeNode(p);
+                p = end = nodePrev[p];
+                if (p == nodeNext[p]) {
+                    break;
+                }
+                again = true;
+            } else {
+                p = nodeNext[p];
+            }
+        } while (again || p != end);
+
+        return end;
+    }
+
+    private double signedArea(double[] coords, int start, int end) {
+        double sum = 0;
+        for (int i = start, j = end - 1; i < end; j = i++) {
+            sum += (coords[j * 2] - coords[i * 2]) * (coords[i * 2 + 1] + coords[j * 2 + 1]);
+        }
+        return sum;
+    }
+
+    // create a node and optionally link it with previous one (in a circular doubly linked list)
+    private int insertNode(int idx, double x, double y, int last) {
+        int p = createNode(idx, x, y);
+        if (last == NULL) {
+            nodePrev[p] = p;
+            nodeNext[p] = p;
+        } else {
+            nodeNext[p] = nodeNext[last];
+            nodePrev[p] = last;
+            nodePrev[nodeNext[last]] = p;
+            nodeNext[last] = p;
+        }
+        return p;
+    }
+
+    // the removed node keeps its prev and next links, the callers rely on them
+    private void removeNode(int p) {
+        nodePrev[nodeNext[p]] = nodePrev[p];
+        nodeNext[nodePrev[p]] = nodeNext[p];
+
+        if (nodePrevZ[p] != NULL) {
+            nodeNextZ[nodePrevZ[p]] = nodeNextZ[p];
+        }
+        if (nodeNextZ[p] != NULL) {
+            nodePrevZ[nodeNextZ[p]] = nodePrevZ[p];
+        }
+    }
+
+    private int createNode(int idx, double x, double y) {
+        if (nodesCount >= nodeIdx.length) {
+            ensureNodesCapacity(nodesCount * 2);
+        }
+        int p = nodesCount++;
+        nodeIdx[p] = idx;
+        nodeX[p] = x;
+        nodeY[p] = y;
+        nodePrev[p] = NULL;
+        nodeNext[p] = NULL;
+        nodeZ[p] = 0;
+        nodePrevZ[p] = NULL;
+        nodeNextZ[p] = NULL;
+        nodeSteiner[p] = false;
+        return p;
+    }
+
+    private void addTriangle(int a, int b, int c) {
+        if (indicesCount + 3 > indices.length) {
+            indices = Arrays.copyOf(indices, indices.length * 2);
+        }
+        indices[indicesCount++] = a;
+        indices[indicesCount++] = b;
+        indices[indicesCount++] = c;
+    }
+
+    private void ensureNodesCapacity(int capacity) {
+        if (nodeIdx.length >= capacity) {
+            return;
+        }
+        nodeIdx = Arrays.copyOf(nodeIdx, capacity);
+        nodeX = Arrays.copyOf(nodeX, capacity);
+        nodeY = Arrays.copyOf(nodeY, capacity);
+        nodePrev = Arrays.copyOf(nodePrev, capacity);
+        nodeNext = Arrays.copyOf(nodeNext, capacity);
+        nodeZ = Arrays.copyOf(nodeZ, capacity);
+        nodePrevZ = Arrays.copyOf(nodePrevZ, capacity);
+        nodeNextZ = Arrays.copyOf(nodeNextZ, capacity);
+        nodeSteiner = Arrays.copyOf(nodeSteiner, capacity);
+    }
+}
@@ -14,25 +14,31 @@ import java.util.stream.Collectors;
 @AllArgsConstructor
 public class GaiaExtruder {
     public List<GaiaExtrusionSurface> extrude(List<Vector3d> positions, double roofHeight, double floorHeight) {
+        List<Vector3d> cleanPositions = getCleanPositions(positions);
 
-        // check uroborus and aligned points
-        List<Vector3d> cleanPositions = new ArrayList<>();
-        double error = 1e-10;
-        GeometryUtils.getCleanPoints3dArray(positions, cleanPositions, error);
-        // End of check uroborus and aligned points.-----------------------------------
+        List<GaiaExtrusionSurface> result = new ArrayList<>();
+        List<Vector3d> roofPositions = resetHeight(cleanPositions, roofHeight);
+        List<Vector3d> floorPositions = resetHeight(cleanPositions, floorHeight);
 
-        // Check positions sense : CW or CCW
-        Vector3d normal = new Vector3d();
-        GeometryUtils.calculateNormal3D(cleanPositions, normal);
+        GaiaExtrusionSurface roof = new GaiaExtrusionSurface(roofPositions);
+        List<GaiaExtrusionSurface> wallPositions = createWallPositions(roofPositions, floorPositions);
 
-        if (normal.z < 0.0) {
-            // reverse cleanPositions
-            Collections.reverse(cleanPositions);
-        }
+        result.add(roof);
+        result.addAll(wallPositions);
+        return result;
+    }
+
+    /**
+     * Extrudes a footprint draped on the terrain, the z of each position is the terrain offset of the vertex.
+     * The floor follows the terrain, and the flat roof keeps the building height above the highest floor vertex.
+     */
+    public List<GaiaExtrusionSurface> extrudeOnTerrain(List<Vector3d> positions, double roofHeight, double floorHeight) {
+        List<Vector3d> cleanPositions = getCleanPositions(positions);
+        double maxOffset = cleanPositions.stream().mapToDouble(position -> position.z).max().orElse(0.0d);
 
         List<GaiaExtrusionSurface> result = new ArrayList<>();
-        List<Vector3d> roofPositions = resetHeight(cleanPositions, roofHeight);
-        List<Vector3d> floorPositions = resetHeight(cleanPositions, floorHeight);
+        List<Vector3d> roofPositions = resetHeight(cleanPositions, roofHeight + Math.max(maxOffset, 0.0d));
+        List<Vector3d> floorPositions = offsetHeight(cleanPositions, floorHeight);
 
         GaiaExtrusionSurface roof = new GaiaExtrusionSurface(roofPositions);
         List<GaiaExtrusionSurface> wallPositions = createWallPositions(roofPositions, floorPositions);
@@ -63,7 +69,29 @@ public class GaiaExtruder {
         return result;
     }
 
+    private List<Vector3d> getCleanPositions(List<Vector3d> positions) {
+        // check uroborus and aligned points
+        List<Vector3d> cleanPositions = new ArrayList<>();
+        double error = 1e-10;
+        GeometryUtils.getCleanPoints3dArray(positions, cleanPositions, error);
+        // End of check uroborus and aligned points.-----------------------------------
+
+        // Check positions sense : CW or CCW
+        Vector3d normal = new Vector3d();
+        GeometryUtils.calculateNormal3D(cleanPositions, normal);
+
+        if (normal.z < 0.0) {
+            // reverse cleanPositions
+            Collections.reverse(cleanPositions);
+        }
+        return cleanPositions;
+    }
+
     private List<Vector3d> resetHeight(List<Vector3d> positions, double height) {
         return positions.stream().map(position -> new Vector3dOnlyHashEquals(new Vector3d(position.x, position.y, height))).collect(Collectors.toList());
     }
+
+    private List<Vector3d> offsetHeight(List<Vector3d> positions, double height) {
+        return positions.stream().map(position -> new Vector3dOnlyHashEquals(new Vector3d(position.x, position.y, height + position.z))).collect(Collectors.toList());
+    }
 }
@@ -2,7 +2,7 @@ package com.gaia3d.basic.halfedge;
 
 import com.gaia3d.basic.geometry.GaiaBoundingBox;
 import com.gaia3d.basic.geometry.GaiaRectangle;
-import com.gaia3d.basic.geometry.octree.HalfEdgeOctree;
+import com.gaia3d.basic.geometry.octree.LinearOctree;
 import com.gaia3d.basic.model.*;
 import com.gaia3d.basic.types.AttributeType;
 import com.gaia3d.basic.types.TextureType;
@@ -269,49 +269,32 @@ public class HalfEdgeSurface implements Serializable {
             resultMapVertexToSamePosVertices = new HashMap<>();
         }
 
-        HalfEdgeOctree octree = new HalfEdgeOctree(null);
-        List<HalfEdgeVertex> verticesCopy = new ArrayList<>(vertices);
-        octree.setVertices(verticesCopy);
-        octree.calculateSize();
+        // the vertices within the distance are found across the leaf borders of the octree
+        int verticesCount = vertices.size();
+        double[] positions = new double[verticesCount * 3];
+        for (int i = 0; i < verticesCount; i++) {
+            Vector3d position = vertices.get(i).getPosition();
+            positions[i * 3] = position.x;
+            positions[i * 3 + 1] = position.y;
+            positions[i * 3 + 2] = position.z;
+        }
+        LinearOctree octree = new LinearOctree(positions);
+        octree.setCube(true);
         octree.setMaxDepth(10);
         octree.setMinBoxSize(1.0);
-        octree.makeTreeByMinVertexCount(20);
-
-        List<HalfEdgeOctree> nodesWithContents = new ArrayList<>();
-        octree.extractOctreesWithContents(nodesWithContents);
-
-        int nodesWithContentsCount = nodesWithContents.size();
-        log.info("nodesWithContentsCount = " + nodesWithContentsCount);
-        for (int i = 0; i < nodesWithContentsCount; i++) {
-            HalfEdgeOctree node = nodesWithContents.get(i);
-            List<HalfEdgeVertex> vertices = node.getVertices();
-            int verticesCount = vertices.size();
-            for (int j = 0; j < verticesCount; j++) {
-                HalfEdgeVertex vertex = vertices.get(j);
-                List<HalfEdgeVertex> samePosVertices = resultMapVertexToSamePosVertices.computeIfAbsent(vertex, k -> new ArrayList<>());
-                samePosVertices.add(vertex);
-            }
-
-            for (int j = 0; j < verticesCount; j++) {
-                HalfEdgeVertex vertex = vertices.get(j);
-
-                // find the samePosVertices of the vertex in the map
-                // loop the keys of the map
-                for (HalfEdgeVertex vertex2 : vertices) {
-                    if (vertex == vertex2) {
-                        continue;
-                    }
-                    Vector3d pos = vertex.getPosition();
-                    Vector3d pos2 = vertex2.getPosition();
-                    if (pos.distance(pos2) < 0.001) {
-                        List<HalfEdgeVertex> samePosVertices = resultMapVertexToSamePosVertices.get(vertex2);
-                        samePosVertices.add(vertex);
-
-                        List<HalfEdgeVertex> samePosVertices2 = resultMapVertexToSamePosVertices.get(vertex);
-                        samePosVertices2.add(vertex2);
-                    }
+        octree.setMinItemCount(20);
+        octree.makeTree();
+
+        for (int i = 0; i < verticesCount; i++) {
+            int vertexIndex = i;
+            HalfEdgeVertex vertex = vertices.get(i);
+            List<HalfEdgeVertex> samePosVertices = resultMapVertexToSamePosVertices.computeIfAbsent(vertex, k -> new ArrayList<>());
+            samePosVertices.add(vertex);
+            octree.forEachItemWithinDistance(positions[i * 3], positions[i * 3 + 1], positions[i * 3 + 2], 0.001, (item) -> {
+                if (item != vertexIndex) {
+                    samePosVertices.add(vertices.get(item));
                 }
-            }
+            });
         }
 
         return resultMapVertexToSamePosVertices;
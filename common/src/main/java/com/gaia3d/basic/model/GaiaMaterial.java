@@ -103,6 +103,9 @@ public class GaiaMaterial extends MaterialStructure implements Serializable {
         newMaterial.setShininess(this.shininess);
         newMaterial.setId(this.id);
         newMaterial.setName(this.name);
+        newMaterial.setRepeat(this.isRepeat);
+        newMaterial.setBlend(this.isBlend);
+        newMaterial.setOpaque(this.isOpaque);
         for (Map.Entry<TextureType, List<GaiaTexture>> entry : this.textures.entrySet()) {
             TextureType textureType = entry.getKey();
             List<GaiaTexture> gaiaTextures = entry.getValue();
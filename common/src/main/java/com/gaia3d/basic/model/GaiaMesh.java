@@ -55,6 +55,20 @@ public class GaiaMesh extends MeshStructure implements Serializable {
         return totalIndices;
     }
 
+    /**
+     * The indices narrowed to unsigned shorts while they are gathered, for the meshes with less than 65535 vertices.
+     */
+    public short[] getUnsignedShortIndices() {
+        short[] totalIndices = new short[getIndicesCount()];
+        int index = 0;
+        for (GaiaPrimitive primitive : primitives) {
+            for (int indices : primitive.getIndices()) {
+                totalIndices[index++] = (short) indices;
+            }
+        }
+        return totalIndices;
+    }
+
     public int getPositionsCount() {
         int count = 0;
         for (GaiaPrimitive primitive : primitives) {
@@ -4,7 +4,7 @@ import com.gaia3d.basic.exchangable.GaiaBuffer;
 import com.gaia3d.basic.exchangable.GaiaBufferDataSet;
 import com.gaia3d.basic.geometry.GaiaBoundingBox;
 import com.gaia3d.basic.geometry.GaiaRectangle;
-import com.gaia3d.basic.geometry.octree.GaiaOctreeVertices;
+import com.gaia3d.basic.geometry.GaiaVertexWelder;
 import com.gaia3d.basic.model.structure.PrimitiveStructure;
 import com.gaia3d.basic.types.AttributeType;
 import com.gaia3d.basic.types.GLConstants;
@@ -390,113 +390,12 @@ public class GaiaPrimitive extends PrimitiveStructure implements Serializable {
 
     public void weldVertices(double error, boolean checkTexCoord, boolean checkNormal, boolean checkColor, boolean checkBatchId) {
         // Weld the vertices.
-        GaiaOctreeVertices octreeVertices = new GaiaOctreeVertices(null);
-        octreeVertices.getVertices().addAll(this.vertices);
-        octreeVertices.calculateSize();
-        octreeVertices.setAsCube();
-        octreeVertices.setMaxDepth(10);
-        octreeVertices.setMinBoxSize(1.0); // 1m
-
-        octreeVertices.makeTreeByMinVertexCount(50);
-
-        List<GaiaOctreeVertices> octreesWithContents = new ArrayList<>();
-        octreeVertices.extractOctreesWithContents(octreesWithContents);
-
-        Map<GaiaVertex, GaiaVertex> mapVertexToVertexMaster = new HashMap<>();
-
-        for (GaiaOctreeVertices octree : octreesWithContents) {
-            List<GaiaVertex> vertices = octree.getVertices();
-            getWeldableVertexMap(mapVertexToVertexMaster, vertices, error, checkTexCoord, checkNormal, checkColor, checkBatchId);
-        }
-
-        Map<GaiaVertex, GaiaVertex> mapVertexMasters = new HashMap<>();
-        for (GaiaVertex vertexMaster : mapVertexToVertexMaster.values()) {
-            mapVertexMasters.put(vertexMaster, vertexMaster);
-        }
-
-        List<GaiaVertex> newVerticesArray = new ArrayList<>(mapVertexMasters.values());
-
-        Map<GaiaVertex, Integer> vertexIdxMap = new HashMap<>();
-        int verticesCount = newVerticesArray.size();
-        for (int i = 0; i < verticesCount; i++) {
-            vertexIdxMap.put(newVerticesArray.get(i), i);
-        }
-
-        // Now, update the indices of the faces
-        Map<GaiaFace, GaiaFace> mapDeleteFaces = new HashMap<>();
-        for (GaiaSurface surface : this.surfaces) {
-            int facesCount = surface.getFaces().size();
-            for (int j = 0; j < facesCount; j++) {
-                GaiaFace face = surface.getFaces().get(j);
-                int[] indices = face.getIndices();
-                for (int k = 0; k < indices.length; k++) {
-                    GaiaVertex vertex = this.vertices.get(indices[k]);
-                    GaiaVertex vertexMaster = mapVertexToVertexMaster.get(vertex);
-                    int index = vertexIdxMap.get(vertexMaster);
-                    indices[k] = index;
-                }
-
-                // check indices
-                for (int k = 0; k < indices.length; k++) {
-                    int index = indices[k];
-                    for (int m = k + 1; m < indices.length; m++) {
-                        if (index == indices[m]) {
-                            // must remove the face
-                            mapDeleteFaces.put(face, face);
-                        }
-                    }
-                }
-            }
-
-            if (!mapDeleteFaces.isEmpty()) {
-                List<GaiaFace> newFaces = new ArrayList<>();
-                for (int j = 0; j < facesCount; j++) {
-                    GaiaFace face = surface.getFaces().get(j);
-                    if (!mapDeleteFaces.containsKey(face)) {
-                        newFaces.add(face);
-                    }
-                }
-                surface.setFaces(newFaces);
-            }
-
-        }
-
-        // delete no used vertices
-        for (GaiaVertex vertex : this.vertices) {
-            if (!mapVertexMasters.containsKey(vertex)) {
-                vertex.clear();
-            }
-        }
+        GaiaVertexWelder vertexWelder = new GaiaVertexWelder(error, checkTexCoord, checkNormal, checkColor, checkBatchId);
+        List<GaiaVertex> newVerticesArray = vertexWelder.weld(this.vertices, this.surfaces);
         this.vertices.clear();
         this.vertices = newVerticesArray;
     }
 
-    private void getWeldableVertexMap(Map<GaiaVertex, GaiaVertex> mapVertexToVertexMaster, List<GaiaVertex> vertices, double error, boolean checkTexCoord, boolean checkNormal, boolean checkColor, boolean checkBatchId) {
-        Map<GaiaVertex, GaiaVertex> visitedMap = new HashMap<>();
-        int verticesCount = vertices.size();
-        for (int i = 0; i < verticesCount; i++) {
-            GaiaVertex vertex = vertices.get(i);
-            if (visitedMap.containsKey(vertex)) {
-                continue;
-            }
-
-            mapVertexToVertexMaster.put(vertex, vertex);
-
-            for (int j = i + 1; j < verticesCount; j++) {
-                GaiaVertex vertex2 = vertices.get(j);
-                if (visitedMap.containsKey(vertex2)) {
-                    continue;
-                }
-                if (vertex.isWeldable(vertex2, error, checkTexCoord, checkNormal, checkColor, checkBatchId)) {
-                    mapVertexToVertexMaster.put(vertex2, vertex);
-
-                    visitedMap.put(vertex, vertex);
-                    visitedMap.put(vertex2, vertex2);
-                }
-            }
-        }
-    }
-
     public boolean deleteNoUsedVertices() {
         // Sometimes, there are no used vertices
         // The no used vertices must be deleted (vertex indices of the faces will be modified!)
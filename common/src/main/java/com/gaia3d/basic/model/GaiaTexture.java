@@ -1,5 +1,6 @@
 package com.gaia3d.basic.model;
 
+import com.gaia3d.basic.exchangable.GaiaSetCache;
 import com.gaia3d.basic.model.structure.TextureStructure;
 import com.gaia3d.basic.types.TextureType;
 import com.gaia3d.util.ImageResizer;
@@ -110,9 +111,14 @@ public class GaiaTexture extends TextureStructure implements Serializable {
             }
         }
 
-        BufferedImage image = null;
+        GaiaSetCache cache = GaiaSetCache.getInstance();
+        BufferedImage image = cache.getImage(imageFile);
+        if (image != null) {
+            return image;
+        }
         try (BufferedInputStream stream = new BufferedInputStream(new FileInputStream(imageFile))) {
             image = ImageIO.read(stream);
+            cache.putImage(imageFile, image);
         } catch (IOException e) {
             log.error("[ERROR] :", e);
         }
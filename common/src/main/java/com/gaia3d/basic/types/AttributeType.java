@@ -15,7 +15,8 @@ public enum AttributeType implements Serializable {
     NORMAL("NORMAL3", "NORMAL"),
     TEXCOORD("TEXCOORD2", "TEXCOORD_0"),
     COLOR("COLOR4", "COLOR_0"),
-    BATCHID("OBJECTID", "_BATCHID");
+    BATCHID("OBJECTID", "_BATCHID"),
+    FEATURE_ID("FEATUREID", "_FEATURE_ID_0");
 
     final String gaia;
     final String accessor;
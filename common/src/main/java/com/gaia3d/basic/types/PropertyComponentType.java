@@ -0,0 +1,95 @@
+package com.gaia3d.basic.types;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.nio.ByteBuffer;
+import java.util.regex.Pattern;
+
+/**
+ * Enumerates the numeric component types of feature properties,
+ * with the names used by the batch table binary body and by the glTF structural metadata.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum PropertyComponentType {
+    BYTE("BYTE", "INT8", 1),
+    UNSIGNED_BYTE("UNSIGNED_BYTE", "UINT8", 1),
+    SHORT("SHORT", "INT16", 2),
+    UNSIGNED_SHORT("UNSIGNED_SHORT", "UINT16", 2),
+    INT("INT", "INT32", 4),
+    UNSIGNED_INT("UNSIGNED_INT", "UINT32", 4),
+    FLOAT("FLOAT", "FLOAT32", 4),
+    DOUBLE("DOUBLE", "FLOAT64", 8);
+
+    private static final Pattern NUMBER_PATTERN = Pattern.compile("-?(0|[1-9]\\d*)(\\.\\d+)?([eE][+-]?\\d+)?");
+    private static final Pattern INTEGER_PATTERN = Pattern.compile("-?(0|[1-9]\\d{0,17})");
+    private static final long MAX_SAFE_INTEGER = 1L << 53;
+
+    private final String batchTableName;
+    private final String metadataName;
+    private final int byteSize;
+
+    public void put(ByteBuffer buffer, String value) {
+        switch (this) {
+            case BYTE, UNSIGNED_BYTE -> buffer.put((byte) Long.parseLong(value));
+            case SHORT, UNSIGNED_SHORT -> buffer.putShort((short) Long.parseLong(value));
+            case INT, UNSIGNED_INT -> buffer.putInt((int) Long.parseLong(value));
+            case FLOAT -> buffer.putFloat(Float.parseFloat(value));
+            case DOUBLE -> buffer.putDouble(Double.parseDouble(value));
+        }
+    }
+
+    /**
+     * Finds the narrowest component type that holds every value.
+     * Integers pick the smallest integer type of their range, decimals FLOAT when every value round-trips through a float.
+     * @return null when a value is missing, is not a plain number, or is an integer beyond the double precision
+     */
+    public static PropertyComponentType find(String[] values) {
+        if (values.length == 0) {
+            return null;
+        }
+        boolean isInteger = true;
+        boolean isFloat = true;
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (String value : values) {
+            if (value == null || !NUMBER_PATTERN.matcher(value).matches()) {
+                return null;
+            }
+            boolean isIntegerValue = value.indexOf('.') < 0 && value.indexOf('e') < 0 && value.indexOf('E') < 0;
+            if (isIntegerValue) {
+                // identifiers beyond the double precision stay strings
+                if (!INTEGER_PATTERN.matcher(value).matches() || Math.abs(Long.parseLong(value)) > MAX_SAFE_INTEGER) {
+                    return null;
+                }
+                long number = Long.parseLong(value);
+                min = Math.min(min, number);
+                max = Math.max(max, number);
+            } else {
+                isInteger = false;
+            }
+            if (isFloat) {
+                double number = Double.parseDouble(value);
+                isFloat = Double.parseDouble(Float.toString((float) number)) == number;
+            }
+        }
+        if (isInteger) {
+            if (min >= 0 && max <= 0xFF) {
+                return UNSIGNED_BYTE;
+            } else if (min >= Byte.MIN_VALUE && max <= Byte.MAX_VALUE) {
+                return BYTE;
+            } else if (min >= 0 && max <= 0xFFFF) {
+                return UNSIGNED_SHORT;
+            } else if (min >= Short.MIN_VALUE && max <= Short.MAX_VALUE) {
+                return SHORT;
+            } else if (min >= 0 && max <= 0xFFFFFFFFL) {
+                return UNSIGNED_INT;
+            } else if (min >= Integer.MIN_VALUE && max <= Integer.MAX_VALUE) {
+                return INT;
+            }
+            return DOUBLE;
+        }
+        return isFloat ? FLOAT : DOUBLE;
+    }
+}
@@ -238,8 +238,8 @@ public class ImageUtils {
                 result[0] = width;
                 result[1] = height;
 
-                log.info("Width: " + width);
-                log.info("Height: " + height);
+                log.debug("Width: " + width);
+                log.debug("Height: " + height);
 
                 reader.dispose();
 
@@ -18,6 +18,17 @@ public class StringUtils {
         return doPaddingBytes(text, 8);
     }
 
+    /**
+     * Pads the text so that the text written after the given byte offset ends on an 8 byte boundary.
+     */
+    public static String doPadding8Bytes(String text, int offset) {
+        int remainder = (offset + text.length()) % 8;
+        if (remainder == 0) {
+            return text;
+        }
+        return text + " ".repeat(8 - remainder);
+    }
+
     private static String doPaddingBytes(String text, int byteSize) {
         int length = text.length();
         StringBuilder featureTableText = new StringBuilder(text);
@@ -7,7 +7,7 @@ import com.gaia3d.basic.geometry.octree.HalfEdgeOctree;
 import com.gaia3d.basic.halfedge.DecimateParameters;
 import com.gaia3d.basic.halfedge.HalfEdgeScene;
 import com.gaia3d.basic.model.GaiaScene;
-import com.gaia3d.basic.model.GaiaTexture;
+import com.gaia3d.renderer.software.SoftwareRenderer;
 import lombok.extern.slf4j.Slf4j;
 import org.joml.Matrix4d;
 
@@ -15,47 +15,58 @@ import java.awt.image.BufferedImage;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * Extension module without OpenGL, the photorealistic rendering runs on the software rasterizer.
+ */
 @Slf4j
 public class TilerExtensionModule implements ExtensionModuleFrame {
+    SoftwareRenderer renderer;
 
     @Override
     public String getName() {
-        return "Non-Extension Project";
+        return "Software Renderer Project";
     }
 
     @Override
     public boolean isSupported() {
-        return false;
+        return true;
     }
 
     @Override
     public GaiaScene executePhotorealistic(GaiaScene gaiaScene, Map<String, Object> options) {
-        log.debug("Cannot execute photorealistic extension module.");
-        log.debug("This module is not implemented.");
+        log.debug("The photorealistic rendering runs on the software renderer.");
         log.debug("----------------------------------------");
         return null;
     }
 
     @Override
     public void getColorAndDepthRender(List<SceneInfo> sceneInfos, int bufferedImageType, List<BufferedImage> resultImages, GaiaBoundingBox nodeBBox, Matrix4d nodeTMatrix, int maxScreenSize, int maxDepthScreenSize) {
-
+        if (renderer == null) renderer = new SoftwareRenderer();
+        renderer.getColorAndDepthRender(sceneInfos, bufferedImageType, resultImages, nodeBBox, nodeTMatrix, maxScreenSize, maxDepthScreenSize);
     }
 
     @Override
     public void makeNetSurfacesWithBoxTexturesObliqueCamera(List<GaiaScene> scenes, List<HalfEdgeScene> resultHalfEdgeScenes, DecimateParameters decimateParameters, double depthTexPixelsForMeter, double screenPixelsForMeter) {
-
+        if (renderer == null) renderer = new SoftwareRenderer();
+        renderer.makeNetSurfacesWithBoxTexturesObliqueCamera(scenes, resultHalfEdgeScenes, decimateParameters, depthTexPixelsForMeter, screenPixelsForMeter);
     }
 
     @Override
     public void decimateAndCutByObliqueCamera(List<GaiaScene> scenes, List<HalfEdgeScene> resultHalfEdgeScenes, DecimateParameters decimateParameters,
-                                              HalfEdgeOctree octree, List<GaiaAAPlane> cuttingPlanes, double screenPixelsForMeter, boolean makeSkirt){
+                                              HalfEdgeOctree octree, List<GaiaAAPlane> cuttingPlanes, double screenPixelsForMeter, boolean makeSkirt) {
+        if (renderer == null) renderer = new SoftwareRenderer();
+        renderer.decimateAndCutByObliqueCamera(scenes, resultHalfEdgeScenes, decimateParameters, octree, cuttingPlanes, screenPixelsForMeter, makeSkirt);
     }
+
     @Override
     public void decimateNetSurfaceAndCutByObliqueCamera(List<GaiaScene> scenes, List<HalfEdgeScene> resultHalfEdgeScenes, DecimateParameters decimateParameters,
                                                         HalfEdgeOctree octree, List<GaiaAAPlane> cuttingPlanes, double depthTexPixelsForMeter, double screenPixelsForMeter, boolean makeSkirt) {
+        if (renderer == null) renderer = new SoftwareRenderer();
+        renderer.decimateNetSurfaceAndCutByObliqueCamera(scenes, resultHalfEdgeScenes, decimateParameters, octree, cuttingPlanes, depthTexPixelsForMeter, screenPixelsForMeter, makeSkirt);
     }
 
     @Override
     public void deleteObjects() {
+        renderer = null;
     }
 }
@@ -0,0 +1,212 @@
+package com.gaia3d.renderer.software;
+
+import com.gaia3d.basic.geometry.GaiaRectangle;
+import com.gaia3d.basic.halfedge.CameraDirectionType;
+import com.gaia3d.basic.halfedge.HalfEdgeFace;
+import com.gaia3d.basic.halfedge.HalfEdgeVertex;
+import com.gaia3d.basic.model.GaiaTexture;
+import com.gaia3d.util.GaiaTextureUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.joml.Vector2d;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.*;
+import java.util.List;
+
+/**
+ * Packs the images of the oblique cameras into one atlas texture, the same mosaic as the OpenGL renderer.
+ * The images are placed alternating the wide and the high ones, largest first,
+ * at the corner of a placed image which gives the smallest perimeter of the mosaic.
+ */
+@Slf4j
+public class BoxTextureAtlas {
+    private static final double TEXCOORD_ERROR = 0.0025;
+
+    public static void packTextures(List<BoxTextureData> textureDataList) {
+        List<BoxTextureData> widerList = new ArrayList<>();
+        List<BoxTextureData> higherList = new ArrayList<>();
+        for (BoxTextureData textureData : textureDataList) {
+            GaiaRectangle originalBoundary = textureData.getOriginalBoundary();
+            if (originalBoundary.getWidth() > originalBoundary.getHeight()) {
+                widerList.add(textureData);
+            } else {
+                higherList.add(textureData);
+            }
+        }
+        widerList.sort((o1, o2) -> Double.compare(o2.getOriginalBoundary().getWidth(), o1.getOriginalBoundary().getWidth()));
+        higherList.sort((o1, o2) -> Double.compare(o2.getOriginalBoundary().getHeight(), o1.getOriginalBoundary().getHeight()));
+
+        textureDataList.clear();
+        int maxCount = Math.max(widerList.size(), higherList.size());
+        for (int i = 0; i < maxCount; i++) {
+            if (i < widerList.size()) {
+                textureDataList.add(widerList.get(i));
+            }
+            if (i < higherList.size()) {
+                textureDataList.add(higherList.get(i));
+            }
+        }
+
+        GaiaRectangle mosaicRectangle = new GaiaRectangle(0.0, 0.0, 0.0, 0.0);
+        TreeMap<Double, List<GaiaRectangle>> maxXRectanglesMap = new TreeMap<>();
+        List<BoxTextureData> placedList = new ArrayList<>();
+        Vector2d bestPosition = new Vector2d();
+        for (int i = 0; i < textureDataList.size(); i++) {
+            BoxTextureData textureData = textureDataList.get(i);
+            GaiaRectangle originalBoundary = textureData.getOriginalBoundary();
+            GaiaRectangle batchedBoundary;
+            if (i == 0) {
+                batchedBoundary = new GaiaRectangle(0.0, 0.0, originalBoundary.getWidthInt(), originalBoundary.getHeightInt());
+                textureData.setBatchedBoundary(batchedBoundary);
+                mosaicRectangle.copyFrom(batchedBoundary);
+            } else {
+                getBestPosition(placedList, textureData, bestPosition, mosaicRectangle, maxXRectanglesMap);
+                batchedBoundary = new GaiaRectangle(bestPosition.x, bestPosition.y, bestPosition.x + originalBoundary.getWidthInt(), bestPosition.y + originalBoundary.getHeightInt());
+                textureData.setBatchedBoundary(batchedBoundary);
+                mosaicRectangle.addBoundingRectangle(batchedBoundary);
+            }
+            placedList.add(textureData);
+            maxXRectanglesMap.computeIfAbsent(batchedBoundary.getMaxX(), k -> new ArrayList<>()).add(batchedBoundary);
+        }
+    }
+
+    /**
+     * Moves the texture coordinates of the faces from their camera image into the atlas.
+     */
+    public static void recalculateTexCoords(List<BoxTextureData> textureDataList, Map<Integer, Map<CameraDirectionType, List<HalfEdgeFace>>> mapClassifyIdCameraDirectionTypeFaces) {
+        int maxWidth = getMaxWidth(textureDataList);
+        int maxHeight = getMaxHeight(textureDataList);
+        if (maxWidth == 0 || maxHeight == 0) {
+            return;
+        }
+
+        List<HalfEdgeVertex> faceVertices = new ArrayList<>();
+        for (BoxTextureData textureData : textureDataList) {
+            Map<CameraDirectionType, List<HalfEdgeFace>> mapCameraDirectionTypeFaces = mapClassifyIdCameraDirectionTypeFaces.get(textureData.getClassifyId());
+            if (mapCameraDirectionTypeFaces == null) {
+                continue;
+            }
+            List<HalfEdgeFace> faceGroup = mapCameraDirectionTypeFaces.get(textureData.getCameraDirectionType());
+            if (faceGroup == null) {
+                continue;
+            }
+
+            GaiaRectangle originalBoundary = textureData.getOriginalBoundary();
+            GaiaRectangle batchedBoundary = textureData.getBatchedBoundary();
+            double texWidth = textureData.getTextureImage().getWidth();
+            double texHeight = textureData.getTextureImage().getHeight();
+            double xPixelSize = 1.0 / texWidth;
+            double yPixelSize = 1.0 / texHeight;
+
+            Set<HalfEdgeVertex> groupVertices = new LinkedHashSet<>();
+            for (HalfEdgeFace face : faceGroup) {
+                faceVertices.clear();
+                groupVertices.addAll(face.getVertices(faceVertices));
+            }
+
+            for (HalfEdgeVertex vertex : groupVertices) {
+                Vector2d texCoord = vertex.getTexcoords();
+                double xRel = (texCoord.x * texWidth - originalBoundary.getMinX()) / originalBoundary.getWidth();
+                double yRel = (texCoord.y * texHeight - originalBoundary.getMinY()) / originalBoundary.getHeight();
+
+                // keep the texture coordinates one pixel inside the image
+                xRel = Math.max(xPixelSize, Math.min(1.0 - xPixelSize, xRel));
+                yRel = Math.max(yPixelSize, Math.min(1.0 - yPixelSize, yRel));
+
+                double xAtlas = (batchedBoundary.getMinX() + xRel * batchedBoundary.getWidth()) / maxWidth;
+                double yAtlas = (batchedBoundary.getMinY() + yRel * batchedBoundary.getHeight()) / maxHeight;
+                Vector2d texCoordFinal = new Vector2d(xAtlas, yAtlas);
+                GaiaTextureUtils.clampTextureCoordinate(texCoordFinal, TEXCOORD_ERROR);
+                vertex.setTexcoords(texCoordFinal);
+            }
+        }
+    }
+
+    public static GaiaTexture makeAtlasTexture(List<BoxTextureData> textureDataList) {
+        int maxWidth = getMaxWidth(textureDataList);
+        int maxHeight = getMaxHeight(textureDataList);
+        if (maxWidth == 0 || maxHeight == 0) {
+            log.error("[ERROR] makeAtlasTexture() : maxWidth or maxHeight is 0.");
+            return null;
+        }
+
+        GaiaTexture textureAtlas = new GaiaTexture();
+        log.info("[Tile][PhotoRealistic][makeAtlasTexture] Atlas maxWidth : " + maxWidth + " , maxHeight : " + maxHeight);
+        textureAtlas.createImage(maxWidth, maxHeight, BufferedImage.TYPE_INT_RGB);
+
+        Graphics2D g2d = textureAtlas.getBufferedImage().createGraphics();
+        for (BoxTextureData textureData : textureDataList) {
+            GaiaRectangle batchedBoundary = textureData.getBatchedBoundary();
+            g2d.drawImage(textureData.getTextureImage(), (int) batchedBoundary.getMinX(), (int) batchedBoundary.getMinY(), null);
+        }
+        g2d.dispose();
+        return textureAtlas;
+    }
+
+    private static int getMaxWidth(List<BoxTextureData> textureDataList) {
+        return textureDataList.stream().mapToInt(textureData -> (int) textureData.getBatchedBoundary().getMaxX()).max().orElse(0);
+    }
+
+    private static int getMaxHeight(List<BoxTextureData> textureDataList) {
+        return textureDataList.stream().mapToInt(textureData -> (int) textureData.getBatchedBoundary().getMaxY()).max().orElse(0);
+    }
+
+    /**
+     * Tries the left-up and the right-down corners of the placed images and keeps the position with the smallest perimeter of the mosaic.
+     */
+    private static void getBestPosition(List<BoxTextureData> placedList, BoxTextureData textureData, Vector2d resultPosition,
+                                        GaiaRectangle mosaicRectangle, TreeMap<Double, List<GaiaRectangle>> maxXRectanglesMap) {
+        double width = textureData.getOriginalBoundary().getWidthInt();
+        double height = textureData.getOriginalBoundary().getHeightInt();
+        double candidatePosX = 0.0;
+        double candidatePosY = 0.0;
+        double candidatePerimeter = -1.0;
+        double error = 1.0 - 1e-6;
+        GaiaRectangle rectangle = new GaiaRectangle(0.0, 0.0, 0.0, 0.0);
+        textureData.setBatchedBoundary(rectangle);
+
+        for (BoxTextureData placed : placedList) {
+            GaiaRectangle placedRectangle = placed.getBatchedBoundary();
+            double[][] corners = {{placedRectangle.getMinX(), placedRectangle.getMaxY()}, {placedRectangle.getMaxX(), placedRectangle.getMinY()}};
+            boolean found = false;
+            for (double[] corner : corners) {
+                rectangle.setSize(corner[0], corner[1], corner[0] + width, corner[1] + height);
+                if (intersects(rectangle, maxXRectanglesMap)) {
+                    continue;
+                }
+                GaiaRectangle afterMosaicRectangle = new GaiaRectangle(0.0, 0.0, 0.0, 0.0);
+                afterMosaicRectangle.copyFrom(mosaicRectangle);
+                afterMosaicRectangle.addBoundingRectangle(rectangle);
+                double perimeter = afterMosaicRectangle.getPerimeter();
+                if (candidatePerimeter < 0.0) {
+                    candidatePerimeter = perimeter;
+                    candidatePosX = corner[0];
+                    candidatePosY = corner[1];
+                } else if (candidatePerimeter >= perimeter * error) {
+                    candidatePerimeter = perimeter;
+                    candidatePosX = corner[0];
+                    candidatePosY = corner[1];
+                    found = true;
+                    break;
+                }
+            }
+            if (found) {
+                break;
+            }
+        }
+        resultPosition.set(candidatePosX, candidatePosY);
+    }
+
+    private static boolean intersects(GaiaRectangle rectangle, TreeMap<Double, List<GaiaRectangle>> maxXRectanglesMap) {
+        double error = 10E-5;
+        for (List<GaiaRectangle> placedRectangles : maxXRectanglesMap.tailMap(rectangle.getMinX()).values()) {
+            for (GaiaRectangle placedRectangle : placedRectangles) {
+                if (placedRectangle != rectangle && placedRectangle.intersects(rectangle, error)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,41 @@
+package com.gaia3d.renderer.software;
+
+import com.gaia3d.basic.geometry.GaiaRectangle;
+import com.gaia3d.basic.halfedge.CameraDirectionType;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Image rendered by an oblique camera for the faces of a classify id, and its place in the texture atlas.
+ */
+@Getter
+@Setter
+public class BoxTextureData {
+    private int classifyId = -1;
+    private CameraDirectionType cameraDirectionType = CameraDirectionType.CAMERA_DIRECTION_UNKNOWN;
+    private BufferedImage textureImage;
+    private GaiaRectangle originalBoundary;
+    private GaiaRectangle batchedBoundary;
+
+    public BoxTextureData(int classifyId, CameraDirectionType cameraDirectionType, BufferedImage textureImage) {
+        this.classifyId = classifyId;
+        this.cameraDirectionType = cameraDirectionType;
+        setTextureImage(textureImage);
+    }
+
+    public void setTextureImage(BufferedImage textureImage) {
+        this.textureImage = textureImage;
+        this.originalBoundary = new GaiaRectangle(0, 0, textureImage.getWidth(), textureImage.getHeight());
+    }
+
+    public void deleteObjects() {
+        if (textureImage != null) {
+            textureImage.flush();
+        }
+        textureImage = null;
+        originalBoundary = null;
+        batchedBoundary = null;
+    }
+}
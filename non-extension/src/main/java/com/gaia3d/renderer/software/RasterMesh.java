@@ -0,0 +1,148 @@
+package com.gaia3d.renderer.software;
+
+import com.gaia3d.basic.model.*;
+import com.gaia3d.basic.types.TextureType;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.joml.Matrix4d;
+import org.joml.Vector2d;
+import org.joml.Vector3d;
+import org.joml.Vector4d;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Triangles of a primitive prepared for the software rasterizer.
+ * The positions are in the local coordinates of the primitive, the object matrix is the pre-multiplied matrix of its node.
+ * Primitives with a diffuse texture are textured, the others are drawn with the diffuse color of their material.
+ */
+@Slf4j
+@Getter
+public class RasterMesh {
+    private final Matrix4d objectMatrix;
+    private final double[] positions; // xyz
+    private final double[] texcoords; // uv, null without texture
+    private final int[] indices; // 3 per triangle
+    private final int[] faceIds; // 1 per triangle
+    private final RasterTexture texture;
+    private final float[] color; // rgba
+
+    public RasterMesh(Matrix4d objectMatrix, double[] positions, double[] texcoords, int[] indices, int[] faceIds, RasterTexture texture, float[] color) {
+        this.objectMatrix = objectMatrix;
+        this.positions = positions;
+        this.texcoords = texcoords;
+        this.indices = indices;
+        this.faceIds = faceIds;
+        this.texture = texture;
+        this.color = color;
+    }
+
+    public int getTriangleCount() {
+        return indices.length / 3;
+    }
+
+    /**
+     * Copies the primitives of the scene, the scene can be modified or cleared afterward.
+     */
+    public static List<RasterMesh> fromScene(GaiaScene scene) {
+        List<RasterMesh> meshes = new ArrayList<>();
+        Map<BufferedImage, RasterTexture> textures = new IdentityHashMap<>();
+        for (GaiaNode node : scene.getNodes()) {
+            addNode(scene, node, new Matrix4d(), meshes, textures);
+        }
+        return meshes;
+    }
+
+    private static void addNode(GaiaScene scene, GaiaNode node, Matrix4d parentMatrix, List<RasterMesh> meshes, Map<BufferedImage, RasterTexture> textures) {
+        Matrix4d objectMatrix = new Matrix4d(parentMatrix);
+        if (node.getTransformMatrix() != null) {
+            objectMatrix.mul(node.getTransformMatrix());
+        }
+        for (GaiaMesh mesh : node.getMeshes()) {
+            for (GaiaPrimitive primitive : mesh.getPrimitives()) {
+                RasterMesh rasterMesh = fromPrimitive(scene, primitive, objectMatrix, textures);
+                if (rasterMesh != null) {
+                    meshes.add(rasterMesh);
+                }
+            }
+        }
+        for (GaiaNode child : node.getChildren()) {
+            addNode(scene, child, objectMatrix, meshes, textures);
+        }
+    }
+
+    private static RasterMesh fromPrimitive(GaiaScene scene, GaiaPrimitive primitive, Matrix4d objectMatrix, Map<BufferedImage, RasterTexture> textures) {
+        GaiaMaterial material = scene.getMaterials().stream()
+                .filter((materialToFind) -> materialToFind.getId() == primitive.getMaterialIndex())
+                .findFirst()
+                .orElse(null);
+
+        float[] color;
+        RasterTexture texture = null;
+        if (material == null) {
+            color = new float[]{0.2f, 0.95f, 0.2f, 1.0f};
+        } else {
+            Vector4d diffuseColor = material.getDiffuseColor();
+            color = new float[]{(float) diffuseColor.x, (float) diffuseColor.y, (float) diffuseColor.z, (float) diffuseColor.w};
+            List<GaiaTexture> diffuseTextures = material.getTextures().get(TextureType.DIFFUSE);
+            if (diffuseTextures != null && !diffuseTextures.isEmpty()) {
+                BufferedImage image = diffuseTextures.get(0).getBufferedImage();
+                if (image == null) {
+                    log.error("[ERROR] bufferedImage is null.");
+                    return null;
+                }
+                texture = textures.computeIfAbsent(image, RasterTexture::new);
+            }
+        }
+
+        List<GaiaVertex> vertices = primitive.getVertices();
+        int vertexCount = vertices.size();
+        double[] positions = new double[vertexCount * 3];
+        double[] texcoords = texture != null ? new double[vertexCount * 2] : null;
+        for (int i = 0; i < vertexCount; i++) {
+            GaiaVertex vertex = vertices.get(i);
+            Vector3d position = vertex.getPosition();
+            positions[i * 3] = position.x;
+            positions[i * 3 + 1] = position.y;
+            positions[i * 3 + 2] = position.z;
+            if (texcoords != null) {
+                Vector2d texcoord = vertex.getTexcoords();
+                if (texcoord != null) {
+                    texcoords[i * 2] = texcoord.x;
+                    texcoords[i * 2 + 1] = texcoord.y;
+                }
+            }
+        }
+
+        // the polygons are triangulated as fans
+        List<int[]> triangles = new ArrayList<>();
+        List<Integer> triangleFaceIds = new ArrayList<>();
+        for (GaiaSurface surface : primitive.getSurfaces()) {
+            for (GaiaFace face : surface.getFaces()) {
+                int[] faceIndices = face.getIndices();
+                if (faceIndices == null) {
+                    continue;
+                }
+                for (int i = 2; i < faceIndices.length; i++) {
+                    triangles.add(new int[]{faceIndices[0], faceIndices[i - 1], faceIndices[i]});
+                    triangleFaceIds.add(face.getId());
+                }
+            }
+        }
+        if (triangles.isEmpty()) {
+            return null;
+        }
+
+        int[] indices = new int[triangles.size() * 3];
+        int[] faceIds = new int[triangles.size()];
+        for (int i = 0; i < triangles.size(); i++) {
+            System.arraycopy(triangles.get(i), 0, indices, i * 3, 3);
+            faceIds[i] = triangleFaceIds.get(i);
+        }
+        return new RasterMesh(new Matrix4d(objectMatrix), positions, texcoords, indices, faceIds, texture, color);
+    }
+}
@@ -0,0 +1,10 @@
+package com.gaia3d.renderer.software;
+
+/**
+ * What the software rasterizer writes into the color buffer, like the shader programs of the OpenGL renderer.
+ * COLOR is the texture or the diffuse color, DEPTH the depth packed into the rgba bytes,
+ * FACE_ID writes the face ids of the triangles into the face id buffer.
+ */
+public enum RasterShadingType {
+    COLOR, DEPTH, FACE_ID
+}
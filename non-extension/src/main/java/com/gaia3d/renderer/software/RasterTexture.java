@@ -0,0 +1,58 @@
+package com.gaia3d.renderer.software;
+
+import lombok.Getter;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * ARGB pixels of a texture image, sampled bilinearly with repeat wrapping like the GL_LINEAR, GL_REPEAT textures of the OpenGL renderer.
+ * The textures are not flipped, so the texture coordinate (0, 0) is the top left pixel of the image.
+ */
+@Getter
+public class RasterTexture {
+    private final int width;
+    private final int height;
+    private final int[] pixels;
+
+    public RasterTexture(BufferedImage image) {
+        this.width = image.getWidth();
+        this.height = image.getHeight();
+        this.pixels = image.getRGB(0, 0, width, height, null, 0, width);
+    }
+
+    /**
+     * Samples the texture into the rgba components in the range 0 to 1.
+     */
+    public void sample(double u, double v, float[] result) {
+        double x = u * width - 0.5;
+        double y = v * height - 0.5;
+        int x0 = (int) Math.floor(x);
+        int y0 = (int) Math.floor(y);
+        float fx = (float) (x - x0);
+        float fy = (float) (y - y0);
+        int x1 = wrap(x0 + 1, width);
+        int y1 = wrap(y0 + 1, height);
+        x0 = wrap(x0, width);
+        y0 = wrap(y0, height);
+
+        int c00 = pixels[y0 * width + x0];
+        int c10 = pixels[y0 * width + x1];
+        int c01 = pixels[y1 * width + x0];
+        int c11 = pixels[y1 * width + x1];
+        result[0] = interpolate(c00 >> 16, c10 >> 16, c01 >> 16, c11 >> 16, fx, fy);
+        result[1] = interpolate(c00 >> 8, c10 >> 8, c01 >> 8, c11 >> 8, fx, fy);
+        result[2] = interpolate(c00, c10, c01, c11, fx, fy);
+        result[3] = interpolate(c00 >>> 24, c10 >>> 24, c01 >>> 24, c11 >>> 24, fx, fy);
+    }
+
+    private float interpolate(int c00, int c10, int c01, int c11, float fx, float fy) {
+        float top = (c00 & 0xFF) + ((c10 & 0xFF) - (c00 & 0xFF)) * fx;
+        float bottom = (c01 & 0xFF) + ((c11 & 0xFF) - (c01 & 0xFF)) * fx;
+        return (top + (bottom - top) * fy) / 255.0f;
+    }
+
+    private static int wrap(int index, int size) {
+        int result = index % size;
+        return result < 0 ? result + size : result;
+    }
+}
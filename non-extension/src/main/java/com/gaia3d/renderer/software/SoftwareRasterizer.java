@@ -0,0 +1,359 @@
+package com.gaia3d.renderer.software;
+
+import com.gaia3d.basic.geometry.GaiaBoundingBox;
+import lombok.Getter;
+import lombok.Setter;
+import org.joml.Matrix4d;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Tile based triangle rasterizer running on the cpu, the headless replacement of the framebuffers of the OpenGL renderer.
+ * The triangles are transformed and binned into tiles of 32 x 32 pixels in the order they are drawn,
+ * then the tiles are rasterized in parallel, each tile by one thread, so the result does not depend on the thread count.
+ * It follows the OpenGL conventions : pixel centers at half pixels with the top-left fill rule,
+ * counter-clockwise front faces, a depth test with GL_LESS and fragments outside the near and far planes discarded.
+ * The row 0 of the buffers is the top row of the image, as read back from the framebuffers.
+ */
+@Getter
+@Setter
+public class SoftwareRasterizer {
+    private static final int TILE_SIZE = 32;
+
+    private final int width;
+    private final int height;
+    private final int[] colors; // argb
+    private final float[] depths; // 0 to 1
+    private final int[] faceIds; // -1 is the background
+
+    private RasterShadingType shadingType = RasterShadingType.COLOR;
+    private boolean cullBackFaces = false;
+    private boolean blend = false;
+    // only the fragments inside the box are drawn, the box is in the coordinates transformed by the object matrices
+    private GaiaBoundingBox delimitingBox = null;
+    private Matrix4d projectionMatrix = new Matrix4d();
+    private Matrix4d modelViewMatrix = new Matrix4d();
+
+    public SoftwareRasterizer(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.colors = new int[width * height];
+        this.depths = new float[width * height];
+        this.faceIds = new int[width * height];
+        clear(1.0f, 1.0f, 1.0f, 1.0f);
+    }
+
+    public void clear(float red, float green, float blue, float alpha) {
+        Arrays.fill(colors, toArgb(red, green, blue, alpha));
+        Arrays.fill(depths, 1.0f);
+        Arrays.fill(faceIds, -1);
+    }
+
+    public BufferedImage getImage(int bufferedImageType) {
+        BufferedImage image = new BufferedImage(width, height, bufferedImageType);
+        image.setRGB(0, 0, width, height, colors, 0, width);
+        return image;
+    }
+
+    public void draw(List<RasterMesh> meshes) {
+        int meshesCount = meshes.size();
+        ProjectedMesh[] projectedMeshes = new ProjectedMesh[meshesCount];
+        int trianglesCount = 0;
+        for (int i = 0; i < meshesCount; i++) {
+            projectedMeshes[i] = project(meshes.get(i));
+            trianglesCount += projectedMeshes[i].mesh.getTriangleCount();
+        }
+
+        // triangle setup, the vertices of the triangles are reordered to a positive area on the screen
+        int tilesX = (width + TILE_SIZE - 1) / TILE_SIZE;
+        int tilesY = (height + TILE_SIZE - 1) / TILE_SIZE;
+        int[] triangleMeshes = new int[trianglesCount];
+        int[] triangleIndices = new int[trianglesCount];
+        int[] triangleVertices = new int[trianglesCount * 3];
+        int[] triangleTiles = new int[trianglesCount * 4];
+        int[] tileOffsets = new int[tilesX * tilesY + 1];
+        int acceptedCount = 0;
+        for (int m = 0; m < meshesCount; m++) {
+            ProjectedMesh projected = projectedMeshes[m];
+            int[] indices = projected.mesh.getIndices();
+            for (int t = 0; t < projected.mesh.getTriangleCount(); t++) {
+                int a = indices[t * 3];
+                int b = indices[t * 3 + 1];
+                int c = indices[t * 3 + 2];
+                if (!projected.visible[a] || !projected.visible[b] || !projected.visible[c]) {
+                    continue;
+                }
+                double area = edge(projected, a, b, projected.screenX[c], projected.screenY[c]);
+                if (area == 0.0 || Double.isNaN(area)) {
+                    continue;
+                }
+                // counter-clockwise in normalized device coordinates is clockwise on the screen, the y axis goes down
+                if (area > 0.0 && cullBackFaces) {
+                    continue;
+                }
+                if (area < 0.0) {
+                    int swap = b;
+                    b = c;
+                    c = swap;
+                }
+
+                double minX = Math.min(projected.screenX[a], Math.min(projected.screenX[b], projected.screenX[c]));
+                double maxX = Math.max(projected.screenX[a], Math.max(projected.screenX[b], projected.screenX[c]));
+                double minY = Math.min(projected.screenY[a], Math.min(projected.screenY[b], projected.screenY[c]));
+                double maxY = Math.max(projected.screenY[a], Math.max(projected.screenY[b], projected.screenY[c]));
+                int minTileX = Math.max((int) Math.floor((minX - 0.5) / TILE_SIZE), 0);
+                int maxTileX = Math.min((int) Math.floor((maxX - 0.5) / TILE_SIZE), tilesX - 1);
+                int minTileY = Math.max((int) Math.floor((minY - 0.5) / TILE_SIZE), 0);
+                int maxTileY = Math.min((int) Math.floor((maxY - 0.5) / TILE_SIZE), tilesY - 1);
+                if (minTileX > maxTileX || minTileY > maxTileY) {
+                    continue;
+                }
+
+                triangleMeshes[acceptedCount] = m;
+                triangleIndices[acceptedCount] = t;
+                triangleVertices[acceptedCount * 3] = a;
+                triangleVertices[acceptedCount * 3 + 1] = b;
+                triangleVertices[acceptedCount * 3 + 2] = c;
+                triangleTiles[acceptedCount * 4] = minTileX;
+                triangleTiles[acceptedCount * 4 + 1] = maxTileX;
+                triangleTiles[acceptedCount * 4 + 2] = minTileY;
+                triangleTiles[acceptedCount * 4 + 3] = maxTileY;
+                for (int tileY = minTileY; tileY <= maxTileY; tileY++) {
+                    for (int tileX = minTileX; tileX <= maxTileX; tileX++) {
+                        tileOffsets[tileY * tilesX + tileX + 1]++;
+                    }
+                }
+                acceptedCount++;
+            }
+        }
+
+        // binning, every tile keeps the drawing order of the triangles
+        for (int i = 1; i < tileOffsets.length; i++) {
+            tileOffsets[i] += tileOffsets[i - 1];
+        }
+        int[] tileTriangles = new int[tileOffsets[tileOffsets.length - 1]];
+        int[] tileFill = Arrays.copyOf(tileOffsets, tileOffsets.length - 1);
+        for (int i = 0; i < acceptedCount; i++) {
+            for (int tileY = triangleTiles[i * 4 + 2]; tileY <= triangleTiles[i * 4 + 3]; tileY++) {
+                for (int tileX = triangleTiles[i * 4]; tileX <= triangleTiles[i * 4 + 1]; tileX++) {
+                    tileTriangles[tileFill[tileY * tilesX + tileX]++] = i;
+                }
+            }
+        }
+
+        IntStream.range(0, tilesX * tilesY).parallel().forEach((tile) -> {
+            int tileX0 = (tile % tilesX) * TILE_SIZE;
+            int tileY0 = (tile / tilesX) * TILE_SIZE;
+            int tileX1 = Math.min(tileX0 + TILE_SIZE, width) - 1;
+            int tileY1 = Math.min(tileY0 + TILE_SIZE, height) - 1;
+            float[] fragmentColor = new float[4];
+            for (int i = tileOffsets[tile]; i < tileOffsets[tile + 1]; i++) {
+                int triangle = tileTriangles[i];
+                ProjectedMesh projected = projectedMeshes[triangleMeshes[triangle]];
+                rasterizeTriangle(projected, triangleIndices[triangle], triangleVertices[triangle * 3], triangleVertices[triangle * 3 + 1], triangleVertices[triangle * 3 + 2],
+                        tileX0, tileY0, tileX1, tileY1, fragmentColor);
+            }
+        });
+    }
+
+    private ProjectedMesh project(RasterMesh mesh) {
+        Matrix4d objectMatrix = mesh.getObjectMatrix();
+        Matrix4d modelViewProjection = new Matrix4d(projectionMatrix).mul(modelViewMatrix).mul(objectMatrix);
+        double[] m = modelViewProjection.get(new double[16]);
+        double[] o = objectMatrix.get(new double[16]);
+
+        double[] positions = mesh.getPositions();
+        int vertexCount = positions.length / 3;
+        ProjectedMesh projected = new ProjectedMesh(mesh, vertexCount, delimitingBox != null);
+        for (int i = 0; i < vertexCount; i++) {
+            double x = positions[i * 3];
+            double y = positions[i * 3 + 1];
+            double z = positions[i * 3 + 2];
+            double clipX = m[0] * x + m[4] * y + m[8] * z + m[12];
+            double clipY = m[1] * x + m[5] * y + m[9] * z + m[13];
+            double clipZ = m[2] * x + m[6] * y + m[10] * z + m[14];
+            double clipW = m[3] * x + m[7] * y + m[11] * z + m[15];
+            // there is no near plane clipping, the cameras of the renderer are orthographic
+            projected.visible[i] = clipW > 1e-12;
+            double invW = 1.0 / clipW;
+            projected.screenX[i] = (clipX * invW * 0.5 + 0.5) * width;
+            projected.screenY[i] = (0.5 - clipY * invW * 0.5) * height;
+            projected.depth[i] = clipZ * invW;
+            projected.invW[i] = invW;
+            if (projected.positions != null) {
+                projected.positions[i * 3] = o[0] * x + o[4] * y + o[8] * z + o[12];
+                projected.positions[i * 3 + 1] = o[1] * x + o[5] * y + o[9] * z + o[13];
+                projected.positions[i * 3 + 2] = o[2] * x + o[6] * y + o[10] * z + o[14];
+            }
+        }
+        return projected;
+    }
+
+    private void rasterizeTriangle(ProjectedMesh projected, int triangle, int a, int b, int c, int tileX0, int tileY0, int tileX1, int tileY1, float[] fragmentColor) {
+        double[] screenX = projected.screenX;
+        double[] screenY = projected.screenY;
+        double minX = Math.min(screenX[a], Math.min(screenX[b], screenX[c]));
+        double maxX = Math.max(screenX[a], Math.max(screenX[b], screenX[c]));
+        double minY = Math.min(screenY[a], Math.min(screenY[b], screenY[c]));
+        double maxY = Math.max(screenY[a], Math.max(screenY[b], screenY[c]));
+        int startX = Math.max((int) Math.ceil(minX - 0.5), tileX0);
+        int endX = Math.min((int) Math.floor(maxX - 0.5), tileX1);
+        int startY = Math.max((int) Math.ceil(minY - 0.5), tileY0);
+        int endY = Math.min((int) Math.floor(maxY - 0.5), tileY1);
+        if (startX > endX || startY > endY) {
+            return;
+        }
+
+        double area = edge(projected, a, b, screenX[c], screenY[c]);
+        boolean topLeftA = isTopLeft(projected, b, c);
+        boolean topLeftB = isTopLeft(projected, c, a);
+        boolean topLeftC = isTopLeft(projected, a, b);
+        RasterMesh mesh = projected.mesh;
+        RasterTexture texture = mesh.getTexture();
+        double[] texcoords = mesh.getTexcoords();
+        double[] invW = projected.invW;
+        double[] positions = projected.positions;
+
+        for (int y = startY; y <= endY; y++) {
+            double pixelY = y + 0.5;
+            for (int x = startX; x <= endX; x++) {
+                double pixelX = x + 0.5;
+                double weightA = edge(projected, b, c, pixelX, pixelY);
+                double weightB = edge(projected, c, a, pixelX, pixelY);
+                double weightC = edge(projected, a, b, pixelX, pixelY);
+                if (!isInside(weightA, topLeftA) || !isInside(weightB, topLeftB) || !isInside(weightC, topLeftC)) {
+                    continue;
+                }
+                weightA /= area;
+                weightB /= area;
+                weightC /= area;
+
+                double depthNdc = weightA * projected.depth[a] + weightB * projected.depth[b] + weightC * projected.depth[c];
+                if (depthNdc < -1.0 || depthNdc > 1.0) {
+                    continue;
+                }
+                float depth = (float) (depthNdc * 0.5 + 0.5);
+                int index = y * width + x;
+                if (depth >= depths[index]) {
+                    continue;
+                }
+
+                // perspective correct interpolation of the attributes
+                double perspectiveA = weightA * invW[a];
+                double perspectiveB = weightB * invW[b];
+                double perspectiveC = weightC * invW[c];
+                double perspectiveSum = perspectiveA + perspectiveB + perspectiveC;
+                perspectiveA /= perspectiveSum;
+                perspectiveB /= perspectiveSum;
+                perspectiveC /= perspectiveSum;
+
+                if (positions != null) {
+                    double positionX = perspectiveA * positions[a * 3] + perspectiveB * positions[b * 3] + perspectiveC * positions[c * 3];
+                    double positionY = perspectiveA * positions[a * 3 + 1] + perspectiveB * positions[b * 3 + 1] + perspectiveC * positions[c * 3 + 1];
+                    double positionZ = perspectiveA * positions[a * 3 + 2] + perspectiveB * positions[b * 3 + 2] + perspectiveC * positions[c * 3 + 2];
+                    if (positionX < delimitingBox.getMinX() || positionX > delimitingBox.getMaxX() ||
+                            positionY < delimitingBox.getMinY() || positionY > delimitingBox.getMaxY() ||
+                            positionZ < delimitingBox.getMinZ() || positionZ > delimitingBox.getMaxZ()) {
+                        continue;
+                    }
+                }
+
+                depths[index] = depth;
+                if (shadingType == RasterShadingType.FACE_ID) {
+                    faceIds[index] = mesh.getFaceIds()[triangle];
+                } else if (shadingType == RasterShadingType.DEPTH) {
+                    colors[index] = packDepth(depth);
+                } else {
+                    if (texture != null) {
+                        double u = perspectiveA * texcoords[a * 2] + perspectiveB * texcoords[b * 2] + perspectiveC * texcoords[c * 2];
+                        double v = perspectiveA * texcoords[a * 2 + 1] + perspectiveB * texcoords[b * 2 + 1] + perspectiveC * texcoords[c * 2 + 1];
+                        texture.sample(u, v, fragmentColor);
+                    } else {
+                        System.arraycopy(mesh.getColor(), 0, fragmentColor, 0, 4);
+                    }
+                    colors[index] = blend ? blend(fragmentColor, colors[index]) : toArgb(fragmentColor[0], fragmentColor[1], fragmentColor[2], fragmentColor[3]);
+                }
+            }
+        }
+    }
+
+    private static double edge(ProjectedMesh projected, int from, int to, double x, double y) {
+        double fromX = projected.screenX[from];
+        double fromY = projected.screenY[from];
+        return (projected.screenX[to] - fromX) * (y - fromY) - (projected.screenY[to] - fromY) * (x - fromX);
+    }
+
+    private static boolean isTopLeft(ProjectedMesh projected, int from, int to) {
+        double dx = projected.screenX[to] - projected.screenX[from];
+        double dy = projected.screenY[to] - projected.screenY[from];
+        return dy < 0.0 || (dy == 0.0 && dx > 0.0);
+    }
+
+    private static boolean isInside(double weight, boolean topLeft) {
+        return weight > 0.0 || (weight == 0.0 && topLeft);
+    }
+
+    /**
+     * GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA blending of the fragment over the color of the buffer.
+     */
+    private static int blend(float[] source, int destination) {
+        float alpha = source[3];
+        float red = source[0] * alpha + ((destination >> 16) & 0xFF) / 255.0f * (1.0f - alpha);
+        float green = source[1] * alpha + ((destination >> 8) & 0xFF) / 255.0f * (1.0f - alpha);
+        float blue = source[2] * alpha + (destination & 0xFF) / 255.0f * (1.0f - alpha);
+        float destinationAlpha = alpha * alpha + ((destination >>> 24) & 0xFF) / 255.0f * (1.0f - alpha);
+        return toArgb(red, green, blue, destinationAlpha);
+    }
+
+    /**
+     * The PackDepth32 function of the depth shader, the depth is decoded by ImageUtils.unpackDepth32.
+     */
+    public static int packDepth(float depth) {
+        double value = depth * (16777216.0 - 1.0) / 16777216.0;
+        double encodeX = fract(value);
+        double encodeY = fract(value * 256.0);
+        double encodeZ = fract(value * 65536.0);
+        double encodeW = fract(value * 16777216.0);
+        double offset = 1.0 / 512.0;
+        return toArgb((float) (encodeX - encodeY / 256.0 + offset), (float) (encodeY - encodeZ / 256.0 + offset),
+                (float) (encodeZ - encodeW / 256.0 + offset), (float) (encodeW + offset));
+    }
+
+    private static double fract(double value) {
+        return value - Math.floor(value);
+    }
+
+    private static int toArgb(float red, float green, float blue, float alpha) {
+        return (toByte(alpha) << 24) | (toByte(red) << 16) | (toByte(green) << 8) | toByte(blue);
+    }
+
+    private static int toByte(float value) {
+        return Math.round(Math.min(Math.max(value, 0.0f), 1.0f) * 255.0f);
+    }
+
+    /**
+     * The vertices of a mesh in screen coordinates.
+     */
+    private static class ProjectedMesh {
+        private final RasterMesh mesh;
+        private final double[] screenX;
+        private final double[] screenY;
+        private final double[] depth; // normalized device coordinates
+        private final double[] invW;
+        private final boolean[] visible;
+        private final double[] positions; // transformed by the object matrix, for the delimiting box
+
+        private ProjectedMesh(RasterMesh mesh, int vertexCount, boolean keepPositions) {
+            this.mesh = mesh;
+            this.screenX = new double[vertexCount];
+            this.screenY = new double[vertexCount];
+            this.depth = new double[vertexCount];
+            this.invW = new double[vertexCount];
+            this.visible = new boolean[vertexCount];
+            this.positions = keepPositions ? new double[vertexCount * 3] : null;
+        }
+    }
+}
@@ -0,0 +1,547 @@
+package com.gaia3d.renderer.software;
+
+import com.gaia3d.basic.exchangable.GaiaSet;
+import com.gaia3d.basic.exchangable.SceneInfo;
+import com.gaia3d.basic.geometry.GaiaBoundingBox;
+import com.gaia3d.basic.geometry.entities.GaiaAAPlane;
+import com.gaia3d.basic.geometry.octree.HalfEdgeOctree;
+import com.gaia3d.basic.halfedge.*;
+import com.gaia3d.basic.model.*;
+import com.gaia3d.basic.types.TextureType;
+import com.gaia3d.util.GaiaTextureUtils;
+import com.gaia3d.util.ImageUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.joml.Matrix4d;
+import org.joml.Vector2d;
+import org.joml.Vector3d;
+
+import java.awt.image.BufferedImage;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Headless renderer of the photorealistic tiling, rendering with the software rasterizer what the OpenGL renderer of the extension module renders into framebuffers.
+ * It makes the net surfaces from depth renders and projects the box textures of the oblique cameras, so it needs no gpu and no display.
+ */
+@Slf4j
+public class SoftwareRenderer {
+    // the largest side of the images rendered by the oblique cameras
+    private static final int MAX_SCREEN_SIZE = 8192;
+    private static final int ELIMINATE_BACKGROUND_ITERATIONS = 10;
+    private static final int ELIMINATE_BACKGROUND_RADIUS = 10;
+    private static final double TEXCOORD_ERROR = 0.0025;
+    private static final List<CameraDirectionType> OBLIQUE_CAMERA_DIRECTIONS = List.of(
+            CameraDirectionType.CAMERA_DIRECTION_ZNEG,
+            CameraDirectionType.CAMERA_DIRECTION_YPOS_ZNEG,
+            CameraDirectionType.CAMERA_DIRECTION_XNEG_ZNEG,
+            CameraDirectionType.CAMERA_DIRECTION_YNEG_ZNEG,
+            CameraDirectionType.CAMERA_DIRECTION_XPOS_ZNEG);
+
+    public void getColorAndDepthRender(List<SceneInfo> sceneInfos, int bufferedImageType, List<BufferedImage> resultImages, GaiaBoundingBox nodeBBox,
+                                       Matrix4d nodeTMatrix, int maxScreenSize, int maxDepthScreenSize) {
+        log.info("Rendering the scene...getColorAndDepthRender");
+        double xLength = nodeBBox.getSizeX();
+        double yLength = nodeBBox.getSizeY();
+        double zLength = nodeBBox.getSizeZ();
+        Matrix4d projectionMatrix = new Matrix4d().setOrtho(-xLength / 2.0, xLength / 2.0, -yLength / 2.0, yLength / 2.0, -zLength * 0.5, zLength * 0.5);
+        Matrix4d modelViewMatrix = getModelViewMatrix(nodeBBox.getCenter(), new Vector3d(0, 0, -1), new Vector3d(0, 1, 0));
+
+        int[] colorSize = getScreenSize(xLength, yLength, maxScreenSize);
+        SoftwareRasterizer colorRasterizer = new SoftwareRasterizer(colorSize[0], colorSize[1]);
+        colorRasterizer.setProjectionMatrix(projectionMatrix);
+        colorRasterizer.setModelViewMatrix(modelViewMatrix);
+        colorRasterizer.clear(0.5f, 0.5f, 0.5f, 1.0f);
+
+        int[] depthSize = getScreenSize(xLength, yLength, maxDepthScreenSize);
+        SoftwareRasterizer depthRasterizer = new SoftwareRasterizer(depthSize[0], depthSize[1]);
+        depthRasterizer.setProjectionMatrix(projectionMatrix);
+        depthRasterizer.setModelViewMatrix(modelViewMatrix);
+        depthRasterizer.setShadingType(RasterShadingType.DEPTH);
+
+        Matrix4d nodeMatrixInv = new Matrix4d(nodeTMatrix).invert();
+        int scenesCount = sceneInfos.size();
+        for (int i = 0; i < scenesCount; i++) {
+            // load and render, one by one
+            SceneInfo sceneInfo = sceneInfos.get(i);
+            Matrix4d sceneTMat = sceneInfo.getTransformMatrix();
+
+            // the local position of the scene relative to the node
+            Vector3d scenePosWC = new Vector3d(sceneTMat.m30(), sceneTMat.m31(), sceneTMat.m32());
+            Vector3d scenePosLC = nodeMatrixInv.transformPosition(scenePosWC, new Vector3d());
+            Matrix4d sceneTMatLC = new Matrix4d().translation(scenePosLC);
+
+            GaiaSet gaiaSet = null;
+            GaiaScene gaiaScene = null;
+            try {
+                gaiaSet = GaiaSet.readFile(Paths.get(sceneInfo.getScenePath()));
+                gaiaScene = new GaiaScene(gaiaSet);
+                GaiaNode gaiaNode = gaiaScene.getNodes().get(0);
+                gaiaNode.setTransformMatrix(sceneTMatLC);
+                gaiaNode.setPreMultipliedTransformMatrix(sceneTMatLC);
+
+                List<RasterMesh> meshes = RasterMesh.fromScene(gaiaScene);
+                log.info("Rendering the scene : " + i + " of scenesCount : " + scenesCount);
+                colorRasterizer.draw(meshes);
+                depthRasterizer.draw(meshes);
+            } catch (Exception e) {
+                log.error("[ERROR] reading the file: ", e);
+            }
+
+            if (gaiaSet != null) {
+                gaiaSet.clear();
+            }
+            if (gaiaScene != null) {
+                gaiaScene.clear();
+            }
+        }
+
+        resultImages.add(colorRasterizer.getImage(bufferedImageType));
+        resultImages.add(depthRasterizer.getImage(BufferedImage.TYPE_INT_ARGB));
+    }
+
+    public void makeNetSurfacesWithBoxTexturesObliqueCamera(List<GaiaScene> scenes, List<HalfEdgeScene> resultHalfEdgeScenes, DecimateParameters decimateParameters,
+                                                            double pixelsForMeter, double screenPixelsForMeter) {
+        for (GaiaScene gaiaScene : scenes) {
+            GaiaBoundingBox bbox = gaiaScene.getBoundingBox();
+            List<RasterMesh> sourceMeshes = RasterMesh.fromScene(gaiaScene);
+            HalfEdgeScene halfEdgeScene = makeNetSurface(gaiaScene, sourceMeshes, pixelsForMeter);
+            if (halfEdgeScene == null) {
+                return;
+            }
+            halfEdgeScene.doTrianglesReductionOneIteration(decimateParameters);
+
+            // now, cut the halfEdgeScene and make cube-textures by rendering
+            double gridSpacing = bbox.getMaxSize() / 3.0;
+            log.info("[Tile][PhotoRealistic][Decimate] SoftwareRenderer.decimate() : cutHalfEdgeSceneGridXYZ.");
+            HalfEdgeScene cuttedScene = HalfEdgeCutter.cutHalfEdgeSceneGridXYZ(halfEdgeScene, gridSpacing, new HalfEdgeOctree(null));
+
+            log.info("SoftwareRenderer.decimate() : makeBoxTexturesByObliqueCamera.");
+            makeBoxTexturesByObliqueCamera(cuttedScene, sourceMeshes, screenPixelsForMeter);
+            resultHalfEdgeScenes.add(cuttedScene);
+            halfEdgeScene.deleteObjects();
+        }
+    }
+
+    public void decimateAndCutByObliqueCamera(List<GaiaScene> scenes, List<HalfEdgeScene> resultHalfEdgeScenes, DecimateParameters decimateParameters,
+                                              HalfEdgeOctree octree, List<GaiaAAPlane> cuttingPlanes, double screenPixelsForMeter, boolean makeSkirt) {
+        // Note : There are only one scene in the scenes list
+        List<HalfEdgeScene> halfEdgeScenes = new ArrayList<>();
+        List<RasterMesh> sourceMeshes = new ArrayList<>();
+        log.info("SoftwareRenderer : Decimating the scene...");
+        for (GaiaScene gaiaScene : scenes) {
+            GaiaScene gaiaSceneCopy = gaiaScene.clone();
+
+            // 1rst, copy the textured scene to render the box textures
+            sourceMeshes.addAll(RasterMesh.fromScene(gaiaSceneCopy));
+
+            // 2nd, make the halfEdgeScene
+            gaiaSceneCopy.joinAllSurfaces();
+            gaiaSceneCopy.weldVertices(1e-5, false, false, false, false);
+            gaiaSceneCopy.deleteDegeneratedFaces();
+
+            // Must delete materials because we joined all surfaces into one surface
+            for (GaiaMaterial material : gaiaSceneCopy.getMaterials()) {
+                material.clear();
+            }
+            gaiaSceneCopy.getMaterials().clear();
+            halfEdgeScenes.add(HalfEdgeUtils.halfEdgeSceneFromGaiaScene(gaiaSceneCopy));
+        }
+
+        HalfEdgeScene halfEdgeScene = halfEdgeScenes.get(0); // only one scene
+        halfEdgeScene.doTrianglesReductionOneIteration(decimateParameters);
+        List<HalfEdgeScene> cutHalfEdgeScenes = HalfEdgeCutter.cutHalfEdgeSceneByGaiaAAPlanes(halfEdgeScene, cuttingPlanes, octree, false, false);
+
+        int gridDivisions = decimateParameters.getLod() == 1 ? 5 : 3;
+        makeBoxTexturesOfCutScenes(cutHalfEdgeScenes, sourceMeshes, gridDivisions, screenPixelsForMeter, makeSkirt, resultHalfEdgeScenes);
+
+        for (HalfEdgeScene halfEdgeSceneToDelete : halfEdgeScenes) {
+            halfEdgeSceneToDelete.deleteObjects();
+        }
+        halfEdgeScenes.clear();
+    }
+
+    public void decimateNetSurfaceAndCutByObliqueCamera(List<GaiaScene> scenes, List<HalfEdgeScene> resultHalfEdgeScenes, DecimateParameters decimateParameters,
+                                                        HalfEdgeOctree octree, List<GaiaAAPlane> cuttingPlanes, double depthTexPixelsForMeter, double screenPixelsForMeter, boolean makeSkirt) {
+        // Note : There are only one scene in the scenes list
+        HalfEdgeScene netSurfaceHalfEdgeScene = null;
+        List<RasterMesh> sourceMeshes = null;
+        for (GaiaScene gaiaScene : scenes) {
+            sourceMeshes = RasterMesh.fromScene(gaiaScene);
+            netSurfaceHalfEdgeScene = makeNetSurface(gaiaScene, sourceMeshes, depthTexPixelsForMeter);
+            if (netSurfaceHalfEdgeScene == null) {
+                return;
+            }
+            netSurfaceHalfEdgeScene.doTrianglesReductionOneIteration(decimateParameters);
+        }
+        if (netSurfaceHalfEdgeScene == null) {
+            return;
+        }
+
+        netSurfaceHalfEdgeScene.doTrianglesReductionOneIteration(decimateParameters);
+        List<HalfEdgeScene> cutHalfEdgeScenes = HalfEdgeCutter.cutHalfEdgeSceneByGaiaAAPlanes(netSurfaceHalfEdgeScene, cuttingPlanes, octree, false, false);
+        makeBoxTexturesOfCutScenes(cutHalfEdgeScenes, sourceMeshes, 3, screenPixelsForMeter, makeSkirt, resultHalfEdgeScenes);
+    }
+
+    /**
+     * Renders the depth of the scene from above and makes the rectangular net surface of it.
+     */
+    private HalfEdgeScene makeNetSurface(GaiaScene gaiaScene, List<RasterMesh> sourceMeshes, double pixelsForMeter) {
+        GaiaBoundingBox bbox = gaiaScene.getBoundingBox();
+        int maxDepthScreenSize = (int) Math.ceil(pixelsForMeter * bbox.getMaxSize());
+        maxDepthScreenSize = Math.max(8, Math.min(maxDepthScreenSize, 1024));
+        log.info("SoftwareRenderer.makeNetSurfaces() : maxDepthScreenSize = " + maxDepthScreenSize);
+
+        BufferedImage depthRenderedImage = getDepthRender(bbox, sourceMeshes, maxDepthScreenSize);
+        float[][] depthValues = ImageUtils.bufferedImageToFloatMatrix(depthRenderedImage);
+        HalfEdgeScene halfEdgeScene = HalfEdgeUtils.getHalfEdgeSceneRectangularNet(depthRenderedImage.getWidth(), depthRenderedImage.getHeight(), depthValues, bbox);
+        if (halfEdgeScene != null) {
+            halfEdgeScene.setOriginalPath(gaiaScene.getOriginalPath());
+        }
+        return halfEdgeScene;
+    }
+
+    public BufferedImage getDepthRender(GaiaBoundingBox bbox, List<RasterMesh> meshes, int maxDepthScreenSize) {
+        log.info("Rendering the scene...getDepthRender");
+        double xLength = bbox.getSizeX();
+        double yLength = bbox.getSizeY();
+        double zLength = bbox.getSizeZ();
+        int[] depthSize = getScreenSize(xLength, yLength, maxDepthScreenSize);
+        SoftwareRasterizer depthRasterizer = new SoftwareRasterizer(depthSize[0], depthSize[1]);
+        depthRasterizer.setProjectionMatrix(new Matrix4d().setOrtho(-xLength / 2.0, xLength / 2.0, -yLength / 2.0, yLength / 2.0, -zLength * 0.5, zLength * 0.5));
+        depthRasterizer.setModelViewMatrix(getModelViewMatrix(bbox.getCenter(), new Vector3d(0, 0, -1), new Vector3d(0, 1, 0)));
+        depthRasterizer.setShadingType(RasterShadingType.DEPTH);
+        depthRasterizer.draw(meshes);
+        return depthRasterizer.getImage(BufferedImage.TYPE_INT_ARGB);
+    }
+
+    private void makeBoxTexturesOfCutScenes(List<HalfEdgeScene> cutHalfEdgeScenes, List<RasterMesh> sourceMeshes, int gridDivisions, double screenPixelsForMeter,
+                                            boolean makeSkirt, List<HalfEdgeScene> resultHalfEdgeScenes) {
+        int cutScenesCount = cutHalfEdgeScenes.size();
+        int i = 0;
+        for (HalfEdgeScene cutHalfEdgeScene : cutHalfEdgeScenes) {
+            log.info("makeBoxTexturesByObliqueCamera. cutScene : " + (i + 1) + " / " + cutScenesCount);
+            double gridSpacing = cutHalfEdgeScene.getBoundingBox().getMaxSize() / gridDivisions;
+            HalfEdgeScene cuttedScene = HalfEdgeCutter.cutHalfEdgeSceneGridXYZ(cutHalfEdgeScene, gridSpacing, new HalfEdgeOctree(null));
+
+            makeBoxTexturesByObliqueCamera(cuttedScene, sourceMeshes, screenPixelsForMeter);
+            cuttedScene.scissorTextures();
+            if (makeSkirt) {
+                cuttedScene.makeSkirt();
+            }
+            resultHalfEdgeScenes.add(cuttedScene);
+            i++;
+        }
+    }
+
+    /**
+     * Renders the source meshes with oblique cameras around every classify id of the halfEdgeScene,
+     * assigns every face to the camera that sees most of its pixels and packs the images into one atlas material.
+     */
+    public void makeBoxTexturesByObliqueCamera(HalfEdgeScene halfEdgeScene, List<RasterMesh> sourceMeshes, double screenPixelsForMeter) {
+        Map<Integer, List<HalfEdgeFace>> facesClassificationMap = new LinkedHashMap<>();
+        for (HalfEdgeSurface surface : halfEdgeScene.extractSurfaces(null)) {
+            for (HalfEdgeFace face : surface.getFaces()) {
+                facesClassificationMap.computeIfAbsent(face.getClassifyId(), k -> new ArrayList<>()).add(face);
+            }
+        }
+
+        List<BoxTextureData> textureDataList = new ArrayList<>();
+        Map<Integer, Map<CameraDirectionType, GaiaBoundingBox>> mapClassifyIdCameraDirectionTypeBBox = new HashMap<>();
+        Map<Integer, Map<CameraDirectionType, Matrix4d>> mapClassifyIdCameraDirectionTypeModelViewMatrix = new HashMap<>();
+        int classifiedFacesCount = facesClassificationMap.size();
+        int count = 0;
+        for (Map.Entry<Integer, List<HalfEdgeFace>> entry : facesClassificationMap.entrySet()) {
+            log.info("makeBoxTexturesByObliqueCamera : " + count + " / " + classifiedFacesCount);
+            int classifyId = entry.getKey();
+            List<HalfEdgeFace> facesList = entry.getValue();
+
+            Map<GaiaFace, HalfEdgeFace> mapGaiaFaceToHalfEdgeFace = new HashMap<>();
+            GaiaScene gaiaSceneFromFaces = HalfEdgeUtils.gaiaSceneFromHalfEdgeFaces(facesList, mapGaiaFaceToHalfEdgeFace);
+            List<GaiaFace> gaiaFaces = gaiaSceneFromFaces.extractGaiaFaces(null);
+            for (int i = 0; i < gaiaFaces.size(); i++) {
+                gaiaFaces.get(i).setId(i);
+            }
+            List<RasterMesh> faceMeshes = RasterMesh.fromScene(gaiaSceneFromFaces);
+
+            GaiaBoundingBox sceneBbox = gaiaSceneFromFaces.getBoundingBox();
+            double ratioHW = sceneBbox.getSizeZ() / sceneBbox.getMaxSize();
+            if (ratioHW < 0.06) {
+                log.info("ratioHW < 0.06");
+            }
+
+            Map<CameraDirectionType, GaiaBoundingBox> mapCameraDirectionTypeBBox = mapClassifyIdCameraDirectionTypeBBox.computeIfAbsent(classifyId, k -> new HashMap<>());
+            Map<CameraDirectionType, Matrix4d> mapCameraDirectionTypeModelViewMatrix = mapClassifyIdCameraDirectionTypeModelViewMatrix.computeIfAbsent(classifyId, k -> new HashMap<>());
+            Map<CameraDirectionType, int[]> mapCameraDirectionTypePixelCounts = new EnumMap<>(CameraDirectionType.class);
+            for (CameraDirectionType cameraDirectionType : OBLIQUE_CAMERA_DIRECTIONS) {
+                // the flat groups are only seen from above
+                if (cameraDirectionType != CameraDirectionType.CAMERA_DIRECTION_ZNEG && ratioHW <= 0.06) {
+                    continue;
+                }
+                int[] pixelCounts = new int[gaiaFaces.size()];
+                BufferedImage image = renderByCameraDirection(gaiaSceneFromFaces, faceMeshes, sourceMeshes, cameraDirectionType, mapCameraDirectionTypeBBox,
+                        mapCameraDirectionTypeModelViewMatrix, screenPixelsForMeter, pixelCounts);
+                mapCameraDirectionTypePixelCounts.put(cameraDirectionType, pixelCounts);
+                image = eliminateBackGroundColor(image);
+                textureDataList.add(new BoxTextureData(classifyId, cameraDirectionType, image));
+            }
+
+            // the faces seen by no camera are projected from above
+            for (HalfEdgeFace halfEdgeFace : facesList) {
+                halfEdgeFace.setCameraDirectionType(CameraDirectionType.CAMERA_DIRECTION_ZNEG);
+            }
+            for (GaiaFace gaiaFace : gaiaFaces) {
+                CameraDirectionType bestCameraDirectionType = getBestCameraDirectionType(mapCameraDirectionTypePixelCounts, gaiaFace.getId());
+                HalfEdgeFace halfEdgeFace = mapGaiaFaceToHalfEdgeFace.get(gaiaFace);
+                if (halfEdgeFace != null) {
+                    halfEdgeFace.setCameraDirectionType(bestCameraDirectionType);
+                }
+            }
+            gaiaSceneFromFaces.clear();
+            count++;
+        }
+
+        halfEdgeScene.splitFacesByBestObliqueCameraDirectionToProject();
+
+        // now, for each classifyId - CameraDirectionType, calculate the texCoords
+        Map<Integer, Map<CameraDirectionType, List<HalfEdgeFace>>> mapFaceGroupByClassifyIdAndObliqueCamDirType = new HashMap<>();
+        for (HalfEdgeSurface halfEdgeSurface : halfEdgeScene.extractSurfaces(null)) {
+            halfEdgeSurface.getMapClassifyIdToCameraDirectionTypeToFaces(mapFaceGroupByClassifyIdAndObliqueCamDirType);
+            List<HalfEdgeVertex> vertexOfSurface = new ArrayList<>();
+            HalfEdgeUtils.getVerticesOfFaces(halfEdgeSurface.getFaces(), vertexOfSurface);
+            for (HalfEdgeVertex vertex : vertexOfSurface) {
+                if (vertex.getTexcoords() == null) {
+                    vertex.setTexcoords(new Vector2d(0.0, 0.0));
+                }
+            }
+        }
+
+        List<HalfEdgeVertex> verticesOfFace = new ArrayList<>();
+        for (Map.Entry<Integer, Map<CameraDirectionType, List<HalfEdgeFace>>> entry : mapFaceGroupByClassifyIdAndObliqueCamDirType.entrySet()) {
+            int classifyId = entry.getKey();
+            for (Map.Entry<CameraDirectionType, List<HalfEdgeFace>> cameraEntry : entry.getValue().entrySet()) {
+                CameraDirectionType cameraDirectionType = cameraEntry.getKey();
+                Map<CameraDirectionType, Matrix4d> mapCameraDirectionTypeModelViewMatrix = mapClassifyIdCameraDirectionTypeModelViewMatrix.get(classifyId);
+                Matrix4d modelViewMatrix = mapCameraDirectionTypeModelViewMatrix != null ? mapCameraDirectionTypeModelViewMatrix.get(cameraDirectionType) : null;
+                if (modelViewMatrix == null) {
+                    log.info("makeBoxTexturesByObliqueCamera() : modelViewMatrix is null." + "camDirType = " + cameraDirectionType);
+                    continue;
+                }
+                GaiaBoundingBox bbox = mapClassifyIdCameraDirectionTypeBBox.get(classifyId).get(cameraDirectionType);
+
+                for (HalfEdgeFace halfEdgeFace : cameraEntry.getValue()) {
+                    verticesOfFace.clear();
+                    for (HalfEdgeVertex vertex : halfEdgeFace.getVertices(verticesOfFace)) {
+                        Vector3d position = modelViewMatrix.transformPosition(vertex.getPosition(), new Vector3d());
+                        double texCoordX = (position.x - bbox.getMinX()) / bbox.getSizeX();
+                        // the row 0 of the image is the top
+                        double texCoordY = 1.0 - (position.y - bbox.getMinY()) / bbox.getSizeY();
+                        Vector2d texCoord = new Vector2d(texCoordX, texCoordY);
+                        GaiaTextureUtils.clampTextureCoordinate(texCoord, TEXCOORD_ERROR);
+                        vertex.setTexcoords(texCoord);
+                    }
+                }
+            }
+        }
+
+        BoxTextureAtlas.packTextures(textureDataList);
+        BoxTextureAtlas.recalculateTexCoords(textureDataList, mapFaceGroupByClassifyIdAndObliqueCamDirType);
+        GaiaTexture atlasTexture = BoxTextureAtlas.makeAtlasTexture(textureDataList);
+        for (BoxTextureData textureData : textureDataList) {
+            textureData.deleteObjects();
+        }
+        if (atlasTexture == null) {
+            log.info("makeAtlasTexture() : atlasTexture is null.");
+            return;
+        }
+
+        String originalProjectName = halfEdgeScene.getOriginalPath().getFileName().toString();
+        int extensionIndex = originalProjectName.lastIndexOf(".");
+        String rawProjectName = extensionIndex > 0 ? originalProjectName.substring(0, extensionIndex) : originalProjectName;
+        atlasTexture.setPath(rawProjectName + "_AtlasB.png");
+
+        // finally make material with texture for the halfEdgeScene
+        GaiaMaterial material = new GaiaMaterial();
+        material.setName("atlasTexturesMaterial");
+        Map<TextureType, List<GaiaTexture>> textures = new HashMap<>();
+        List<GaiaTexture> atlasTextures = new ArrayList<>();
+        atlasTextures.add(atlasTexture);
+        textures.put(TextureType.DIFFUSE, atlasTextures);
+        material.setTextures(textures);
+
+        int materialsCount = halfEdgeScene.getMaterials().size();
+        material.setId(materialsCount);
+        halfEdgeScene.getMaterials().add(material);
+        halfEdgeScene.setMaterialId(materialsCount);
+    }
+
+    /**
+     * Renders the source meshes delimited by the box of the faces with an orthographic camera looking in the camera direction,
+     * then renders the face ids of the faces to count the visible pixels of every face.
+     */
+    private BufferedImage renderByCameraDirection(GaiaScene gaiaSceneFromFaces, List<RasterMesh> faceMeshes, List<RasterMesh> sourceMeshes, CameraDirectionType cameraDirectionType,
+                                                  Map<CameraDirectionType, GaiaBoundingBox> mapCameraDirectionTypeBBox, Map<CameraDirectionType, Matrix4d> mapCameraDirectionTypeModelViewMatrix,
+                                                  double screenPixelsForMeter, int[] pixelCounts) {
+        GaiaBoundingBox bbox = gaiaSceneFromFaces.getBoundingBox();
+        GaiaBoundingBox expandedBBox = bbox.clone();
+        expandedBBox.expand(expandedBBox.getMaxSize() * 0.02);
+
+        Vector3d cameraDirection = new Vector3d(CameraDirectionType.getCameraDirection(cameraDirectionType)).normalize();
+        Matrix4d modelViewMatrix = getModelViewMatrix(bbox.getCenter(), cameraDirection, getUpVector(cameraDirection));
+
+        // the box of the faces relative to the camera
+        List<Vector3d> transformedVertices = new ArrayList<>();
+        for (GaiaPrimitive gaiaPrimitive : gaiaSceneFromFaces.extractPrimitives(null)) {
+            for (GaiaVertex vertex : gaiaPrimitive.getVertices()) {
+                transformedVertices.add(modelViewMatrix.transformPosition(vertex.getPosition(), new Vector3d()));
+            }
+        }
+        GaiaBoundingBox bboxTransformed = new GaiaBoundingBox();
+        bboxTransformed.setFromPoints(transformedVertices);
+        mapCameraDirectionTypeBBox.put(cameraDirectionType, bboxTransformed);
+        mapCameraDirectionTypeModelViewMatrix.put(cameraDirectionType, new Matrix4d(modelViewMatrix));
+
+        double xLength = bboxTransformed.getSizeX();
+        double yLength = bboxTransformed.getSizeY();
+        double zOffset = Math.max(Math.max(xLength, yLength) * 0.001, 0.4);
+        // attention! : near = -maxZ, far = -minZ
+        double near = -bboxTransformed.getMaxZ() - zOffset;
+        double far = -bboxTransformed.getMinZ() + zOffset;
+        Matrix4d projectionMatrix = new Matrix4d().setOrtho(bboxTransformed.getMinX(), bboxTransformed.getMaxX(), bboxTransformed.getMinY(), bboxTransformed.getMaxY(), near, far);
+
+        int screenWidth = Math.max(Math.min((int) (xLength * screenPixelsForMeter), MAX_SCREEN_SIZE), 1);
+        int screenHeight = Math.max(Math.min((int) (yLength * screenPixelsForMeter), MAX_SCREEN_SIZE), 1);
+        SoftwareRasterizer rasterizer = new SoftwareRasterizer(screenWidth, screenHeight);
+        rasterizer.setProjectionMatrix(projectionMatrix);
+        rasterizer.setModelViewMatrix(modelViewMatrix);
+        rasterizer.setCullBackFaces(true);
+
+        // color render
+        rasterizer.clear(0.5f, 0.5f, 0.5f, 1.0f);
+        rasterizer.setBlend(true);
+        rasterizer.setDelimitingBox(expandedBBox);
+        rasterizer.draw(sourceMeshes);
+        BufferedImage image = rasterizer.getImage(BufferedImage.TYPE_INT_RGB);
+
+        // face id render
+        rasterizer.clear(1.0f, 1.0f, 1.0f, 1.0f);
+        rasterizer.setBlend(false);
+        rasterizer.setDelimitingBox(null);
+        rasterizer.setShadingType(RasterShadingType.FACE_ID);
+        rasterizer.draw(faceMeshes);
+        for (int faceId : rasterizer.getFaceIds()) {
+            if (faceId >= 0 && faceId < pixelCounts.length) {
+                pixelCounts[faceId]++;
+            }
+        }
+        return image;
+    }
+
+    /**
+     * The camera that sees most pixels of the face, the first camera wins on ties, CAMERA_DIRECTION_ZNEG if no camera sees the face.
+     */
+    private CameraDirectionType getBestCameraDirectionType(Map<CameraDirectionType, int[]> mapCameraDirectionTypePixelCounts, int faceId) {
+        CameraDirectionType bestCameraDirectionType = CameraDirectionType.CAMERA_DIRECTION_ZNEG;
+        int maxPixelCount = 0;
+        for (CameraDirectionType cameraDirectionType : OBLIQUE_CAMERA_DIRECTIONS) {
+            int[] pixelCounts = mapCameraDirectionTypePixelCounts.get(cameraDirectionType);
+            if (pixelCounts != null && pixelCounts[faceId] > maxPixelCount) {
+                maxPixelCount = pixelCounts[faceId];
+                bestCameraDirectionType = cameraDirectionType;
+            }
+        }
+        return bestCameraDirectionType;
+    }
+
+    /**
+     * Fills the background pixels with the nearest rendered pixels, so the bilinear filtering at the borders of the faces does not blend the background.
+     */
+    public BufferedImage eliminateBackGroundColor(BufferedImage originalImage) {
+        int width = originalImage.getWidth();
+        int height = originalImage.getHeight();
+        int[] pixels = originalImage.getRGB(0, 0, width, height, null, 0, width);
+        int[] result = new int[pixels.length];
+        for (int iteration = 0; iteration < ELIMINATE_BACKGROUND_ITERATIONS; iteration++) {
+            boolean changed = false;
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    int color = pixels[y * width + x];
+                    result[y * width + x] = color;
+                    if (!isBackgroundColor(color)) {
+                        continue;
+                    }
+                    search:
+                    for (int i = -ELIMINATE_BACKGROUND_RADIUS; i <= ELIMINATE_BACKGROUND_RADIUS; i++) {
+                        for (int j = -ELIMINATE_BACKGROUND_RADIUS; j <= ELIMINATE_BACKGROUND_RADIUS; j++) {
+                            int neighborX = x + i;
+                            int neighborY = y + j;
+                            if (neighborX < 0 || neighborX >= width || neighborY < 0 || neighborY >= height) {
+                                continue;
+                            }
+                            int neighborColor = pixels[neighborY * width + neighborX];
+                            if (!isBackgroundColor(neighborColor)) {
+                                result[y * width + x] = neighborColor;
+                                changed = true;
+                                break search;
+                            }
+                        }
+                    }
+                }
+            }
+            int[] swap = pixels;
+            pixels = result;
+            result = swap;
+            if (!changed) {
+                break;
+            }
+        }
+
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        image.setRGB(0, 0, width, height, pixels, 0, width);
+        return image;
+    }
+
+    /**
+     * The clear color (0.5, 0.5, 0.5) with the tolerance of 0.01 of the OpenGL renderer.
+     */
+    private static boolean isBackgroundColor(int color) {
+        return isBackgroundChannel((color >> 16) & 0xFF) && isBackgroundChannel((color >> 8) & 0xFF) && isBackgroundChannel(color & 0xFF);
+    }
+
+    private static boolean isBackgroundChannel(int channel) {
+        return channel >= 125 && channel <= 130;
+    }
+
+    /**
+     * The model view matrix of a camera at the position, the inverse of the matrix with the columns right, up, -direction and position.
+     */
+    public static Matrix4d getModelViewMatrix(Vector3d position, Vector3d direction, Vector3d up) {
+        Vector3d right = new Vector3d(direction).cross(up);
+        Matrix4d transformMatrix = new Matrix4d(right.x, right.y, right.z, 0, up.x, up.y, up.z, 0, -direction.x, -direction.y, -direction.z, 0, position.x, position.y, position.z, 1);
+        return transformMatrix.invert();
+    }
+
+    private static Vector3d getUpVector(Vector3d direction) {
+        Vector3d zAxis = new Vector3d(0, 0, 1);
+        if (Math.abs(direction.dot(zAxis)) > 0.9999) {
+            return new Vector3d(0, 1, 0);
+        }
+        Vector3d right = new Vector3d(direction).cross(zAxis).normalize();
+        return right.cross(direction).normalize();
+    }
+
+    /**
+     * The image size keeping the aspect ratio of the box, the longest side is maxScreenSize.
+     */
+    private static int[] getScreenSize(double xLength, double yLength, int maxScreenSize) {
+        int width;
+        int height;
+        if (xLength > yLength) {
+            width = maxScreenSize;
+            height = (int) (maxScreenSize * yLength / xLength);
+        } else {
+            width = (int) (maxScreenSize * xLength / yLength);
+            height = maxScreenSize;
+        }
+        return new int[]{Math.max(width, 1), Math.max(height, 1)};
+    }
+}
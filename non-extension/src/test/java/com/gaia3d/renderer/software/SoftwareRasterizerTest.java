@@ -0,0 +1,112 @@
+package com.gaia3d.renderer.software;
+
+import com.gaia3d.util.ImageUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.joml.Matrix4d;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class SoftwareRasterizerTest {
+
+    @Test
+    void drawSharedEdgesOnce() {
+        // a half transparent quad covering the screen, the pixels of the diagonal would be brighter if they were drawn twice
+        SoftwareRasterizer rasterizer = new SoftwareRasterizer(37, 23);
+        rasterizer.clear(0.0f, 0.0f, 0.0f, 1.0f);
+        rasterizer.setBlend(true);
+        rasterizer.draw(List.of(quad(0.0, new float[]{1.0f, 1.0f, 1.0f, 0.5f})));
+
+        for (int color : rasterizer.getColors()) {
+            assertEquals(0x808080, color & 0xFFFFFF);
+        }
+    }
+
+    @Test
+    void depthTest() {
+        RasterMesh near = quad(-0.5, new float[]{1.0f, 0.0f, 0.0f, 1.0f});
+        RasterMesh far = quad(0.5, new float[]{0.0f, 0.0f, 1.0f, 1.0f});
+        SoftwareRasterizer rasterizer = new SoftwareRasterizer(16, 16);
+        rasterizer.draw(List.of(far, near));
+        BufferedImage image = rasterizer.getImage(BufferedImage.TYPE_INT_RGB);
+        assertEquals(0xFF0000, image.getRGB(8, 8) & 0xFFFFFF);
+
+        rasterizer.clear(1.0f, 1.0f, 1.0f, 1.0f);
+        rasterizer.draw(List.of(near, far));
+        assertEquals(0xFF0000, rasterizer.getColors()[0] & 0xFFFFFF);
+        assertEquals(0.25f, rasterizer.getDepths()[0], 1e-6);
+    }
+
+    @Test
+    void cullBackFaces() {
+        RasterMesh back = new RasterMesh(new Matrix4d(), quadPositions(0.0), null, new int[]{0, 2, 1, 0, 3, 2}, new int[]{0, 1}, null, new float[]{1.0f, 0.0f, 0.0f, 1.0f});
+        SoftwareRasterizer rasterizer = new SoftwareRasterizer(8, 8);
+        rasterizer.setCullBackFaces(true);
+        rasterizer.draw(List.of(back));
+        assertEquals(0xFFFFFF, rasterizer.getColors()[27] & 0xFFFFFF);
+
+        rasterizer.setCullBackFaces(false);
+        rasterizer.draw(List.of(back));
+        assertEquals(0xFF0000, rasterizer.getColors()[27] & 0xFFFFFF);
+    }
+
+    @Test
+    void renderFaceIds() {
+        SoftwareRasterizer rasterizer = new SoftwareRasterizer(8, 8);
+        rasterizer.setShadingType(RasterShadingType.FACE_ID);
+        rasterizer.draw(List.of(quad(0.0, new float[]{1.0f, 1.0f, 1.0f, 1.0f})));
+
+        int[] faceIds = rasterizer.getFaceIds();
+        // the first triangle is the lower right half, the row 0 is the top of the image
+        assertEquals(0, faceIds[7 * 8 + 7]);
+        assertEquals(1, faceIds[0]);
+        for (int faceId : faceIds) {
+            assertTrue(faceId == 0 || faceId == 1);
+        }
+    }
+
+    @Test
+    void packDepth() {
+        // decoded as the depth renders of the OpenGL renderer, within one step of the first byte
+        for (float depth : new float[]{0.0f, 0.1f, 0.25f, 0.5f, 0.777f, 0.99f}) {
+            int color = SoftwareRasterizer.packDepth(depth);
+            float[] packedDepth = {((color >> 16) & 0xFF) / 255.0f, ((color >> 8) & 0xFF) / 255.0f, (color & 0xFF) / 255.0f, ((color >>> 24) & 0xFF) / 255.0f};
+            assertEquals(depth, ImageUtils.unpackDepth32(packedDepth), 1.0 / 256.0);
+        }
+    }
+
+    @Test
+    void sampleTexture() {
+        BufferedImage image = new BufferedImage(2, 2, BufferedImage.TYPE_INT_ARGB);
+        image.setRGB(0, 0, 0xFFFF0000);
+        image.setRGB(1, 0, 0xFF00FF00);
+        image.setRGB(0, 1, 0xFF0000FF);
+        image.setRGB(1, 1, 0x00FFFFFF);
+        RasterTexture texture = new RasterTexture(image);
+
+        float[] color = new float[4];
+        texture.sample(0.25, 0.25, color);
+        assertArrayEquals(new float[]{1.0f, 0.0f, 0.0f, 1.0f}, color, 1e-6f);
+
+        // repeat wrapping
+        texture.sample(1.25, -0.75, color);
+        assertArrayEquals(new float[]{1.0f, 0.0f, 0.0f, 1.0f}, color, 1e-6f);
+
+        // bilinear filtering between the left and the right pixels
+        texture.sample(0.5, 0.25, color);
+        assertArrayEquals(new float[]{0.5f, 0.5f, 0.0f, 1.0f}, color, 1e-6f);
+    }
+
+    private RasterMesh quad(double z, float[] color) {
+        // counter-clockwise triangles in normalized device coordinates
+        return new RasterMesh(new Matrix4d(), quadPositions(z), null, new int[]{0, 1, 2, 0, 2, 3}, new int[]{0, 1}, null, color);
+    }
+
+    private double[] quadPositions(double z) {
+        return new double[]{-1, -1, z, 1, -1, z, 1, 1, z, -1, 1, z};
+    }
+}
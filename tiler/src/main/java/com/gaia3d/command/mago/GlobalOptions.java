@@ -3,6 +3,8 @@ package com.gaia3d.command.mago;
 import com.gaia3d.TilerExtensionModule;
 import com.gaia3d.basic.exception.Reporter;
 import com.gaia3d.basic.types.FormatType;
+import com.gaia3d.converter.jgltf.BasisuEncoder;
+import com.gaia3d.converter.jgltf.TextureCompression;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
@@ -36,7 +38,11 @@ public class GlobalOptions {
 
     public static final int DEFAULT_MAX_TRIANGLES = 65536 * 8;
     public static final int DEFAULT_MAX_NODE_DEPTH = 32;
+    public static final int DEFAULT_SPLIT_DEPTH = 0;
+    public static final int DEFAULT_SUBTREE_LEVELS = 4;
     public static final int DEFAULT_MAX_INSTANCE = 1024 * 64;
+    public static final long DEFAULT_CACHE_SIZE = Runtime.getRuntime().maxMemory() / 8;
+    public static final long DEFAULT_MEMORY_BUDGET = Runtime.getRuntime().maxMemory() / 2;
 
     public static final int DEFAULT_POINT_PER_TILE = 300000;
     public static final int DEFAULT_POINT_RATIO = 50;
@@ -57,6 +63,9 @@ public class GlobalOptions {
     public static final double DEFAULT_SKIRT_HEIGHT = 4.0d;
 
     public static final boolean DEFAULT_USE_QUANTIZATION = false;
+    public static final TextureCompression DEFAULT_TEXTURE_COMPRESSION = TextureCompression.NONE;
+    public static final int DEFAULT_TEXTURE_QUALITY = 128;
+    public static final int DEFAULT_TEXTURE_EFFORT = 2;
 
     public static final int REALISTIC_LOD0_MAX_TEXTURE_SIZE = 1024;
     public static final int REALISTIC_MAX_TEXTURE_SIZE = 1024;
@@ -103,6 +112,10 @@ public class GlobalOptions {
     private boolean force4ByteRGB = false; // Force 4Byte RGB for pointscloud tile
 
     private boolean useQuantization; // Use quantization via KHR_mesh_quantization
+    private boolean useMeshoptCompression; // Use compression via EXT_meshopt_compression
+    private TextureCompression textureCompression = DEFAULT_TEXTURE_COMPRESSION; // KTX2 textures via KHR_texture_basisu
+    private int textureQuality = DEFAULT_TEXTURE_QUALITY;
+    private int textureEffort = DEFAULT_TEXTURE_EFFORT;
 
     // Level of Detail
     private int minLod;
@@ -114,17 +127,23 @@ public class GlobalOptions {
     private int maxTriangles;
     private int maxInstance;
     private int maxNodeDepth;
+    private int splitDepth; // depth of the external tileset roots, 0 for a single tileset.json
+    private int subtreeLevels; // levels per implicit tiling subtree file
 
     // Debug Mode
     private boolean debug = false;
     private boolean debugLod = false;
     private boolean isLeaveTemp = false;
+    private boolean resume = false; // skip the steps completed by an interrupted run
+    private boolean profile = false; // JFR recording of the pipeline stages
 
     private boolean gltf = false;
     private boolean glb = false;
     private boolean classicTransformMatrix = false;
 
     private byte multiThreadCount;
+    private long cacheSize; // decoded temp file cache budget in bytes
+    private long memoryBudget; // heap budget of the concurrently running tasks in bytes
 
     /* 3D Data Options */
     private boolean recursive = false; // recursive flag
@@ -144,6 +163,10 @@ public class GlobalOptions {
     private boolean largeMesh = false; // [Experimental] large mesh splitting mode flag
     private boolean voxelLod = false; // [Experimental] voxel level of detail flag
     private boolean photorealistic = false; // [Experimental] photorealistic mode flag
+    private boolean earcutTessellation = false; // [Experimental] ear clipping tessellation flag
+    private boolean drapeTerrain = false; // [Experimental] per vertex terrain draping flag
+    private boolean implicitTiling = false; // [Experimental] 3D Tiles 1.1 implicit tiling flag
+    private boolean simplify = false; // [Experimental] lower LOD mesh simplification flag
 
     /* 2D Data Column Options */
     private String nameColumn;
@@ -205,6 +228,10 @@ public class GlobalOptions {
             outputFormat = OptionsCorrector.findOutputFormatType(instance.getInputFormat());
         } else {
             outputFormat = FormatType.fromExtension(outputType);
+            // "glb" is also the sub extension of the glTF input format
+            if (FormatType.GLTF == outputFormat) {
+                outputFormat = FormatType.GLB;
+            }
         }
         if (outputFormat == null) {
             throw new IllegalArgumentException("Invalid output format: " + outputType);
@@ -290,14 +317,38 @@ public class GlobalOptions {
         instance.setMinGeometricError(command.hasOption(ProcessOptions.MIN_GEOMETRIC_ERROR.getArgName()) ? Integer.parseInt(command.getOptionValue(ProcessOptions.MIN_GEOMETRIC_ERROR.getArgName())) : DEFAULT_MIN_GEOMETRIC_ERROR);
         instance.setMaxGeometricError(command.hasOption(ProcessOptions.MAX_GEOMETRIC_ERROR.getArgName()) ? Integer.parseInt(command.getOptionValue(ProcessOptions.MAX_GEOMETRIC_ERROR.getArgName())) : DEFAULT_MAX_GEOMETRIC_ERROR);
         instance.setIgnoreTextures(command.hasOption(ProcessOptions.IGNORE_TEXTURES.getArgName()));
-        instance.setMaxTriangles(DEFAULT_MAX_TRIANGLES);
+        instance.setMaxTriangles(command.hasOption(ProcessOptions.MAX_COUNT.getArgName()) ? Integer.parseInt(command.getOptionValue(ProcessOptions.MAX_COUNT.getArgName())) : DEFAULT_MAX_TRIANGLES);
         instance.setMaxInstance(DEFAULT_MAX_INSTANCE);
         instance.setMaxNodeDepth(DEFAULT_MAX_NODE_DEPTH);
+        instance.setSplitDepth(command.hasOption(ProcessOptions.SPLIT_DEPTH.getArgName()) ? Integer.parseInt(command.getOptionValue(ProcessOptions.SPLIT_DEPTH.getArgName())) : DEFAULT_SPLIT_DEPTH);
+        instance.setSubtreeLevels(command.hasOption(ProcessOptions.SUBTREE_LEVELS.getArgName()) ? Integer.parseInt(command.getOptionValue(ProcessOptions.SUBTREE_LEVELS.getArgName())) : DEFAULT_SUBTREE_LEVELS);
         instance.setLargeMesh(command.hasOption(ProcessOptions.LARGE_MESH.getArgName()));
         instance.setVoxelLod(command.hasOption(ProcessOptions.VOXEL_LOD.getArgName()));
         instance.setPhotorealistic(command.hasOption(ProcessOptions.PHOTOREALISTIC.getArgName()));
+        instance.setEarcutTessellation(command.hasOption(ProcessOptions.EARCUT_TESSELLATION.getArgName()));
+        instance.setDrapeTerrain(command.hasOption(ProcessOptions.DRAPE_TERRAIN.getArgName()));
+        instance.setImplicitTiling(command.hasOption(ProcessOptions.IMPLICIT_TILING.getArgName()));
+        instance.setSimplify(command.hasOption(ProcessOptions.SIMPLIFY.getArgName()));
         instance.setLeaveTemp(command.hasOption(ProcessOptions.LEAVE_TEMP.getArgName()));
+        instance.setResume(command.hasOption(ProcessOptions.RESUME.getArgName()));
+        instance.setProfile(command.hasOption(ProcessOptions.PROFILE.getArgName()));
         instance.setUseQuantization(command.hasOption(ProcessOptions.MESH_QUANTIZATION.getArgName()) || DEFAULT_USE_QUANTIZATION);
+        instance.setUseMeshoptCompression(command.hasOption(ProcessOptions.MESHOPT_COMPRESSION.getArgName()));
+        if (command.hasOption(ProcessOptions.TEXTURE_COMPRESSION.getArgName())) {
+            String compressionName = command.getOptionValue(ProcessOptions.TEXTURE_COMPRESSION.getArgName());
+            TextureCompression textureCompression = TextureCompression.fromName(compressionName);
+            if (textureCompression == null) {
+                throw new IllegalArgumentException("Invalid texture compression: " + compressionName);
+            }
+            if (textureCompression != TextureCompression.NONE && BasisuEncoder.findCommand() == null) {
+                throw new IllegalArgumentException("The basisu encoder is not found on the PATH, it is required for the texture compression.");
+            }
+            instance.setTextureCompression(textureCompression);
+        } else {
+            instance.setTextureCompression(DEFAULT_TEXTURE_COMPRESSION);
+        }
+        instance.setTextureQuality(command.hasOption(ProcessOptions.TEXTURE_QUALITY.getArgName()) ? Integer.parseInt(command.getOptionValue(ProcessOptions.TEXTURE_QUALITY.getArgName())) : DEFAULT_TEXTURE_QUALITY);
+        instance.setTextureEffort(command.hasOption(ProcessOptions.TEXTURE_EFFORT.getArgName()) ? Integer.parseInt(command.getOptionValue(ProcessOptions.TEXTURE_EFFORT.getArgName())) : DEFAULT_TEXTURE_EFFORT);
 
         /* Point Cloud Options */
         instance.setMaximumPointPerTile(command.hasOption(ProcessOptions.MAX_POINTS.getArgName()) ? Integer.parseInt(command.getOptionValue(ProcessOptions.MAX_POINTS.getArgName())) : DEFAULT_POINT_PER_TILE);
@@ -340,7 +391,7 @@ public class GlobalOptions {
         if (instance.getInputFormat().equals(FormatType.GEOJSON) || instance.getInputFormat().equals(FormatType.SHP) || instance.getInputFormat().equals(FormatType.CITYGML) || instance.getInputFormat().equals(FormatType.INDOORGML) || instance.getInputFormat().equals(FormatType.GEO_PACKAGE)) {
             isSwapUpAxis = false;
             isFlipUpAxis = false;
-            if (instance.getOutputFormat().equals(FormatType.B3DM)) {
+            if (instance.getOutputFormat().equals(FormatType.B3DM) || instance.getOutputFormat().equals(FormatType.GLB)) {
                 rotateXAxis = -90;
             }
             isRefineAdd = true;
@@ -362,6 +413,18 @@ public class GlobalOptions {
             instance.setMultiThreadCount((byte) threadCount);
         }
 
+        if (command.hasOption(ProcessOptions.CACHE_SIZE.getArgName())) {
+            instance.setCacheSize(Long.parseLong(command.getOptionValue(ProcessOptions.CACHE_SIZE.getArgName())) * 1024 * 1024);
+        } else {
+            instance.setCacheSize(DEFAULT_CACHE_SIZE);
+        }
+
+        if (command.hasOption(ProcessOptions.MEMORY_BUDGET.getArgName())) {
+            instance.setMemoryBudget(Long.parseLong(command.getOptionValue(ProcessOptions.MEMORY_BUDGET.getArgName())) * 1024 * 1024);
+        } else {
+            instance.setMemoryBudget(DEFAULT_MEMORY_BUDGET);
+        }
+
         instance.setZeroOrigin(command.hasOption(ProcessOptions.ZERO_ORIGIN.getArgName()));
         instance.setAutoUpAxis(command.hasOption(ProcessOptions.AUTO_UP_AXIS.getArgName()));
 
@@ -408,6 +471,7 @@ public class GlobalOptions {
         log.debug("Log Path: {}", logPath);
         log.debug("Recursive Path Search: {}", recursive);
         log.debug("Leave Temp Files: {}", isLeaveTemp);
+        log.debug("Resume: {}", resume);
         log.debug("========================================");
         log.debug("Coordinate Reference System: {}", crs);
         log.debug("Proj4 Code: {}", proj);
@@ -422,10 +486,17 @@ public class GlobalOptions {
         log.debug("Debug Mode: {}", debug);
         log.debug("Debug LOD: {}", debugLod);
         log.debug("Debug GLB: {}", glb);
+        log.debug("Profile: {}", profile);
         log.debug("classicTransformMatrix: {}", classicTransformMatrix);
         log.debug("Multi-Thread Count: {}", multiThreadCount);
+        log.debug("Cache Size: {} MB", cacheSize / 1024 / 1024);
+        log.debug("Memory Budget: {} MB", memoryBudget / 1024 / 1024);
         log.debug("========================================");
         log.debug("MEsh Quantization: {}", useQuantization);
+        log.debug("Meshopt Compression: {}", useMeshoptCompression);
+        log.debug("Texture Compression: {}", textureCompression);
+        log.debug("Texture Quality: {}", textureQuality);
+        log.debug("Texture Effort: {}", textureEffort);
         log.debug("Rotate X-Axis: {}", rotateX);
         log.debug("Swap Up-Axis: {}", swapUpAxis);
         log.debug("Flip Up-Axis: {}", flipUpAxis);
@@ -437,9 +508,15 @@ public class GlobalOptions {
         log.debug("Max Triangles: {}", maxTriangles);
         log.debug("Max Instance Size: {}", maxInstance);
         log.debug("Max Node Depth: {}", maxNodeDepth);
+        log.debug("Split Depth: {}", splitDepth);
+        log.debug("Subtree Levels: {}", subtreeLevels);
         log.debug("LargeMesh: {}", largeMesh);
         log.debug("Voxel LOD: {}", voxelLod);
         log.debug("Photorealistic: {}", photorealistic);
+        log.debug("Earcut Tessellation: {}", earcutTessellation);
+        log.debug("Drape Terrain: {}", drapeTerrain);
+        log.debug("Implicit Tiling: {}", implicitTiling);
+        log.debug("Simplify: {}", simplify);
         log.debug("Point Cloud Horizontal Grid: {}", POINTSCLOUD_HORIZONTAL_GRID);
         log.debug("Point Cloud Vertical Grid: {}", POINTSCLOUD_VERTICAL_GRID);
         log.debug("========================================");
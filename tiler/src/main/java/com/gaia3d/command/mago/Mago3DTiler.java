@@ -43,7 +43,7 @@ public class Mago3DTiler {
         ProcessFlowModel processFlow;
         if (FormatType.I3DM == outputFormat) {
             processFlow = new InstancedProcessModel();
-        } else if (FormatType.B3DM == outputFormat) {
+        } else if (FormatType.B3DM == outputFormat || FormatType.GLB == outputFormat) {
             boolean isPhotorealistic = GlobalOptions.getInstance().isPhotorealistic();
             if (isPhotorealistic) {
                 processFlow = new BatchedProcessModelPhR();
@@ -11,13 +11,14 @@ public enum ProcessOptions {
     VERSION("version", "v", "version", false, "Print Version Info"),
     QUIET("quiet", "q", "quiet", false, "Quiet mode/Silent mode"),
     LEAVE_TEMP("leaveTemp", "lt", "leaveTemp", false, "Leave temporary files"),
+    RESUME("resume", "rs", "resume", false, "Resume an interrupted run from the job journal in the temp directory, completed temp files, pre-processed files and tile contents are skipped (Default: false)"),
     MERGE("merge", "m", "merge", false, "Merge tileset.json files"),
 
     // Path Options
     INPUT("input", "i", "input", true, "Input directory path"),
     OUTPUT("output", "o", "output", true, "Output directory file path"),
     INPUT_TYPE("inputType", "it", "inputType", true, "Input files type (kml, 3ds, fbx, obj, gltf, glb, las, laz, citygml, indoorgml, shp, geojson)(Default: kml)"),
-    OUTPUT_TYPE("outputType", "ot", "outputType", true, "Output 3DTiles Type (b3dm, i3dm, pnts)(Default : b3dm)"),
+    OUTPUT_TYPE("outputType", "ot", "outputType", true, "Output 3DTiles Type (b3dm, i3dm, pnts, glb)(Default : b3dm)"),
     LOG("log", "l", "log", true, "Output log file path."),
     TERRAIN("terrain", "te", "terrain", true, "GeoTiff Terrain file path, 3D Object applied as clampToGround (Supports geotiff format)"),
     INSTANCE_FILE("instance", "if", "instance", true, "Instance file path for I3DM (Default: {OUTPUT}/instance.dae)"),
@@ -35,14 +36,19 @@ public enum ProcessOptions {
 
     // Execution Options
     MULTI_THREAD_COUNT("multiThreadCount", "mc", "multiThreadCount", true, "set Multi-Thread count"),
+    CACHE_SIZE("cacheSize", "cs", "cacheSize", true, "Memory budget of the decoded temp file and image cache shared by the LOD tiles in megabytes, 0 disables it (Default: 1/8 of the max heap)"),
+    MEMORY_BUDGET("memoryBudget", "mb", "memoryBudget", true, "Heap budget of the concurrently running pre-process and post-process tasks in megabytes, the tasks are admitted by their size estimated from the temp file sizes, vertex counts and texture sizes (Default: 1/2 of the max heap)"),
 
     // 3DTiles Options
     REFINE_ADD("refineAdd", "ra", "refineAdd", false, "Set 3D Tiles Refine 'ADD' mode"),
     MAX_COUNT("maxCount", "mx", "maxCount", true, "Maximum number of triangles per node."),
     MIN_LOD("minLod", "nl", "minLod", true, "min level of detail (Default: 0)"),
+    IMPLICIT_TILING("implicitTiling", "imp", "implicitTiling", false, "[Experimental] Write 3D Tiles 1.1 implicit tiling with subtree files for octree tilesets (Default: false)"),
+    SUBTREE_LEVELS("subtreeLevels", "stl", "subtreeLevels", true, "Number of levels in each implicit tiling subtree file (Default: 4)"),
     MAX_LOD("maxLod", "xl", "maxLod", true, "Max Level of detail (Default: 3)"),
     MIN_GEOMETRIC_ERROR("minGeometricError", "ng", "minGeometricError", true, "Minimum geometric error (Default: 16.0)"),
     MAX_GEOMETRIC_ERROR("maxGeometricError", "mg", "maxGeometricError", true, "Maximum geometric error (Default: Integer max value)"),
+    SPLIT_DEPTH("splitDepth", "sd", "splitDepth", true, "Write the subtrees below this node depth into external tileset json files, 0 writes a single tileset.json (Default: 0)"),
     MAX_POINTS("maxPoints", "mp", "maxPoints", true, "Maximum number of points per a tile (Default: 100000)"),
     POINT_RATIO("pointRatio", "pcr", "pointRatio", true, "Percentage of points from original data (Default: 50)"),
     POINT_PRECISION("sourcePrecision", "sp", "sourcePrecision", false, "Create pointscloud tile with original precision. (Slow)"),
@@ -50,6 +56,10 @@ public enum ProcessOptions {
 
     // Mesh Options
     MESH_QUANTIZATION("quantize", "qt", "quantize", false, "Quantize mesh to reduce glb size via \"KHR_mesh_quantization\" Extension"),
+    MESHOPT_COMPRESSION("meshopt", "mo", "meshopt", false, "[Experimental] Reorder meshes for the vertex cache and compress glb buffers via \"EXT_meshopt_compression\" Extension (Default: false)"),
+    TEXTURE_COMPRESSION("textureCompression", "tc", "textureCompression", true, "[Experimental] Write the textures as KTX2 images via \"KHR_texture_basisu\" Extension, requires the basisu executable on the PATH (not bundled, the run stops at start without it), a texture that fails to encode is kept as png or jpeg [etc1s, uastc] (Default: none)"),
+    TEXTURE_QUALITY("textureQuality", "tcq", "textureQuality", true, "Quality of the KTX2 textures from 1 to 255 (Default: 128)"),
+    TEXTURE_EFFORT("textureEffort", "tce", "textureEffort", true, "Encoding effort of the KTX2 textures from 0 to 4, higher is slower and better (Default: 2)"),
     ROTATE_X_AXIS("rotateXAxis", "rx", "rotateXAxis", true, "Rotate the X-Axis in degrees (Unit: degrees)(Default: 0.0)"),
 
     SWAP_UP_AXIS("swapUpAxis", "su", "swapUpAxis", false, "Rotate the matrix -90 degrees about the X-axis. (Default: false)"),
@@ -72,10 +82,14 @@ public enum ProcessOptions {
 
     DEBUG("debug", "d", "debug", false,"More detailed log output and stops on Multi-Thread bugs."),
     DEBUG_GLB("glb", "glb", "glb", false, "Create glb file with B3DM."),
+    PROFILE("profile", "pf", "profile", false, "Record a JFR profile with the pipeline stage events into profile.jfr next to tileset.json (Default: false)"),
 
     LARGE_MESH("largeMesh", "lm", "largeMesh", false, "[Experimental] Large Mesh Splitting Mode (Default: false)"),
     VOXEL_LOD("voxelLod", "vl", "voxelLod", false, "[Experimental] Voxel Level Of Detail setting for i3dm (Default: false)"),
     PHOTOREALISTIC("photorealistic", "pr", "photorealistic", false, "[Experimental] Photorealistic mode for b3dm (Default: false)"),
+    EARCUT_TESSELLATION("earcut", "ec", "earcut", false, "[Experimental] Tessellate extrusion and CityGML polygons with the ear clipping tessellator (Default: false)"),
+    SIMPLIFY("simplify", "smp", "simplify", false, "[Experimental] Simplify the meshes of the lower LOD tiles within the geometric error of each LOD (Default: false)"),
+    DRAPE_TERRAIN("drapeTerrain", "dt", "drapeTerrain", false, "[Experimental] Drape the floors of extrusion models and pipes on the terrain vertex by vertex, requires the terrain option (Default: false)"),
     ZERO_ORIGIN("zeroOrigin", "zo", "zeroOrigin", false, "[Experimental] fix 3d root transformed matrix origin to zero point.");
 
     private final String longName;
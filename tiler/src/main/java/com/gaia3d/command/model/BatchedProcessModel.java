@@ -5,6 +5,7 @@ import com.gaia3d.command.mago.GlobalOptions;
 import com.gaia3d.converter.Converter;
 import com.gaia3d.converter.assimp.AssimpConverter;
 import com.gaia3d.converter.assimp.LargeMeshConverter;
+import com.gaia3d.converter.geometry.AbstractGeometryConverter;
 import com.gaia3d.converter.geometry.ExtrusionTempGenerator;
 import com.gaia3d.converter.geometry.citygml.CityGmlConverter;
 import com.gaia3d.converter.geometry.geojson.GeoJsonConverter;
@@ -12,19 +13,22 @@ import com.gaia3d.converter.geometry.geopackage.GeoPackageConverter;
 import com.gaia3d.converter.geometry.indoorgml.IndoorGmlConverter;
 import com.gaia3d.converter.geometry.shape.ShapeConverter;
 import com.gaia3d.converter.kml.AttributeReader;
-import com.gaia3d.converter.kml.FastKmlReader;
+import com.gaia3d.converter.kml.StaxKmlReader;
 import com.gaia3d.converter.loader.BatchedFileLoader;
+import com.gaia3d.converter.terrain.TerrainDraper;
+import com.gaia3d.converter.terrain.TerrainService;
 import com.gaia3d.process.TilingPipeline;
 import com.gaia3d.process.postprocess.GaiaMaximizer;
 import com.gaia3d.process.postprocess.GaiaRelocator;
+import com.gaia3d.process.postprocess.GaiaSimplifier;
 import com.gaia3d.process.postprocess.PostProcess;
 import com.gaia3d.process.postprocess.batch.Batched3DModel;
+import com.gaia3d.process.postprocess.batch.BatchedGltfModel;
 import com.gaia3d.process.preprocess.*;
 import com.gaia3d.process.tileprocess.Pipeline;
 import com.gaia3d.process.tileprocess.TilingProcess;
 import com.gaia3d.process.tileprocess.tile.Batched3DModelTiler;
 import lombok.extern.slf4j.Slf4j;
-import org.geotools.coverage.grid.GridCoverage2D;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -36,6 +40,7 @@ import java.util.List;
 @Slf4j
 public class BatchedProcessModel implements ProcessFlowModel {
     private static final String MODEL_NAME = "BatchedProcessModel";
+    private TerrainDraper terrainDraper;
 
     @Override
     public void run() throws IOException {
@@ -43,13 +48,24 @@ public class BatchedProcessModel implements ProcessFlowModel {
         FormatType inputFormat = globalOptions.getInputFormat();
 
         Converter converter = getConverter(inputFormat);
-        AttributeReader kmlReader = new FastKmlReader();
+        AttributeReader kmlReader = new StaxKmlReader();
         ExtrusionTempGenerator tempGenerator = new ExtrusionTempGenerator(converter);
-        BatchedFileLoader fileLoader = new BatchedFileLoader(converter, kmlReader, tempGenerator);
+        BatchedFileLoader fileLoader = new BatchedFileLoader(() -> getConverter(inputFormat), kmlReader, tempGenerator);
 
-        List<GridCoverage2D> geoTiffs = new ArrayList<>();
+        TerrainService terrainService = new TerrainService();
         if (globalOptions.getTerrainPath() != null) {
-            geoTiffs = fileLoader.loadGridCoverages(geoTiffs);
+            terrainService = fileLoader.loadTerrainService();
+        }
+        if (globalOptions.isDrapeTerrain()) {
+            if (terrainService.isEmpty()) {
+                log.warn("[WARN] The drape terrain option requires the terrain option.");
+            } else {
+                // the converters of the file loader are created by the pipeline threads after this
+                terrainDraper = new TerrainDraper(terrainService);
+                if (converter instanceof AbstractGeometryConverter geometryConverter) {
+                    geometryConverter.setTerrainDraper(terrainDraper);
+                }
+            }
         }
 
 
@@ -61,9 +77,9 @@ public class BatchedProcessModel implements ProcessFlowModel {
         preProcessors.add(new GaiaRotator());
 
         if (globalOptions.isLargeMesh()) {
-            preProcessors.add(new GaiaStrictTranslator(geoTiffs));
+            preProcessors.add(new GaiaStrictTranslator(terrainService));
         } else {
-            preProcessors.add(new GaiaTranslator(geoTiffs));
+            preProcessors.add(new GaiaTranslator(terrainService));
         }
         preProcessors.add(new GaiaMinimizer());
 
@@ -74,10 +90,23 @@ public class BatchedProcessModel implements ProcessFlowModel {
         List<PostProcess> postProcessors = new ArrayList<>();
         postProcessors.add(new GaiaMaximizer());
         postProcessors.add(new GaiaRelocator());
-        postProcessors.add(new Batched3DModel());
+        if (globalOptions.isSimplify()) {
+            postProcessors.add(new GaiaSimplifier());
+        }
+        if (globalOptions.getOutputFormat() == FormatType.GLB) {
+            postProcessors.add(new BatchedGltfModel());
+        } else {
+            postProcessors.add(new Batched3DModel());
+        }
 
         Pipeline processPipeline = new TilingPipeline(preProcessors, tilingProcess, postProcessors);
-        processPipeline.process(fileLoader);
+        try {
+            processPipeline.process(fileLoader);
+        } finally {
+            // the pipeline rethrows its failures, the tile cache, the GeoTiff readers and the model threads are released either way
+            terrainService.close();
+            fileLoader.close();
+        }
     }
 
     private Converter getConverter(FormatType formatType) {
@@ -100,6 +129,9 @@ public class BatchedProcessModel implements ProcessFlowModel {
                 converter = new AssimpConverter();
             }
         }
+        if (terrainDraper != null && converter instanceof AbstractGeometryConverter geometryConverter) {
+            geometryConverter.setTerrainDraper(terrainDraper);
+        }
         return converter;
     }
 
@@ -11,20 +11,21 @@ import com.gaia3d.converter.geometry.geojson.GeoJsonConverter;
 import com.gaia3d.converter.geometry.indoorgml.IndoorGmlConverter;
 import com.gaia3d.converter.geometry.shape.ShapeConverter;
 import com.gaia3d.converter.kml.AttributeReader;
-import com.gaia3d.converter.kml.FastKmlReader;
+import com.gaia3d.converter.kml.StaxKmlReader;
 import com.gaia3d.converter.loader.BatchedFileLoader;
+import com.gaia3d.converter.terrain.TerrainService;
 import com.gaia3d.process.TilingPipeline;
 import com.gaia3d.process.postprocess.GaiaMaximizer;
 import com.gaia3d.process.postprocess.GaiaRelocator;
 import com.gaia3d.process.postprocess.PostProcess;
 import com.gaia3d.process.postprocess.batch.Batched3DModel;
+import com.gaia3d.process.postprocess.batch.BatchedGltfModel;
 import com.gaia3d.process.preprocess.*;
 import com.gaia3d.process.tileprocess.Pipeline;
 import com.gaia3d.process.tileprocess.TilingProcess;
 import com.gaia3d.processPhR.tileProcessPhR.Batched3DModelTilerPhR;
 import com.gaia3d.processPhR.preProcessPhR.GaiaMinimizerPhR;
 import lombok.extern.slf4j.Slf4j;
-import org.geotools.coverage.grid.GridCoverage2D;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -40,13 +41,13 @@ public class BatchedProcessModelPhR implements ProcessFlowModel {
         FormatType inputFormat = globalOptions.getInputFormat();
 
         Converter converter = getConverter(inputFormat);
-        AttributeReader kmlReader = new FastKmlReader();
+        AttributeReader kmlReader = new StaxKmlReader();
         ExtrusionTempGenerator tempGenerator = new ExtrusionTempGenerator(converter);
-        BatchedFileLoader fileLoader = new BatchedFileLoader(converter, kmlReader, tempGenerator);
+        BatchedFileLoader fileLoader = new BatchedFileLoader(() -> getConverter(inputFormat), kmlReader, tempGenerator);
 
-        List<GridCoverage2D> geoTiffs = new ArrayList<>();
+        TerrainService terrainService = new TerrainService();
         if (globalOptions.getTerrainPath() != null) {
-            geoTiffs = fileLoader.loadGridCoverages(geoTiffs);
+            terrainService = fileLoader.loadTerrainService();
         }
 
         // preProcess (GaiaTexCoordCorrector, GaiaScaler, GaiaRotator, GaiaTranslatorExact, GaiaMinimizer)
@@ -57,25 +58,35 @@ public class BatchedProcessModelPhR implements ProcessFlowModel {
 
 
         preProcessors.add(new GaiaRotatorPR());
-        preProcessors.add(new GaiaStrictTranslator(geoTiffs));
+        preProcessors.add(new GaiaStrictTranslator(terrainService));
         GaiaMinimizerPhR gaiaMinimizer = new GaiaMinimizerPhR();
         preProcessors.add(gaiaMinimizer);
 
         // tileProcess (Batched3DModelTilerPhR)
         TilingProcess tilingProcess = new Batched3DModelTilerPhR();
 
-        // postProcess (GaiaMaximizer, GaiaRelocator, Batched3DModel)
+        // postProcess (GaiaMaximizer, GaiaRelocator, Batched3DModel or BatchedGltfModel)
         List<PostProcess> postProcessors = new ArrayList<>();
         postProcessors.add(new GaiaMaximizer());
         postProcessors.add(new GaiaRelocator());
-        postProcessors.add(new Batched3DModel());
+        if (globalOptions.getOutputFormat() == FormatType.GLB) {
+            postProcessors.add(new BatchedGltfModel());
+        } else {
+            postProcessors.add(new Batched3DModel());
+        }
 
         // Test
         //globalOptions.setDebugLod(true);// Test. delete this.!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!
         // end Test.---
 
         Pipeline processPipeline = new TilingPipeline(preProcessors, tilingProcess, postProcessors);
-        processPipeline.process(fileLoader);
+        try {
+            processPipeline.process(fileLoader);
+        } finally {
+            // the pipeline rethrows its failures, the tile cache, the GeoTiff readers and the model threads are released either way
+            terrainService.close();
+            fileLoader.close();
+        }
     }
 
     private boolean getYUpAxis(FormatType formatType, boolean isYUpAxis) {
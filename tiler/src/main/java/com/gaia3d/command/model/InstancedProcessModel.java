@@ -8,10 +8,10 @@ import com.gaia3d.converter.geometry.geojson.GeoJsonConverter;
 import com.gaia3d.converter.geometry.geojson.GeojsonPointReader;
 import com.gaia3d.converter.geometry.geopackage.GeoPackageInstanceConverter;
 import com.gaia3d.converter.kml.AttributeReader;
-import com.gaia3d.converter.kml.JacksonKmlReader;
+import com.gaia3d.converter.kml.StaxKmlReader;
 import com.gaia3d.converter.geometry.shape.ShapePointReader;
-import com.gaia3d.converter.loader.FileLoader;
 import com.gaia3d.converter.loader.InstancedFileLoader;
+import com.gaia3d.converter.terrain.TerrainService;
 import com.gaia3d.process.TilingPipeline;
 import com.gaia3d.process.postprocess.PostProcess;
 import com.gaia3d.process.postprocess.instance.Instanced3DModel;
@@ -20,7 +20,6 @@ import com.gaia3d.process.tileprocess.Pipeline;
 import com.gaia3d.process.tileprocess.TilingProcess;
 import com.gaia3d.process.tileprocess.tile.Instanced3DModelTiler;
 import lombok.extern.slf4j.Slf4j;
-import org.geotools.coverage.grid.GridCoverage2D;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -40,11 +39,11 @@ public class InstancedProcessModel implements ProcessFlowModel {
 
         Converter converter = getConverter(inputFormat);
         AttributeReader kmlReader = getAttributeReader(inputFormat);
-        FileLoader fileLoader = new InstancedFileLoader(converter, kmlReader);
+        InstancedFileLoader fileLoader = new InstancedFileLoader(converter, kmlReader);
 
-        List<GridCoverage2D> geoTiffs = new ArrayList<>();
+        TerrainService terrainService = new TerrainService();
         if (globalOptions.getTerrainPath() != null) {
-            geoTiffs = fileLoader.loadGridCoverages(geoTiffs);
+            terrainService = fileLoader.loadTerrainService();
         }
 
         /* Pre-process */
@@ -52,7 +51,7 @@ public class InstancedProcessModel implements ProcessFlowModel {
         preProcessors.add(new GaiaTileInfoInitiator());
         preProcessors.add(new GaiaRotator());
         preProcessors.add(new GaiaTexCoordCorrector());
-        preProcessors.add(new GaiaInstanceTranslator(geoTiffs));
+        preProcessors.add(new GaiaInstanceTranslator(terrainService));
 
         /* Main-process */
         TilingProcess tilingProcess = new Instanced3DModelTiler();
@@ -62,7 +61,12 @@ public class InstancedProcessModel implements ProcessFlowModel {
         postProcessors.add(new Instanced3DModel());
 
         Pipeline processPipeline = new TilingPipeline(preProcessors, tilingProcess, postProcessors);
-        processPipeline.process(fileLoader);
+        try {
+            processPipeline.process(fileLoader);
+        } finally {
+            // the pipeline rethrows its failures, the tile cache and the GeoTiff readers are released either way
+            terrainService.close();
+        }
     }
 
     private AttributeReader getAttributeReader(FormatType formatType) {
@@ -74,7 +78,7 @@ public class InstancedProcessModel implements ProcessFlowModel {
         } else if (formatType == FormatType.GEO_PACKAGE) {
             reader = new GeoPackageInstanceConverter();
         } else {
-            reader = new JacksonKmlReader();
+            reader = new StaxKmlReader();
         }
         return reader;
     }
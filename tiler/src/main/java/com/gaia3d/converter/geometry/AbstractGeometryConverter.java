@@ -1,6 +1,8 @@
 package com.gaia3d.converter.geometry;
 
 import com.gaia3d.basic.geometry.network.modeler.TopologicalNetwork;
+import com.gaia3d.basic.geometry.tessellator.GaiaEarcutTessellator;
+import com.gaia3d.basic.geometry.tessellator.GaiaExtruder;
 import com.gaia3d.basic.geometry.tessellator.GaiaExtrusionSurface;
 import com.gaia3d.basic.geometry.tessellator.GaiaTessellator;
 import com.gaia3d.basic.model.*;
@@ -11,7 +13,9 @@ import com.gaia3d.converter.geometry.pipe.GaiaPipeLineString;
 import com.gaia3d.converter.geometry.pipe.Modeler3D;
 import com.gaia3d.converter.geometry.pipe.PipeElbow;
 import com.gaia3d.converter.geometry.pipe.PipeType;
+import com.gaia3d.converter.terrain.TerrainDraper;
 import com.gaia3d.util.GeometryUtils;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.joml.Matrix4d;
 import org.joml.Vector3d;
@@ -27,8 +31,43 @@ public abstract class AbstractGeometryConverter {
 
     private final String ROOT_NODE_NAME = "Extruded Root Node";
 
+    @Setter
+    private TerrainDraper terrainDraper;
+
     protected abstract List<GaiaScene> convert(File file);
 
+    /**
+     * Drapes the building footprints on the terrain when the terrain draper is set.
+     */
+    protected void drapeBuildings(List<GaiaExtrusionBuilding> buildings) {
+        if (terrainDraper != null) {
+            terrainDraper.drapeBuildings(buildings);
+        }
+    }
+
+    /**
+     * Drapes the pipe positions on the terrain when the terrain draper is set.
+     */
+    protected void drapePipeLineStrings(List<GaiaPipeLineString> pipeLineStrings) {
+        if (terrainDraper != null) {
+            terrainDraper.drapePipeLineStrings(pipeLineStrings);
+        }
+    }
+
+    /**
+     * Returns the terrain offset of a draped footprint position, or zero when the footprints are not draped.
+     */
+    protected double getTerrainOffset(Vector3d position) {
+        return terrainDraper != null ? position.z : 0.0d;
+    }
+
+    protected List<GaiaExtrusionSurface> extrudeBuilding(GaiaExtruder extruder, List<Vector3d> localPositions, GaiaExtrusionBuilding building) {
+        if (terrainDraper != null) {
+            return extruder.extrudeOnTerrain(localPositions, building.getRoofHeight(), building.getFloorHeight());
+        }
+        return extruder.extrude(localPositions, building.getRoofHeight(), building.getFloorHeight());
+    }
+
     protected GaiaScene initScene(File file) {
         GaiaScene scene = new GaiaScene();
         GlobalOptions globalOptions = GlobalOptions.getInstance();
@@ -350,6 +389,7 @@ public abstract class AbstractGeometryConverter {
 
     protected GaiaPrimitive createSurfaceFromExteriorAndInteriorPolygons(List<Vector3d> ExteriorPolygon, List<List<Vector3d>> interiorPolygons) {
         GaiaTessellator tessellator = new GaiaTessellator();
+        GaiaEarcutTessellator earcutTessellator = createEarcutTessellator();
 
         GaiaPrimitive primitive = new GaiaPrimitive();
         GaiaSurface surface = new GaiaSurface();
@@ -360,7 +400,11 @@ public abstract class AbstractGeometryConverter {
 
         List<Integer> resultTrianglesIndices = new ArrayList<>();
         List<Vector3d> resultPolygonPoints = new ArrayList<>();
-        tessellator.tessellate3D(ExteriorPolygon, interiorPolygons, resultPolygonPoints, resultTrianglesIndices);
+        if (earcutTessellator != null) {
+            earcutTessellator.tessellate3D(ExteriorPolygon, interiorPolygons, resultPolygonPoints, resultTrianglesIndices);
+        } else {
+            tessellator.tessellate3D(ExteriorPolygon, interiorPolygons, resultPolygonPoints, resultTrianglesIndices);
+        }
 
         vertexList.clear();
         int resultPointsCount = resultPolygonPoints.size();
@@ -488,6 +532,7 @@ public abstract class AbstractGeometryConverter {
 
     protected GaiaPrimitive createPrimitiveFromPolygons(List<List<Vector3d>> polygons) {
         GaiaTessellator tessellator = new GaiaTessellator();
+        GaiaEarcutTessellator earcutTessellator = createEarcutTessellator();
 
         GaiaPrimitive primitive = new GaiaPrimitive();
         List<GaiaVertex> vertexList = new ArrayList<>();
@@ -538,7 +583,11 @@ public abstract class AbstractGeometryConverter {
 
             // Note : in "tessellator.tessellate3D(polygon, resultTrianglesIndices);" is possible to loss some points (deleting collinear points)
             // So, in the end of this method, delete no used vertices
-            tessellator.tessellate3D(polygon, resultTrianglesIndices);
+            if (earcutTessellator != null) {
+                earcutTessellator.tessellate3D(polygon, resultTrianglesIndices);
+            } else {
+                tessellator.tessellate3D(polygon, resultTrianglesIndices);
+            }
 
             int indicesCount = resultTrianglesIndices.size();
             int trianglesCount = indicesCount / 3;
@@ -697,6 +746,7 @@ public abstract class AbstractGeometryConverter {
 
     protected GaiaPrimitive createPrimitiveFromGaiaExtrusionSurfaces(List<GaiaExtrusionSurface> surfaces) {
         GaiaTessellator tessellator = new GaiaTessellator();
+        GaiaEarcutTessellator earcutTessellator = createEarcutTessellator();
         GaiaPrimitive primitive = new GaiaPrimitive();
         List<GaiaVertex> vertexList = new ArrayList<>();
         Map<Vector3d, Integer> pointsMap = new HashMap<>();
@@ -735,7 +785,11 @@ public abstract class AbstractGeometryConverter {
             int idx3Local = -1;
 
             resultTrianglesIndices.clear();
-            tessellator.tessellate3D(polygon, resultTrianglesIndices);
+            if (earcutTessellator != null) {
+                earcutTessellator.tessellate3D(polygon, resultTrianglesIndices);
+            } else {
+                tessellator.tessellate3D(polygon, resultTrianglesIndices);
+            }
 
             int indicesCount = resultTrianglesIndices.size();
             int trianglesCount = indicesCount / 3;
@@ -765,6 +819,16 @@ public abstract class AbstractGeometryConverter {
         return primitive;
     }
 
+    /**
+     * Creates the ear clipping tessellator when the earcut option is enabled, otherwise returns null.
+     */
+    private GaiaEarcutTessellator createEarcutTessellator() {
+        if (GlobalOptions.getInstance().isEarcutTessellation()) {
+            return new GaiaEarcutTessellator();
+        }
+        return null;
+    }
+
 
     protected GaiaMaterial getMaterialByClassification(List<GaiaMaterial> gaiaMaterials, Classification classification) {
         if (classification.equals(Classification.DOOR)) {
@@ -243,6 +243,7 @@ public class GeoJsonConverter extends AbstractGeometryConverter implements Conve
                 }
             }
             iterator.close();
+            drapeBuildings(buildings);
             EasySceneCreator easySceneCreator = new EasySceneCreator();
 
             int sceneCount = 10000;
@@ -268,12 +269,12 @@ public class GeoJsonConverter extends AbstractGeometryConverter implements Conve
                 for (Vector3d position : building.getPositions()) {
                     Vector3d positionWorldCoordinate = GlobeUtils.geographicToCartesianWgs84(position);
                     Vector3d localPosition = positionWorldCoordinate.mulPosition(transformMatrixInv);
-                    localPosition.z = 0.0d;
+                    localPosition.z = getTerrainOffset(position);
                     localPositions.add(new Vector3dOnlyHashEquals(localPosition));
                 }
                 Collections.reverse(localPositions);
 
-                List<GaiaExtrusionSurface> extrusionSurfaces = gaiaExtruder.extrude(localPositions, building.getRoofHeight(), building.getFloorHeight());
+                List<GaiaExtrusionSurface> extrusionSurfaces = extrudeBuilding(gaiaExtruder, localPositions, building);
 
                 GaiaNode node = new GaiaNode();
                 node.setTransformMatrix(new Matrix4d().identity());
@@ -387,6 +388,8 @@ public class GeoJsonConverter extends AbstractGeometryConverter implements Conve
             }
         }
 
+        drapePipeLineStrings(pipeLineStrings);
+
         int sceneCount = 1000;
         List<GaiaScene> scenes = new ArrayList<>();
 
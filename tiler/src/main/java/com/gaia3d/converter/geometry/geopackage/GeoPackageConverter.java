@@ -285,6 +285,7 @@ public class GeoPackageConverter extends AbstractGeometryConverter implements Co
     private void convertExtrusionBuildings(List<GaiaExtrusionBuilding> buildings, List<GaiaSceneTempGroup> sceneTemps, File input, File output) {
         double skirtHeight = globalOptions.getSkirtHeight();
         GaiaExtruder gaiaExtruder = new GaiaExtruder();
+        drapeBuildings(buildings);
 
         int sceneCount = 10000;
         List<GaiaScene> scenes = new ArrayList<>();
@@ -313,13 +314,13 @@ public class GeoPackageConverter extends AbstractGeometryConverter implements Co
             for (Vector3d position : building.getPositions()) {
                 Vector3d positionWorldCoordinate = GlobeUtils.geographicToCartesianWgs84(position);
                 Vector3d localPosition = positionWorldCoordinate.mulPosition(transformMatrixInv);
-                localPosition.z = 0.0d;
+                localPosition.z = getTerrainOffset(position);
                 localPositions.add(new Vector3dOnlyHashEquals(localPosition));
             }
             Collections.reverse(localPositions);
             localPositions.remove(localPositions.size() - 1);
 
-            List<GaiaExtrusionSurface> extrusionSurfaces = gaiaExtruder.extrude(localPositions, building.getRoofHeight(), building.getFloorHeight());
+            List<GaiaExtrusionSurface> extrusionSurfaces = extrudeBuilding(gaiaExtruder, localPositions, building);
 
             GaiaNode node = new GaiaNode();
             node.setTransformMatrix(new Matrix4d().identity());
@@ -410,6 +411,8 @@ public class GeoPackageConverter extends AbstractGeometryConverter implements Co
             }
         }
 
+        drapePipeLineStrings(pipeLineStrings);
+
         int sceneCount = 1000;
         List<GaiaScene> scenes = new ArrayList<>();
 
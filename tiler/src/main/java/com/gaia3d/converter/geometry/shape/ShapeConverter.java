@@ -278,6 +278,7 @@ public class ShapeConverter extends AbstractGeometryConverter implements Convert
     private void convertExtrusionBuildings(List<GaiaExtrusionBuilding> buildings, List<GaiaSceneTempGroup> sceneTemps, File input, File output) {
         double skirtHeight = globalOptions.getSkirtHeight();
         GaiaExtruder gaiaExtruder = new GaiaExtruder();
+        drapeBuildings(buildings);
 
         int sceneCount = 10000;
         List<GaiaScene> scenes = new ArrayList<>();
@@ -306,13 +307,13 @@ public class ShapeConverter extends AbstractGeometryConverter implements Convert
             for (Vector3d position : building.getPositions()) {
                 Vector3d positionWorldCoordinate = GlobeUtils.geographicToCartesianWgs84(position);
                 Vector3d localPosition = positionWorldCoordinate.mulPosition(transformMatrixInv);
-                localPosition.z = 0.0d;
+                localPosition.z = getTerrainOffset(position);
                 localPositions.add(new Vector3dOnlyHashEquals(localPosition));
             }
             Collections.reverse(localPositions);
             localPositions.remove(localPositions.size() - 1);
 
-            List<GaiaExtrusionSurface> extrusionSurfaces = gaiaExtruder.extrude(localPositions, building.getRoofHeight(), building.getFloorHeight());
+            List<GaiaExtrusionSurface> extrusionSurfaces = extrudeBuilding(gaiaExtruder, localPositions, building);
 
             GaiaNode node = new GaiaNode();
             node.setTransformMatrix(new Matrix4d().identity());
@@ -403,6 +404,8 @@ public class ShapeConverter extends AbstractGeometryConverter implements Convert
             }
         }
 
+        drapePipeLineStrings(pipeLineStrings);
+
         int sceneCount = 1000;
         List<GaiaScene> scenes = new ArrayList<>();
 
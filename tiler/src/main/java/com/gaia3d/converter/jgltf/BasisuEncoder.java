@@ -0,0 +1,166 @@
+package com.gaia3d.converter.jgltf;
+
+import com.gaia3d.util.ImageResizer;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Encodes textures into KTX2 files of the "KHR_texture_basisu" extension with the Basis Universal encoder (basisu),
+ * which runs on the cpu and needs no display, so it also runs on headless servers.
+ * The encoder is an external executable which is not bundled with the tiler, the texture compression option requires it on the PATH
+ * and is rejected when the options are read if it is missing.
+ * The images are written to a png in the temp directory of the encoder and the KTX2 file with its mipmaps is read back.
+ */
+@Slf4j
+@Getter
+public class BasisuEncoder {
+    public static final String EXTENSION_NAME = "KHR_texture_basisu";
+    public static final String MIME_TYPE = "image/ktx2";
+    public static final String COMMAND_NAME = "basisu";
+    private static final byte[] KTX2_IDENTIFIER = {(byte) 0xAB, 'K', 'T', 'X', ' ', '2', '0', (byte) 0xBB, '\r', '\n', 0x1A, '\n'};
+    // the block compressed formats transcoded from the basis textures require dimensions of multiples of 4
+    private static final int BLOCK_SIZE = 4;
+
+    private final File command;
+    private final TextureCompression compression;
+    private final int quality; // 1 to 255
+    private final int effort; // 0 to 4
+    private Path tempPath = null;
+
+    public BasisuEncoder(File command, TextureCompression compression, int quality, int effort) {
+        this.command = command;
+        this.compression = compression;
+        this.quality = Math.min(Math.max(quality, 1), 255);
+        this.effort = Math.min(Math.max(effort, 0), 4);
+    }
+
+    /**
+     * Finds the basisu executable on the PATH.
+     * @return the executable, or null if it is not installed
+     */
+    public static File findCommand() {
+        String path = System.getenv("PATH");
+        if (path == null) {
+            return null;
+        }
+        boolean windows = System.getProperty("os.name", "").toLowerCase(Locale.ROOT).contains("win");
+        String fileName = windows ? COMMAND_NAME + ".exe" : COMMAND_NAME;
+        for (String directory : path.split(File.pathSeparator)) {
+            File file = new File(directory, fileName);
+            if (file.isFile() && file.canExecute()) {
+                return file;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds the basisu executable on the PATH.
+     * @throws IllegalStateException if it is not installed
+     */
+    public static File requireCommand() {
+        File command = findCommand();
+        if (command == null) {
+            throw new IllegalStateException("The basisu encoder is not found on the PATH, it is required for the texture compression.");
+        }
+        return command;
+    }
+
+    /**
+     * Encodes the image with its mipmaps into a KTX2 file.
+     * The textures are encoded concurrently, each call uses its own files in the temp directory of the encoder.
+     * @throws IOException if the encoder fails or does not write a KTX2 file
+     */
+    public byte[] encode(BufferedImage image) throws IOException {
+        image = resizeToBlocks(image);
+        Path directory = getTempPath();
+        File inputFile = Files.createTempFile(directory, "texture", ".png").toFile();
+        File outputFile = new File(directory.toFile(), inputFile.getName().replace(".png", ".ktx2"));
+        try {
+            ImageIO.write(image, "png", inputFile);
+
+            Process process = new ProcessBuilder(getArguments(inputFile, outputFile))
+                    .directory(directory.toFile())
+                    .redirectErrorStream(true)
+                    .start();
+            String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            int exitCode = process.waitFor();
+            if (exitCode != 0 || !outputFile.isFile()) {
+                throw new IOException("The basisu encoder failed with exit code " + exitCode + " : " + output);
+            }
+            log.debug("[basisu] {}", output);
+
+            byte[] ktx2 = Files.readAllBytes(outputFile.toPath());
+            if (!isKtx2(ktx2)) {
+                throw new IOException("The basisu encoder did not write a KTX2 file.");
+            }
+            return ktx2;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while encoding the texture.", e);
+        } finally {
+            Files.deleteIfExists(inputFile.toPath());
+            Files.deleteIfExists(outputFile.toPath());
+        }
+    }
+
+    private synchronized Path getTempPath() throws IOException {
+        if (tempPath == null) {
+            tempPath = Files.createTempDirectory("mago-basisu");
+            // empty when every encoding is finished
+            tempPath.toFile().deleteOnExit();
+        }
+        return tempPath;
+    }
+
+    /**
+     * The arguments of the encoder, ETC1S uses the quality level and the compression level,
+     * UASTC uses the pack level and a rate distortion optimization below the highest quality.
+     */
+    public List<String> getArguments(File inputFile, File outputFile) {
+        List<String> arguments = new ArrayList<>();
+        arguments.add(command.getAbsolutePath());
+        arguments.add("-ktx2");
+        arguments.add("-mipmap");
+        // the textures are encoded on the threads of the tiling pipeline
+        arguments.add("-no_multithreading");
+        if (compression == TextureCompression.UASTC) {
+            arguments.addAll(Arrays.asList("-uastc", "-uastc_level", String.valueOf(effort)));
+            if (quality < 255) {
+                arguments.addAll(Arrays.asList("-uastc_rdo_l", String.format(Locale.ROOT, "%.3f", (255 - quality) / 64.0f)));
+            }
+        } else {
+            arguments.addAll(Arrays.asList("-q", String.valueOf(quality), "-comp_level", String.valueOf(effort)));
+        }
+        arguments.addAll(Arrays.asList("-file", inputFile.getAbsolutePath(), "-output_file", outputFile.getAbsolutePath()));
+        return arguments;
+    }
+
+    /**
+     * Scales the image up to the next multiples of the block size.
+     */
+    public static BufferedImage resizeToBlocks(BufferedImage image) {
+        int width = (image.getWidth() + BLOCK_SIZE - 1) / BLOCK_SIZE * BLOCK_SIZE;
+        int height = (image.getHeight() + BLOCK_SIZE - 1) / BLOCK_SIZE * BLOCK_SIZE;
+        if (width == image.getWidth() && height == image.getHeight()) {
+            return image;
+        }
+        return new ImageResizer().resizeImageGraphic2D(image, width, height, true);
+    }
+
+    public static boolean isKtx2(byte[] bytes) {
+        return bytes.length > KTX2_IDENTIFIER.length && Arrays.equals(bytes, 0, KTX2_IDENTIFIER.length, KTX2_IDENTIFIER, 0, KTX2_IDENTIFIER.length);
+    }
+}
@@ -6,12 +6,16 @@ import lombok.Setter;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * GltfBinary is a class that contains the binary data of the glTF file.
  * It contains the binary data of the glTF file, and the information of the buffer of each node.
  * The binary data of the glTF file is stored in the body variable.
+ * The encoded images are stored in front of the node buffers, each padded to a multiple of 4 bytes.
+ * The property table buffers are stored in front of the images, each padded to a multiple of 8 bytes.
  */
 @Getter
 @Setter
@@ -19,15 +23,41 @@ public class GltfBinary {
     private int materialId = -1;
     private int textureId = -1;
     private int imageId = -1;
+    /* true to store the encoded images in buffer views of the binary body instead of data uris */
+    private boolean imageBufferViews = false;
+    /* the feature properties referenced by the feature ids, null to write the batch ids */
+    private GltfPropertyTable propertyTable = null;
+    /* the buffer views of octahedral encoded normals, decoded by the meshopt filter */
+    private Set<Integer> octahedralBufferViews = new HashSet<>();
 
     private ByteBuffer body = null;
     private List<GltfNodeBuffer> nodeBuffers = new ArrayList<>();
+    private List<ByteBuffer> imageBuffers = new ArrayList<>();
+    private List<ByteBuffer> propertyBuffers = new ArrayList<>();
+
+    public int getImagesByteLength() {
+        return imageBuffers.stream().mapToInt((imageBuffer) -> padMultiple4(imageBuffer.remaining())).sum();
+    }
+
+    public int getPropertiesByteLength() {
+        return propertyBuffers.stream().mapToInt((propertyBuffer) -> padMultiple8(propertyBuffer.remaining())).sum();
+    }
 
     public void fill() {
-        body = ByteBuffer.allocate(nodeBuffers.stream().mapToInt(GltfNodeBuffer::getTotalByteBufferLength).sum());
+        body = ByteBuffer.allocate(getPropertiesByteLength() + getImagesByteLength() + nodeBuffers.stream().mapToInt(GltfNodeBuffer::getTotalByteBufferLength).sum());
         ByteBuffer bodyBuffer = body;
         bodyBuffer.order(ByteOrder.LITTLE_ENDIAN);
         bodyBuffer.clear();
+        propertyBuffers.forEach((propertyBuffer) -> {
+            int length = propertyBuffer.remaining();
+            bodyBuffer.put(propertyBuffer.duplicate());
+            bodyBuffer.position(bodyBuffer.position() + padMultiple8(length) - length);
+        });
+        imageBuffers.forEach((imageBuffer) -> {
+            int length = imageBuffer.remaining();
+            bodyBuffer.put(imageBuffer.duplicate());
+            bodyBuffer.position(bodyBuffer.position() + padMultiple4(length) - length);
+        });
         nodeBuffers.forEach((nodeBuffer) -> {
             if (nodeBuffer.getIndicesBuffer() != null) {
                 nodeBuffer.getIndicesBuffer().rewind();
@@ -62,4 +92,16 @@ public class GltfBinary {
         });
         bodyBuffer.rewind();
     }
+
+    private int padMultiple4(int value) {
+        int remainder = value % 4;
+        if (remainder == 0) {
+            return value;
+        }
+        return value + (4 - remainder);
+    }
+
+    private int padMultiple8(int value) {
+        return (value + 7) & ~7;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,29 @@
+package com.gaia3d.converter.jgltf;
+
+import lombok.Getter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * GltfPropertyTable is a class that contains the feature properties of the glTF file.
+ * It is written as the EXT_structural_metadata property table, the features are referenced by the EXT_mesh_features feature ids.
+ * Values are collected per feature id, so features without an attribute keep the columns aligned.
+ * @see GltfWriter
+ */
+@Getter
+public class GltfPropertyTable {
+    public static final String SCHEMA_ID = "mago3DTiler";
+    public static final String CLASS_NAME = "feature";
+
+    private final int count;
+    private final Map<String, String[]> columns = new LinkedHashMap<>();
+
+    public GltfPropertyTable(int count) {
+        this.count = count;
+    }
+
+    public void put(String key, int featureId, String value) {
+        columns.computeIfAbsent(key, k -> new String[count])[featureId] = value;
+    }
+}
@@ -1,9 +1,14 @@
 package com.gaia3d.converter.jgltf;
 
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.gaia3d.basic.model.*;
 import com.gaia3d.basic.types.AccessorType;
 import com.gaia3d.basic.types.AttributeType;
 import com.gaia3d.basic.types.FormatType;
+import com.gaia3d.basic.types.PropertyComponentType;
 import com.gaia3d.basic.types.TextureType;
 import com.gaia3d.command.mago.GlobalOptions;
 import com.gaia3d.util.GeometryUtils;
@@ -16,11 +21,9 @@ import de.javagl.jgltf.model.GltfModel;
 import de.javagl.jgltf.model.GltfModels;
 import de.javagl.jgltf.model.io.GltfModelWriter;
 import de.javagl.jgltf.model.io.v2.GltfAssetV2;
-import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.FilenameUtils;
 import org.joml.Matrix4d;
-import org.joml.Vector3d;
 import org.lwjgl.opengl.GL20;
 
 import javax.imageio.IIOImage;
@@ -28,14 +31,13 @@ import javax.imageio.ImageIO;
 import javax.imageio.ImageWriteParam;
 import javax.imageio.ImageWriter;
 import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
-import java.io.File;
-import java.io.IOException;
-import java.io.OutputStream;
+import java.io.*;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.List;
 
@@ -43,17 +45,27 @@ import java.util.List;
  * GltfWriter is a class that writes the glTF file.
  * It contains the method to write the glTF file from the GaiaScene object.
  * The glTF file is written in the glTF 2.0 format.
+ * The glb images are stored in buffer views of the binary chunk, the embedded glTF images are stored as data uris.
+ * The glb contents of 3D Tiles 1.1 carry the feature ids (EXT_mesh_features) and property table (EXT_structural_metadata).
+ * With the meshopt option, the meshes are reordered for the vertex cache and the glb buffer views are compressed (EXT_meshopt_compression).
+ * With quantization, the normals are signed normalized bytes, octahedral encoded for the meshopt "OCTAHEDRAL" filter when both options are set.
+ * With the texture compression option, the textures are KTX2 images of the basisu encoder (KHR_texture_basisu).
  * @since 1.0.0
  * @see GaiaScene , GltfBinary
  */
 @Slf4j
-@NoArgsConstructor
 public class GltfWriter {
     private final GlobalOptions globalOptions = GlobalOptions.getInstance();
+    // null when the textures are written as png or jpeg images, shared by the post-process threads
+    private final BasisuEncoder basisuEncoder;
+
+    public GltfWriter() {
+        this.basisuEncoder = createBasisuEncoder();
+    }
 
     public void writeGltf(GaiaScene gaiaScene, File outputPath) {
         try {
-            GltfModel gltfModel = convert(gaiaScene);
+            GltfModel gltfModel = convert(gaiaScene, false, null, null);
             GltfModelWriter writer = new GltfModelWriter();
             writer.writeEmbedded(gltfModel, outputPath);
         } catch (IOException e) {
@@ -67,8 +79,26 @@ public class GltfWriter {
     }
 
     public void writeGlb(GaiaScene gaiaScene, File outputPath) {
+        writeGlb(gaiaScene, outputPath, null, null);
+    }
+
+    /**
+     * Writes the glb content of 3D Tiles 1.1.
+     * @param propertyTable the feature properties indexed by the batch ids of the vertices, null to keep the _BATCHID attribute
+     * @param rtcCenter the CESIUM_RTC center of the positions, null when the positions are not relative to a center
+     */
+    public void writeGlb(GaiaScene gaiaScene, File outputPath, GltfPropertyTable propertyTable, double[] rtcCenter) {
+        if (globalOptions.isUseMeshoptCompression()) {
+            try (OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(outputPath))) {
+                writeCompressedGlb(gaiaScene, outputStream, propertyTable, rtcCenter);
+            } catch (IOException e) {
+                log.error("[ERROR] :", e);
+                log.error("[ERROR] Failed to write glb file.");
+            }
+            return;
+        }
         try {
-            GltfModel gltfModel = convert(gaiaScene);
+            GltfModel gltfModel = convert(gaiaScene, true, propertyTable, rtcCenter);
             GltfModelWriter writer = new GltfModelWriter();
             writer.writeBinary(gltfModel, outputPath);
         } catch (IOException e) {
@@ -79,9 +109,13 @@ public class GltfWriter {
 
     public void writeGlb(GaiaScene gaiaScene, OutputStream outputStream) {
         try {
-            GltfModel gltfModel = convert(gaiaScene);
-            GltfModelWriter writer = new GltfModelWriter();
-            writer.writeBinary(gltfModel, outputStream);
+            if (globalOptions.isUseMeshoptCompression()) {
+                writeCompressedGlb(gaiaScene, outputStream, null, null);
+            } else {
+                GltfModel gltfModel = convert(gaiaScene, true, null, null);
+                GltfModelWriter writer = new GltfModelWriter();
+                writer.writeBinary(gltfModel, outputStream);
+            }
             outputStream.flush();
             outputStream.close();
         } catch (IOException e) {
@@ -94,8 +128,27 @@ public class GltfWriter {
         writeGlb(gaiaScene, new File(outputPath));
     }
 
-    private GltfModel convert(GaiaScene gaiaScene) {
+    /**
+     * Converts the scene to a glTF model.
+     * @param imageBufferViews true to store the images in the binary body (glb), false to store them as data uris
+     * @param propertyTable the feature properties, null to write the batch ids as the _BATCHID attribute
+     * @param rtcCenter the CESIUM_RTC center, null to omit the extension
+     */
+    private GltfModel convert(GaiaScene gaiaScene, boolean imageBufferViews, GltfPropertyTable propertyTable, double[] rtcCenter) {
         GltfBinary binary = new GltfBinary();
+        GlTF gltf = createGltf(gaiaScene, binary, imageBufferViews, propertyTable, rtcCenter);
+        if (binary.getBody() != null) {
+            GltfAssetV2 asset = new GltfAssetV2(gltf, binary.getBody());
+            return GltfModels.create(asset);
+        }
+        return null;
+    }
+
+    /**
+     * Creates the glTF of the scene and fills the binary body.
+     */
+    private GlTF createGltf(GaiaScene gaiaScene, GltfBinary binary, boolean imageBufferViews, GltfPropertyTable propertyTable, double[] rtcCenter) {
+        binary.setImageBufferViews(imageBufferViews);
         GlTF gltf = new GlTF();
         gltf.setAsset(genAsset());
         gltf.addSamplers(genSampler());
@@ -103,15 +156,174 @@ public class GltfWriter {
         Node rootNode = initNode();
         Scene scene = initScene(gltf, rootNode);
 
-        gaiaScene.getMaterials().forEach(gaiaMaterial -> createMaterial(gltf, gaiaMaterial));
+        if (rtcCenter != null) {
+            Map<String, Object> rtc = new LinkedHashMap<>();
+            rtc.put("center", rtcCenter);
+            gltf.addExtensions("CESIUM_RTC", rtc);
+            gltf.addExtensionsUsed("CESIUM_RTC");
+        }
+        if (propertyTable != null && propertyTable.getCount() > 0) {
+            createPropertyTable(gltf, binary, propertyTable);
+            binary.setPropertyTable(propertyTable);
+        }
+
+        gaiaScene.getMaterials().forEach(gaiaMaterial -> createMaterial(gltf, binary, gaiaMaterial));
         convertNode(gltf, binary, null, gaiaScene.getNodes());
 
         binary.fill();
-        if (binary.getBody() != null) {
-            GltfAssetV2 asset = new GltfAssetV2(gltf, binary.getBody());
-            return GltfModels.create(asset);
+        return gltf;
+    }
+
+    /**
+     * Writes the glb with the EXT_meshopt_compression buffer views.
+     * The glb container is written here, because the binary writer of jgltf merges the buffers into a new layout
+     * while the compressed streams are referenced by raw offsets of the binary chunk.
+     */
+    private void writeCompressedGlb(GaiaScene gaiaScene, OutputStream outputStream, GltfPropertyTable propertyTable, double[] rtcCenter) throws IOException {
+        GltfBinary binary = new GltfBinary();
+        GlTF gltf = createGltf(gaiaScene, binary, true, propertyTable, rtcCenter);
+        ByteBuffer body = compressBufferViews(gltf, binary);
+        writeBinary(gltf, body, outputStream);
+    }
+
+    /**
+     * Compresses the vertex attribute (ATTRIBUTES mode) and index (INDICES mode) buffer views.
+     * The compressed streams are stored in the binary chunk, the buffer views move to a fallback buffer without data,
+     * the other buffer views (images, property tables) are copied with their 8 byte alignment.
+     * The octahedral encoded normals are decoded by the "OCTAHEDRAL" filter.
+     * @return the new binary body
+     */
+    private ByteBuffer compressBufferViews(GlTF gltf, GltfBinary binary) {
+        ByteBuffer body = binary.getBody();
+        List<BufferView> bufferViews = gltf.getBufferViews();
+        if (bufferViews == null || body == null) {
+            return body;
+        }
+        Map<Integer, Accessor> indexAccessors = new HashMap<>();
+        if (gltf.getAccessors() != null) {
+            gltf.getAccessors().forEach((accessor) -> {
+                BufferView bufferView = bufferViews.get(accessor.getBufferView());
+                if (bufferView.getTarget() != null && bufferView.getTarget() == GL20.GL_ELEMENT_ARRAY_BUFFER) {
+                    indexAccessors.put(accessor.getBufferView(), accessor);
+                }
+            });
+        }
+
+        ByteArrayOutputStream compressedBody = new ByteArrayOutputStream(body.capacity());
+        int fallbackByteLength = 0;
+        for (int bufferViewId = 0; bufferViewId < bufferViews.size(); bufferViewId++) {
+            BufferView bufferView = bufferViews.get(bufferViewId);
+            ByteBuffer data = body.duplicate();
+            data.position(bufferView.getByteOffset());
+            data.limit(bufferView.getByteOffset() + bufferView.getByteLength());
+
+            Integer target = bufferView.getTarget();
+            String mode = null;
+            String filter = null;
+            int byteStride = 0;
+            int count = 0;
+            byte[] compressed = null;
+            if (target != null && target == GL20.GL_ARRAY_BUFFER && bufferView.getByteStride() != null) {
+                mode = "ATTRIBUTES";
+                byteStride = bufferView.getByteStride();
+                count = bufferView.getByteLength() / byteStride;
+                compressed = MeshoptEncoder.encodeVertexBuffer(data, count, byteStride);
+                if (binary.getOctahedralBufferViews().contains(bufferViewId)) {
+                    filter = "OCTAHEDRAL";
+                }
+            } else if (indexAccessors.containsKey(bufferViewId)) {
+                Accessor accessor = indexAccessors.get(bufferViewId);
+                mode = "INDICES";
+                byteStride = accessor.getComponentType() == GltfConstants.GL_UNSIGNED_INT ? 4 : 2;
+                count = accessor.getCount();
+                compressed = MeshoptEncoder.encodeIndexSequence(data, count, byteStride);
+            }
+
+            if (compressed == null) {
+                padBody(compressedBody, 8);
+                bufferView.setByteOffset(compressedBody.size());
+                byte[] bytes = new byte[data.remaining()];
+                data.get(bytes);
+                compressedBody.write(bytes, 0, bytes.length);
+            } else {
+                padBody(compressedBody, 4);
+                Map<String, Object> meshopt = new LinkedHashMap<>();
+                meshopt.put("buffer", 0);
+                meshopt.put("byteOffset", compressedBody.size());
+                meshopt.put("byteLength", compressed.length);
+                meshopt.put("byteStride", byteStride);
+                meshopt.put("mode", mode);
+                meshopt.put("count", count);
+                if (filter != null) {
+                    meshopt.put("filter", filter);
+                }
+                compressedBody.write(compressed, 0, compressed.length);
+
+                bufferView.setBuffer(1);
+                bufferView.setByteOffset(fallbackByteLength);
+                bufferView.setByteLength(count * byteStride);
+                bufferView.addExtensions("EXT_meshopt_compression", meshopt);
+                fallbackByteLength += padMultiple4(count * byteStride);
+            }
+        }
+        padBody(compressedBody, 4);
+
+        if (fallbackByteLength > 0) {
+            Map<String, Object> fallback = new LinkedHashMap<>();
+            fallback.put("fallback", true);
+            Buffer fallbackBuffer = new Buffer();
+            fallbackBuffer.setByteLength(fallbackByteLength);
+            fallbackBuffer.addExtensions("EXT_meshopt_compression", fallback);
+            gltf.addBuffers(fallbackBuffer);
+            gltf.addExtensionsUsed("EXT_meshopt_compression");
+            gltf.addExtensionsRequired("EXT_meshopt_compression");
+        }
+        gltf.getBuffers().get(0).setByteLength(compressedBody.size());
+        return ByteBuffer.wrap(compressedBody.toByteArray());
+    }
+
+    private void padBody(ByteArrayOutputStream body, int alignment) {
+        while (body.size() % alignment != 0) {
+            body.write(0);
+        }
+    }
+
+    /**
+     * Writes the glb container, the json chunk padded with spaces and the binary chunk padded with zeros.
+     */
+    private void writeBinary(GlTF gltf, ByteBuffer body, OutputStream outputStream) throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        objectMapper.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE);
+        objectMapper.setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY);
+        byte[] json = objectMapper.writeValueAsBytes(gltf);
+        int jsonByteLength = padMultiple4(json.length);
+        int binaryByteLength = body == null ? 0 : padMultiple4(body.remaining());
+        int byteLength = 12 + 8 + jsonByteLength + (binaryByteLength > 0 ? 8 + binaryByteLength : 0);
+
+        ByteBuffer header = ByteBuffer.allocate(20);
+        header.order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(0x46546C67); // glTF
+        header.putInt(2);
+        header.putInt(byteLength);
+        header.putInt(jsonByteLength);
+        header.putInt(0x4E4F534A); // JSON
+        outputStream.write(header.array());
+        outputStream.write(json);
+        for (int i = json.length; i < jsonByteLength; i++) {
+            outputStream.write(' ');
+        }
+        if (binaryByteLength > 0) {
+            ByteBuffer chunkHeader = ByteBuffer.allocate(8);
+            chunkHeader.order(ByteOrder.LITTLE_ENDIAN);
+            chunkHeader.putInt(binaryByteLength);
+            chunkHeader.putInt(0x004E4942); // BIN
+            outputStream.write(chunkHeader.array());
+            byte[] bytes = new byte[body.remaining()];
+            body.duplicate().get(bytes);
+            outputStream.write(bytes);
+            outputStream.write(new byte[binaryByteLength - bytes.length]);
         }
-        return null;
     }
 
     private void convertNode(GlTF gltf, GltfBinary binary, Node parentNode, List<GaiaNode> gaiaNodes) {
@@ -130,41 +342,55 @@ public class GltfWriter {
 
             List<GaiaMesh> gaiaMeshes = gaiaNode.getMeshes();
             gaiaMeshes.forEach((gaiaMesh) -> {
-                GltfNodeBuffer nodeBuffer = convertGeometryInfo(gltf, gaiaMesh, node);
+                GltfNodeBuffer nodeBuffer = convertGeometryInfo(gltf, binary, gaiaMesh, node);
                 nodeBuffers.add(nodeBuffer);
             });
         });
     }
 
-    private Byte convertNormal(Float normalValue) {
-        byte normalByte = (byte) (normalValue * 127);
-        return normalByte;
-    }
-
-    private byte[] convertNormals(float[] normalValues) {
-        int length = (normalValues.length / 3) * 4;
-        int index = 0;
-        byte[] normalBytes = new byte[length];
-        for (int i = 0; i < length; i += 4) {
-            float x = normalValues[index++];
-            float y = normalValues[index++];
-            float z = normalValues[index++];
-
-            // Normalize the normal vector
-            Vector3d vector3d = new Vector3d(x, y, z);
-            vector3d.normalize();
+    private GltfNodeBuffer convertGeometryInfo(GlTF gltf, GltfBinary binary, GaiaMesh gaiaMesh, Node node) {
+        float[] positions = gaiaMesh.getPositions();
+        float[] normals = gaiaMesh.getNormals();
+        byte[] colors = gaiaMesh.getColors();
+        float[] texcoords = gaiaMesh.getTexcoords();
+        float[] batchIds = gaiaMesh.getBatchIds();
 
-            normalBytes[i] = convertNormal((float) vector3d.x);
-            normalBytes[i + 1] = convertNormal((float) vector3d.y);
-            normalBytes[i + 2] = convertNormal((float) vector3d.z);
-            normalBytes[i + 3] = (byte) 1;
+        int vertexCount = gaiaMesh.getPositionsCount() / 3;
+        boolean isOverShortVertices = vertexCount >= 65535;
+        if (isOverShortVertices) {
+            log.warn("[WARN] The number of vertices count than 65535 ({})", vertexCount);
         }
-        return normalBytes;
-    }
 
-    private GltfNodeBuffer convertGeometryInfo(GlTF gltf, GaiaMesh gaiaMesh, Node node) {
-        int[] indices = gaiaMesh.getIndices();
-        float[] positions = gaiaMesh.getPositions();
+        // the indices of a mesh with less than 65535 vertices are narrowed to unsigned shorts where they are gathered or remapped
+        int[] indices = null;
+        short[] shortIndices = null;
+        if (globalOptions.isUseMeshoptCompression()) {
+            int[] meshIndices = gaiaMesh.getIndices();
+            if (isOptimizable(meshIndices, vertexCount, normals.length, colors.length, texcoords.length, batchIds.length)) {
+                int[] optimizedIndices = MeshOptimizer.optimizeVertexCache(meshIndices, vertexCount);
+                int[] remap = MeshOptimizer.optimizeVertexFetchRemap(optimizedIndices, vertexCount);
+                if (isOverShortVertices) {
+                    indices = MeshOptimizer.remapIndices(optimizedIndices, remap);
+                } else {
+                    shortIndices = MeshOptimizer.remapUnsignedShortIndices(optimizedIndices, remap);
+                }
+                positions = MeshOptimizer.remapVertices(positions, remap, 3);
+                normals = MeshOptimizer.remapVertices(normals, remap, 3);
+                colors = MeshOptimizer.remapVertices(colors, remap, 4);
+                texcoords = MeshOptimizer.remapVertices(texcoords, remap, 2);
+                batchIds = MeshOptimizer.remapVertices(batchIds, remap, 1);
+            } else if (isOverShortVertices) {
+                indices = meshIndices;
+            }
+        }
+        if (indices == null && shortIndices == null) {
+            if (isOverShortVertices) {
+                indices = gaiaMesh.getIndices();
+            } else {
+                shortIndices = gaiaMesh.getUnsignedShortIndices();
+            }
+        }
+        int indicesCount = isOverShortVertices ? indices.length : shortIndices.length;
 
         short[] unsignedShortsPositions = null;
         if (globalOptions.isUseQuantization()) {
@@ -186,18 +412,6 @@ public class GltfWriter {
             node.setMatrix(quantizationMatrix.get(new float[16]));
         }
 
-        float[] normals = gaiaMesh.getNormals();
-        //byte[] normalBytes = convertNormals(normals);
-        byte[] colors = gaiaMesh.getColors();
-        float[] texcoords = gaiaMesh.getTexcoords();
-        float[] batchIds = gaiaMesh.getBatchIds();
-
-        int vertexCount = gaiaMesh.getPositionsCount() / 3;
-        boolean isOverShortVertices = vertexCount >= 65535;
-        if (isOverShortVertices) {
-            log.warn("[WARN] The number of vertices count than 65535 ({})", vertexCount);
-        }
-
         GltfNodeBuffer nodeBuffer = initNodeBuffer(gaiaMesh, isOverShortVertices);
         createBuffer(gltf, nodeBuffer);
 
@@ -215,69 +429,69 @@ public class GltfWriter {
         int texcoordsBufferViewId = nodeBuffer.getTexcoordsBufferViewId();
         int batchIdBufferViewId = nodeBuffer.getBatchIdBufferViewId();
 
+        // bulk transfers through the little endian views of the pre-sized buffers
         if (indicesBuffer != null) {
-            for (int indicesValue : indices) {
-                if (isOverShortVertices) {
-                    indicesBuffer.putInt(indicesValue);
-                } else {
-                    short indicesValueShort = (short) indicesValue;
-                    indicesBuffer.putShort(indicesValueShort);
-                }
+            if (isOverShortVertices) {
+                indicesBuffer.asIntBuffer().put(indices);
+            } else {
+                indicesBuffer.asShortBuffer().put(shortIndices);
             }
         }
         if (positionsBuffer != null) {
             if (globalOptions.isUseQuantization()) {
-                for (short position : unsignedShortsPositions) {
-                    positionsBuffer.putShort(position);
-                }
+                positionsBuffer.asShortBuffer().put(unsignedShortsPositions);
             } else {
-                for (Float position : positions) {
-                    positionsBuffer.putFloat(position);
-                }
+                positionsBuffer.asFloatBuffer().put(positions);
             }
         }
         if (normalsBuffer != null) {
-            for (Float normal : normals) {
-                normalsBuffer.putFloat(normal);
+            if (globalOptions.isUseQuantization() && globalOptions.isUseMeshoptCompression()) {
+                normalsBuffer.put(Quantizer.encodeOctahedralNormalBytes(normals));
+                binary.getOctahedralBufferViews().add(normalsBufferViewId);
+            } else if (globalOptions.isUseQuantization()) {
+                normalsBuffer.put(Quantizer.quantizeNormalBytes(normals));
+            } else {
+                normalsBuffer.asFloatBuffer().put(normals);
             }
         }
         if (colorsBuffer != null) {
-            for (Byte color : colors) {
-                colorsBuffer.put(color);
-            }
+            colorsBuffer.put(colors);
         }
         if (texcoordsBuffer != null) {
-            for (Float textureCoordinate : texcoords) {
-                texcoordsBuffer.putFloat(textureCoordinate);
-            }
+            texcoordsBuffer.asFloatBuffer().put(texcoords);
         }
         if (batchIdBuffer != null) {
-            for (Float batchId : batchIds) {
-                batchIdBuffer.putFloat(batchId);
-            }
+            batchIdBuffer.asFloatBuffer().put(batchIds);
         }
 
-        if (indicesBufferViewId > -1 && indices.length > 0) {
+        if (indicesBufferViewId > -1 && indicesCount > 0) {
             if (isOverShortVertices) {
-                int indicesAccessorId = createAccessor(gltf, indicesBufferViewId, 0, indices.length, GltfConstants.GL_UNSIGNED_INT, AccessorType.SCALAR, false);
+                int indicesAccessorId = createAccessor(gltf, indicesBufferViewId, 0, indicesCount, GltfConstants.GL_UNSIGNED_INT, AccessorType.SCALAR, false);
                 nodeBuffer.setIndicesAccessorId(indicesAccessorId);
             } else {
-                int indicesAccessorId = createAccessor(gltf, indicesBufferViewId, 0, indices.length, GltfConstants.GL_UNSIGNED_SHORT, AccessorType.SCALAR, false);
+                int indicesAccessorId = createAccessor(gltf, indicesBufferViewId, 0, indicesCount, GltfConstants.GL_UNSIGNED_SHORT, AccessorType.SCALAR, false);
                 nodeBuffer.setIndicesAccessorId(indicesAccessorId);
             }
         }
         if (positionsBufferViewId > -1 && positions.length > 0) {
             if (globalOptions.isUseQuantization()) {
                 int verticesAccessorId = createAccessor(gltf, positionsBufferViewId, 0, positions.length / 3, GltfConstants.GL_UNSIGNED_SHORT, AccessorType.VEC3, true);
+                setUnsignedShortBounds(gltf.getAccessors().get(verticesAccessorId), unsignedShortsPositions, 4);
                 nodeBuffer.setPositionsAccessorId(verticesAccessorId);
             } else {
                 int verticesAccessorId = createAccessor(gltf, positionsBufferViewId, 0, positions.length / 3, GltfConstants.GL_FLOAT, AccessorType.VEC3, false);
+                setFloatBounds(gltf.getAccessors().get(verticesAccessorId), positions, 3);
                 nodeBuffer.setPositionsAccessorId(verticesAccessorId);
             }
         }
         if (normalsBufferViewId > -1 && normals.length > 0) {
-            int normalsAccessorId = createAccessor(gltf, normalsBufferViewId, 0, normals.length / 3, GltfConstants.GL_FLOAT, AccessorType.VEC3, false);
-            nodeBuffer.setNormalsAccessorId(normalsAccessorId);
+            if (globalOptions.isUseQuantization()) {
+                int normalsAccessorId = createAccessor(gltf, normalsBufferViewId, 0, normals.length / 3, GltfConstants.GL_BYTE, AccessorType.VEC3, true);
+                nodeBuffer.setNormalsAccessorId(normalsAccessorId);
+            } else {
+                int normalsAccessorId = createAccessor(gltf, normalsBufferViewId, 0, normals.length / 3, GltfConstants.GL_FLOAT, AccessorType.VEC3, false);
+                nodeBuffer.setNormalsAccessorId(normalsAccessorId);
+            }
         }
         if (colorsBufferViewId > -1 && colors.length > 0) {
             int colorsAccessorId = createAccessor(gltf, colorsBufferViewId, 0, colors.length / 4, GltfConstants.GL_UNSIGNED_BYTE, AccessorType.VEC4, true);
@@ -294,12 +508,67 @@ public class GltfWriter {
 
         List<Material> materials = gltf.getMaterials();
         GaiaPrimitive gaiaPrimitive = gaiaMesh.getPrimitives().get(0);
-        MeshPrimitive primitive = createPrimitive(nodeBuffer, gaiaPrimitive, materials);
+        MeshPrimitive primitive = createPrimitive(nodeBuffer, gaiaPrimitive, materials, binary.getPropertyTable());
         int meshId = createMesh(gltf, primitive);
         node.setMesh(meshId);
         return nodeBuffer;
     }
 
+    /**
+     * The vertex attributes are reordered together, so each of them has to be present for every vertex or for none.
+     */
+    private boolean isOptimizable(int[] indices, int vertexCount, int normalsLength, int colorsLength, int texcoordsLength, int batchIdsLength) {
+        if (indices.length == 0 || indices.length % 3 != 0) {
+            return false;
+        }
+        for (int index : indices) {
+            if (index < 0 || index >= vertexCount) {
+                return false;
+            }
+        }
+        return (normalsLength == 0 || normalsLength == vertexCount * 3)
+                && (colorsLength == 0 || colorsLength == vertexCount * 4)
+                && (texcoordsLength == 0 || texcoordsLength == vertexCount * 2)
+                && (batchIdsLength == 0 || batchIdsLength == vertexCount);
+    }
+
+    /**
+     * The POSITION accessor requires its bounds, the glb container written with the meshopt option has no jgltf model to compute them.
+     */
+    private void setFloatBounds(Accessor accessor, float[] values, int componentCount) {
+        Number[] min = new Number[componentCount];
+        Number[] max = new Number[componentCount];
+        for (int component = 0; component < componentCount; component++) {
+            float minValue = Float.MAX_VALUE;
+            float maxValue = -Float.MAX_VALUE;
+            for (int i = component; i < values.length; i += componentCount) {
+                minValue = Math.min(minValue, values[i]);
+                maxValue = Math.max(maxValue, values[i]);
+            }
+            min[component] = minValue;
+            max[component] = maxValue;
+        }
+        accessor.setMin(min);
+        accessor.setMax(max);
+    }
+
+    private void setUnsignedShortBounds(Accessor accessor, short[] values, int stride) {
+        Number[] min = new Number[3];
+        Number[] max = new Number[3];
+        for (int component = 0; component < 3; component++) {
+            int minValue = 0xFFFF;
+            int maxValue = 0;
+            for (int i = component; i < values.length; i += stride) {
+                minValue = Math.min(minValue, values[i] & 0xFFFF);
+                maxValue = Math.max(maxValue, values[i] & 0xFFFF);
+            }
+            min[component] = minValue;
+            max[component] = maxValue;
+        }
+        accessor.setMin(min);
+        accessor.setMax(max);
+    }
+
     private int padMultiple4(int value) {
         int remainder = value % 4;
         if (remainder == 0) {
@@ -321,6 +590,9 @@ public class GltfWriter {
             positionsCapacity = paddedPositionsCount * SHORT_SIZE;
         }
         int normalsCapacity = gaiaMesh.getPositionsCount() * FLOAT_SIZE;
+        if (globalOptions.isUseQuantization()) {
+            normalsCapacity = Quantizer.paddedLength(gaiaMesh.getPositionsCount());
+        }
         int colorsCapacity = gaiaMesh.getColorsCount();
         int texcoordCapacity = gaiaMesh.getTexcoordsCount() * FLOAT_SIZE;
         int batchIdCapacity = gaiaMesh.getBatchIdsCount() * FLOAT_SIZE;
@@ -448,7 +720,8 @@ public class GltfWriter {
         }
         if (nodeBuffer.getNormalsBuffer() != null) {
             ByteBuffer normalsBuffer = nodeBuffer.getNormalsBuffer();
-            int bufferViewId = createBufferView(gltf, bufferId, bufferLength + bufferOffset, normalsBuffer.capacity(), 12, GL20.GL_ARRAY_BUFFER);
+            int normalsStride = globalOptions.isUseQuantization() ? 4 : 12;
+            int bufferViewId = createBufferView(gltf, bufferId, bufferLength + bufferOffset, normalsBuffer.capacity(), normalsStride, GL20.GL_ARRAY_BUFFER);
             nodeBuffer.setNormalsBufferViewId(bufferViewId);
             BufferView bufferView = gltf.getBufferViews().get(bufferViewId);
             bufferView.setName("normals");
@@ -481,6 +754,108 @@ public class GltfWriter {
         buffer.setByteLength(bufferLength + bufferOffset);
     }
 
+    /**
+     * Creates the EXT_structural_metadata schema and property table of the features.
+     * Numeric columns are written with the narrowest component type, the other columns as UTF-8 strings with UINT32 offsets.
+     * The property buffer views are created before the images, so they are placed at the front of the body and aligned to 8 bytes.
+     */
+    private void createPropertyTable(GlTF gltf, GltfBinary binary, GltfPropertyTable propertyTable) {
+        int count = propertyTable.getCount();
+        Map<String, Object> classProperties = new LinkedHashMap<>();
+        Map<String, Object> tableProperties = new LinkedHashMap<>();
+        propertyTable.getColumns().forEach((key, values) -> {
+            String propertyId = createPropertyId(key, classProperties.keySet());
+            Map<String, Object> classProperty = new LinkedHashMap<>();
+            Map<String, Object> tableProperty = new LinkedHashMap<>();
+            if (!propertyId.equals(key)) {
+                classProperty.put("name", key);
+            }
+
+            PropertyComponentType componentType = PropertyComponentType.find(values);
+            if (componentType != null) {
+                ByteBuffer valuesBuffer = ByteBuffer.allocate(componentType.getByteSize() * count);
+                valuesBuffer.order(ByteOrder.LITTLE_ENDIAN);
+                for (String value : values) {
+                    componentType.put(valuesBuffer, value);
+                }
+                valuesBuffer.rewind();
+                classProperty.put("type", "SCALAR");
+                classProperty.put("componentType", componentType.getMetadataName());
+                tableProperty.put("values", createPropertyBufferView(gltf, binary, valuesBuffer));
+            } else {
+                byte[][] strings = new byte[count][];
+                int stringsLength = 0;
+                for (int i = 0; i < count; i++) {
+                    strings[i] = values[i] == null ? new byte[0] : values[i].getBytes(StandardCharsets.UTF_8);
+                    stringsLength += strings[i].length;
+                }
+                // a buffer view is at least 1 byte long, the offsets keep the empty strings empty
+                ByteBuffer valuesBuffer = ByteBuffer.allocate(Math.max(stringsLength, 1));
+                ByteBuffer offsetsBuffer = ByteBuffer.allocate((count + 1) * 4);
+                offsetsBuffer.order(ByteOrder.LITTLE_ENDIAN);
+                for (byte[] string : strings) {
+                    offsetsBuffer.putInt(valuesBuffer.position());
+                    valuesBuffer.put(string);
+                }
+                offsetsBuffer.putInt(valuesBuffer.position());
+                valuesBuffer.rewind();
+                offsetsBuffer.rewind();
+                classProperty.put("type", "STRING");
+                tableProperty.put("values", createPropertyBufferView(gltf, binary, valuesBuffer));
+                tableProperty.put("stringOffsets", createPropertyBufferView(gltf, binary, offsetsBuffer));
+                tableProperty.put("stringOffsetType", "UINT32");
+            }
+            classProperties.put(propertyId, classProperty);
+            tableProperties.put(propertyId, tableProperty);
+        });
+
+        Map<String, Object> featureClass = new LinkedHashMap<>();
+        featureClass.put("properties", classProperties);
+        Map<String, Object> classes = new LinkedHashMap<>();
+        classes.put(GltfPropertyTable.CLASS_NAME, featureClass);
+        Map<String, Object> schema = new LinkedHashMap<>();
+        schema.put("id", GltfPropertyTable.SCHEMA_ID);
+        schema.put("classes", classes);
+
+        Map<String, Object> table = new LinkedHashMap<>();
+        table.put("class", GltfPropertyTable.CLASS_NAME);
+        table.put("count", count);
+        table.put("properties", tableProperties);
+
+        Map<String, Object> structuralMetadata = new LinkedHashMap<>();
+        structuralMetadata.put("schema", schema);
+        structuralMetadata.put("propertyTables", List.of(table));
+        gltf.addExtensions("EXT_structural_metadata", structuralMetadata);
+        gltf.addExtensionsUsed("EXT_structural_metadata");
+        gltf.addExtensionsUsed("EXT_mesh_features");
+    }
+
+    /**
+     * @return the property key as a unique metadata identifier
+     */
+    private String createPropertyId(String key, Set<String> propertyIds) {
+        String propertyId = key.replaceAll("[^a-zA-Z0-9_]", "_");
+        if (propertyId.isEmpty() || Character.isDigit(propertyId.charAt(0))) {
+            propertyId = "_" + propertyId;
+        }
+        String uniqueId = propertyId;
+        int index = 1;
+        while (propertyIds.contains(uniqueId)) {
+            uniqueId = propertyId + "_" + index++;
+        }
+        return uniqueId;
+    }
+
+    private int createPropertyBufferView(GlTF gltf, GltfBinary binary, ByteBuffer propertyBuffer) {
+        Buffer buffer = initBuffer(gltf);
+        int bufferLength = buffer.getByteLength() == null ? 0 : buffer.getByteLength();
+        int bufferViewId = createBufferView(gltf, 0, bufferLength, propertyBuffer.remaining(), -1, -1);
+        gltf.getBufferViews().get(bufferViewId).setName("property");
+        buffer.setByteLength(bufferLength + ((propertyBuffer.remaining() + 7) & ~7));
+        binary.getPropertyBuffers().add(propertyBuffer);
+        return bufferViewId;
+    }
+
     private int createBufferView(GlTF gltf, int buffer, int offset, int length, int stride, int target) {
         BufferView bufferView = new BufferView();
         bufferView.setBuffer(buffer);
@@ -508,7 +883,7 @@ public class GltfWriter {
         return node;
     }
 
-    private void createMaterial(GlTF gltf, GaiaMaterial gaiaMaterial) {
+    private void createMaterial(GlTF gltf, GltfBinary binary, GaiaMaterial gaiaMaterial) {
         List<GaiaTexture> diffuseTextures = gaiaMaterial.getTextures().get(TextureType.DIFFUSE);
 
         Material material = new Material();
@@ -533,10 +908,12 @@ public class GltfWriter {
         MaterialPbrMetallicRoughness pbrMetallicRoughness = new MaterialPbrMetallicRoughness();
         if (!diffuseTextures.isEmpty()) {
             GaiaTexture gaiaTexture = diffuseTextures.get(0);
-            int textureId = createTexture(gltf, gaiaTexture);
-            TextureInfo textureInfo = new TextureInfo();
-            textureInfo.setIndex(textureId);
-            pbrMetallicRoughness.setBaseColorTexture(textureInfo);
+            int textureId = createTexture(gltf, binary, gaiaTexture);
+            if (textureId > -1) {
+                TextureInfo textureInfo = new TextureInfo();
+                textureInfo.setIndex(textureId);
+                pbrMetallicRoughness.setBaseColorTexture(textureInfo);
+            }
             pbrMetallicRoughness.setBaseColorFactor(new float[]{1.0f, 1.0f, 1.0f, 1.0f});
             pbrMetallicRoughness.setMetallicFactor(0.0f);
             pbrMetallicRoughness.setRoughnessFactor(0.5f);
@@ -550,26 +927,88 @@ public class GltfWriter {
         gltf.addMaterials(material);
     }
 
-    private int createImage(GlTF gltf, GaiaTexture gaiaTexture) {
+    /**
+     * Encodes the texture image into a buffer view of the binary body, or into a data uri for the embedded glTF.
+     * The image buffer views are created before the node buffers, so they are placed at the front of the body.
+     * @return the image index, or -1 when the image could not be encoded
+     */
+    private int createImage(GlTF gltf, GltfBinary binary, GaiaTexture gaiaTexture) {
         String extension = FilenameUtils.getExtension(gaiaTexture.getPath());
         String mimeType = ImageUtils.getMimeTypeByExtension(extension);
-        String uri = writeImage(gaiaTexture.getBufferedImage(), mimeType);
+        ImageOutputBuffer imageOutputBuffer = new ImageOutputBuffer();
+        mimeType = writeImage(gaiaTexture.getBufferedImage(), mimeType, imageOutputBuffer);
+        // an empty image would be an empty buffer view, which is not valid glTF
+        if (mimeType == null || imageOutputBuffer.size() == 0) {
+            log.error("[ERROR] Failed to write the texture image, the material is written without the texture : {}", gaiaTexture.getPath());
+            return -1;
+        }
+        return addImage(gltf, binary, imageOutputBuffer, mimeType);
+    }
+
+    /**
+     * Encodes the texture image into a KTX2 image with mipmaps, the image is stored like the other images.
+     * @return the image index, or -1 when the encoder failed and the texture falls back to the png or jpeg image
+     */
+    private int createBasisuImage(GlTF gltf, GltfBinary binary, GaiaTexture gaiaTexture) {
+        BufferedImage bufferedImage = gaiaTexture.getBufferedImage();
+        if (bufferedImage == null) {
+            return -1;
+        }
+        try {
+            byte[] ktx2 = basisuEncoder.encode(resizePowerOfTwo(bufferedImage));
+            ImageOutputBuffer imageOutputBuffer = new ImageOutputBuffer();
+            imageOutputBuffer.write(ktx2);
+            return addImage(gltf, binary, imageOutputBuffer, BasisuEncoder.MIME_TYPE);
+        } catch (IOException e) {
+            log.error("[ERROR] Failed to encode the KTX2 texture, writing the original image : {}", gaiaTexture.getPath(), e);
+            return -1;
+        }
+    }
+
+    private int addImage(GlTF gltf, GltfBinary binary, ImageOutputBuffer imageOutputBuffer, String mimeType) {
         Image image = new Image();
-        image.setUri(uri);
         image.setMimeType(mimeType);
+        if (binary.isImageBufferViews()) {
+            ByteBuffer imageBuffer = imageOutputBuffer.toByteBuffer();
+            Buffer buffer = initBuffer(gltf);
+            int bufferLength = buffer.getByteLength() == null ? 0 : buffer.getByteLength();
+            int bufferViewId = createBufferView(gltf, 0, bufferLength, imageBuffer.remaining(), -1, -1);
+            gltf.getBufferViews().get(bufferViewId).setName("image");
+            buffer.setByteLength(bufferLength + padMultiple4(imageBuffer.remaining()));
+            binary.getImageBuffers().add(imageBuffer);
+            image.setBufferView(bufferViewId);
+        } else {
+            image.setUri("data:" + mimeType + ";base64," + Base64.getEncoder().encodeToString(imageOutputBuffer.toByteArray()));
+        }
         gltf.addImages(image);
         return gltf.getImages().size() - 1;
     }
 
-    private int createTexture(GlTF gltf, GaiaTexture gaiaTexture) {
+    /**
+     * @return the texture index, or -1 when the texture has no image
+     */
+    private int createTexture(GlTF gltf, GltfBinary binary, GaiaTexture gaiaTexture) {
         gaiaTexture.getBufferedImage();
-        int imageSource = createImage(gltf, gaiaTexture);
-
         Texture texture = new Texture();
         texture.setSampler(0);
-        texture.setSource(imageSource);
         texture.setName(gaiaTexture.getName());
 
+        int basisuSource = basisuEncoder != null ? createBasisuImage(gltf, binary, gaiaTexture) : -1;
+        if (basisuSource > -1) {
+            // the KTX2 image is the only source, the clients without the extension can not load the texture
+            texture.addExtensions(BasisuEncoder.EXTENSION_NAME, Map.of("source", basisuSource));
+            if (gltf.getExtensionsUsed() == null || !gltf.getExtensionsUsed().contains(BasisuEncoder.EXTENSION_NAME)) {
+                gltf.addExtensionsUsed(BasisuEncoder.EXTENSION_NAME);
+                gltf.addExtensionsRequired(BasisuEncoder.EXTENSION_NAME);
+            }
+        } else {
+            int source = createImage(gltf, binary, gaiaTexture);
+            if (source < 0) {
+                return -1;
+            }
+            texture.setSource(source);
+        }
+
         gltf.addTextures(texture);
         return gltf.getTextures().size() - 1;
     }
@@ -595,7 +1034,7 @@ public class GltfWriter {
         return sampler;
     }
 
-    private MeshPrimitive createPrimitive(GltfNodeBuffer nodeBuffer, GaiaPrimitive gaiaPrimitive, List<Material> materials) {
+    private MeshPrimitive createPrimitive(GltfNodeBuffer nodeBuffer, GaiaPrimitive gaiaPrimitive, List<Material> materials, GltfPropertyTable propertyTable) {
         MeshPrimitive primitive = new MeshPrimitive();
         primitive.setMode(GltfConstants.GL_TRIANGLES);
         if (materials != null && !materials.isEmpty()) {
@@ -612,8 +1051,20 @@ public class GltfWriter {
             primitive.getAttributes().put(AttributeType.COLOR.getAccessor(), nodeBuffer.getColorsAccessorId());
         if (nodeBuffer.getTexcoordsAccessorId() > -1)
             primitive.getAttributes().put(AttributeType.TEXCOORD.getAccessor(), nodeBuffer.getTexcoordsAccessorId());
-        if (nodeBuffer.getBatchIdAccessorId() > -1)
-            primitive.getAttributes().put(AttributeType.BATCHID.getAccessor(), nodeBuffer.getBatchIdAccessorId());
+        if (nodeBuffer.getBatchIdAccessorId() > -1) {
+            if (propertyTable == null) {
+                primitive.getAttributes().put(AttributeType.BATCHID.getAccessor(), nodeBuffer.getBatchIdAccessorId());
+            } else {
+                primitive.getAttributes().put(AttributeType.FEATURE_ID.getAccessor(), nodeBuffer.getBatchIdAccessorId());
+                Map<String, Object> featureId = new LinkedHashMap<>();
+                featureId.put("featureCount", propertyTable.getCount());
+                featureId.put("attribute", 0);
+                featureId.put("propertyTable", 0);
+                Map<String, Object> meshFeatures = new LinkedHashMap<>();
+                meshFeatures.put("featureIds", List.of(featureId));
+                primitive.addExtensions("EXT_mesh_features", meshFeatures);
+            }
+        }
 
         return primitive;
     }
@@ -627,45 +1078,65 @@ public class GltfWriter {
     }
 
 
-    private String writeImage(BufferedImage bufferedImage, String mimeType) {
-        ImageResizer imageResizer = new ImageResizer();
-        String formatName = ImageUtils.getFormatNameByMimeType(mimeType);
-        String imageString = null;
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-            int width = bufferedImage.getWidth();
-            int height = bufferedImage.getHeight();
-            if (!globalOptions.isPhotorealistic()) {
-                int powerOfTwoWidth = ImageUtils.getNearestPowerOfTwo(width);
-                int powerOfTwoHeight = ImageUtils.getNearestPowerOfTwo(height);
-                if (width != powerOfTwoWidth || height != powerOfTwoHeight) {
-                    bufferedImage = imageResizer.resizeImageGraphic2D(bufferedImage, powerOfTwoWidth, powerOfTwoHeight, true);
-                }
-            }
-            assert formatName != null;
+    /**
+     * Creates the KTX2 encoder of the texture compression option, or returns null when the textures are written as png or jpeg images.
+     * @throws IllegalStateException if the basisu executable is not on the PATH
+     */
+    private BasisuEncoder createBasisuEncoder() {
+        TextureCompression compression = globalOptions.getTextureCompression();
+        if (compression == null || compression == TextureCompression.NONE) {
+            return null;
+        }
+        return new BasisuEncoder(BasisuEncoder.requireCommand(), compression, globalOptions.getTextureQuality(), globalOptions.getTextureEffort());
+    }
+
+    private BufferedImage resizePowerOfTwo(BufferedImage bufferedImage) {
+        if (globalOptions.isPhotorealistic()) {
+            return bufferedImage;
+        }
+        int width = bufferedImage.getWidth();
+        int height = bufferedImage.getHeight();
+        int powerOfTwoWidth = ImageUtils.getNearestPowerOfTwo(width);
+        int powerOfTwoHeight = ImageUtils.getNearestPowerOfTwo(height);
+        if (width != powerOfTwoWidth || height != powerOfTwoHeight) {
+            return new ImageResizer().resizeImageGraphic2D(bufferedImage, powerOfTwoWidth, powerOfTwoHeight, true);
+        }
+        return bufferedImage;
+    }
 
+    /**
+     * @return the mime type of the written image, or null when the image could not be written
+     */
+    private String writeImage(BufferedImage bufferedImage, String mimeType, OutputStream outputStream) {
+        String formatName = ImageUtils.getFormatNameByMimeType(mimeType);
+        if (bufferedImage == null || formatName == null) {
+            return null;
+        }
+        try {
+            bufferedImage = resizePowerOfTwo(bufferedImage);
             if (globalOptions.isPhotorealistic() || mimeType.equals("image/jpeg")) {
                 float quality = 0.75f;
-                imageString = writeJpegImage(bufferedImage, quality);
+                writeJpegImage(bufferedImage, quality, outputStream);
+                return "image/jpeg";
             } else {
-                ImageIO.write(bufferedImage, formatName, baos);
-                byte[] bytes = baos.toByteArray();
-                imageString = "data:" + mimeType + ";base64," + Base64.getEncoder().encodeToString(bytes);
+                // false when no writer can encode the image, for example a bmp with an alpha channel
+                boolean isWritten = ImageIO.write(bufferedImage, formatName, outputStream);
                 bufferedImage.flush();
+                if (!isWritten) {
+                    return null;
+                }
             }
         } catch (IOException e) {
             log.error("[ERROR] :", e);
             log.error("[ERROR] Error writing image");
+            return null;
         }
-        return imageString;
+        return mimeType;
     }
 
-    private String writeJpegImage(BufferedImage bufferedImage, float quality) {
-        ByteArrayOutputStream baos = null;
-        ImageOutputStream ios = null;
-        try {
-            baos = new ByteArrayOutputStream();
-            ios = ImageIO.createImageOutputStream(baos);
-
+    private void writeJpegImage(BufferedImage bufferedImage, float quality, OutputStream outputStream) throws IOException {
+        // the memory cache stream does not spill the encoded image to a temporary file
+        try (ImageOutputStream ios = new MemoryCacheImageOutputStream(outputStream)) {
             // Image compression
             Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("jpg"); // 1
             ImageWriter writer = writers.next();
@@ -687,33 +1158,25 @@ public class GltfWriter {
             Graphics2D graphics = convertedImage.createGraphics();
             graphics.drawImage(bufferedImage, 0, 0, null);
             graphics.dispose();
-            bufferedImage = convertedImage;
 
-            writer.write(null, new IIOImage(bufferedImage, null, null), param); // 5
-            byte[] bytes = baos.toByteArray();
-            String imageString = "data:image/jpeg;base64," + Base64.getEncoder().encodeToString(bytes);
-            bufferedImage.flush();
-            bytes = null;
+            writer.write(null, new IIOImage(convertedImage, null, null), param); // 5
+            writer.dispose();
+            convertedImage.flush();
+        }
+    }
 
-            baos.close();
-            ios.close();
-            return imageString;
-        } catch (IOException e) {
-            log.error("[ERROR] :", e);
-            log.error("[ERROR] Error writing jpeg image");
-            try {
-                baos.close();
-            } catch (IOException ex) {
-                log.error("[ERROR] :", ex);
-            }
-            if (ios != null) {
-                try {
-                    ios.close();
-                } catch (IOException ex) {
-                    log.error("[ERROR] :", ex);
-                }
-            }
+    /**
+     * ByteArrayOutputStream that exposes the encoded image without copying it.
+     */
+    private static class ImageOutputBuffer extends ByteArrayOutputStream {
+        private static final int INITIAL_SIZE = 64 * 1024;
+
+        ImageOutputBuffer() {
+            super(INITIAL_SIZE);
+        }
+
+        ByteBuffer toByteBuffer() {
+            return ByteBuffer.wrap(buf, 0, count);
         }
-        return null;
     }
 }
@@ -0,0 +1,263 @@
+package com.gaia3d.converter.jgltf;
+
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+
+/**
+ * Reorders the triangles and vertices of an indexed triangle list before it is written.
+ * The triangles are sorted for the post-transform vertex cache (Forsyth's linear-speed vertex cache optimization),
+ * then the vertices are sorted by their first use for the pre-transform vertex fetch.
+ * Both orders also make the index and attribute deltas small, which is what the meshopt codec compresses.
+ */
+@Slf4j
+@NoArgsConstructor
+public class MeshOptimizer {
+    private static final int CACHE_SIZE = 32;
+    private static final float LAST_TRIANGLE_SCORE = 0.75f;
+    private static final float CACHE_DECAY_POWER = 1.5f;
+    private static final float VALENCE_BOOST_SCALE = 2.0f;
+    private static final float VALENCE_BOOST_POWER = 0.5f;
+
+    /**
+     * @return the triangles of the indices in vertex cache order
+     */
+    public static int[] optimizeVertexCache(int[] indices, int vertexCount) {
+        int triangleCount = indices.length / 3;
+        int[] result = new int[triangleCount * 3];
+        if (triangleCount == 0) {
+            return result;
+        }
+
+        // triangles of each vertex, a degenerated triangle is listed once per corner
+        int[] liveTriangles = new int[vertexCount];
+        for (int i = 0; i < triangleCount * 3; i++) {
+            liveTriangles[indices[i]]++;
+        }
+        int[] adjacencyOffsets = new int[vertexCount + 1];
+        for (int vertex = 0; vertex < vertexCount; vertex++) {
+            adjacencyOffsets[vertex + 1] = adjacencyOffsets[vertex] + liveTriangles[vertex];
+        }
+        int[] adjacency = new int[triangleCount * 3];
+        int[] adjacencyCursor = Arrays.copyOf(adjacencyOffsets, vertexCount);
+        for (int i = 0; i < triangleCount * 3; i++) {
+            adjacency[adjacencyCursor[indices[i]]++] = i / 3;
+        }
+
+        int[] cachePositions = new int[vertexCount];
+        Arrays.fill(cachePositions, -1);
+        float[] vertexScores = new float[vertexCount];
+        for (int vertex = 0; vertex < vertexCount; vertex++) {
+            vertexScores[vertex] = getVertexScore(-1, liveTriangles[vertex]);
+        }
+        float[] triangleScores = new float[triangleCount];
+        for (int triangle = 0; triangle < triangleCount; triangle++) {
+            int offset = triangle * 3;
+            triangleScores[triangle] = vertexScores[indices[offset]] + vertexScores[indices[offset + 1]] + vertexScores[indices[offset + 2]];
+        }
+        boolean[] emitted = new boolean[triangleCount];
+
+        int[] cache = new int[CACHE_SIZE + 3];
+        int[] nextCache = new int[CACHE_SIZE + 3];
+        int cacheCount = 0;
+        int deadEndCursor = 0;
+        int resultCount = 0;
+
+        int bestTriangle = 0;
+        for (int triangle = 1; triangle < triangleCount; triangle++) {
+            if (triangleScores[triangle] > triangleScores[bestTriangle]) {
+                bestTriangle = triangle;
+            }
+        }
+
+        while (bestTriangle >= 0) {
+            emitted[bestTriangle] = true;
+            int offset = bestTriangle * 3;
+            int a = indices[offset];
+            int b = indices[offset + 1];
+            int c = indices[offset + 2];
+            result[resultCount++] = a;
+            result[resultCount++] = b;
+            result[resultCount++] = c;
+
+            // the triangle vertices move to the front of the cache
+            int nextCount = 0;
+            nextCache[nextCount++] = a;
+            if (b != a) {
+                nextCache[nextCount++] = b;
+            }
+            if (c != a && c != b) {
+                nextCache[nextCount++] = c;
+            }
+            for (int i = 0; i < cacheCount; i++) {
+                int vertex = cache[i];
+                if (vertex != a && vertex != b && vertex != c) {
+                    nextCache[nextCount++] = vertex;
+                }
+            }
+            int[] swap = cache;
+            cache = nextCache;
+            nextCache = swap;
+
+            removeTriangle(adjacency, adjacencyOffsets, liveTriangles, a, bestTriangle);
+            removeTriangle(adjacency, adjacencyOffsets, liveTriangles, b, bestTriangle);
+            removeTriangle(adjacency, adjacencyOffsets, liveTriangles, c, bestTriangle);
+
+            // vertices pushed out of the cache
+            for (int i = CACHE_SIZE; i < nextCount; i++) {
+                int vertex = cache[i];
+                cachePositions[vertex] = -1;
+                updateVertexScore(vertex, adjacency, adjacencyOffsets, liveTriangles, cachePositions, vertexScores, triangleScores);
+            }
+            cacheCount = Math.min(nextCount, CACHE_SIZE);
+            for (int i = 0; i < cacheCount; i++) {
+                int vertex = cache[i];
+                cachePositions[vertex] = i;
+                updateVertexScore(vertex, adjacency, adjacencyOffsets, liveTriangles, cachePositions, vertexScores, triangleScores);
+            }
+
+            // the next triangle is the best one that uses a cached vertex
+            bestTriangle = -1;
+            float bestScore = Float.NEGATIVE_INFINITY;
+            for (int i = 0; i < cacheCount; i++) {
+                int vertex = cache[i];
+                int start = adjacencyOffsets[vertex];
+                int end = start + liveTriangles[vertex];
+                for (int j = start; j < end; j++) {
+                    int triangle = adjacency[j];
+                    if (triangleScores[triangle] > bestScore) {
+                        bestScore = triangleScores[triangle];
+                        bestTriangle = triangle;
+                    }
+                }
+            }
+
+            // dead end, continues with the next triangle of the input order
+            if (bestTriangle < 0) {
+                while (deadEndCursor < triangleCount && emitted[deadEndCursor]) {
+                    deadEndCursor++;
+                }
+                bestTriangle = deadEndCursor < triangleCount ? deadEndCursor : -1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Numbers the vertices in the order of their first use, the unused vertices are placed at the end.
+     * @return the new index of each vertex
+     */
+    public static int[] optimizeVertexFetchRemap(int[] indices, int vertexCount) {
+        int[] remap = new int[vertexCount];
+        Arrays.fill(remap, -1);
+        int nextVertex = 0;
+        for (int index : indices) {
+            if (remap[index] < 0) {
+                remap[index] = nextVertex++;
+            }
+        }
+        for (int vertex = 0; vertex < vertexCount; vertex++) {
+            if (remap[vertex] < 0) {
+                remap[vertex] = nextVertex++;
+            }
+        }
+        return remap;
+    }
+
+    public static int[] remapIndices(int[] indices, int[] remap) {
+        int[] result = new int[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            result[i] = remap[indices[i]];
+        }
+        return result;
+    }
+
+    /**
+     * Remaps the indices of a mesh with less than 65535 vertices and narrows them to unsigned shorts in the same pass.
+     */
+    public static short[] remapUnsignedShortIndices(int[] indices, int[] remap) {
+        short[] result = new short[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            result[i] = (short) remap[indices[i]];
+        }
+        return result;
+    }
+
+    public static float[] remapVertices(float[] values, int[] remap, int componentCount) {
+        float[] result = new float[values.length];
+        for (int vertex = 0; vertex < remap.length; vertex++) {
+            System.arraycopy(values, vertex * componentCount, result, remap[vertex] * componentCount, componentCount);
+        }
+        return result;
+    }
+
+    public static byte[] remapVertices(byte[] values, int[] remap, int componentCount) {
+        byte[] result = new byte[values.length];
+        for (int vertex = 0; vertex < remap.length; vertex++) {
+            System.arraycopy(values, vertex * componentCount, result, remap[vertex] * componentCount, componentCount);
+        }
+        return result;
+    }
+
+    /**
+     * Average number of vertex cache misses per triangle (ACMR) of a FIFO cache.
+     */
+    public static double getAverageCacheMissRatio(int[] indices, int vertexCount, int cacheSize) {
+        int triangleCount = indices.length / 3;
+        if (triangleCount == 0) {
+            return 0.0d;
+        }
+        int[] timestamps = new int[vertexCount];
+        Arrays.fill(timestamps, Integer.MIN_VALUE / 2);
+        int time = 0;
+        int misses = 0;
+        for (int index : indices) {
+            if (time - timestamps[index] > cacheSize) {
+                timestamps[index] = time++;
+                misses++;
+            }
+        }
+        return (double) misses / triangleCount;
+    }
+
+    private static void removeTriangle(int[] adjacency, int[] adjacencyOffsets, int[] liveTriangles, int vertex, int triangle) {
+        int start = adjacencyOffsets[vertex];
+        int end = start + liveTriangles[vertex];
+        for (int i = start; i < end; i++) {
+            if (adjacency[i] == triangle) {
+                adjacency[i] = adjacency[end - 1];
+                liveTriangles[vertex]--;
+                return;
+            }
+        }
+    }
+
+    private static void updateVertexScore(int vertex, int[] adjacency, int[] adjacencyOffsets, int[] liveTriangles, int[] cachePositions, float[] vertexScores, float[] triangleScores) {
+        float score = getVertexScore(cachePositions[vertex], liveTriangles[vertex]);
+        float delta = score - vertexScores[vertex];
+        vertexScores[vertex] = score;
+        int start = adjacencyOffsets[vertex];
+        int end = start + liveTriangles[vertex];
+        for (int i = start; i < end; i++) {
+            triangleScores[adjacency[i]] += delta;
+        }
+    }
+
+    private static float getVertexScore(int cachePosition, int liveTriangleCount) {
+        if (liveTriangleCount == 0) {
+            return -1.0f;
+        }
+        float score = 0.0f;
+        if (cachePosition >= 0) {
+            if (cachePosition < 3) {
+                score = LAST_TRIANGLE_SCORE;
+            } else {
+                float scaler = 1.0f / (CACHE_SIZE - 3);
+                score = (float) Math.pow(1.0f - (cachePosition - 3) * scaler, CACHE_DECAY_POWER);
+            }
+        }
+        score += VALENCE_BOOST_SCALE * (float) Math.pow(liveTriangleCount, -VALENCE_BOOST_POWER);
+        return score;
+    }
+}
@@ -0,0 +1,193 @@
+package com.gaia3d.converter.jgltf;
+
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Encodes buffer views with the codecs of the "EXT_meshopt_compression" extension.
+ * The vertex attributes use the ATTRIBUTES mode (vertex codec version 0),
+ * the triangle indices use the INDICES mode (index sequence codec version 1).
+ * The streams are byte-wise deltas, so they also shrink well under a general purpose compression of the transport.
+ */
+@Slf4j
+@NoArgsConstructor
+public class MeshoptEncoder {
+    private static final int VERTEX_HEADER = 0xa0;
+    private static final int SEQUENCE_HEADER = 0xd1;
+    private static final int BYTE_GROUP_SIZE = 16;
+    private static final int VERTEX_BLOCK_SIZE_BYTES = 8192;
+    private static final int VERTEX_BLOCK_MAX_SIZE = 256;
+    private static final int TAIL_MAX_SIZE = 32;
+    private static final int SEQUENCE_TAIL_SIZE = 4;
+
+    /**
+     * Encodes the vertices in the ATTRIBUTES mode.
+     * @param vertices the interleaved vertices, count * byteStride bytes from the position of the buffer
+     * @param byteStride the size of a vertex, a multiple of 4 up to 256
+     */
+    public static byte[] encodeVertexBuffer(ByteBuffer vertices, int count, int byteStride) {
+        if (byteStride <= 0 || byteStride > 256 || byteStride % 4 != 0) {
+            throw new IllegalArgumentException("Invalid meshopt vertex stride: " + byteStride);
+        }
+        byte[] vertexData = new byte[count * byteStride];
+        vertices.duplicate().get(vertexData);
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream(vertexData.length / 2 + TAIL_MAX_SIZE + 1);
+        stream.write(VERTEX_HEADER);
+
+        byte[] firstVertex = new byte[byteStride];
+        if (count > 0) {
+            System.arraycopy(vertexData, 0, firstVertex, 0, byteStride);
+        }
+        byte[] lastVertex = firstVertex.clone();
+
+        int blockSize = Math.min((VERTEX_BLOCK_SIZE_BYTES / byteStride) & ~(BYTE_GROUP_SIZE - 1), VERTEX_BLOCK_MAX_SIZE);
+        byte[] deltas = new byte[VERTEX_BLOCK_MAX_SIZE];
+        for (int vertexOffset = 0; vertexOffset < count; vertexOffset += blockSize) {
+            int blockCount = Math.min(blockSize, count - vertexOffset);
+            int alignedCount = (blockCount + BYTE_GROUP_SIZE - 1) & ~(BYTE_GROUP_SIZE - 1);
+            for (int k = 0; k < byteStride; k++) {
+                int previous = lastVertex[k];
+                for (int i = 0; i < blockCount; i++) {
+                    int value = vertexData[(vertexOffset + i) * byteStride + k];
+                    deltas[i] = zigzag8(value - previous);
+                    previous = value;
+                }
+                for (int i = blockCount; i < alignedCount; i++) {
+                    deltas[i] = 0;
+                }
+                encodeBytes(stream, deltas, alignedCount);
+            }
+            System.arraycopy(vertexData, (vertexOffset + blockCount - 1) * byteStride, lastVertex, 0, byteStride);
+        }
+
+        // the tail is the first vertex padded to 32 bytes, it keeps the decoder reads in bounds
+        if (byteStride < TAIL_MAX_SIZE) {
+            stream.write(new byte[TAIL_MAX_SIZE - byteStride], 0, TAIL_MAX_SIZE - byteStride);
+        }
+        stream.write(firstVertex, 0, byteStride);
+        return stream.toByteArray();
+    }
+
+    /**
+     * Encodes the indices in the INDICES mode.
+     * Each index is a zigzag delta from one of two baselines, the low bit selects the baseline.
+     * @param indices the little endian indices from the position of the buffer
+     * @param byteStride 2 for unsigned short indices, 4 for unsigned int indices
+     */
+    public static byte[] encodeIndexSequence(ByteBuffer indices, int count, int byteStride) {
+        if (byteStride != 2 && byteStride != 4) {
+            throw new IllegalArgumentException("Invalid meshopt index stride: " + byteStride);
+        }
+        ByteBuffer indexBuffer = indices.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        ByteArrayOutputStream stream = new ByteArrayOutputStream(count + SEQUENCE_TAIL_SIZE + 1);
+        stream.write(SEQUENCE_HEADER);
+
+        int[] last = new int[2];
+        int current = 0;
+        for (int i = 0; i < count; i++) {
+            int index = byteStride == 2 ? indexBuffer.getShort() & 0xFFFF : indexBuffer.getInt();
+            // switches the baseline when the delta does not fit into a byte
+            int currentDelta = index - last[current];
+            if (Math.abs(currentDelta) >= 30) {
+                current ^= 1;
+            }
+            int delta = index - last[current];
+            int encoded = (delta << 1) ^ (delta >> 31);
+            writeVarint(stream, (encoded << 1) | current);
+            last[current] = index;
+        }
+        stream.write(new byte[SEQUENCE_TAIL_SIZE], 0, SEQUENCE_TAIL_SIZE);
+        return stream.toByteArray();
+    }
+
+    private static byte zigzag8(int value) {
+        int delta = (byte) value;
+        return (byte) ((delta >> 7) ^ (delta << 1));
+    }
+
+    /**
+     * Writes the 2-bit modes of the groups of 16 bytes, then each group with its smallest mode:
+     * 0 (all zero), 1 (2 bits), 2 (4 bits) or 3 (raw bytes).
+     * The bit modes keep the values below the sentinel (all bits set) in place and append the others as full bytes.
+     */
+    private static void encodeBytes(ByteArrayOutputStream stream, byte[] buffer, int bufferSize) {
+        int groupCount = bufferSize / BYTE_GROUP_SIZE;
+        byte[] header = new byte[(groupCount + 3) / 4];
+        ByteArrayOutputStream groups = new ByteArrayOutputStream(bufferSize);
+        for (int group = 0; group < groupCount; group++) {
+            int offset = group * BYTE_GROUP_SIZE;
+            int bestBits = 8;
+            int bestSize = BYTE_GROUP_SIZE;
+            for (int bits = 0; bits < 8; bits = bits == 0 ? 2 : bits * 2) {
+                int size = measureBytesGroup(buffer, offset, bits);
+                if (size < bestSize) {
+                    bestBits = bits;
+                    bestSize = size;
+                }
+            }
+            int mode = bestBits == 0 ? 0 : bestBits == 2 ? 1 : bestBits == 4 ? 2 : 3;
+            header[group / 4] |= (byte) (mode << ((group % 4) * 2));
+            encodeBytesGroup(groups, buffer, offset, bestBits);
+        }
+        stream.write(header, 0, header.length);
+        stream.write(groups.toByteArray(), 0, groups.size());
+    }
+
+    private static int measureBytesGroup(byte[] buffer, int offset, int bits) {
+        if (bits == 0) {
+            for (int i = 0; i < BYTE_GROUP_SIZE; i++) {
+                if (buffer[offset + i] != 0) {
+                    return Integer.MAX_VALUE;
+                }
+            }
+            return 0;
+        }
+        int sentinel = (1 << bits) - 1;
+        int size = BYTE_GROUP_SIZE * bits / 8;
+        for (int i = 0; i < BYTE_GROUP_SIZE; i++) {
+            if ((buffer[offset + i] & 0xFF) >= sentinel) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    private static void encodeBytesGroup(ByteArrayOutputStream stream, byte[] buffer, int offset, int bits) {
+        if (bits == 0) {
+            return;
+        }
+        if (bits == 8) {
+            stream.write(buffer, offset, BYTE_GROUP_SIZE);
+            return;
+        }
+        int valuesPerByte = 8 / bits;
+        int sentinel = (1 << bits) - 1;
+        for (int i = 0; i < BYTE_GROUP_SIZE; i += valuesPerByte) {
+            int packed = 0;
+            for (int k = 0; k < valuesPerByte; k++) {
+                int value = buffer[offset + i + k] & 0xFF;
+                packed = (packed << bits) | Math.min(value, sentinel);
+            }
+            stream.write(packed);
+        }
+        for (int i = 0; i < BYTE_GROUP_SIZE; i++) {
+            int value = buffer[offset + i] & 0xFF;
+            if (value >= sentinel) {
+                stream.write(value);
+            }
+        }
+    }
+
+    private static void writeVarint(ByteArrayOutputStream stream, int value) {
+        while ((value & ~0x7F) != 0) {
+            stream.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        stream.write(value);
+    }
+}
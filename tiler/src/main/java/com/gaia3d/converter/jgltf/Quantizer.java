@@ -22,12 +22,12 @@ public class Quantizer {
         double minZ = Float.MAX_VALUE;
         double maxZ = -Float.MAX_VALUE;
 
+        Vector3d transformed = new Vector3d();
         for (int i = 0; i < values.length; i += 3) {
             double x = values[i];
             double y = values[i + 1];
             double z = values[i + 2];
-            Vector3d v = new Vector3d(x, y, z);
-            Vector3d transformed = v.mulPosition(originalMatrix, new Vector3d());
+            transformed.set(x, y, z).mulPosition(originalMatrix);
 
             double tx = transformed.x;
             double ty = transformed.y;
@@ -91,13 +91,13 @@ public class Quantizer {
         int quantizedIndex = 0;
         int paddedLength = paddedLength(values.length);
         short[] quantizedValues = new short[paddedLength];
+        Vector3d transformed = new Vector3d();
         for (int i = 0; i < values.length; i += 3) {
             float x = values[i];
             float y = values[i + 1];
             float z = values[i + 2];
 
-            Vector3d v = new Vector3d(x, y, z);
-            Vector3d transformed = v.mulPosition(originalMatrix, new Vector3d());
+            transformed.set(x, y, z).mulPosition(originalMatrix);
 
             x = (float) transformed.x;
             y = (float) transformed.y;
@@ -124,4 +124,57 @@ public class Quantizer {
 
         return quantizedValues;
     }
+
+    /**
+     * Quantizes the normals to signed normalized bytes, 4 bytes per normal (x, y, z, padding).
+     */
+    public static byte[] quantizeNormalBytes(float[] normals) {
+        byte[] quantizedValues = new byte[paddedLength(normals.length)];
+        int quantizedIndex = 0;
+        Vector3d normal = new Vector3d();
+        for (int i = 0; i < normals.length; i += 3) {
+            normal.set(normals[i], normals[i + 1], normals[i + 2]);
+            double length = normal.length();
+            if (length > 0.0d) {
+                normal.div(length);
+            }
+            quantizedValues[quantizedIndex++] = quantizeSignedNormalizedByte(normal.x);
+            quantizedValues[quantizedIndex++] = quantizeSignedNormalizedByte(normal.y);
+            quantizedValues[quantizedIndex++] = quantizeSignedNormalizedByte(normal.z);
+            quantizedValues[quantizedIndex++] = 0;
+        }
+        return quantizedValues;
+    }
+
+    /**
+     * Encodes the normals with the octahedral mapping of the meshopt "OCTAHEDRAL" filter,
+     * 4 signed normalized bytes per normal (u, v, one, padding) that the decoder expands to (x, y, z, padding).
+     * The octahedral coordinates are continuous over the surface, so they compress better than the xyz components.
+     */
+    public static byte[] encodeOctahedralNormalBytes(float[] normals) {
+        byte[] encodedValues = new byte[paddedLength(normals.length)];
+        int encodedIndex = 0;
+        for (int i = 0; i < normals.length; i += 3) {
+            double x = normals[i];
+            double y = normals[i + 1];
+            double z = normals[i + 2];
+            double length = Math.abs(x) + Math.abs(y) + Math.abs(z);
+            double scale = length == 0.0d ? 0.0d : 1.0d / length;
+            x *= scale;
+            y *= scale;
+            // the lower hemisphere folds over the diagonals
+            double u = z >= 0.0d ? x : (1.0d - Math.abs(y)) * (x >= 0.0d ? 1.0d : -1.0d);
+            double v = z >= 0.0d ? y : (1.0d - Math.abs(x)) * (y >= 0.0d ? 1.0d : -1.0d);
+            encodedValues[encodedIndex++] = quantizeSignedNormalizedByte(u);
+            encodedValues[encodedIndex++] = quantizeSignedNormalizedByte(v);
+            encodedValues[encodedIndex++] = quantizeSignedNormalizedByte(1.0d);
+            encodedValues[encodedIndex++] = 0;
+        }
+        return encodedValues;
+    }
+
+    private static byte quantizeSignedNormalizedByte(double value) {
+        double clamped = Math.max(-1.0d, Math.min(1.0d, value));
+        return (byte) (int) (clamped * Byte.MAX_VALUE + (clamped >= 0.0d ? 0.5d : -0.5d));
+    }
 }
@@ -0,0 +1,18 @@
+package com.gaia3d.converter.jgltf;
+
+import java.util.Arrays;
+
+/**
+ * Basis Universal modes of the KTX2 textures written via "KHR_texture_basisu".
+ * ETC1S is the smaller low to medium quality mode, UASTC the larger high quality mode.
+ */
+public enum TextureCompression {
+    NONE, ETC1S, UASTC;
+
+    public static TextureCompression fromName(String name) {
+        return Arrays.stream(values())
+                .filter((compression) -> compression.name().equalsIgnoreCase(name))
+                .findFirst()
+                .orElse(null);
+    }
+}
@@ -10,11 +10,20 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
+import java.util.stream.Stream;
 
 public interface AttributeReader {
     KmlInfo read(File file);
     List<KmlInfo> readAll(File file);
 
+    /**
+     * Streams the KmlInfos of the file, readers that can parse lazily override this.
+     */
+    default Stream<KmlInfo> stream(File file) {
+        List<KmlInfo> kmlInfos = readAll(file);
+        return kmlInfos == null ? Stream.empty() : kmlInfos.stream();
+    }
+
     default List<Point> getRandomContainsPoints(Geometry polygon, GeometryFactory geometryFactory, int count) {
         PreparedGeometry preparedGeometry = PreparedGeometryFactory.prepare(polygon);
         Envelope envelope = polygon.getEnvelopeInternal();
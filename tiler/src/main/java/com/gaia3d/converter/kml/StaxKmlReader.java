@@ -0,0 +1,255 @@
+package com.gaia3d.converter.kml;
+
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.joml.Vector3d;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * KmlReader is a class that reads kml files with a StAX stream.
+ * Every Model of every Placemark is emitted as a KmlInfo while the document is read,
+ * so large documents are never held in memory as a string or a DOM.
+ */
+@Slf4j
+@NoArgsConstructor
+public class StaxKmlReader implements AttributeReader {
+    private static final XMLInputFactory XML_INPUT_FACTORY = createInputFactory();
+
+    @Override
+    public KmlInfo read(File file) {
+        try (Stream<KmlInfo> kmlInfos = stream(file)) {
+            return kmlInfos.findFirst().orElse(null);
+        }
+    }
+
+    @Override
+    public List<KmlInfo> readAll(File file) {
+        try (Stream<KmlInfo> kmlInfos = stream(file)) {
+            return kmlInfos.collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Streams the KmlInfo of each placemark model lazily, the stream must be closed to release the file.
+     */
+    @Override
+    public Stream<KmlInfo> stream(File file) {
+        InputStream inputStream = null;
+        try {
+            inputStream = new BufferedInputStream(Files.newInputStream(file.toPath()));
+            XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(inputStream);
+            PlacemarkSpliterator spliterator = new PlacemarkSpliterator(reader, file);
+            InputStream finalInputStream = inputStream;
+            return StreamSupport.stream(spliterator, false).onClose(() -> {
+                try {
+                    reader.close();
+                    finalInputStream.close();
+                } catch (XMLStreamException | IOException e) {
+                    log.debug("Failed to close kml file : {}", file.getAbsolutePath());
+                }
+            });
+        } catch (IOException | XMLStreamException e) {
+            closeQuietly(inputStream);
+            log.error("[ERROR] :", e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    private void closeQuietly(InputStream inputStream) {
+        if (inputStream == null) {
+            return;
+        }
+        try {
+            inputStream.close();
+        } catch (IOException e) {
+            log.debug("Failed to close input stream.");
+        }
+    }
+
+    /**
+     * Reads the document up to the next placemark each time a KmlInfo is requested.
+     */
+    private static class PlacemarkSpliterator extends Spliterators.AbstractSpliterator<KmlInfo> {
+        private final XMLStreamReader reader;
+        private final File file;
+        private final Deque<KmlInfo> pending = new ArrayDeque<>();
+        private String documentName;
+
+        PlacemarkSpliterator(XMLStreamReader reader, File file) {
+            super(Long.MAX_VALUE, ORDERED | NONNULL);
+            this.reader = reader;
+            this.file = file;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super KmlInfo> action) {
+            try {
+                while (pending.isEmpty() && reader.hasNext()) {
+                    if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+                        continue;
+                    }
+                    String localName = reader.getLocalName();
+                    if ("Placemark".equals(localName)) {
+                        readPlacemark();
+                    } else if ("name".equals(localName) && documentName == null) {
+                        documentName = reader.getElementText().trim();
+                    }
+                }
+            } catch (XMLStreamException e) {
+                log.error("[ERROR] Failed to read kml file : {}", file.getAbsolutePath());
+                throw new RuntimeException(e);
+            }
+            if (pending.isEmpty()) {
+                return false;
+            }
+            action.accept(pending.poll());
+            return true;
+        }
+
+        private void readPlacemark() throws XMLStreamException {
+            String name = null;
+            String description = null;
+            Map<String, String> extendedData = new LinkedHashMap<>();
+            List<KmlInfo.KmlInfoBuilder> models = new ArrayList<>();
+
+            Deque<String> elements = new ArrayDeque<>();
+            elements.push("Placemark");
+            KmlInfo.KmlInfoBuilder model = null;
+            double[] location = new double[3];
+            double[] scale = new double[3];
+            while (reader.hasNext() && !elements.isEmpty()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.END_ELEMENT) {
+                    String closed = elements.pop();
+                    if ("Model".equals(closed) && model != null) {
+                        model.position(new Vector3d(location[0], location[1], location[2]));
+                        model.scaleX(scale[0]).scaleY(scale[1]).scaleZ(scale[2]);
+                        models.add(model);
+                        model = null;
+                    }
+                    continue;
+                } else if (event != XMLStreamConstants.START_ELEMENT) {
+                    continue;
+                }
+
+                String parent = elements.peek();
+                String localName = reader.getLocalName();
+                if ("Model".equals(localName)) {
+                    model = KmlInfo.builder();
+                    Arrays.fill(location, 0.0d);
+                    Arrays.fill(scale, 1.0d);
+                    elements.push(localName);
+                } else if ("Placemark".equals(parent) && "name".equals(localName)) {
+                    name = reader.getElementText().trim();
+                } else if ("Placemark".equals(parent) && "description".equals(localName)) {
+                    description = reader.getElementText().trim();
+                } else if ("Data".equals(localName) || "SimpleData".equals(localName)) {
+                    readData(localName, extendedData);
+                } else if (model != null && isLeaf(parent, localName)) {
+                    readModelValue(parent, localName, reader.getElementText().trim(), model, location, scale);
+                } else {
+                    elements.push(localName);
+                }
+            }
+
+            if (models.isEmpty()) {
+                log.debug("Placemark without model : {}", name);
+                return;
+            }
+            String placemarkName = name != null ? name : documentName;
+            for (KmlInfo.KmlInfoBuilder builder : models) {
+                Map<String, String> properties = new HashMap<>(extendedData);
+                properties.put("name", placemarkName);
+                if (description != null) {
+                    properties.put("description", description);
+                }
+                pending.add(builder.name(placemarkName).properties(properties).build());
+            }
+        }
+
+        private void readData(String localName, Map<String, String> extendedData) throws XMLStreamException {
+            String key = reader.getAttributeValue(null, "name");
+            if ("SimpleData".equals(localName)) {
+                String value = reader.getElementText().trim();
+                if (key != null) {
+                    extendedData.put(key, value);
+                }
+                return;
+            }
+            // <Data name="key"><value>...</value></Data>
+            int depth = 1;
+            while (reader.hasNext() && depth > 0) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    if ("value".equals(reader.getLocalName())) {
+                        String value = reader.getElementText().trim();
+                        if (key != null) {
+                            extendedData.put(key, value);
+                        }
+                    } else {
+                        depth++;
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    depth--;
+                }
+            }
+        }
+
+        private boolean isLeaf(String parent, String localName) {
+            return switch (localName) {
+                case "longitude", "latitude", "altitude" -> "Location".equals(parent);
+                case "heading", "tilt", "roll" -> "Orientation".equals(parent);
+                case "x", "y", "z" -> "Scale".equals(parent);
+                case "href" -> "Link".equals(parent);
+                case "altitudeMode" -> "Model".equals(parent);
+                default -> false;
+            };
+        }
+
+        private void readModelValue(String parent, String localName, String value, KmlInfo.KmlInfoBuilder model, double[] location, double[] scale) {
+            switch (localName) {
+                case "longitude" -> location[0] = parseDouble(value, 0.0d);
+                case "latitude" -> location[1] = parseDouble(value, 0.0d);
+                case "altitude" -> location[2] = parseDouble(value, 0.0d);
+                case "heading" -> model.heading(parseDouble(value, 0.0d));
+                case "tilt" -> model.tilt(parseDouble(value, 0.0d));
+                case "roll" -> model.roll(parseDouble(value, 0.0d));
+                case "x" -> scale[0] = parseDouble(value, 1.0d);
+                case "y" -> scale[1] = parseDouble(value, 1.0d);
+                case "z" -> scale[2] = parseDouble(value, 1.0d);
+                case "href" -> model.href(value);
+                case "altitudeMode" -> model.altitudeMode(value);
+                default -> log.debug("Unknown model value : {}/{}", parent, localName);
+            }
+        }
+
+        private double parseDouble(String value, double defaultValue) {
+            if (value == null || value.isEmpty()) {
+                return defaultValue;
+            }
+            return Double.parseDouble(value);
+        }
+    }
+}
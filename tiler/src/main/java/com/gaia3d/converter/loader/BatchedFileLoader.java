@@ -7,9 +7,9 @@ import com.gaia3d.converter.Converter;
 import com.gaia3d.converter.geometry.ExtrusionTempGenerator;
 import com.gaia3d.converter.kml.AttributeReader;
 import com.gaia3d.converter.kml.KmlInfo;
+import com.gaia3d.converter.terrain.TerrainService;
 import com.gaia3d.process.tileprocess.tile.TileInfo;
 import lombok.AllArgsConstructor;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.FileUtils;
 import org.geotools.coverage.grid.GridCoverage2D;
@@ -19,25 +19,43 @@ import org.geotools.gce.geotiff.GeoTiffReader;
 import javax.media.jai.Interpolation;
 import java.io.File;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 /**
  * Loads files from the input directory.
  */
 @Slf4j
-@RequiredArgsConstructor
 public class BatchedFileLoader implements FileLoader {
-    private final Converter converter;
+    // the converters keep the state of the file being loaded, each pipeline and model thread gets its own
+    private final ThreadLocal<Converter> converters;
     private final AttributeReader kmlReader;
     private final ExtrusionTempGenerator tempGenerator;
+    /* loads the models of the kml placemarks, shared by all the files */
+    private ExecutorService modelExecutor = null;
+    private int modelThreadCount = 1;
+
+    public BatchedFileLoader(Supplier<Converter> converterFactory, AttributeReader kmlReader, ExtrusionTempGenerator tempGenerator) {
+        this.converters = ThreadLocal.withInitial(converterFactory);
+        this.kmlReader = kmlReader;
+        this.tempGenerator = tempGenerator;
+    }
 
     public List<File> loadTemp(File tempPath, List<File> files) {
         return tempGenerator.generate(tempPath, files);
     }
 
     public List<GaiaScene> loadScene(File input) {
-        return converter.load(input);
+        return converters.get().load(input);
     }
 
     private GridCoverage2D loadGeoTiff(File file) {
@@ -67,7 +85,17 @@ public class BatchedFileLoader implements FileLoader {
         return coverages;
     }
 
-
+    /**
+     * Loads the terrain sampling service from the terrain path, a GeoTiff file or a directory of GeoTiff files.
+     */
+    public TerrainService loadTerrainService() {
+        GlobalOptions globalOptions = GlobalOptions.getInstance();
+        File geoTiffPath = new File(globalOptions.getTerrainPath());
+        if (geoTiffPath.isDirectory()) {
+            log.info("GeoTiff path is directory. Indexing all GeoTiff files in the directory.");
+        }
+        return TerrainService.load(geoTiffPath, TerrainService.DEFAULT_CACHE_SIZE);
+    }
 
     @Override
     public List<File> loadFiles() {
@@ -81,32 +109,8 @@ public class BatchedFileLoader implements FileLoader {
         FormatType formatType = globalOptions.getInputFormat();
 
         List<TileInfo> tileInfos = new ArrayList<>();
-        KmlInfo kmlInfo = null;
         if (FormatType.KML == formatType) {
-            List<KmlInfo> kmlInfos = kmlReader.readAll(file);
-            if (kmlInfos != null) {
-                for (KmlInfo info : kmlInfos) {
-                    kmlInfo = info;
-                    if (kmlInfo != null) {
-                        assert file != null;
-                        file = new File(file.getParent(), kmlInfo.getHref());
-                        List<GaiaScene> scenes = loadScene(file);
-                        for (GaiaScene scene : scenes) {
-                            if (scene == null) {
-                                log.error("Failed to load scene: {}", file.getAbsolutePath());
-                                return null;
-                            } else {
-                                TileInfo tileInfo = TileInfo.builder().kmlInfo(kmlInfo).scene(scene).outputPath(outputPath).build();
-                                tileInfos.add(tileInfo);
-                            }
-                        }
-                    } else {
-                        file = null;
-                    }
-                }
-            } else {
-                file = null;
-            }
+            return loadKmlTileInfos(file, outputPath);
         } else {
             List<GaiaScene> scenes = loadScene(file);
             for (GaiaScene scene : scenes) {
@@ -122,6 +126,87 @@ public class BatchedFileLoader implements FileLoader {
         return tileInfos;
     }
 
+    /**
+     * Shuts down the model executor of the kml files.
+     */
+    public synchronized void close() {
+        if (modelExecutor != null) {
+            modelExecutor.shutdownNow();
+            modelExecutor = null;
+        }
+    }
+
+    /**
+     * Loads the models referenced by the placemarks of a kml file.
+     * The placemarks are streamed and each model is submitted to the shared model executor while the rest of the document is parsed.
+     * The tile infos keep the placemark order, and the file fails if any model fails.
+     */
+    private List<TileInfo> loadKmlTileInfos(File file, Path outputPath) {
+        ExecutorService executor = getModelExecutor();
+        // the parser stays a bounded number of models ahead of the loaded ones
+        int maxPendingCount = modelThreadCount * 4;
+        List<TileInfo> tileInfos = new ArrayList<>();
+        Deque<Future<List<TileInfo>>> pendingModels = new ArrayDeque<>();
+        try (Stream<KmlInfo> kmlInfoStream = kmlReader.stream(file)) {
+            Iterator<KmlInfo> kmlInfos = kmlInfoStream.iterator();
+            while (kmlInfos.hasNext()) {
+                KmlInfo kmlInfo = kmlInfos.next();
+                pendingModels.add(executor.submit(() -> loadKmlModel(file, kmlInfo, outputPath)));
+                if (pendingModels.size() >= maxPendingCount && !joinKmlModel(pendingModels.poll(), tileInfos)) {
+                    return null;
+                }
+            }
+            while (!pendingModels.isEmpty()) {
+                if (!joinKmlModel(pendingModels.poll(), tileInfos)) {
+                    return null;
+                }
+            }
+        } finally {
+            // the models of a failed file are not loaded, the running ones finish with their converter in a clean state
+            pendingModels.forEach((pendingModel) -> pendingModel.cancel(false));
+        }
+        return tileInfos;
+    }
+
+    private synchronized ExecutorService getModelExecutor() {
+        if (modelExecutor == null) {
+            modelThreadCount = Math.max(GlobalOptions.getInstance().getMultiThreadCount(), 1);
+            modelExecutor = Executors.newFixedThreadPool(modelThreadCount);
+        }
+        return modelExecutor;
+    }
+
+    private boolean joinKmlModel(Future<List<TileInfo>> pendingModel, List<TileInfo> tileInfos) {
+        try {
+            List<TileInfo> loadedTileInfos = pendingModel.get();
+            if (loadedTileInfos == null) {
+                return false;
+            }
+            tileInfos.addAll(loadedTileInfos);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private List<TileInfo> loadKmlModel(File kmlFile, KmlInfo kmlInfo, Path outputPath) {
+        File modelFile = new File(kmlFile.getParent(), kmlInfo.getHref());
+        List<TileInfo> tileInfos = new ArrayList<>();
+        List<GaiaScene> scenes = loadScene(modelFile);
+        for (GaiaScene scene : scenes) {
+            if (scene == null) {
+                log.error("Failed to load scene: {}", modelFile.getAbsolutePath());
+                return null;
+            }
+            TileInfo tileInfo = TileInfo.builder().kmlInfo(kmlInfo).scene(scene).outputPath(outputPath).build();
+            tileInfos.add(tileInfo);
+        }
+        return tileInfos;
+    }
+
     /*private String[] getExtensions(FormatType formatType) {
         String[] extensions = new String[4];
         extensions[0] = formatType.getExtension().toLowerCase();
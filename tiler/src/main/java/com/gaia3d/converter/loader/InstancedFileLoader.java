@@ -6,6 +6,7 @@ import com.gaia3d.command.mago.GlobalOptions;
 import com.gaia3d.converter.Converter;
 import com.gaia3d.converter.kml.AttributeReader;
 import com.gaia3d.converter.kml.KmlInfo;
+import com.gaia3d.converter.terrain.TerrainService;
 import com.gaia3d.process.tileprocess.tile.TileInfo;
 import lombok.AllArgsConstructor;
 import lombok.RequiredArgsConstructor;
@@ -21,6 +22,7 @@ import java.io.File;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Loads files from the input directory.
@@ -72,6 +74,18 @@ public class InstancedFileLoader implements FileLoader {
         return coverages;
     }
 
+    /**
+     * Loads the terrain sampling service from the terrain path, a GeoTiff file or a directory of GeoTiff files.
+     */
+    public TerrainService loadTerrainService() {
+        GlobalOptions globalOptions = GlobalOptions.getInstance();
+        File geoTiffPath = new File(globalOptions.getTerrainPath());
+        if (geoTiffPath.isDirectory()) {
+            log.info("GeoTiff path is directory. Indexing all GeoTiff files in the directory.");
+        }
+        return TerrainService.load(geoTiffPath, TerrainService.DEFAULT_CACHE_SIZE);
+    }
+
     @Override
     public List<File> loadFiles() {
         return loadFileDefault();
@@ -85,9 +99,8 @@ public class InstancedFileLoader implements FileLoader {
         List<TileInfo> tileInfos = new ArrayList<>();
 
         if (FormatType.KML == formatType) {
-            List<KmlInfo> kmlInfos = kmlReader.readAll(file);
-            if (kmlInfos != null) {
-                for (KmlInfo kmlInfo : kmlInfos) {
+            try (Stream<KmlInfo> kmlInfos = kmlReader.stream(file)) {
+                kmlInfos.forEach((kmlInfo) -> {
                     if (instanceFile == null || instanceScene == null) {
                         instanceFile = new File(file.getParent(), kmlInfo.getHref());
                         List<GaiaScene> scenes = loadScene(instanceFile);
@@ -104,7 +117,7 @@ public class InstancedFileLoader implements FileLoader {
                             .outputPath(outputPath)
                             .build();
                     tileInfos.add(tileInfo);
-                }
+                });
             }
         } else {
             File meshData = new File(globalOptions.getInstancePath());
@@ -115,9 +128,8 @@ public class InstancedFileLoader implements FileLoader {
                 }
             }
             // geojson, shape type
-            List<KmlInfo> kmlInfos = kmlReader.readAll(file);
-            if (kmlInfos != null) {
-                for (KmlInfo kmlInfo : kmlInfos) {
+            try (Stream<KmlInfo> kmlInfos = kmlReader.stream(file)) {
+                kmlInfos.forEach((kmlInfo) -> {
                     TileInfo tileInfo = TileInfo.builder()
                             .scene(instanceScene)
                             .kmlInfo(kmlInfo)
@@ -125,7 +137,7 @@ public class InstancedFileLoader implements FileLoader {
                             .outputPath(outputPath)
                             .build();
                     tileInfos.add(tileInfo);
-                }
+                });
             }
         }
         return tileInfos;
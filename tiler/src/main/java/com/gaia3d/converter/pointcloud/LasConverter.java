@@ -1,7 +1,7 @@
 package com.gaia3d.converter.pointcloud;
 
 import com.gaia3d.basic.geometry.GaiaBoundingBox;
-import com.gaia3d.basic.geometry.octree.GaiaOctreeVertices;
+import com.gaia3d.basic.geometry.octree.LinearOctree;
 import com.gaia3d.basic.pointcloud.GaiaPointCloud;
 import com.gaia3d.basic.model.GaiaVertex;
 import com.gaia3d.basic.pointcloud.GaiaPointCloudHeader;
@@ -164,41 +164,27 @@ public class LasConverter {
 
     // Detail Volume
     private int calcOctreeVolume(int sampleSize, CloseablePointIterable pointIterable, Vector3d scale, Vector3d offset) {
-        List<GaiaVertex> vertices = new ArrayList<>();
+        double[] positions = new double[1024 * 3];
+        int sampledCount = 0;
         int count = 0;
         for (LASPoint point : pointIterable) {
             if (count++ % sampleSize != 0) {
                 continue;
-            } else {
-                double x = point.getX();
-                double y = point.getY();
-                double z = point.getZ();
-
-                x = x * scale.x + offset.x;
-                y = y * scale.y + offset.y;
-                z = z * scale.z + offset.z;
-                Vector3d position = new Vector3d(x, y, z);
-                GaiaVertex vertex = new GaiaVertex();
-                vertex.setPosition(position);
-                vertices.add(vertex);
             }
+            if (sampledCount * 3 >= positions.length) {
+                positions = Arrays.copyOf(positions, positions.length * 2);
+            }
+            positions[sampledCount * 3] = point.getX() * scale.x + offset.x;
+            positions[sampledCount * 3 + 1] = point.getY() * scale.y + offset.y;
+            positions[sampledCount * 3 + 2] = point.getZ() * scale.z + offset.z;
+            sampledCount++;
         }
 
-        double length = 1.0;
-        GaiaOctreeVertices octreeVertices = new GaiaOctreeVertices(null);
-        octreeVertices.setVertices(vertices);
-        octreeVertices.calculateSize();
-        octreeVertices.setMaxDepth(25);
-
-        /*octreeVertices.setMaxX(length);
-        octreeVertices.setMaxY(length);
-        octreeVertices.setMaxZ(length);*/
-        octreeVertices.makeTreeByMinBoxSize(length); // 1m
-
-        List<GaiaOctreeVertices> result = new ArrayList<>();
-        octreeVertices.extractOctreesWithContents(result);
-
-        return result.size();
+        LinearOctree octree = new LinearOctree(Arrays.copyOf(positions, sampledCount * 3));
+        octree.setMaxDepth(25);
+        octree.setMinBoxSize(1.0); // 1m
+        octree.makeTree();
+        return octree.getLeavesWithItems().length;
     }
 
     private List<GaiaPointCloud> convert(File file) {
@@ -0,0 +1,117 @@
+package com.gaia3d.converter.terrain;
+
+import com.gaia3d.basic.geometry.GaiaBoundingBox;
+import com.gaia3d.converter.geometry.GaiaExtrusionBuilding;
+import com.gaia3d.converter.geometry.pipe.GaiaPipeLineString;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.joml.Vector3d;
+
+import java.util.List;
+
+/**
+ * Drapes extrusion footprints and pipes on the terrain vertex by vertex.
+ * The terrain offsets are relative to the terrain height at the center of the bounding box,
+ * which is the height the translator gives to the whole scene, so the vertices follow the slope under the scene.
+ * All positions must be wgs84 (longitude, latitude).
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class TerrainDraper {
+    private final TerrainService terrainService;
+
+    /**
+     * Sets the z of every footprint position to the terrain offset of the vertex.
+     * The extruder uses the offsets as the floor heights of the vertices.
+     */
+    public void drapeBuildings(List<GaiaExtrusionBuilding> buildings) {
+        if (terrainService.isEmpty() || buildings.isEmpty()) {
+            return;
+        }
+        int pointsCount = 0;
+        for (GaiaExtrusionBuilding building : buildings) {
+            pointsCount += building.getPositions().size() + 1;
+        }
+
+        double[] longitudes = new double[pointsCount];
+        double[] latitudes = new double[pointsCount];
+        int index = 0;
+        for (GaiaExtrusionBuilding building : buildings) {
+            Vector3d center = building.getBoundingBox().getCenter();
+            longitudes[index] = center.x;
+            latitudes[index] = center.y;
+            index++;
+            for (Vector3d position : building.getPositions()) {
+                longitudes[index] = position.x;
+                latitudes[index] = position.y;
+                index++;
+            }
+        }
+        double[] heights = new double[pointsCount];
+        terrainService.getHeights(longitudes, latitudes, heights, pointsCount);
+
+        index = 0;
+        for (GaiaExtrusionBuilding building : buildings) {
+            double centerHeight = heights[index++];
+            for (Vector3d position : building.getPositions()) {
+                position.z = getOffset(heights[index++], centerHeight);
+            }
+        }
+        log.info("[Terrain] Draped {} extrusion footprints ({} points)", buildings.size(), pointsCount);
+    }
+
+    /**
+     * Adds the terrain offset of every vertex to the pipe positions and updates the bounding boxes.
+     */
+    public void drapePipeLineStrings(List<GaiaPipeLineString> pipeLineStrings) {
+        if (terrainService.isEmpty() || pipeLineStrings.isEmpty()) {
+            return;
+        }
+        int pointsCount = 0;
+        for (GaiaPipeLineString pipeLineString : pipeLineStrings) {
+            pointsCount += pipeLineString.getPositions().size() + 1;
+        }
+
+        double[] longitudes = new double[pointsCount];
+        double[] latitudes = new double[pointsCount];
+        int index = 0;
+        for (GaiaPipeLineString pipeLineString : pipeLineStrings) {
+            Vector3d center = getCenter(pipeLineString.getPositions());
+            longitudes[index] = center.x;
+            latitudes[index] = center.y;
+            index++;
+            for (Vector3d position : pipeLineString.getPositions()) {
+                longitudes[index] = position.x;
+                latitudes[index] = position.y;
+                index++;
+            }
+        }
+        double[] heights = new double[pointsCount];
+        terrainService.getHeights(longitudes, latitudes, heights, pointsCount);
+
+        index = 0;
+        for (GaiaPipeLineString pipeLineString : pipeLineStrings) {
+            double centerHeight = heights[index++];
+            GaiaBoundingBox boundingBox = new GaiaBoundingBox();
+            for (Vector3d position : pipeLineString.getPositions()) {
+                position.z += getOffset(heights[index++], centerHeight);
+                boundingBox.addPoint(position);
+            }
+            pipeLineString.setBoundingBox(boundingBox);
+        }
+        log.info("[Terrain] Draped {} pipes ({} points)", pipeLineStrings.size(), pointsCount);
+    }
+
+    private Vector3d getCenter(List<Vector3d> positions) {
+        GaiaBoundingBox boundingBox = new GaiaBoundingBox();
+        positions.forEach(boundingBox::addPoint);
+        return boundingBox.getCenter();
+    }
+
+    private double getOffset(double height, double centerHeight) {
+        if (Double.isNaN(height) || Double.isNaN(centerHeight)) {
+            return 0.0d;
+        }
+        return height - centerHeight;
+    }
+}
@@ -0,0 +1,182 @@
+package com.gaia3d.converter.terrain;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.index.strtree.STRtree;
+import org.opengis.referencing.operation.TransformException;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Samples terrain heights from GeoTiff DEM files.
+ * The elevations are decoded by tiles into float arrays and kept in a LRU cache,
+ * and the heights are interpolated bilinearly between the pixel centers.
+ * A directory of GeoTiff files is indexed by the wgs84 envelopes of the files.
+ */
+@Slf4j
+public class TerrainService {
+    public static final int DEFAULT_CACHE_SIZE = 256;
+    private static final String[] GEOTIFF_EXTENSIONS = {"tif", "tiff", "TIF", "TIFF"};
+
+    private final List<TerrainSource> sources;
+    private final STRtree index = new STRtree();
+    private final TerrainTileCache tileCache;
+
+    public TerrainService() {
+        this(new ArrayList<>(), DEFAULT_CACHE_SIZE);
+    }
+
+    public TerrainService(List<TerrainSource> sources, int cacheSize) {
+        this.sources = sources;
+        this.tileCache = new TerrainTileCache(cacheSize);
+        for (int i = 0; i < sources.size(); i++) {
+            index.insert(sources.get(i).getWgs84Envelope(), i);
+        }
+        index.build();
+    }
+
+    /**
+     * Creates the service from a GeoTiff file or a directory of GeoTiff files.
+     * When the sources overlap, the first file in path order has priority.
+     */
+    public static TerrainService load(File path, int cacheSize) {
+        List<File> files = new ArrayList<>();
+        if (path.isFile()) {
+            files.add(path);
+        } else if (path.isDirectory()) {
+            Collection<File> geoTiffFiles = FileUtils.listFiles(path, GEOTIFF_EXTENSIONS, true);
+            files.addAll(geoTiffFiles);
+            files.sort(Comparator.comparing(File::getAbsolutePath));
+        }
+
+        List<TerrainSource> sources = new ArrayList<>();
+        for (File file : files) {
+            try {
+                sources.add(new TerrainSource(file));
+            } catch (IOException e) {
+                log.warn("[WARN] Failed to load GeoTiff file : {}", file.getAbsolutePath());
+                log.debug("- Detail : ", e);
+            }
+        }
+        log.info("[Terrain] Loaded {} GeoTiff files.", sources.size());
+        return new TerrainService(sources, cacheSize);
+    }
+
+    public boolean isEmpty() {
+        return sources.isEmpty();
+    }
+
+    /**
+     * Samples the terrain height.
+     * @param longitude wgs84 longitude in degrees
+     * @param latitude wgs84 latitude in degrees
+     * @return the height, or NaN if the position is out of range
+     */
+    public double getHeight(double longitude, double latitude) {
+        double[] heights = new double[1];
+        getHeights(new double[]{longitude}, new double[]{latitude}, heights, 1);
+        return heights[0];
+    }
+
+    /**
+     * Samples the terrain heights of many positions.
+     * Neighboring positions usually share the source and the tile, so the source of the previous position is tried first.
+     * @param longitudes wgs84 longitudes in degrees
+     * @param latitudes wgs84 latitudes in degrees
+     * @param resultHeights the heights, NaN where the position is out of range
+     * @param count the number of positions
+     */
+    public void getHeights(double[] longitudes, double[] latitudes, double[] resultHeights, int count) {
+        double[] coordinates = new double[2];
+        int lastSourceIndex = -1;
+        for (int i = 0; i < count; i++) {
+            double longitude = longitudes[i];
+            double latitude = latitudes[i];
+            double height = Double.NaN;
+            if (lastSourceIndex >= 0) {
+                height = sample(lastSourceIndex, longitude, latitude, coordinates);
+            }
+            if (Double.isNaN(height)) {
+                for (int sourceIndex : findSourceIndices(longitude, latitude)) {
+                    if (sourceIndex == lastSourceIndex) {
+                        continue;
+                    }
+                    height = sample(sourceIndex, longitude, latitude, coordinates);
+                    if (!Double.isNaN(height)) {
+                        lastSourceIndex = sourceIndex;
+                        break;
+                    }
+                }
+            }
+            resultHeights[i] = height;
+        }
+    }
+
+    public void close() {
+        tileCache.clear();
+        sources.forEach(TerrainSource::close);
+    }
+
+    private List<Integer> findSourceIndices(double longitude, double latitude) {
+        List<Integer> sourceIndices = new ArrayList<>();
+        if (sources.size() == 1) {
+            sourceIndices.add(0);
+            return sourceIndices;
+        }
+        List<?> candidates = index.query(new Envelope(longitude, longitude, latitude, latitude));
+        for (Object candidate : candidates) {
+            sourceIndices.add((Integer) candidate);
+        }
+        sourceIndices.sort(Integer::compareTo);
+        return sourceIndices;
+    }
+
+    private double sample(int sourceIndex, double longitude, double latitude, double[] coordinates) {
+        TerrainSource source = sources.get(sourceIndex);
+        coordinates[0] = longitude;
+        coordinates[1] = latitude;
+        try {
+            source.toGridCoordinates(coordinates, 1);
+        } catch (TransformException e) {
+            log.debug("Failed to transform the terrain position : {}, {}", longitude, latitude);
+            return Double.NaN;
+        }
+        if (!source.contains(coordinates[0], coordinates[1])) {
+            return Double.NaN;
+        }
+
+        int width = source.getWidth();
+        int height = source.getHeight();
+        double gridX = Math.max(0.0d, Math.min(coordinates[0], width - 1));
+        double gridY = Math.max(0.0d, Math.min(coordinates[1], height - 1));
+        int x = Math.min((int) gridX, Math.max(width - 2, 0));
+        int y = Math.min((int) gridY, Math.max(height - 2, 0));
+
+        TerrainTile tile = getTile(sourceIndex, x / TerrainSource.TILE_SIZE, y / TerrainSource.TILE_SIZE);
+        if (tile == null) {
+            return Double.NaN;
+        }
+        return tile.interpolate(x, y, gridX - x, gridY - y, source.getNoData());
+    }
+
+    private TerrainTile getTile(int sourceIndex, int tileX, int tileY) {
+        long key = ((long) sourceIndex << 40) | ((long) tileY << 20) | tileX;
+        TerrainTile tile = tileCache.get(key);
+        if (tile == null) {
+            try {
+                tile = sources.get(sourceIndex).readTile(tileX, tileY);
+                tileCache.put(key, tile);
+            } catch (IOException e) {
+                log.warn("[WARN] Failed to read terrain tile : {}", sources.get(sourceIndex).getFile().getAbsolutePath());
+                log.debug("- Detail : ", e);
+            }
+        }
+        return tile;
+    }
+}
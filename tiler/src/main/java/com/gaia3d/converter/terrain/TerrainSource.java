@@ -0,0 +1,113 @@
+package com.gaia3d.converter.terrain;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.gce.geotiff.GeoTiffReader;
+import org.geotools.geometry.GeneralEnvelope;
+import org.geotools.referencing.CRS;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.geotools.referencing.operation.transform.ConcatenatedTransform;
+import org.locationtech.jts.geom.Envelope;
+import org.opengis.coverage.grid.GridEnvelope;
+import org.opengis.referencing.FactoryException;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.datum.PixelInCell;
+import org.opengis.referencing.operation.MathTransform;
+import org.opengis.referencing.operation.TransformException;
+
+import java.awt.Rectangle;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * A GeoTiff DEM file.
+ * Only the header is read when the source is created, the elevations are decoded by tiles when they are sampled.
+ */
+@Slf4j
+@Getter
+public class TerrainSource {
+    public static final int TILE_SIZE = 256;
+
+    private final File file;
+    private final int width;
+    private final int height;
+    private final double noData;
+    private final Envelope wgs84Envelope;
+
+    // wgs84 (longitude, latitude) -> grid coordinates, the integer grid coordinates are the pixel centers
+    @Getter(AccessLevel.NONE)
+    private final MathTransform wgs84ToGrid;
+    @Getter(AccessLevel.NONE)
+    private GeoTiffReader reader;
+    @Getter(AccessLevel.NONE)
+    private GridCoverage2D coverage;
+
+    public TerrainSource(File file) throws IOException {
+        this.file = file;
+        GeoTiffReader headerReader = new GeoTiffReader(file);
+        try {
+            GridEnvelope gridRange = headerReader.getOriginalGridRange();
+            this.width = gridRange.getSpan(0);
+            this.height = gridRange.getSpan(1);
+            this.noData = headerReader.getMetadata().hasNoData() ? headerReader.getMetadata().getNoData() : Double.NaN;
+
+            CoordinateReferenceSystem crs = headerReader.getCoordinateReferenceSystem();
+            MathTransform worldToGrid = headerReader.getOriginalGridToWorld(PixelInCell.CELL_CENTER).inverse();
+            MathTransform wgs84ToWorld = CRS.findMathTransform(DefaultGeographicCRS.WGS84, crs, true);
+            this.wgs84ToGrid = ConcatenatedTransform.create(wgs84ToWorld, worldToGrid);
+
+            GeneralEnvelope envelope = CRS.transform(headerReader.getOriginalEnvelope(), DefaultGeographicCRS.WGS84);
+            this.wgs84Envelope = new Envelope(envelope.getMinimum(0), envelope.getMaximum(0), envelope.getMinimum(1), envelope.getMaximum(1));
+        } catch (FactoryException | TransformException e) {
+            throw new IOException("Failed to read the terrain header : " + file.getAbsolutePath(), e);
+        } finally {
+            headerReader.dispose();
+        }
+    }
+
+    /**
+     * Transforms wgs84 (longitude, latitude) pairs to grid coordinates in place.
+     */
+    public void toGridCoordinates(double[] coordinates, int count) throws TransformException {
+        wgs84ToGrid.transform(coordinates, 0, coordinates, 0, count);
+    }
+
+    public boolean contains(double gridX, double gridY) {
+        return gridX >= -0.5d && gridY >= -0.5d && gridX <= width - 0.5d && gridY <= height - 0.5d;
+    }
+
+    /**
+     * Decodes the elevations of a tile into a float array.
+     */
+    public synchronized TerrainTile readTile(int tileX, int tileY) throws IOException {
+        if (coverage == null) {
+            reader = new GeoTiffReader(file);
+            coverage = reader.read(null);
+        }
+        RenderedImage image = coverage.getRenderedImage();
+        int originX = tileX * TILE_SIZE;
+        int originY = tileY * TILE_SIZE;
+        int tileWidth = Math.min(TILE_SIZE + 1, width - originX);
+        int tileHeight = Math.min(TILE_SIZE + 1, height - originY);
+
+        Rectangle rectangle = new Rectangle(image.getMinX() + originX, image.getMinY() + originY, tileWidth, tileHeight);
+        Raster raster = image.getData(rectangle);
+        float[] heights = raster.getSamples(rectangle.x, rectangle.y, tileWidth, tileHeight, 0, (float[]) null);
+        return new TerrainTile(originX, originY, tileWidth, tileHeight, heights);
+    }
+
+    public synchronized void close() {
+        if (coverage != null) {
+            coverage.dispose(true);
+            coverage = null;
+        }
+        if (reader != null) {
+            reader.dispose();
+            reader = null;
+        }
+    }
+}
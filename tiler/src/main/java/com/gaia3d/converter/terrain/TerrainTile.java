@@ -0,0 +1,76 @@
+package com.gaia3d.converter.terrain;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * A decoded block of DEM elevations.
+ * The block overlaps its right and bottom neighbors by one pixel, so the bilinear sampling never needs a second block.
+ */
+@Getter
+@AllArgsConstructor
+public class TerrainTile {
+    private final int originX;
+    private final int originY;
+    private final int width;
+    private final int height;
+    private final float[] heights;
+
+    /**
+     * Bilinear interpolation of the four pixels from (x, y) to (x + 1, y + 1).
+     * The no data pixels are skipped and the weights of the others are normalized.
+     * @param x the grid x of the top left pixel
+     * @param y the grid y of the top left pixel
+     * @param fx the x fraction between the pixel centers
+     * @param fy the y fraction between the pixel centers
+     * @param noData the no data value of the source
+     * @return the interpolated height, or NaN if all pixels are no data
+     */
+    public double interpolate(int x, int y, double fx, double fy, double noData) {
+        int localX0 = x - originX;
+        int localY0 = y - originY;
+        int localX1 = Math.min(localX0 + 1, width - 1);
+        int localY1 = Math.min(localY0 + 1, height - 1);
+
+        float h00 = heights[localY0 * width + localX0];
+        float h10 = heights[localY0 * width + localX1];
+        float h01 = heights[localY1 * width + localX0];
+        float h11 = heights[localY1 * width + localX1];
+        if (isValid(h00, noData) && isValid(h10, noData) && isValid(h01, noData) && isValid(h11, noData)) {
+            double top = h00 + (h10 - h00) * fx;
+            double bottom = h01 + (h11 - h01) * fx;
+            return top + (bottom - top) * fy;
+        }
+
+        double weightSum = 0.0d;
+        double heightSum = 0.0d;
+        double w00 = (1.0d - fx) * (1.0d - fy);
+        double w10 = fx * (1.0d - fy);
+        double w01 = (1.0d - fx) * fy;
+        double w11 = fx * fy;
+        if (isValid(h00, noData)) {
+            weightSum += w00;
+            heightSum += w00 * h00;
+        }
+        if (isValid(h10, noData)) {
+            weightSum += w10;
+            heightSum += w10 * h10;
+        }
+        if (isValid(h01, noData)) {
+            weightSum += w01;
+            heightSum += w01 * h01;
+        }
+        if (isValid(h11, noData)) {
+            weightSum += w11;
+            heightSum += w11 * h11;
+        }
+        if (weightSum <= 0.0d) {
+            return Double.NaN;
+        }
+        return heightSum / weightSum;
+    }
+
+    private boolean isValid(float value, double noData) {
+        return !Float.isNaN(value) && value != noData;
+    }
+}
@@ -0,0 +1,53 @@
+package com.gaia3d.converter.terrain;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Least recently used cache of the decoded terrain tiles.
+ */
+@Slf4j
+public class TerrainTileCache {
+    private final Map<Long, TerrainTile> tiles;
+    private long hitCount = 0;
+    private long missCount = 0;
+
+    public TerrainTileCache(int maxTiles) {
+        int capacity = Math.max(maxTiles, 1);
+        this.tiles = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, TerrainTile> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    public synchronized TerrainTile get(long key) {
+        TerrainTile tile = tiles.get(key);
+        if (tile == null) {
+            missCount++;
+        } else {
+            hitCount++;
+        }
+        return tile;
+    }
+
+    public synchronized void put(long key, TerrainTile tile) {
+        tiles.put(key, tile);
+    }
+
+    public synchronized void clear() {
+        log.debug("[Terrain] tile cache hits : {}, misses : {}", hitCount, missCount);
+        tiles.clear();
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+}
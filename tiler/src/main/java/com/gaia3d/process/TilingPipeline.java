@@ -1,9 +1,16 @@
 package com.gaia3d.process;
 
+import com.gaia3d.basic.exchangable.GaiaSetCache;
 import com.gaia3d.command.mago.GlobalOptions;
 import com.gaia3d.converter.loader.FileLoader;
+import com.gaia3d.process.journal.JobJournal;
+import com.gaia3d.process.metrics.PipelineMetrics;
+import com.gaia3d.process.metrics.StageMetrics;
 import com.gaia3d.process.postprocess.PostProcess;
 import com.gaia3d.process.preprocess.PreProcess;
+import com.gaia3d.process.scheduler.MemoryBudgetScheduler;
+import com.gaia3d.process.scheduler.ScheduledTask;
+import com.gaia3d.process.scheduler.TaskMemoryEstimator;
 import com.gaia3d.process.tileprocess.Pipeline;
 import com.gaia3d.process.tileprocess.TilingProcess;
 import com.gaia3d.process.tileprocess.Tiler;
@@ -19,10 +26,8 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
@@ -42,13 +47,20 @@ public class TilingPipeline implements Pipeline {
     private List<TileInfo> tileInfos;
     private Tileset tileset;
     private List<ContentInfo> contentInfos;
+    private PipelineMetrics metrics;
+    private JobJournal journal;
 
     @Override
     public void process(FileLoader fileLoader) throws IOException {
+        metrics = new PipelineMetrics(globalOptions.getMultiThreadCount());
+        if (globalOptions.isProfile()) {
+            metrics.startRecording();
+        }
         /* Pre-process */
         try {
             /* Load all files */
             readAllFiles(fileLoader);
+            openJournal();
             /* Pre-process */
             createTemp(fileLoader);
             executePreProcesses(fileLoader);
@@ -62,29 +74,52 @@ public class TilingPipeline implements Pipeline {
             log.error("[ERROR][Pipeline] : ", e);
             globalOptions.getReporter().addReport(e);
             throw new RuntimeException(e);
+        } finally {
+            if (journal != null) {
+                journal.close();
+            }
+            metrics.write(new File(globalOptions.getOutputPath()));
         }
     }
 
     private void readAllFiles(FileLoader fileLoader) {
+        StageMetrics stage = metrics.startStage("read");
         log.info("[Load] Loading all files.");
         fileList = fileLoader.loadFiles();
         log.info("[Load] Finished loading all files");
+        metrics.endStage(stage);
+    }
+
+    private void openJournal() throws IOException {
+        File tempFile = new File(globalOptions.getOutputPath(), "temp");
+        File contentFile = new File(globalOptions.getOutputPath(), "data");
+        String fingerprint = JobJournal.createFingerprint(globalOptions, fileList);
+        journal = JobJournal.open(tempFile, contentFile, fingerprint, globalOptions.isResume());
     }
 
     private void executePreProcesses(FileLoader fileLoader) throws InterruptedException {
+        StageMetrics stage = metrics.startStage("preprocess");
         log.info("[Pre] Start the pre-processing.");
         tileInfos = new ArrayList<>();
+        // collected per file so that the tile infos keep the file order regardless of the thread scheduling
+        Map<Integer, List<TileInfo>> loadedFiles = new ConcurrentHashMap<>();
 
-        ExecutorService executorService = Executors.newFixedThreadPool(globalOptions.getMultiThreadCount());
-        List<Runnable> tasks = new ArrayList<>();
+        List<ScheduledTask> tasks = new ArrayList<>();
         int fileCount = fileList.size();
         AtomicLong nodeCount = new AtomicLong(0);
         for (int count = 0; count < fileCount; count++) {
             File file = fileList.get(count);
             int finalCount = count;
-            Runnable callableTask = () -> {
+            Runnable callableTask = () -> stage.runTask(() -> {
                 try {
-                    List<TileInfo> loadedTileInfos = fileLoader.loadTileInfo(file);
+                    List<TileInfo> restoredTileInfos = journal.restoreTileInfos(file);
+                    if (restoredTileInfos != null) {
+                        log.info("[Pre][{}/{}] Resuming pre-processed file : {}", finalCount + 1, fileCount, file.getName());
+                        nodeCount.addAndGet(restoredTileInfos.size());
+                        loadedFiles.put(finalCount, restoredTileInfos);
+                        return;
+                    }
+                    List<TileInfo> loadedTileInfos = stage.measure(fileLoader.getClass().getSimpleName(), () -> fileLoader.loadTileInfo(file));
                     log.info("[Pre][{}/{}] Loading file : {}", finalCount + 1, fileCount, file.getName());
                     if (loadedTileInfos == null) {
                         log.warn("[WARN][Pre][{}/{}] Failed to load file : {}.", finalCount + 1, fileCount, file.getName());
@@ -92,52 +127,89 @@ public class TilingPipeline implements Pipeline {
                     }
                     int infoLength = loadedTileInfos.size();
                     nodeCount.addAndGet(infoLength);
+                    List<TileInfo> preProcessedTileInfos = new ArrayList<>();
                     for (int index = 0; index < infoLength; index++) {
                         TileInfo tileInfo = loadedTileInfos.get(index);
                         if (tileInfo != null) {
                             log.info("[Pre][{}/{}][{}/{}] Loading tiles from file.", finalCount + 1, fileCount, index + 1, infoLength);
                             tileInfo.setSerial(index + 1);
                             for (PreProcess preProcessors : preProcesses) {
-                                preProcessors.run(tileInfo);
+                                stage.measure(preProcessors.getClass().getSimpleName(), () -> preProcessors.run(tileInfo));
                             }
-                            tileInfos.add(tileInfo);
+                            preProcessedTileInfos.add(tileInfo);
                         }
                     }
+                    journal.completeFile(file, preProcessedTileInfos);
+                    loadedFiles.put(finalCount, preProcessedTileInfos);
+                } catch (IOException e) {
+                    log.error("[ERROR][PreProcess] Failed to write the journal : ", e);
+                    globalOptions.getReporter().addReport(e);
                 } catch (RuntimeException e) {
                     log.error("[ERROR][PreProcess] : ", e);
                     globalOptions.getReporter().addReport(e);
                 }
-            };
-            tasks.add(callableTask);
+            });
+            tasks.add(new ScheduledTask(callableTask, TaskMemoryEstimator.estimateFile(file)));
+        }
+        executeTasks(tasks);
+        for (int count = 0; count < fileCount; count++) {
+            List<TileInfo> loadedTileInfos = loadedFiles.get(count);
+            if (loadedTileInfos != null) {
+                tileInfos.addAll(loadedTileInfos);
+            }
         }
-        executeThread(executorService, tasks);
 
         log.info("[Pre] Total Node Count {}", nodeCount);
         log.info("[Pre] End the pre-processing.");
+        metrics.endStage(stage);
     }
 
     private void executeTilingProcess() throws FileNotFoundException {
+        StageMetrics stage = metrics.startStage("tiling");
         log.info("[Tile] Start the tiling process.");
         Tiler tiler = (Tiler) tilingProcess;
-        log.info("[Tile] Writing tileset file.");
         tileset = tiler.run(tileInfos);
+        metrics.endStage(stage);
+
+        stage = metrics.startStage("write");
+        log.info("[Tile] Writing tileset file.");
         tiler.writeTileset(tileset);
         log.info("[Tile] End the tiling process.");
+        metrics.endStage(stage);
     }
 
     private void executePostProcesses() throws InterruptedException {
+        StageMetrics stage = metrics.startStage("postprocess");
         log.info("[Post] Start the post-processing.");
+        // the sets and images are shared by the LOD contents of this stage only, the cache is disabled outside of it
+        GaiaSetCache cache = GaiaSetCache.getInstance();
+        cache.clear();
+        cache.setMaxBytes(globalOptions.getCacheSize());
+        try {
+            executePostProcessTasks(stage);
+            cache.logStatistics();
+        } finally {
+            cache.clear();
+            cache.setMaxBytes(0);
+        }
+        log.info("[Post] End the post-processing.");
+        metrics.endStage(stage);
+    }
 
-        ExecutorService executorService = Executors.newFixedThreadPool(globalOptions.getMultiThreadCount());
-        List<Runnable> tasks = new ArrayList<>();
+    private void executePostProcessTasks(StageMetrics stage) throws InterruptedException {
+        List<ScheduledTask> tasks = new ArrayList<>();
         contentInfos = tileset.findAllContentInfo();
         AtomicInteger count = new AtomicInteger(1);
         int contentCount = contentInfos.size();
         globalOptions.setTileCount(contentCount);
 
         for (ContentInfo contentInfo : contentInfos) {
-            Runnable callableTask = () -> {
+            Runnable callableTask = () -> stage.runTask(() -> {
                 try {
+                    if (journal.isContentWritten(contentInfo)) {
+                        log.info("[Post][{}/{}] content already written, skipping. : {}", count.getAndIncrement(), contentCount, contentInfo.getName());
+                        return;
+                    }
                     log.info("[Post][{}/{}] post-process in progress. : {}", count.getAndIncrement(), contentCount, contentInfo.getName());
                     List<TileInfo> tileInfos = contentInfo.getTileInfos();
                     List<TileInfo> tileInfosClone = tileInfos.stream()
@@ -153,28 +225,41 @@ public class TilingPipeline implements Pipeline {
                             .collect(Collectors.toList());
                     contentInfo.setTileInfos(tileInfosClone);
                     for (PostProcess postProcessor : postProcesses) {
-                        postProcessor.run(contentInfo);
+                        stage.measure(postProcessor.getClass().getSimpleName(), () -> postProcessor.run(contentInfo));
                     }
                     contentInfo.deleteTexture();
                     tileInfosClone.clear();
+                    journal.completeContent(contentInfo);
+                } catch (IOException e) {
+                    log.error("[ERROR][PostProcess] Failed to write the journal : ", e);
+                    globalOptions.getReporter().addReport(e);
                 } catch (RuntimeException e) {
                     log.error("[ERROR][PostProcess] : ", e);
                     globalOptions.getReporter().addReport(e);
                 }
-            };
-            tasks.add(callableTask);
+            });
+            tasks.add(new ScheduledTask(callableTask, TaskMemoryEstimator.estimateContent(contentInfo)));
         }
-        executeThread(executorService, tasks);
-        log.info("[Post] End the post-processing.");
+        executeTasks(tasks);
     }
 
-    private void createTemp(FileLoader fileLoader) {
+    private void createTemp(FileLoader fileLoader) throws IOException {
+        StageMetrics stage = metrics.startStage("temp");
+        List<File> tempFileList = journal.restoreTemp();
+        if (tempFileList != null) {
+            log.info("[Pre] Resuming {} temp files.", tempFileList.size());
+            fileList = tempFileList;
+            metrics.endStage(stage);
+            return;
+        }
         /* create temp directory */
         File tempFile = new File(globalOptions.getOutputPath(), "temp");
         if (!tempFile.exists() && tempFile.mkdirs()) {
             log.info("[Pre] Created temp directory in {}", tempFile.getAbsolutePath());
         }
         fileList = fileLoader.loadTemp(tempFile, fileList);
+        journal.completeTemp(fileList);
+        metrics.endStage(stage);
     }
 
     private void deleteTemp() throws IOException {
@@ -183,29 +268,23 @@ public class TilingPipeline implements Pipeline {
         }
 
         /* delete temp directory */
+        StageMetrics stage = metrics.startStage("cleanup");
+        journal.close();
         File tempFile = new File(globalOptions.getOutputPath(), "temp");
         if (tempFile.exists() && tempFile.isDirectory()) {
             FileUtils.deleteDirectory(tempFile);
         }
+        metrics.endStage(stage);
     }
 
-    private void executeThread(ExecutorService executorService, List<Runnable> tasks) throws InterruptedException {
-        try {
-            for (Runnable task : tasks) {
-                Future<?> future = executorService.submit(task);
-                if (globalOptions.isDebug()) {
-                    future.get();
-                }
-            }
-        } catch (Exception e) {
-            log.error("[ERROR] Failed to execute thread.", e);
-            throw new RuntimeException(e);
-        }
-        executorService.shutdown();
-        do {
-            if (executorService.isTerminated()) {
-                executorService.shutdownNow();
-            }
-        } while (!executorService.awaitTermination(2, TimeUnit.SECONDS));
+    /**
+     * Runs the tasks against the memory budget, in debug mode one by one and stopping on the first failure.
+     */
+    private void executeTasks(List<ScheduledTask> tasks) throws InterruptedException {
+        boolean debug = globalOptions.isDebug();
+        int threadCount = debug ? 1 : globalOptions.getMultiThreadCount();
+        long memoryBudget = globalOptions.getMemoryBudget() > 0 ? globalOptions.getMemoryBudget() : GlobalOptions.DEFAULT_MEMORY_BUDGET;
+        MemoryBudgetScheduler scheduler = new MemoryBudgetScheduler(threadCount, memoryBudget, debug);
+        scheduler.execute(tasks);
     }
 }
@@ -0,0 +1,304 @@
+package com.gaia3d.process.journal;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gaia3d.command.mago.GlobalOptions;
+import com.gaia3d.process.tileprocess.tile.ContentInfo;
+import com.gaia3d.process.tileprocess.tile.TileInfo;
+import lombok.extern.slf4j.Slf4j;
+import org.joml.Vector3d;
+import org.locationtech.proj4j.CoordinateReferenceSystem;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Journal of a tiling job in the temp directory, it records the completed temp stage, pre-processed files and written contents
+ * with the checksums of their files, so that an interrupted job can be resumed without repeating them.
+ * Every step is appended as a json line when it is completed, a line torn by a crash is ignored.
+ */
+@Slf4j
+public class JobJournal {
+    public static final String JOURNAL_FILE_NAME = "journal.jsonl";
+    private static final String[] CONTENT_EXTENSIONS = {"b3dm", "i3dm", "pnts", "glb", "gltf"};
+    // the options which do not change the written tiles: run information, logging, resources and the resume flag itself
+    private static final Set<String> RUN_OPTIONS = Set.of("reporter", "version", "javaVersionInfo", "programInfo",
+            "startTime", "endTime", "fileCount", "tileCount", "tilesetSize", "outputPath", "logPath",
+            "debug", "isLeaveTemp", "resume", "profile", "multiThreadCount", "cacheSize", "memoryBudget");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final File journalFile;
+    private final File contentPath;
+    private final String fingerprint;
+
+    private JournalEntry tempEntry = null;
+    private final Map<String, JournalEntry> fileEntries = new ConcurrentHashMap<>();
+    private final Map<String, JournalEntry> contentEntries = new ConcurrentHashMap<>();
+    private int restoredCount = 0;
+    private BufferedWriter writer = null;
+
+    private JobJournal(File tempPath, File contentPath, String fingerprint) {
+        this.journalFile = new File(tempPath, JOURNAL_FILE_NAME);
+        this.contentPath = contentPath;
+        this.fingerprint = fingerprint;
+    }
+
+    /**
+     * Opens the journal of the job in the temp directory.
+     * When resuming, the completed steps of a previous run of the same job are read, otherwise a new journal is started.
+     * @param tempPath the temp directory of the job
+     * @param contentPath the directory of the tile contents
+     * @param fingerprint identifies the inputs and options of the job
+     * @param resume whether to read the steps of a previous run
+     */
+    public static JobJournal open(File tempPath, File contentPath, String fingerprint, boolean resume) throws IOException {
+        JobJournal journal = new JobJournal(tempPath, contentPath, fingerprint);
+        if (resume && journal.read()) {
+            log.info("[Journal] Resuming the job with {} completed steps from {}", journal.restoredCount, journal.journalFile.getAbsolutePath());
+            journal.writer = Files.newBufferedWriter(journal.journalFile.toPath(), StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } else {
+            journal.reset();
+        }
+        return journal;
+    }
+
+    /**
+     * Identifies a job by its input files and the options that change the written tiles.
+     * Every option is part of the fingerprint except the ones in {@link #RUN_OPTIONS}, so a new option invalidates the journal by default.
+     */
+    public static String createFingerprint(GlobalOptions globalOptions, List<File> inputFiles) {
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<String, String> option : getTileOptions(globalOptions).entrySet()) {
+            builder.append(option.getKey()).append('=').append(option.getValue()).append('\n');
+        }
+        for (File inputFile : inputFiles) {
+            builder.append(inputFile.getAbsolutePath()).append('|').append(inputFile.length()).append('|').append(inputFile.lastModified()).append('\n');
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(builder.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Snapshot of the options sorted by name.
+     */
+    static Map<String, String> getTileOptions(GlobalOptions globalOptions) {
+        Map<String, String> options = new TreeMap<>();
+        for (Field field : GlobalOptions.class.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers()) || RUN_OPTIONS.contains(field.getName())) {
+                continue;
+            }
+            try {
+                field.setAccessible(true);
+                options.put(field.getName(), toOptionValue(field.get(globalOptions)));
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return options;
+    }
+
+    private static String toOptionValue(Object value) {
+        if (value instanceof CoordinateReferenceSystem crs) {
+            return crs.getName() + " " + crs.getParameterString();
+        } else if (value instanceof Vector3d vector) {
+            // the default format of joml rounds the components
+            return vector.x + "," + vector.y + "," + vector.z;
+        }
+        return String.valueOf(value);
+    }
+
+    /**
+     * Returns the file list of the completed temp stage, or null when the temp stage has to run.
+     * Modified temp files invalidate the following steps as well, so the journal is started again.
+     */
+    public List<File> restoreTemp() throws IOException {
+        if (tempEntry == null) {
+            return null;
+        }
+        if (!tempEntry.verify()) {
+            log.warn("[WARN][Journal] The temp files were modified, the job is started again.");
+            reset();
+            return null;
+        }
+        return tempEntry.getPaths().stream().map(File::new).toList();
+    }
+
+    public void completeTemp(List<File> files) throws IOException {
+        JournalEntry entry = new JournalEntry(JournalEntryType.TEMP);
+        String tempPath = journalFile.getParentFile().getAbsolutePath() + File.separator;
+        List<String> paths = new ArrayList<>();
+        List<JournalFile> journalFiles = new ArrayList<>();
+        for (File file : files) {
+            paths.add(file.getAbsolutePath());
+            if (file.getAbsolutePath().startsWith(tempPath)) {
+                journalFiles.add(JournalFile.of(file));
+            }
+        }
+        entry.setPaths(paths);
+        entry.setFiles(journalFiles);
+        append(entry);
+    }
+
+    /**
+     * Returns the pre-processed tile infos of a file, or null when the file has to be pre-processed.
+     */
+    public List<TileInfo> restoreTileInfos(File file) {
+        JournalEntry entry = fileEntries.get(file.getAbsolutePath());
+        if (entry == null) {
+            return null;
+        }
+        if (!entry.verify()) {
+            log.warn("[WARN][Journal] The temp files of {} were modified, the file is pre-processed again.", file.getName());
+            return null;
+        }
+        return entry.getTileInfos().stream().map(JournalTileInfo::toTileInfo).toList();
+    }
+
+    /**
+     * Records the pre-processed tile infos of a file.
+     * Only tile infos minimized into temp files can be restored, files with scenes or point clouds in memory are not recorded.
+     */
+    public void completeFile(File file, List<TileInfo> tileInfos) throws IOException {
+        List<JournalTileInfo> journalTileInfos = new ArrayList<>();
+        List<JournalFile> journalFiles = new ArrayList<>();
+        for (TileInfo tileInfo : tileInfos) {
+            if (tileInfo.getScene() != null || tileInfo.getPointCloud() != null || tileInfo.getTempPath() == null || !tileInfo.getTempPath().toFile().isFile()) {
+                return;
+            }
+            journalTileInfos.add(JournalTileInfo.of(tileInfo));
+            journalFiles.add(JournalFile.of(tileInfo.getTempPath().toFile()));
+        }
+        JournalEntry entry = new JournalEntry(JournalEntryType.FILE);
+        entry.setSource(file.getAbsolutePath());
+        entry.setFiles(journalFiles);
+        entry.setTileInfos(journalTileInfos);
+        append(entry);
+    }
+
+    /**
+     * Checks whether the files of a content were completely written by a previous run.
+     */
+    public boolean isContentWritten(ContentInfo contentInfo) {
+        JournalEntry entry = contentEntries.get(contentInfo.getNodeCode());
+        return entry != null && entry.verify();
+    }
+
+    /**
+     * Records the files written for a content.
+     */
+    public void completeContent(ContentInfo contentInfo) throws IOException {
+        String nodeCode = contentInfo.getNodeCode();
+        List<JournalFile> journalFiles = new ArrayList<>();
+        for (String extension : CONTENT_EXTENSIONS) {
+            File contentFile = new File(contentPath, nodeCode + "." + extension);
+            if (contentFile.isFile()) {
+                journalFiles.add(JournalFile.of(contentFile));
+            }
+        }
+        JournalEntry entry = new JournalEntry(JournalEntryType.CONTENT);
+        entry.setSource(nodeCode);
+        entry.setFiles(journalFiles);
+        append(entry);
+    }
+
+    public synchronized void close() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            log.error("[ERROR][Journal] Failed to close the journal: {}", journalFile.getAbsolutePath(), e);
+        }
+        writer = null;
+    }
+
+    private synchronized void append(JournalEntry entry) throws IOException {
+        if (writer == null) {
+            return;
+        }
+        writer.write(objectMapper.writeValueAsString(entry));
+        writer.newLine();
+        writer.flush();
+    }
+
+    /**
+     * Reads the completed steps, returns false when there is no journal of the same job.
+     */
+    private boolean read() throws IOException {
+        if (!journalFile.isFile()) {
+            log.warn("[WARN][Journal] There is no journal to resume in {}, the job is started again.", journalFile.getParentFile().getAbsolutePath());
+            return false;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(journalFile.toPath(), StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+            JournalEntry jobEntry = line != null ? parse(line) : null;
+            if (jobEntry == null || jobEntry.getType() != JournalEntryType.JOB || !fingerprint.equals(jobEntry.getFingerprint())) {
+                log.warn("[WARN][Journal] The journal belongs to another job or options, the job is started again.");
+                return false;
+            }
+            while ((line = reader.readLine()) != null) {
+                JournalEntry entry = parse(line);
+                if (entry == null) {
+                    break;
+                }
+                switch (entry.getType()) {
+                    case TEMP -> tempEntry = entry;
+                    case FILE -> fileEntries.put(entry.getSource(), entry);
+                    case CONTENT -> contentEntries.put(entry.getSource(), entry);
+                    default -> log.warn("[WARN][Journal] Unexpected journal entry: {}", entry.getType());
+                }
+                restoredCount++;
+            }
+        }
+        return true;
+    }
+
+    private JournalEntry parse(String line) {
+        try {
+            return objectMapper.readValue(line, JournalEntry.class);
+        } catch (JsonProcessingException e) {
+            log.warn("[WARN][Journal] Ignoring the incomplete journal entry: {}", line);
+            return null;
+        }
+    }
+
+    /**
+     * Starts a new journal with the job entry, the steps of a previous run are forgotten.
+     */
+    private synchronized void reset() throws IOException {
+        close();
+        tempEntry = null;
+        fileEntries.clear();
+        contentEntries.clear();
+        restoredCount = 0;
+        File tempPath = journalFile.getParentFile();
+        if (!tempPath.exists() && tempPath.mkdirs()) {
+            log.info("[Journal] Created temp directory in {}", tempPath.getAbsolutePath());
+        }
+        writer = Files.newBufferedWriter(journalFile.toPath(), StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        JournalEntry jobEntry = new JournalEntry(JournalEntryType.JOB);
+        jobEntry.setFingerprint(fingerprint);
+        append(jobEntry);
+    }
+}
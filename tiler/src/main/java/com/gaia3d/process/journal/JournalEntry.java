@@ -0,0 +1,38 @@
+package com.gaia3d.process.journal;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * A line of the job journal, the first line identifies the job and every following line records a completed step.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class JournalEntry {
+    private JournalEntryType type;
+    private String fingerprint; // job
+    private String source; // preprocessed file path or content node code
+    private List<String> paths; // file list returned by the temp stage
+    private List<JournalFile> files; // files written by the step
+    private List<JournalTileInfo> tileInfos; // preprocessed tile infos of the source file
+
+    public JournalEntry(JournalEntryType type) {
+        this.type = type;
+    }
+
+    /**
+     * Checks the recorded files of the step, any missing or modified file invalidates the step.
+     */
+    public boolean verify() {
+        if (files == null) {
+            return true;
+        }
+        return files.stream().allMatch(JournalFile::verify);
+    }
+}
@@ -0,0 +1,8 @@
+package com.gaia3d.process.journal;
+
+/**
+ * Steps of a tiling job recorded in the job journal.
+ */
+public enum JournalEntryType {
+    JOB, TEMP, FILE, CONTENT
+}
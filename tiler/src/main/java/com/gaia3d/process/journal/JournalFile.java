@@ -0,0 +1,61 @@
+package com.gaia3d.process.journal;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.zip.CRC32C;
+
+/**
+ * A file written by a completed step of the job, with its size and CRC32C checksum.
+ */
+@Slf4j
+@Getter
+@Setter
+@NoArgsConstructor
+public class JournalFile {
+    private String path;
+    private long size;
+    private long checksum;
+
+    public static JournalFile of(File file) throws IOException {
+        JournalFile journalFile = new JournalFile();
+        journalFile.setPath(file.getAbsolutePath());
+        journalFile.setSize(file.length());
+        journalFile.setChecksum(checksum(file));
+        return journalFile;
+    }
+
+    /**
+     * Checks that the file still exists with the recorded size and checksum.
+     */
+    public boolean verify() {
+        File file = new File(path);
+        if (!file.isFile() || file.length() != size) {
+            return false;
+        }
+        try {
+            return checksum(file) == checksum;
+        } catch (IOException e) {
+            log.warn("[WARN][Journal] Failed to read the file : {}", path);
+            return false;
+        }
+    }
+
+    public static long checksum(File file) throws IOException {
+        CRC32C crc = new CRC32C();
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream inputStream = Files.newInputStream(file.toPath())) {
+            int read;
+            while ((read = inputStream.read(buffer)) > 0) {
+                crc.update(buffer, 0, read);
+            }
+        }
+        return crc.getValue();
+    }
+}
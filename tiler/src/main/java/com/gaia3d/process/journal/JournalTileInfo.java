@@ -0,0 +1,122 @@
+package com.gaia3d.process.journal;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.gaia3d.basic.geometry.GaiaBoundingBox;
+import com.gaia3d.converter.kml.KmlInfo;
+import com.gaia3d.process.tileprocess.tile.TileInfo;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.joml.Matrix4d;
+import org.joml.Vector3d;
+
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * The state of a pre-processed tile info whose scene is minimized into a temp file, as written to the job journal.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class JournalTileInfo {
+    private int serial;
+    private String name;
+    private double[] transformMatrix;
+    private double[] boundingBox; // minX, minY, minZ, maxX, maxY, maxZ
+    private String scenePath;
+    private String outputPath;
+    private String tempPath;
+    private long triangleCount;
+    private long memoryBytes;
+    private boolean i3dm;
+
+    private String kmlName;
+    private double[] kmlPosition;
+    private String kmlAltitudeMode;
+    private double[] kmlRotation; // heading, tilt, roll
+    private String kmlHref;
+    private double[] kmlScale;
+    private Map<String, String> kmlProperties;
+
+    public static JournalTileInfo of(TileInfo tileInfo) {
+        JournalTileInfo journalTileInfo = new JournalTileInfo();
+        journalTileInfo.setSerial(tileInfo.getSerial());
+        journalTileInfo.setName(tileInfo.getName());
+        if (tileInfo.getTransformMatrix() != null) {
+            journalTileInfo.setTransformMatrix(tileInfo.getTransformMatrix().get(new double[16]));
+        }
+        GaiaBoundingBox boundingBox = tileInfo.getBoundingBox();
+        if (boundingBox != null) {
+            journalTileInfo.setBoundingBox(new double[]{boundingBox.getMinX(), boundingBox.getMinY(), boundingBox.getMinZ(), boundingBox.getMaxX(), boundingBox.getMaxY(), boundingBox.getMaxZ()});
+        }
+        journalTileInfo.setScenePath(pathString(tileInfo.getScenePath()));
+        journalTileInfo.setOutputPath(pathString(tileInfo.getOutputPath()));
+        journalTileInfo.setTempPath(pathString(tileInfo.getTempPath()));
+        journalTileInfo.setTriangleCount(tileInfo.getTriangleCount());
+        journalTileInfo.setMemoryBytes(tileInfo.getMemoryBytes());
+        journalTileInfo.setI3dm(tileInfo.isI3dm());
+
+        KmlInfo kmlInfo = tileInfo.getKmlInfo();
+        if (kmlInfo != null) {
+            journalTileInfo.setKmlName(kmlInfo.getName());
+            Vector3d position = kmlInfo.getPosition();
+            if (position != null) {
+                journalTileInfo.setKmlPosition(new double[]{position.x, position.y, position.z});
+            }
+            journalTileInfo.setKmlAltitudeMode(kmlInfo.getAltitudeMode());
+            journalTileInfo.setKmlRotation(new double[]{kmlInfo.getHeading(), kmlInfo.getTilt(), kmlInfo.getRoll()});
+            journalTileInfo.setKmlHref(kmlInfo.getHref());
+            journalTileInfo.setKmlScale(new double[]{kmlInfo.getScaleX(), kmlInfo.getScaleY(), kmlInfo.getScaleZ()});
+            journalTileInfo.setKmlProperties(kmlInfo.getProperties());
+        }
+        return journalTileInfo;
+    }
+
+    public TileInfo toTileInfo() {
+        TileInfo tileInfo = TileInfo.builder()
+                .serial(serial)
+                .name(name)
+                .scenePath(toPath(scenePath))
+                .outputPath(toPath(outputPath))
+                .tempPath(toPath(tempPath))
+                .triangleCount(triangleCount)
+                .memoryBytes(memoryBytes)
+                .isI3dm(i3dm)
+                .build();
+        if (transformMatrix != null) {
+            tileInfo.setTransformMatrix(new Matrix4d().set(transformMatrix));
+        }
+        if (boundingBox != null) {
+            GaiaBoundingBox gaiaBoundingBox = new GaiaBoundingBox();
+            gaiaBoundingBox.addPoint(boundingBox[0], boundingBox[1], boundingBox[2]);
+            gaiaBoundingBox.addPoint(boundingBox[3], boundingBox[4], boundingBox[5]);
+            tileInfo.setBoundingBox(gaiaBoundingBox);
+        }
+        if (kmlRotation != null) {
+            tileInfo.setKmlInfo(KmlInfo.builder()
+                    .name(kmlName)
+                    .position(kmlPosition != null ? new Vector3d(kmlPosition[0], kmlPosition[1], kmlPosition[2]) : null)
+                    .altitudeMode(kmlAltitudeMode)
+                    .heading(kmlRotation[0])
+                    .tilt(kmlRotation[1])
+                    .roll(kmlRotation[2])
+                    .href(kmlHref)
+                    .scaleX(kmlScale[0])
+                    .scaleY(kmlScale[1])
+                    .scaleZ(kmlScale[2])
+                    .properties(kmlProperties)
+                    .build());
+        }
+        return tileInfo;
+    }
+
+    private static String pathString(Path path) {
+        return path != null ? path.toString() : null;
+    }
+
+    private static Path toPath(String path) {
+        return path != null ? Path.of(path) : null;
+    }
+}
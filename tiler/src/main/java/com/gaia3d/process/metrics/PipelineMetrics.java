@@ -0,0 +1,174 @@
+package com.gaia3d.process.metrics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects the wall time, cpu time, allocated bytes, io and heap usage of the stages of a tiling run.
+ * The metrics are written as metrics.json next to tileset.json, the optional JFR recording as profile.jfr.
+ */
+@Slf4j
+@Getter
+public class PipelineMetrics {
+    private static final String METRICS_FILE_NAME = "metrics.json";
+    private static final String PROFILE_FILE_NAME = "profile.jfr";
+    private static final File IO_COUNTERS_FILE = new File("/proc/self/io");
+
+    private final String startTime = LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+    private final int availableProcessors = Runtime.getRuntime().availableProcessors();
+    private final int threadCount;
+    private final long maxHeapBytes = Runtime.getRuntime().maxMemory();
+    private long wallMillis = 0;
+    private long cpuMillis = 0;
+    private long allocatedBytes = 0;
+    private long bytesRead = 0;
+    private long bytesWritten = 0;
+    private long peakHeapBytes = 0;
+    private final List<StageMetrics> stages = new ArrayList<>();
+
+    @Getter(AccessLevel.NONE)
+    private final long startNanos = System.nanoTime();
+    @Getter(AccessLevel.NONE)
+    private final long startCpuNanos = getProcessCpuTime();
+    @Getter(AccessLevel.NONE)
+    private final long[] startIoCounters = readIoCounters();
+    @Getter(AccessLevel.NONE)
+    private Recording recording = null;
+
+    public PipelineMetrics(int threadCount) {
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * Starts a JFR recording with the profile settings, the stage and process events are included.
+     */
+    public void startRecording() {
+        try {
+            recording = new Recording(Configuration.getConfiguration("profile"));
+            recording.setName("mago-3d-tiler");
+            recording.enable(StageEvent.class);
+            recording.enable(ProcessEvent.class);
+            recording.start();
+            log.info("[Metrics] Started the JFR recording.");
+        } catch (IOException | ParseException e) {
+            log.error("[ERROR][Metrics] Failed to start the JFR recording.", e);
+            recording = null;
+        }
+    }
+
+    public StageMetrics startStage(String name) {
+        StageMetrics stage = new StageMetrics(name);
+        stages.add(stage);
+        stage.start();
+        return stage;
+    }
+
+    public void endStage(StageMetrics stage) {
+        stage.end();
+        log.info("[Metrics][{}] wall : {} ms, cpu : {} ms, allocated : {} MB, peak heap : {} MB", stage.getName(), stage.getWallMillis(), stage.getCpuMillis(), stage.getAllocatedBytes() / 1024 / 1024, stage.getPeakHeapBytes() / 1024 / 1024);
+    }
+
+    /**
+     * Writes metrics.json and the JFR recording into the output path.
+     */
+    public void write(File outputPath) {
+        long[] ioCounters = readIoCounters();
+        wallMillis = (System.nanoTime() - startNanos) / 1000000;
+        cpuMillis = (getProcessCpuTime() - startCpuNanos) / 1000000;
+        bytesRead = startIoCounters[0] < 0 ? -1 : ioCounters[0] - startIoCounters[0];
+        bytesWritten = startIoCounters[1] < 0 ? -1 : ioCounters[1] - startIoCounters[1];
+        allocatedBytes = stages.stream().mapToLong(StageMetrics::getAllocatedBytes).sum();
+        peakHeapBytes = stages.stream().mapToLong(StageMetrics::getPeakHeapBytes).max().orElse(getPeakHeap());
+
+        File metricsFile = new File(outputPath, METRICS_FILE_NAME);
+        try {
+            ObjectMapper objectMapper = new ObjectMapper();
+            objectMapper.writerWithDefaultPrettyPrinter().writeValue(metricsFile, this);
+            log.info("[Metrics][I/O] writing the metrics file: {}", metricsFile.getAbsolutePath());
+        } catch (IOException e) {
+            log.error("[ERROR][Metrics] Failed to write the metrics file: {}", metricsFile.getAbsolutePath(), e);
+        }
+
+        if (recording != null) {
+            Path profilePath = new File(outputPath, PROFILE_FILE_NAME).toPath();
+            try {
+                recording.stop();
+                recording.dump(profilePath);
+                log.info("[Metrics][I/O] writing the JFR recording: {}", profilePath.toAbsolutePath());
+            } catch (IOException e) {
+                log.error("[ERROR][Metrics] Failed to write the JFR recording: {}", profilePath.toAbsolutePath(), e);
+            } finally {
+                recording.close();
+                recording = null;
+            }
+        }
+    }
+
+    static long getProcessCpuTime() {
+        if (ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.OperatingSystemMXBean operatingSystemBean) {
+            return operatingSystemBean.getProcessCpuTime();
+        }
+        return 0;
+    }
+
+    /**
+     * The sum of the peak usages of the heap pools since the last reset, the pools peak at different times so it is an upper bound.
+     */
+    static long getPeakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    static void resetPeakHeap() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    /**
+     * Reads the characters read and written by the process from /proc/self/io.
+     * @return rchar and wchar, or -1 if the counters are not available
+     */
+    static long[] readIoCounters() {
+        long[] counters = new long[]{-1, -1};
+        if (!IO_COUNTERS_FILE.canRead()) {
+            return counters;
+        }
+        try {
+            for (String line : Files.readAllLines(IO_COUNTERS_FILE.toPath())) {
+                if (line.startsWith("rchar:")) {
+                    counters[0] = Long.parseLong(line.substring(6).trim());
+                } else if (line.startsWith("wchar:")) {
+                    counters[1] = Long.parseLong(line.substring(6).trim());
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            log.debug("[Metrics] Failed to read the io counters.", e);
+        }
+        return counters;
+    }
+}
@@ -0,0 +1,22 @@
+package com.gaia3d.process.metrics;
+
+import jdk.jfr.*;
+
+/**
+ * JFR event of a process class running on a tile or a content, committed on the worker thread.
+ */
+@Name("com.gaia3d.Process")
+@Label("Pipeline Process")
+@Category({"mago 3DTiler"})
+@StackTrace(false)
+class ProcessEvent extends Event {
+    @Label("Stage")
+    String stage;
+
+    @Label("Process")
+    String process;
+
+    @Label("Allocated")
+    @DataAmount
+    long allocatedBytes;
+}
@@ -0,0 +1,27 @@
+package com.gaia3d.process.metrics;
+
+import jdk.jfr.*;
+
+/**
+ * JFR event of a pipeline stage, it is only recorded while a recording is running.
+ */
+@Name("com.gaia3d.Stage")
+@Label("Pipeline Stage")
+@Category({"mago 3DTiler"})
+@StackTrace(false)
+class StageEvent extends Event {
+    @Label("Stage")
+    String stage;
+
+    @Label("Allocated")
+    @DataAmount
+    long allocatedBytes;
+
+    @Label("Read")
+    @DataAmount
+    long bytesRead;
+
+    @Label("Written")
+    @DataAmount
+    long bytesWritten;
+}
@@ -0,0 +1,144 @@
+package com.gaia3d.process.metrics;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Timings of a pipeline stage.
+ * The cpu time is the cpu time of the whole process, the allocated bytes are counted on the pipeline thread and on the tasks of the stage.
+ */
+@Getter
+public class StageMetrics {
+    private static final com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private final String name;
+    private long wallMillis = 0;
+    private long cpuMillis = 0;
+    private long allocatedBytes = 0;
+    private long bytesRead = 0;
+    private long bytesWritten = 0;
+    private long peakHeapBytes = 0;
+
+    @Getter(AccessLevel.NONE)
+    private final Map<String, TaskMetrics> processMap = new ConcurrentHashMap<>();
+    @Getter(AccessLevel.NONE)
+    private final Map<String, TaskMetrics> threadMap = new ConcurrentHashMap<>();
+    @Getter(AccessLevel.NONE)
+    private final AtomicLong taskAllocatedBytes = new AtomicLong(0);
+    @Getter(AccessLevel.NONE)
+    private final StageEvent event = new StageEvent();
+    @Getter(AccessLevel.NONE)
+    private long startNanos;
+    @Getter(AccessLevel.NONE)
+    private long startCpuNanos;
+    @Getter(AccessLevel.NONE)
+    private long startAllocatedBytes;
+    @Getter(AccessLevel.NONE)
+    private long[] startIoCounters;
+
+    StageMetrics(String name) {
+        this.name = name;
+    }
+
+    public List<TaskMetrics> getProcesses() {
+        List<TaskMetrics> processes = new ArrayList<>(processMap.values());
+        processes.sort(Comparator.comparing(TaskMetrics::getName));
+        return processes;
+    }
+
+    public List<TaskMetrics> getThreads() {
+        List<TaskMetrics> threads = new ArrayList<>(threadMap.values());
+        threads.sort(Comparator.comparing(TaskMetrics::getName));
+        return threads;
+    }
+
+    /**
+     * Runs a task of the stage on a worker thread and adds its timings to the thread.
+     */
+    public void runTask(Runnable task) {
+        long startNanos = System.nanoTime();
+        long startCpuNanos = threadBean.getCurrentThreadCpuTime();
+        long startAllocatedBytes = threadBean.getCurrentThreadAllocatedBytes();
+        try {
+            task.run();
+        } finally {
+            long allocatedBytes = threadBean.getCurrentThreadAllocatedBytes() - startAllocatedBytes;
+            taskAllocatedBytes.addAndGet(allocatedBytes);
+            String threadName = Thread.currentThread().getName();
+            threadMap.computeIfAbsent(threadName, TaskMetrics::new).add(System.nanoTime() - startNanos, threadBean.getCurrentThreadCpuTime() - startCpuNanos, allocatedBytes);
+        }
+    }
+
+    /**
+     * Runs a process class within a task and adds its timings to the process class.
+     */
+    public <T> T measure(String processName, Supplier<T> process) {
+        ProcessEvent processEvent = new ProcessEvent();
+        processEvent.begin();
+        long startNanos = System.nanoTime();
+        long startCpuNanos = threadBean.getCurrentThreadCpuTime();
+        long startAllocatedBytes = threadBean.getCurrentThreadAllocatedBytes();
+        try {
+            return process.get();
+        } finally {
+            long allocatedBytes = threadBean.getCurrentThreadAllocatedBytes() - startAllocatedBytes;
+            processMap.computeIfAbsent(processName, TaskMetrics::new).add(System.nanoTime() - startNanos, threadBean.getCurrentThreadCpuTime() - startCpuNanos, allocatedBytes);
+            processEvent.end();
+            if (processEvent.shouldCommit()) {
+                processEvent.stage = name;
+                processEvent.process = processName;
+                processEvent.allocatedBytes = allocatedBytes;
+                processEvent.commit();
+            }
+        }
+    }
+
+    public void measure(String processName, Runnable process) {
+        measure(processName, () -> {
+            process.run();
+            return null;
+        });
+    }
+
+    void start() {
+        PipelineMetrics.resetPeakHeap();
+        event.begin();
+        startNanos = System.nanoTime();
+        startCpuNanos = PipelineMetrics.getProcessCpuTime();
+        startAllocatedBytes = threadBean.getCurrentThreadAllocatedBytes();
+        startIoCounters = PipelineMetrics.readIoCounters();
+    }
+
+    void end() {
+        long wallNanos = System.nanoTime() - startNanos;
+        long[] ioCounters = PipelineMetrics.readIoCounters();
+        wallMillis = wallNanos / 1000000;
+        cpuMillis = (PipelineMetrics.getProcessCpuTime() - startCpuNanos) / 1000000;
+        allocatedBytes = threadBean.getCurrentThreadAllocatedBytes() - startAllocatedBytes + taskAllocatedBytes.get();
+        // -1 when the io counters of the process are not available
+        bytesRead = startIoCounters[0] < 0 ? -1 : ioCounters[0] - startIoCounters[0];
+        bytesWritten = startIoCounters[1] < 0 ? -1 : ioCounters[1] - startIoCounters[1];
+        peakHeapBytes = PipelineMetrics.getPeakHeap();
+        for (TaskMetrics thread : threadMap.values()) {
+            thread.setUtilization(wallNanos > 0 ? Math.round(thread.wallNanos() * 1000.0 / wallNanos) / 1000.0 : 0.0);
+        }
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.stage = name;
+            event.allocatedBytes = allocatedBytes;
+            event.bytesRead = bytesRead;
+            event.bytesWritten = bytesWritten;
+            event.commit();
+        }
+    }
+}
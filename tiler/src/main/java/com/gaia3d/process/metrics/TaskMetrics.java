@@ -0,0 +1,43 @@
+package com.gaia3d.process.metrics;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Accumulated timings of the tasks of a process class or of a worker thread within a stage.
+ */
+@Getter
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TaskMetrics {
+    private final String name;
+    private long count = 0;
+    private long wallMillis = 0;
+    private long cpuMillis = 0;
+    private long allocatedBytes = 0;
+    @Setter
+    private Double utilization = null; // busy time of a thread divided by the wall time of the stage
+
+    @Getter(AccessLevel.NONE)
+    private long wallNanos = 0;
+    @Getter(AccessLevel.NONE)
+    private long cpuNanos = 0;
+
+    public TaskMetrics(String name) {
+        this.name = name;
+    }
+
+    synchronized void add(long wallNanos, long cpuNanos, long allocatedBytes) {
+        this.count++;
+        this.wallNanos += wallNanos;
+        this.cpuNanos += cpuNanos;
+        this.allocatedBytes += allocatedBytes;
+        this.wallMillis = this.wallNanos / 1000000;
+        this.cpuMillis = this.cpuNanos / 1000000;
+    }
+
+    long wallNanos() {
+        return wallNanos;
+    }
+}
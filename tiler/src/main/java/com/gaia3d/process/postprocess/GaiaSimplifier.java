@@ -0,0 +1,200 @@
+package com.gaia3d.process.postprocess;
+
+import com.gaia3d.basic.exchangable.GaiaBuffer;
+import com.gaia3d.basic.exchangable.GaiaBufferDataSet;
+import com.gaia3d.basic.exchangable.GaiaSet;
+import com.gaia3d.basic.types.AttributeType;
+import com.gaia3d.command.mago.GlobalOptions;
+import com.gaia3d.process.tileprocess.tile.ContentInfo;
+import com.gaia3d.process.tileprocess.tile.LevelOfDetail;
+import com.gaia3d.process.tileprocess.tile.TileInfo;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Simplifies the meshes of the lower LOD contents within the geometric error of their LOD.
+ * The contents of LOD0 and the contents of an additive refinement are kept as they are.
+ */
+@Slf4j
+@NoArgsConstructor
+public class GaiaSimplifier implements PostProcess {
+    // the simplification error is a part of the LOD geometric error, the rest is left to the screen space error
+    private static final double ERROR_RATIO = 0.5d;
+
+    @Override
+    public ContentInfo run(ContentInfo contentInfo) {
+        LevelOfDetail lod = contentInfo.getLod();
+        if (lod == null || lod.getLevel() <= 0 || GlobalOptions.getInstance().isRefineAdd()) {
+            return contentInfo;
+        }
+        double targetError = lod.getGeometricError() * ERROR_RATIO;
+
+        int originalTriangles = 0;
+        int simplifiedTriangles = 0;
+        for (TileInfo tileInfo : contentInfo.getTileInfos()) {
+            GaiaSet set = tileInfo.getSet();
+            if (set == null || set.getBufferDataList() == null) {
+                continue;
+            }
+            for (GaiaBufferDataSet bufferDataSet : set.getBufferDataList()) {
+                GaiaBuffer indiceBuffer = bufferDataSet.getBuffers().get(AttributeType.INDICE);
+                GaiaBuffer positionBuffer = bufferDataSet.getBuffers().get(AttributeType.POSITION);
+                if (indiceBuffer == null || indiceBuffer.getInts() == null || positionBuffer == null || positionBuffer.getFloats() == null) {
+                    continue;
+                }
+                originalTriangles += indiceBuffer.getInts().length / 3;
+                simplify(bufferDataSet, targetError);
+                simplifiedTriangles += indiceBuffer.getInts().length / 3;
+            }
+        }
+        log.info("[Simplify][{}][LOD{}] triangles {} -> {}", contentInfo.getNodeCode(), lod.getLevel(), originalTriangles, simplifiedTriangles);
+        return contentInfo;
+    }
+
+    private void simplify(GaiaBufferDataSet bufferDataSet, double targetError) {
+        Map<AttributeType, GaiaBuffer> buffers = bufferDataSet.getBuffers();
+        GaiaBuffer indiceBuffer = buffers.get(AttributeType.INDICE);
+        int vertexCount = buffers.get(AttributeType.POSITION).getFloats().length / 3;
+        int[] indices = weldVertices(buffers, indiceBuffer.getInts(), vertexCount);
+        int[] simplified = MeshSimplifier.simplify(buffers.get(AttributeType.POSITION).getFloats(), indices, targetError);
+
+        // compact the vertices still referenced by the simplified triangles
+        int[] remap = new int[vertexCount];
+        Arrays.fill(remap, -1);
+        int usedCount = 0;
+        for (int i = 0; i < simplified.length; i++) {
+            int vertex = simplified[i];
+            if (remap[vertex] < 0) {
+                remap[vertex] = usedCount++;
+            }
+            simplified[i] = remap[vertex];
+        }
+        for (Map.Entry<AttributeType, GaiaBuffer> entry : buffers.entrySet()) {
+            if (entry.getKey() != AttributeType.INDICE) {
+                compactBuffer(entry.getValue(), remap, vertexCount, usedCount);
+            }
+        }
+        indiceBuffer.setInts(simplified);
+        indiceBuffer.setElementsCount(simplified.length);
+    }
+
+    /**
+     * Merges the vertices with the same attributes, the exported meshes often repeat them per face.
+     * @return the indices pointing to the first vertex of each group
+     */
+    private int[] weldVertices(Map<AttributeType, GaiaBuffer> buffers, int[] indices, int vertexCount) {
+        int[] firstVertices = new int[vertexCount];
+        Map<ByteBuffer, Integer> vertexMap = new HashMap<>(vertexCount * 2);
+        for (int vertex = 0; vertex < vertexCount; vertex++) {
+            Integer firstVertex = vertexMap.putIfAbsent(getVertexKey(buffers, vertex, vertexCount), vertex);
+            firstVertices[vertex] = firstVertex != null ? firstVertex : vertex;
+        }
+        int[] welded = new int[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            welded[i] = firstVertices[indices[i]];
+        }
+        return welded;
+    }
+
+    private ByteBuffer getVertexKey(Map<AttributeType, GaiaBuffer> buffers, int vertex, int vertexCount) {
+        int byteLength = 0;
+        for (Map.Entry<AttributeType, GaiaBuffer> entry : buffers.entrySet()) {
+            if (entry.getKey() != AttributeType.INDICE) {
+                byteLength += getStride(entry.getValue(), vertexCount) * getComponentBytes(entry.getValue());
+            }
+        }
+        ByteBuffer key = ByteBuffer.allocate(byteLength);
+        for (Map.Entry<AttributeType, GaiaBuffer> entry : buffers.entrySet()) {
+            if (entry.getKey() == AttributeType.INDICE) {
+                continue;
+            }
+            GaiaBuffer buffer = entry.getValue();
+            int stride = getStride(buffer, vertexCount);
+            for (int component = vertex * stride; component < (vertex + 1) * stride; component++) {
+                if (buffer.getFloats() != null) {
+                    key.putFloat(buffer.getFloats()[component]);
+                } else if (buffer.getInts() != null) {
+                    key.putInt(buffer.getInts()[component]);
+                } else if (buffer.getShorts() != null) {
+                    key.putShort(buffer.getShorts()[component]);
+                } else if (buffer.getBytes() != null) {
+                    key.put(buffer.getBytes()[component]);
+                }
+            }
+        }
+        key.flip();
+        return key;
+    }
+
+    private void compactBuffer(GaiaBuffer buffer, int[] remap, int vertexCount, int usedCount) {
+        int stride = getStride(buffer, vertexCount);
+        if (stride == 0) {
+            return;
+        }
+        if (buffer.getFloats() != null) {
+            float[] compacted = new float[usedCount * stride];
+            for (int vertex = 0; vertex < vertexCount; vertex++) {
+                if (remap[vertex] >= 0) {
+                    System.arraycopy(buffer.getFloats(), vertex * stride, compacted, remap[vertex] * stride, stride);
+                }
+            }
+            buffer.setFloats(compacted);
+        } else if (buffer.getInts() != null) {
+            int[] compacted = new int[usedCount * stride];
+            for (int vertex = 0; vertex < vertexCount; vertex++) {
+                if (remap[vertex] >= 0) {
+                    System.arraycopy(buffer.getInts(), vertex * stride, compacted, remap[vertex] * stride, stride);
+                }
+            }
+            buffer.setInts(compacted);
+        } else if (buffer.getShorts() != null) {
+            short[] compacted = new short[usedCount * stride];
+            for (int vertex = 0; vertex < vertexCount; vertex++) {
+                if (remap[vertex] >= 0) {
+                    System.arraycopy(buffer.getShorts(), vertex * stride, compacted, remap[vertex] * stride, stride);
+                }
+            }
+            buffer.setShorts(compacted);
+        } else if (buffer.getBytes() != null) {
+            byte[] compacted = new byte[usedCount * stride];
+            for (int vertex = 0; vertex < vertexCount; vertex++) {
+                if (remap[vertex] >= 0) {
+                    System.arraycopy(buffer.getBytes(), vertex * stride, compacted, remap[vertex] * stride, stride);
+                }
+            }
+            buffer.setBytes(compacted);
+        }
+        buffer.setElementsCount(usedCount);
+    }
+
+    /**
+     * @return the number of components of a vertex in the buffer
+     */
+    private int getStride(GaiaBuffer buffer, int vertexCount) {
+        int length = 0;
+        if (buffer.getFloats() != null) {
+            length = buffer.getFloats().length;
+        } else if (buffer.getInts() != null) {
+            length = buffer.getInts().length;
+        } else if (buffer.getShorts() != null) {
+            length = buffer.getShorts().length;
+        } else if (buffer.getBytes() != null) {
+            length = buffer.getBytes().length;
+        }
+        return vertexCount > 0 ? length / vertexCount : 0;
+    }
+
+    private int getComponentBytes(GaiaBuffer buffer) {
+        if (buffer.getFloats() != null || buffer.getInts() != null) {
+            return 4;
+        } else if (buffer.getShorts() != null) {
+            return 2;
+        }
+        return 1;
+    }
+}
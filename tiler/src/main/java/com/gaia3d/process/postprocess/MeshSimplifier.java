@@ -0,0 +1,513 @@
+package com.gaia3d.process.postprocess;
+
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+
+/**
+ * Simplifies an indexed triangle list with edge collapses ordered by the quadric error metric (Garland and Heckbert).
+ * A vertex collapses onto one of its neighbors, so the kept vertices and their attributes are never changed.
+ * The vertices sharing a position are the wedges of an attribute seam (uv, normal or color discontinuity).
+ * A seam vertex only moves along its seam together with its other wedge, an open border vertex only moves along the border,
+ * and the vertices where more seams or borders meet (the corners of the silhouette) are locked.
+ * The error of a position is the sum of the squared distances to the planes of its original triangles and border edges,
+ * a collapse is taken only while that sum stays below the squared target error.
+ */
+@Slf4j
+@NoArgsConstructor
+public class MeshSimplifier {
+    private static final byte MANIFOLD = 0;
+    private static final byte BORDER = 1;
+    private static final byte SEAM = 2;
+    private static final byte LOCKED = 3;
+    private static final int MAX_PASSES = 64;
+    private static final int QUADRIC_SIZE = 10;
+
+    /**
+     * @param positions the xyz positions of the vertices
+     * @param indices the triangle list
+     * @param targetError the maximum distance of the simplified surface to the original one
+     * @return the simplified triangle list with the indices of the kept vertices
+     */
+    public static int[] simplify(float[] positions, int[] indices, double targetError) {
+        int vertexCount = positions.length / 3;
+        int[] positionIds = new int[vertexCount];
+        int positionCount = createPositionIds(positions, positionIds);
+        double errorLimit = targetError * targetError;
+
+        int[] result = Arrays.copyOf(indices, indices.length - indices.length % 3);
+        double[] quadrics = new double[positionCount * QUADRIC_SIZE];
+        byte[] kinds = new byte[vertexCount];
+        int[] openOuts = new int[vertexCount];
+        int[] openIns = new int[vertexCount];
+        int[] partners = new int[vertexCount];
+
+        classifyVertices(result, positionIds, positionCount, kinds, openOuts, openIns, partners, quadrics, positions);
+        for (int pass = 0; pass < MAX_PASSES && result.length > 0; pass++) {
+            if (pass > 0) {
+                classifyVertices(result, positionIds, positionCount, kinds, openOuts, openIns, partners, null, positions);
+            }
+            int[] remap = collapseEdges(result, positions, positionIds, positionCount, kinds, openOuts, openIns, partners, quadrics, errorLimit);
+            if (remap == null) {
+                break;
+            }
+            result = remapTriangles(result, remap);
+        }
+        return result;
+    }
+
+    /**
+     * Classifies the vertices of the current triangles, and adds the face and border planes to the quadrics when they are given.
+     */
+    private static void classifyVertices(int[] indices, int[] positionIds, int positionCount, byte[] kinds, int[] openOuts, int[] openIns, int[] partners, double[] quadrics, float[] positions) {
+        int vertexCount = positionIds.length;
+        EdgeCounter edges = new EdgeCounter(indices.length);
+        EdgeCounter positionEdges = new EdgeCounter(indices.length);
+        for (int i = 0; i < indices.length; i++) {
+            int a = indices[i];
+            int b = indices[nextCorner(i)];
+            edges.add(a, b);
+            positionEdges.add(positionIds[a], positionIds[b]);
+        }
+
+        // the used wedges of each position
+        int[] firstWedges = new int[positionCount];
+        int[] secondWedges = new int[positionCount];
+        int[] wedgeCounts = new int[positionCount];
+        Arrays.fill(firstWedges, -1);
+        Arrays.fill(secondWedges, -1);
+        boolean[] used = new boolean[vertexCount];
+        for (int index : indices) {
+            if (!used[index]) {
+                used[index] = true;
+                int positionId = positionIds[index];
+                if (wedgeCounts[positionId] == 0) {
+                    firstWedges[positionId] = index;
+                } else if (wedgeCounts[positionId] == 1) {
+                    secondWedges[positionId] = index;
+                }
+                wedgeCounts[positionId]++;
+            }
+        }
+
+        int[] openOutCounts = new int[vertexCount];
+        int[] openInCounts = new int[vertexCount];
+        int[] seamEdgeCounts = new int[vertexCount];
+        boolean[] locked = new boolean[vertexCount];
+        Arrays.fill(openOuts, -1);
+        Arrays.fill(openIns, -1);
+        for (int i = 0; i < indices.length; i++) {
+            int a = indices[i];
+            int b = indices[nextCorner(i)];
+            if (edges.get(a, b) > 1 || positionEdges.get(positionIds[a], positionIds[b]) > 1) {
+                // non-manifold edge
+                locked[a] = true;
+                locked[b] = true;
+            }
+            if (edges.get(b, a) > 0) {
+                continue;
+            }
+            openOuts[a] = b;
+            openOutCounts[a]++;
+            openIns[b] = a;
+            openInCounts[b]++;
+            if (positionEdges.get(positionIds[b], positionIds[a]) > 0) {
+                // the other side of the edge uses other wedges
+                seamEdgeCounts[a]++;
+                seamEdgeCounts[b]++;
+            } else if (quadrics != null) {
+                addBorderQuadric(quadrics, positions, positionIds, indices, i);
+            }
+        }
+
+        if (quadrics != null) {
+            for (int i = 0; i < indices.length; i += 3) {
+                addFaceQuadric(quadrics, positions, positionIds, indices[i], indices[i + 1], indices[i + 2]);
+            }
+        }
+
+        for (int vertex = 0; vertex < vertexCount; vertex++) {
+            partners[vertex] = -1;
+            int positionId = positionIds[vertex];
+            boolean hasOneOpenLoop = openOutCounts[vertex] == 1 && openInCounts[vertex] == 1;
+            boolean hasOpenEdges = openOutCounts[vertex] > 0 || openInCounts[vertex] > 0;
+            if (!used[vertex] || locked[vertex]) {
+                kinds[vertex] = LOCKED;
+            } else if (wedgeCounts[positionId] == 1) {
+                if (!hasOpenEdges) {
+                    kinds[vertex] = MANIFOLD;
+                } else if (hasOneOpenLoop && seamEdgeCounts[vertex] == 0) {
+                    kinds[vertex] = BORDER;
+                } else {
+                    kinds[vertex] = LOCKED;
+                }
+            } else if (wedgeCounts[positionId] == 2) {
+                int partner = firstWedges[positionId] == vertex ? secondWedges[positionId] : firstWedges[positionId];
+                boolean isPairedSeam = hasOneOpenLoop && seamEdgeCounts[vertex] == 2
+                        && openOutCounts[partner] == 1 && openInCounts[partner] == 1 && seamEdgeCounts[partner] == 2
+                        && !locked[partner]
+                        && positionIds[openOuts[vertex]] == positionIds[openIns[partner]]
+                        && positionIds[openIns[vertex]] == positionIds[openOuts[partner]];
+                if (isPairedSeam) {
+                    kinds[vertex] = SEAM;
+                    partners[vertex] = partner;
+                } else {
+                    kinds[vertex] = LOCKED;
+                }
+            } else {
+                kinds[vertex] = LOCKED;
+            }
+        }
+        for (int vertex = 0; vertex < vertexCount; vertex++) {
+            if (kinds[vertex] == SEAM && kinds[partners[vertex]] != SEAM) {
+                kinds[vertex] = LOCKED;
+            }
+        }
+    }
+
+    /**
+     * Collapses the edges with the smallest errors, each position is changed once per pass.
+     * @return the collapse target of each vertex or null when no edge could be collapsed
+     */
+    private static int[] collapseEdges(int[] indices, float[] positions, int[] positionIds, int positionCount, byte[] kinds, int[] openOuts, int[] openIns, int[] partners, double[] quadrics, double errorLimit) {
+        int vertexCount = positionIds.length;
+
+        // triangles around each position, the wedges of a seam share their triangle fans
+        int[] triangleOffsets = new int[positionCount + 1];
+        for (int index : indices) {
+            triangleOffsets[positionIds[index] + 1]++;
+        }
+        for (int positionId = 0; positionId < positionCount; positionId++) {
+            triangleOffsets[positionId + 1] += triangleOffsets[positionId];
+        }
+        int[] positionTriangles = new int[indices.length];
+        int[] cursor = Arrays.copyOf(triangleOffsets, positionCount);
+        for (int i = 0; i < indices.length; i++) {
+            positionTriangles[cursor[positionIds[indices[i]]]++] = i / 3;
+        }
+
+        // candidate collapses of the triangle edges, in both directions for the open edges
+        int[] sources = new int[indices.length * 2];
+        int[] targets = new int[indices.length * 2];
+        long[] sortKeys = new long[indices.length * 2];
+        int candidateCount = 0;
+        for (int i = 0; i < indices.length; i++) {
+            int a = indices[i];
+            int b = indices[nextCorner(i)];
+            for (int direction = 0; direction < 2; direction++) {
+                int source = direction == 0 ? a : b;
+                int target = direction == 0 ? b : a;
+                if (direction == 1 && openIns[b] != a) {
+                    // the interior edges are also listed by the opposite triangle
+                    continue;
+                }
+                if (!canCollapse(source, target, kinds, openOuts, openIns) || positionIds[source] == positionIds[target]) {
+                    continue;
+                }
+                double error = getCollapseError(quadrics, positions, positionIds[source], positionIds[target], target);
+                if (error > errorLimit) {
+                    continue;
+                }
+                sources[candidateCount] = source;
+                targets[candidateCount] = target;
+                sortKeys[candidateCount] = ((long) Float.floatToIntBits((float) error) << 32) | candidateCount;
+                candidateCount++;
+            }
+        }
+        if (candidateCount == 0) {
+            return null;
+        }
+        Arrays.sort(sortKeys, 0, candidateCount);
+
+        int[] remap = new int[vertexCount];
+        for (int vertex = 0; vertex < vertexCount; vertex++) {
+            remap[vertex] = vertex;
+        }
+        boolean[] touched = new boolean[positionCount];
+        int[] marks = new int[positionCount];
+        int collapseCount = 0;
+        for (int k = 0; k < candidateCount; k++) {
+            int candidate = (int) sortKeys[k];
+            int source = sources[candidate];
+            int target = targets[candidate];
+            int sourcePositionId = positionIds[source];
+            int targetPositionId = positionIds[target];
+            if (touched[sourcePositionId] || touched[targetPositionId]) {
+                continue;
+            }
+            if (!hasManifoldLink(indices, positionIds, triangleOffsets, positionTriangles, sourcePositionId, targetPositionId, marks, k + 1)) {
+                continue;
+            }
+            if (flipsTriangles(indices, positions, positionIds, triangleOffsets, positionTriangles, sourcePositionId, target)) {
+                continue;
+            }
+
+            remap[source] = target;
+            int partner = kinds[source] == SEAM ? partners[source] : -1;
+            if (partner >= 0) {
+                remap[partner] = target == openOuts[source] ? openIns[partner] : openOuts[partner];
+            }
+            for (int q = 0; q < QUADRIC_SIZE; q++) {
+                quadrics[targetPositionId * QUADRIC_SIZE + q] += quadrics[sourcePositionId * QUADRIC_SIZE + q];
+            }
+            touched[targetPositionId] = true;
+            for (int t = triangleOffsets[sourcePositionId]; t < triangleOffsets[sourcePositionId + 1]; t++) {
+                int offset = positionTriangles[t] * 3;
+                touched[positionIds[indices[offset]]] = true;
+                touched[positionIds[indices[offset + 1]]] = true;
+                touched[positionIds[indices[offset + 2]]] = true;
+            }
+            collapseCount++;
+        }
+        return collapseCount > 0 ? remap : null;
+    }
+
+    private static boolean canCollapse(int source, int target, byte[] kinds, int[] openOuts, int[] openIns) {
+        byte kind = kinds[source];
+        if (kind == MANIFOLD) {
+            return true;
+        } else if (kind == BORDER || kind == SEAM) {
+            return target == openOuts[source] || target == openIns[source];
+        }
+        return false;
+    }
+
+    /**
+     * Link condition of the edge collapse, the source and target may only share the opposite vertices of the edge triangles.
+     * Otherwise the collapse pinches the surface into non-manifold edges.
+     */
+    private static boolean hasManifoldLink(int[] indices, int[] positionIds, int[] triangleOffsets, int[] positionTriangles, int sourcePositionId, int targetPositionId, int[] marks, int stamp) {
+        int edgeTriangleCount = 0;
+        for (int t = triangleOffsets[sourcePositionId]; t < triangleOffsets[sourcePositionId + 1]; t++) {
+            int offset = positionTriangles[t] * 3;
+            boolean hasTarget = false;
+            for (int corner = 0; corner < 3; corner++) {
+                int positionId = positionIds[indices[offset + corner]];
+                if (positionId == targetPositionId) {
+                    hasTarget = true;
+                } else if (positionId != sourcePositionId) {
+                    marks[positionId] = stamp;
+                }
+            }
+            if (hasTarget) {
+                edgeTriangleCount++;
+            }
+        }
+        int commonCount = 0;
+        for (int t = triangleOffsets[targetPositionId]; t < triangleOffsets[targetPositionId + 1]; t++) {
+            int offset = positionTriangles[t] * 3;
+            for (int corner = 0; corner < 3; corner++) {
+                int positionId = positionIds[indices[offset + corner]];
+                if (marks[positionId] == stamp) {
+                    marks[positionId] = 0;
+                    commonCount++;
+                }
+            }
+        }
+        return commonCount == edgeTriangleCount;
+    }
+
+    /**
+     * Checks the triangles around the source position whether they turn over when it moves to the target.
+     */
+    private static boolean flipsTriangles(int[] indices, float[] positions, int[] positionIds, int[] triangleOffsets, int[] positionTriangles, int sourcePositionId, int target) {
+        int targetPositionId = positionIds[target];
+        for (int t = triangleOffsets[sourcePositionId]; t < triangleOffsets[sourcePositionId + 1]; t++) {
+            int offset = positionTriangles[t] * 3;
+            int a = indices[offset];
+            int b = indices[offset + 1];
+            int c = indices[offset + 2];
+            if (positionIds[a] == targetPositionId || positionIds[b] == targetPositionId || positionIds[c] == targetPositionId) {
+                continue;
+            }
+            double[] before = getNormal(positions, a, b, c);
+            double[] after = getNormal(positions,
+                    positionIds[a] == sourcePositionId ? target : a,
+                    positionIds[b] == sourcePositionId ? target : b,
+                    positionIds[c] == sourcePositionId ? target : c);
+            double dot = before[0] * after[0] + before[1] * after[1] + before[2] * after[2];
+            if (dot <= 0.0d) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int[] remapTriangles(int[] indices, int[] remap) {
+        int[] result = new int[indices.length];
+        int count = 0;
+        for (int i = 0; i < indices.length; i += 3) {
+            int a = remap[indices[i]];
+            int b = remap[indices[i + 1]];
+            int c = remap[indices[i + 2]];
+            if (a != b && b != c && c != a) {
+                result[count++] = a;
+                result[count++] = b;
+                result[count++] = c;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Numbers the distinct positions, the vertices with bitwise equal positions get the same id.
+     * @return the number of distinct positions
+     */
+    private static int createPositionIds(float[] positions, int[] positionIds) {
+        int vertexCount = positionIds.length;
+        int capacity = Integer.highestOneBit(Math.max(vertexCount, 1)) << 2;
+        int mask = capacity - 1;
+        int[] table = new int[capacity];
+        Arrays.fill(table, -1);
+        int positionCount = 0;
+        for (int vertex = 0; vertex < vertexCount; vertex++) {
+            int x = Float.floatToIntBits(positions[vertex * 3]);
+            int y = Float.floatToIntBits(positions[vertex * 3 + 1]);
+            int z = Float.floatToIntBits(positions[vertex * 3 + 2]);
+            int hash = (x * 73856093) ^ (y * 19349663) ^ (z * 83492791);
+            int slot = (hash ^ (hash >>> 16)) & mask;
+            while (true) {
+                int other = table[slot];
+                if (other < 0) {
+                    table[slot] = vertex;
+                    positionIds[vertex] = positionCount++;
+                    break;
+                }
+                if (Float.floatToIntBits(positions[other * 3]) == x && Float.floatToIntBits(positions[other * 3 + 1]) == y && Float.floatToIntBits(positions[other * 3 + 2]) == z) {
+                    positionIds[vertex] = positionIds[other];
+                    break;
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+        return positionCount;
+    }
+
+    private static void addFaceQuadric(double[] quadrics, float[] positions, int[] positionIds, int a, int b, int c) {
+        double[] normal = getNormal(positions, a, b, c);
+        double length = Math.sqrt(normal[0] * normal[0] + normal[1] * normal[1] + normal[2] * normal[2]);
+        if (length <= 0.0d) {
+            return;
+        }
+        double nx = normal[0] / length;
+        double ny = normal[1] / length;
+        double nz = normal[2] / length;
+        double d = -(nx * positions[a * 3] + ny * positions[a * 3 + 1] + nz * positions[a * 3 + 2]);
+        addPlane(quadrics, positionIds[a], nx, ny, nz, d);
+        addPlane(quadrics, positionIds[b], nx, ny, nz, d);
+        addPlane(quadrics, positionIds[c], nx, ny, nz, d);
+    }
+
+    /**
+     * Adds the plane through the open edge perpendicular to its triangle, it keeps the border in place.
+     */
+    private static void addBorderQuadric(double[] quadrics, float[] positions, int[] positionIds, int[] indices, int corner) {
+        int triangle = corner - corner % 3;
+        int a = indices[corner];
+        int b = indices[nextCorner(corner)];
+        double[] normal = getNormal(positions, indices[triangle], indices[triangle + 1], indices[triangle + 2]);
+        double ex = positions[b * 3] - positions[a * 3];
+        double ey = positions[b * 3 + 1] - positions[a * 3 + 1];
+        double ez = positions[b * 3 + 2] - positions[a * 3 + 2];
+        double px = ey * normal[2] - ez * normal[1];
+        double py = ez * normal[0] - ex * normal[2];
+        double pz = ex * normal[1] - ey * normal[0];
+        double length = Math.sqrt(px * px + py * py + pz * pz);
+        if (length <= 0.0d) {
+            return;
+        }
+        px /= length;
+        py /= length;
+        pz /= length;
+        double d = -(px * positions[a * 3] + py * positions[a * 3 + 1] + pz * positions[a * 3 + 2]);
+        addPlane(quadrics, positionIds[a], px, py, pz, d);
+        addPlane(quadrics, positionIds[b], px, py, pz, d);
+    }
+
+    private static void addPlane(double[] quadrics, int positionId, double a, double b, double c, double d) {
+        int offset = positionId * QUADRIC_SIZE;
+        quadrics[offset] += a * a;
+        quadrics[offset + 1] += a * b;
+        quadrics[offset + 2] += a * c;
+        quadrics[offset + 3] += a * d;
+        quadrics[offset + 4] += b * b;
+        quadrics[offset + 5] += b * c;
+        quadrics[offset + 6] += b * d;
+        quadrics[offset + 7] += c * c;
+        quadrics[offset + 8] += c * d;
+        quadrics[offset + 9] += d * d;
+    }
+
+    /**
+     * Sum of the squared distances of the target position to the planes of both positions.
+     */
+    private static double getCollapseError(double[] quadrics, float[] positions, int sourcePositionId, int targetPositionId, int target) {
+        double x = positions[target * 3];
+        double y = positions[target * 3 + 1];
+        double z = positions[target * 3 + 2];
+        double error = 0.0d;
+        for (int positionId : new int[]{sourcePositionId, targetPositionId}) {
+            int o = positionId * QUADRIC_SIZE;
+            error += quadrics[o] * x * x + 2 * quadrics[o + 1] * x * y + 2 * quadrics[o + 2] * x * z + 2 * quadrics[o + 3] * x
+                    + quadrics[o + 4] * y * y + 2 * quadrics[o + 5] * y * z + 2 * quadrics[o + 6] * y
+                    + quadrics[o + 7] * z * z + 2 * quadrics[o + 8] * z
+                    + quadrics[o + 9];
+        }
+        return Math.max(error, 0.0d);
+    }
+
+    private static double[] getNormal(float[] positions, int a, int b, int c) {
+        double abx = positions[b * 3] - positions[a * 3];
+        double aby = positions[b * 3 + 1] - positions[a * 3 + 1];
+        double abz = positions[b * 3 + 2] - positions[a * 3 + 2];
+        double acx = positions[c * 3] - positions[a * 3];
+        double acy = positions[c * 3 + 1] - positions[a * 3 + 1];
+        double acz = positions[c * 3 + 2] - positions[a * 3 + 2];
+        return new double[]{aby * acz - abz * acy, abz * acx - abx * acz, abx * acy - aby * acx};
+    }
+
+    private static int nextCorner(int corner) {
+        return corner % 3 == 2 ? corner - 2 : corner + 1;
+    }
+
+    /**
+     * Counts the directed edges in an open addressing table of primitive keys.
+     */
+    private static class EdgeCounter {
+        private final long[] keys;
+        private final int[] counts;
+        private final int mask;
+
+        EdgeCounter(int edgeCount) {
+            int capacity = Integer.highestOneBit(Math.max(edgeCount, 1)) << 2;
+            this.keys = new long[capacity];
+            this.counts = new int[capacity];
+            this.mask = capacity - 1;
+        }
+
+        void add(int a, int b) {
+            int slot = findSlot(a, b);
+            keys[slot] = getKey(a, b);
+            counts[slot]++;
+        }
+
+        int get(int a, int b) {
+            return counts[findSlot(a, b)];
+        }
+
+        private int findSlot(int a, int b) {
+            long key = getKey(a, b);
+            long hash = key * 0x9E3779B97F4A7C15L;
+            int slot = (int) (hash >>> 32) & mask;
+            while (counts[slot] > 0 && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private static long getKey(int a, int b) {
+            return ((long) a << 32) | (b & 0xFFFFFFFFL);
+        }
+    }
+}
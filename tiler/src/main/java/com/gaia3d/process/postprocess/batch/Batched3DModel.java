@@ -127,57 +127,38 @@ public class Batched3DModel implements TileModel {
         scene = null;
 
         /* BatchTable */
-        GaiaBatchTableMap<String, List<String>> batchTableMap = new GaiaBatchTableMap<>();
+        GaiaBinaryBatchTable batchTable = new GaiaBinaryBatchTable(batchLength);
         AtomicInteger batchIdIndex = new AtomicInteger(0);
         tileInfos.forEach((tileInfo) -> {
             GaiaAttribute attribute = tileInfo.getScene().getAttribute();
             Map<String, String> attributes = attribute.getAttributes();
-            GaiaSet set = tileInfo.getSet();
+            int batchId = batchIdIndex.getAndIncrement();
 
-            String UUID = attribute.getIdentifier().toString();
-            String FileName = attribute.getFileName();
-            String NodeName = attribute.getNodeName();
-
-            UUID = StringUtils.convertUTF8(UUID);
-            FileName = StringUtils.convertUTF8(FileName);
-            NodeName = StringUtils.convertUTF8(NodeName);
-
-            batchTableMap.computeIfAbsent("UUID", k -> new ArrayList<>());
-
-            batchTableMap.get("UUID").add(UUID);
-
-            batchTableMap.computeIfAbsent("FileName", k -> new ArrayList<>());
-            batchTableMap.get("FileName").add(FileName);
-
-            batchTableMap.computeIfAbsent("NodeName", k -> new ArrayList<>());
-            batchTableMap.get("NodeName").add(NodeName);
-
-            batchTableMap.computeIfAbsent("BatchId", k -> new ArrayList<>());
-            batchTableMap.get("BatchId").add(String.valueOf(batchIdIndex.getAndIncrement()));
-
-            attributes.forEach((key, value) -> {
-                String utf8Value = StringUtils.convertUTF8(value);
-                batchTableMap.computeIfAbsent(key, k -> new ArrayList<>());
-                batchTableMap.get(key).add(utf8Value);
-            });
+            batchTable.put("UUID", batchId, attribute.getIdentifier().toString());
+            batchTable.put("FileName", batchId, attribute.getFileName());
+            batchTable.put("NodeName", batchId, attribute.getNodeName());
+            batchTable.put("BatchId", batchId, String.valueOf(batchId));
+            attributes.forEach((key, value) -> batchTable.put(key, batchId, value));
         });
 
         ObjectMapper objectMapper = new ObjectMapper();
         objectMapper.getFactory().configure(JsonWriteFeature.ESCAPE_NON_ASCII.mappedFeature(), true);
         try {
-            String featureTableText = StringUtils.doPadding8Bytes(objectMapper.writeValueAsString(featureTable));
+            // the feature table json ends on an 8 byte boundary of the file, so the binary bodies and the glb are aligned
+            String featureTableText = StringUtils.doPadding8Bytes(objectMapper.writeValueAsString(featureTable), 28);
             featureTableJson = featureTableText;
             featureTableJSONByteLength = featureTableText.length();
 
-            String batchTableText = StringUtils.doPadding8Bytes(objectMapper.writeValueAsString(batchTableMap));
-            batchTableJson = batchTableText;
-            batchTableJSONByteLength = batchTableText.length();
+            batchTable.build(objectMapper);
+            batchTableJson = batchTable.getJson();
+            batchTableJSONByteLength = batchTableJson.length();
         } catch (JsonProcessingException e) {
             log.error("[ERROR] :", e);
             throw new RuntimeException(e);
         }
+        byte[] batchTableBinary = batchTable.getBinary();
 
-        int byteLength = 28 + featureTableJSONByteLength + batchTableJSONByteLength + glbBytes.length;
+        int byteLength = 28 + featureTableJSONByteLength + batchTableJSONByteLength + batchTableBinary.length + glbBytes.length;
 
         File b3dmOutputFile = outputRoot.resolve(nodeCode + "." + MAGIC).toFile();
         try (LittleEndianDataOutputStream stream = new LittleEndianDataOutputStream(new BufferedOutputStream(new FileOutputStream(b3dmOutputFile)))) {
@@ -190,10 +171,10 @@ public class Batched3DModel implements TileModel {
             stream.writeInt(featureTableBinaryByteLength);
             // 28-byte header (next 8 bytes)
             stream.writeInt(batchTableJSONByteLength);
-            int batchTableBinaryByteLength = 0;
-            stream.writeInt(batchTableBinaryByteLength);
+            stream.writeInt(batchTableBinary.length);
             stream.writePureText(featureTableJson);
             stream.writePureText(batchTableJson);
+            stream.write(batchTableBinary);
             // body
             stream.write(glbBytes);
             glbBytes = null;
@@ -0,0 +1,97 @@
+package com.gaia3d.process.postprocess.batch;
+
+import com.gaia3d.basic.exchangable.GaiaSet;
+import com.gaia3d.basic.model.GaiaAttribute;
+import com.gaia3d.basic.model.GaiaNode;
+import com.gaia3d.basic.model.GaiaScene;
+import com.gaia3d.basic.types.FormatType;
+import com.gaia3d.command.mago.GlobalOptions;
+import com.gaia3d.converter.jgltf.GltfPropertyTable;
+import com.gaia3d.converter.jgltf.GltfWriter;
+import com.gaia3d.process.postprocess.TileModel;
+import com.gaia3d.process.tileprocess.tile.ContentInfo;
+import com.gaia3d.process.tileprocess.tile.TileInfo;
+import lombok.extern.slf4j.Slf4j;
+import org.joml.Matrix3d;
+import org.joml.Matrix4d;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Writes the batched contents as glb of 3D Tiles 1.1.
+ * The batch ids of the vertices are the EXT_mesh_features feature ids,
+ * the attributes are the EXT_structural_metadata property table in the binary chunk instead of the b3dm batch table.
+ */
+@Slf4j
+public class BatchedGltfModel implements TileModel {
+    private final GltfWriter gltfWriter;
+
+    public BatchedGltfModel() {
+        this.gltfWriter = new GltfWriter();
+    }
+
+    @Override
+    public ContentInfo run(ContentInfo contentInfo) {
+        GlobalOptions globalOptions = GlobalOptions.getInstance();
+
+        GaiaBatcher gaiaBatcher = new GaiaBatcher();
+        GaiaSet batchedSet = gaiaBatcher.runBatching(contentInfo.getTileInfos(), contentInfo.getNodeCode(), contentInfo.getLod());
+        if (batchedSet == null) {
+            log.error("[ERROR] BatchedSet is null, return null.");
+            return contentInfo;
+        }
+        GaiaScene scene = new GaiaScene(batchedSet);
+        String nodeCode = contentInfo.getNodeCode();
+        List<TileInfo> tileInfos = contentInfo.getTileInfos();
+
+        double[] rtcCenter = null;
+        if (!globalOptions.isClassicTransformMatrix()) {
+            /* relative to center */
+            Matrix4d worldTransformMatrix = contentInfo.getTransformMatrix();
+            Matrix3d rotationMatrix3d = worldTransformMatrix.get3x3(new Matrix3d());
+            Matrix3d xRotationMatrix3d = new Matrix3d();
+            xRotationMatrix3d.identity();
+            xRotationMatrix3d.rotateX(Math.toRadians(-90));
+            xRotationMatrix3d.mul(rotationMatrix3d, rotationMatrix3d);
+            Matrix4d rotationMatrix4d = new Matrix4d(rotationMatrix3d);
+
+            GaiaNode rootNode = scene.getNodes().get(0); // z-up
+            Matrix4d sceneTransformMatrix = rootNode.getTransformMatrix();
+            rotationMatrix4d.mul(sceneTransformMatrix, sceneTransformMatrix);
+
+            rtcCenter = new double[3];
+            rtcCenter[0] = worldTransformMatrix.m30();
+            rtcCenter[1] = worldTransformMatrix.m31();
+            rtcCenter[2] = worldTransformMatrix.m32();
+        }
+
+        /* PropertyTable */
+        GltfPropertyTable propertyTable = new GltfPropertyTable(tileInfos.size());
+        AtomicInteger featureIdIndex = new AtomicInteger(0);
+        tileInfos.forEach((tileInfo) -> {
+            GaiaAttribute attribute = tileInfo.getScene().getAttribute();
+            Map<String, String> attributes = attribute.getAttributes();
+            int featureId = featureIdIndex.getAndIncrement();
+
+            propertyTable.put("UUID", featureId, attribute.getIdentifier().toString());
+            propertyTable.put("FileName", featureId, attribute.getFileName());
+            propertyTable.put("NodeName", featureId, attribute.getNodeName());
+            propertyTable.put("BatchId", featureId, String.valueOf(featureId));
+            attributes.forEach((key, value) -> propertyTable.put(key, featureId, value));
+        });
+
+        File outputFile = new File(globalOptions.getOutputPath());
+        Path outputRoot = outputFile.toPath().resolve("data");
+        if (!outputRoot.toFile().exists() && outputRoot.toFile().mkdir()) {
+            log.info("[Create][data] Created output data directory:", outputRoot);
+        }
+
+        File glbOutputFile = outputRoot.resolve(nodeCode + "." + FormatType.GLB.getExtension()).toFile();
+        this.gltfWriter.writeGlb(scene, glbOutputFile, propertyTable, rtcCenter);
+        return contentInfo;
+    }
+}
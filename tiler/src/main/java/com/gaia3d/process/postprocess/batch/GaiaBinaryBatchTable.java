@@ -0,0 +1,77 @@
+package com.gaia3d.process.postprocess.batch;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gaia3d.basic.types.PropertyComponentType;
+import com.gaia3d.util.StringUtils;
+import lombok.Getter;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.*;
+
+/**
+ * Batch table with typed columns.
+ * A column whose values are all numbers is written to the batch table binary body
+ * with the narrowest componentType that holds every value, the other columns stay json string arrays.
+ * Values are collected per batch id, so features without an attribute keep the columns aligned.
+ */
+public class GaiaBinaryBatchTable {
+    private final int batchLength;
+    private final Map<String, String[]> columns = new LinkedHashMap<>();
+
+    @Getter
+    private String json;
+    @Getter
+    private byte[] binary;
+
+    public GaiaBinaryBatchTable(int batchLength) {
+        this.batchLength = batchLength;
+    }
+
+    public void put(String key, int batchId, String value) {
+        columns.computeIfAbsent(key, k -> new String[batchLength])[batchId] = value;
+    }
+
+    /**
+     * Builds the batch table json and binary body, both padded to 8 bytes.
+     */
+    public void build(ObjectMapper objectMapper) throws JsonProcessingException {
+        Map<String, Object> batchTable = new LinkedHashMap<>();
+        Map<String, PropertyComponentType> componentTypes = new LinkedHashMap<>();
+        int binaryByteLength = 0;
+        for (Map.Entry<String, String[]> column : columns.entrySet()) {
+            PropertyComponentType componentType = PropertyComponentType.find(column.getValue());
+            if (componentType == null) {
+                List<String> values = new ArrayList<>(batchLength);
+                for (String value : column.getValue()) {
+                    values.add(StringUtils.convertUTF8(value));
+                }
+                batchTable.put(column.getKey(), values);
+            } else {
+                Map<String, Object> reference = new LinkedHashMap<>();
+                reference.put("byteOffset", binaryByteLength);
+                reference.put("componentType", componentType.getBatchTableName());
+                reference.put("type", "SCALAR");
+                batchTable.put(column.getKey(), reference);
+                componentTypes.put(column.getKey(), componentType);
+                binaryByteLength = padMultiple8(binaryByteLength + componentType.getByteSize() * batchLength);
+            }
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(binaryByteLength).order(ByteOrder.LITTLE_ENDIAN);
+        for (Map.Entry<String, PropertyComponentType> column : componentTypes.entrySet()) {
+            PropertyComponentType componentType = column.getValue();
+            for (String value : columns.get(column.getKey())) {
+                componentType.put(buffer, value);
+            }
+            buffer.position(padMultiple8(buffer.position()));
+        }
+        this.binary = buffer.array();
+        this.json = StringUtils.doPadding8Bytes(objectMapper.writeValueAsString(batchTable));
+    }
+
+    private static int padMultiple8(int length) {
+        return (length + 7) & ~7;
+    }
+}
@@ -12,8 +12,8 @@ import com.gaia3d.command.mago.GlobalOptions;
 import com.gaia3d.converter.jgltf.GltfWriter;
 import com.gaia3d.converter.kml.KmlInfo;
 import com.gaia3d.process.postprocess.TileModel;
-import com.gaia3d.process.postprocess.batch.GaiaBatchTableMap;
 import com.gaia3d.process.postprocess.batch.GaiaBatcher;
+import com.gaia3d.process.postprocess.batch.GaiaBinaryBatchTable;
 import com.gaia3d.process.postprocess.pointcloud.Position;
 import com.gaia3d.process.tileprocess.tile.ContentInfo;
 import com.gaia3d.process.tileprocess.tile.TileInfo;
@@ -22,7 +22,6 @@ import com.gaia3d.util.GlobeUtils;
 import com.gaia3d.util.StringUtils;
 import com.gaia3d.io.LittleEndianDataOutputStream;
 import lombok.extern.slf4j.Slf4j;
-import org.joml.Matrix3d;
 import org.joml.Matrix4d;
 import org.joml.Vector3d;
 
@@ -33,6 +32,7 @@ import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 @Slf4j
@@ -40,6 +40,7 @@ public class Instanced3DModel implements TileModel {
     private static final String MAGIC = "i3dm";
     private static final int VERSION = 1;
     private final GltfWriter gltfWriter;
+    private final Map<String, File> instanceFiles = new ConcurrentHashMap<>();
 
     public Instanced3DModel() {
         this.gltfWriter = new GltfWriter();
@@ -67,76 +68,45 @@ public class Instanced3DModel implements TileModel {
         Vector3d center = contentInfo.getBoundingBox().getCenter();
         Vector3d centerWorldCoordinate = GlobeUtils.geographicToCartesianWgs84(center);
         Matrix4d transformMatrix = GlobeUtils.transformMatrixAtCartesianPointWgs84(centerWorldCoordinate);
-        //Matrix4d transformMatrixInv = new Matrix4d(transformMatrix).invert();
-
-        AtomicInteger positionIndex = new AtomicInteger();
-        AtomicInteger normalUpIndex = new AtomicInteger();
-        AtomicInteger normalRightIndex = new AtomicInteger();
-        AtomicInteger scaleIndex = new AtomicInteger();
-        AtomicInteger batchIdIndex = new AtomicInteger();
-        for (TileInfo tileInfo : tileInfos) {
-            //y-up
-            //Vector3d normalUp = new Vector3d(0, 1, 0);
-            //Vector3d normalRight = new Vector3d(1, 0, 0);
-
-            Vector3d normalUp = new Vector3d(0, 0, -1);
-            Vector3d normalRight = new Vector3d(1, 0, 0);
-
-            // GPS Coordinates
-            KmlInfo kmlInfo = tileInfo.getKmlInfo();
-            Vector3d position = kmlInfo.getPosition();
-            Vector3d positionWorldCoordinate = GlobeUtils.geographicToCartesianWgs84(position);
-            Vector3d localPosition = positionWorldCoordinate.sub(centerWorldCoordinate, new Vector3d());
 
-            //Vector3d localPosition = positionWorldCoordinate.mulPosition(transformMatrixInv, new Vector3d());
-            // local position(Z-UP), gltf position(Y-UP)
-            Vector3d localPositionYUp = new Vector3d(localPosition.x, localPosition.y, localPosition.z);
+        // east, north and up axes of the tile center, shared by all instances
+        double eastX = transformMatrix.m00();
+        double eastY = transformMatrix.m01();
+        double eastZ = transformMatrix.m02();
+        double northX = transformMatrix.m10();
+        double northY = transformMatrix.m11();
+        double northZ = transformMatrix.m12();
+        double upX = transformMatrix.m20();
+        double upY = transformMatrix.m21();
+        double upZ = transformMatrix.m22();
+
+        for (int index = 0; index < instanceLength; index++) {
+            KmlInfo kmlInfo = tileInfos.get(index).getKmlInfo();
+            int offset = index * 3;
+
+            // GPS Coordinates, relative to the tile center
+            Vector3d position = kmlInfo.getPosition();
+            double[] positionWorldCoordinate = GlobeUtils.geographicToCartesianWgs84(position.x, position.y, position.z);
+            positions[offset] = (float) (positionWorldCoordinate[0] - centerWorldCoordinate.x);
+            positions[offset + 1] = (float) (positionWorldCoordinate[1] - centerWorldCoordinate.y);
+            positions[offset + 2] = (float) (positionWorldCoordinate[2] - centerWorldCoordinate.z);
 
-            Matrix3d worldRotationMatrix3d = transformMatrix.get3x3(new Matrix3d());
-            //Matrix3d xRotationMatrix3d = new Matrix3d();
-            //xRotationMatrix3d.identity();
-            //xRotationMatrix3d.rotateX(Math.toRadians(-90));
-            //xRotationMatrix3d.mul(worldRotationMatrix3d, worldRotationMatrix3d);
-            //Matrix4d worldRotationMatrix4d = new Matrix4d(worldRotationMatrix3d);
+            // the heading rotates around the up axis, the (0, 0, -1) up vector of the model stays the down axis
+            normalUps[offset] = (float) -upX;
+            normalUps[offset + 1] = (float) -upY;
+            normalUps[offset + 2] = (float) -upZ;
 
-            // rotate
+            // the (1, 0, 0) right vector of the model rotated by the heading
             double headingValue = Math.toRadians(kmlInfo.getHeading());
-            Matrix3d rotationMatrix = new Matrix3d();
-            rotationMatrix.rotateZ(-headingValue);
-            worldRotationMatrix3d.mul(rotationMatrix, worldRotationMatrix3d);
-
-            normalUp = worldRotationMatrix3d.transform(normalUp);
-            normalRight = worldRotationMatrix3d.transform(normalRight);
-
-            //normalUp = new Vector3d(worldRotationMatrix3d.m00(), worldRotationMatrix3d.m10(), worldRotationMatrix3d.m20());
-            //normalRight = new Vector3d(worldRotationMatrix3d.m01(), worldRotationMatrix3d.m11(), worldRotationMatrix3d.m21());
-
-
-            //normalUp = rotationMatrix.transform(normalUp);
-            //normalRight = rotationMatrix.transform(normalRight);
+            double cosHeading = Math.cos(headingValue);
+            double sinHeading = Math.sin(headingValue);
+            normalRights[offset] = (float) (cosHeading * eastX - sinHeading * northX);
+            normalRights[offset + 1] = (float) (cosHeading * eastY - sinHeading * northY);
+            normalRights[offset + 2] = (float) (cosHeading * eastZ - sinHeading * northZ);
 
             // scale
-            double scale = kmlInfo.getScaleZ();
-
-            positions[positionIndex.getAndIncrement()] = (float) localPositionYUp.x;
-            positions[positionIndex.getAndIncrement()] = (float) localPositionYUp.y;
-            positions[positionIndex.getAndIncrement()] = (float) localPositionYUp.z;
-
-            /*positions[positionIndex.getAndIncrement()] = (float) 0;
-            positions[positionIndex.getAndIncrement()] = (float) 0;
-            positions[positionIndex.getAndIncrement()] = (float) 0;*/
-
-            normalUps[normalUpIndex.getAndIncrement()] = (float) normalUp.x;
-            normalUps[normalUpIndex.getAndIncrement()] = (float) normalUp.y;
-            normalUps[normalUpIndex.getAndIncrement()] = (float) normalUp.z;
-
-            normalRights[normalRightIndex.getAndIncrement()] = (float) normalRight.x;
-            normalRights[normalRightIndex.getAndIncrement()] = (float) normalRight.y;
-            normalRights[normalRightIndex.getAndIncrement()] = (float) normalRight.z;
-
-            scales[scaleIndex.getAndIncrement()] = (float) scale;
-
-            batchId[batchIdIndex.get()] = (short) batchIdIndex.getAndIncrement();
+            scales[index] = (float) kmlInfo.getScaleZ();
+            batchId[index] = (short) index;
         }
 
         Instanced3DModelBinary instanced3DModelBinary = new Instanced3DModelBinary();
@@ -152,17 +122,7 @@ public class Instanced3DModel implements TileModel {
             log.info("[Create][data] Created output data directory:", outputRoot);
         }
 
-        byte[] positionBytes = instanced3DModelBinary.getPositionBytes();
-        byte[] normalUpBytes = instanced3DModelBinary.getNormalUpBytes();
-        byte[] normalRightBytes = instanced3DModelBinary.getNormalRightBytes();
-        byte[] scaleBytes = instanced3DModelBinary.getScaleBytes();
-
-        byte[] featureTableBytes = new byte[positionBytes.length + normalUpBytes.length + normalRightBytes.length + scaleBytes.length];
-        System.arraycopy(positionBytes, 0, featureTableBytes, 0, positionBytes.length);
-        System.arraycopy(normalUpBytes, 0, featureTableBytes, positionBytes.length, normalUpBytes.length);
-        System.arraycopy(normalRightBytes, 0, featureTableBytes, positionBytes.length + normalUpBytes.length, normalRightBytes.length);
-        System.arraycopy(scaleBytes, 0, featureTableBytes, positionBytes.length + normalUpBytes.length + normalRightBytes.length, scaleBytes.length);
-
+        byte[] featureTableBytes = instanced3DModelBinary.getBytes();
 
         GaiaScene scene = tileInfos.get(0).getScene();
         GaiaFeatureTable featureTable = new GaiaFeatureTable();
@@ -189,45 +149,24 @@ public class Instanced3DModel implements TileModel {
 
         featureTable.setInstancesLength(instanceLength);
         featureTable.setEastNorthUp(false);
-        featureTable.setPosition(new Position(0));
-        featureTable.setNormalUp(new Normal(positionBytes.length));
-        featureTable.setNormalRight(new Normal(positionBytes.length + normalUpBytes.length));
-        featureTable.setScale(new Scale(positionBytes.length + normalUpBytes.length + normalRightBytes.length));
+        featureTable.setPosition(new Position(instanced3DModelBinary.getPositionByteOffset()));
+        featureTable.setNormalUp(new Normal(instanced3DModelBinary.getNormalUpByteOffset()));
+        featureTable.setNormalRight(new Normal(instanced3DModelBinary.getNormalRightByteOffset()));
+        featureTable.setScale(new Scale(instanced3DModelBinary.getScaleByteOffset()));
 
-        GaiaBatchTableMap<String, List<String>> batchTableMap = new GaiaBatchTableMap<>();
+        GaiaBinaryBatchTable batchTable = new GaiaBinaryBatchTable(instanceLength);
         AtomicInteger finalBatchIdIndex = new AtomicInteger();
         tileInfos.forEach((tileInfo) -> {
             GaiaAttribute attribute = tileInfo.getScene().getAttribute();
             Map<String, String> attributes = tileInfo.getKmlInfo().getProperties();
-            //GaiaSet set = tileInfo.getSet();
-
-            String UUID = attribute.getIdentifier().toString();
-            String FileName = attribute.getFileName();
-            String NodeName = attribute.getNodeName();
-
-            UUID = StringUtils.convertUTF8(UUID);
-            FileName = StringUtils.convertUTF8(FileName);
-            NodeName = StringUtils.convertUTF8(NodeName);
-
-            batchTableMap.computeIfAbsent("UUID", k -> new ArrayList<>());
-
-            batchTableMap.get("UUID").add(UUID);
-
-            batchTableMap.computeIfAbsent("FileName", k -> new ArrayList<>());
-            batchTableMap.get("FileName").add(FileName);
-
-            batchTableMap.computeIfAbsent("NodeName", k -> new ArrayList<>());
-            batchTableMap.get("NodeName").add(NodeName);
-
-            batchTableMap.computeIfAbsent("BatchId", k -> new ArrayList<>());
-            batchTableMap.get("BatchId").add(String.valueOf(batchId[finalBatchIdIndex.getAndIncrement()]));
+            int index = finalBatchIdIndex.getAndIncrement();
 
+            batchTable.put("UUID", index, attribute.getIdentifier().toString());
+            batchTable.put("FileName", index, attribute.getFileName());
+            batchTable.put("NodeName", index, attribute.getNodeName());
+            batchTable.put("BatchId", index, String.valueOf(batchId[index]));
             if (attributes != null) {
-                attributes.forEach((key, value) -> {
-                    String utf8Value = StringUtils.convertUTF8(value);
-                    batchTableMap.computeIfAbsent(key, k -> new ArrayList<>());
-                    batchTableMap.get(key).add(utf8Value);
-                });
+                attributes.forEach((key, value) -> batchTable.put(key, index, value));
             }
         });
 
@@ -237,7 +176,8 @@ public class Instanced3DModel implements TileModel {
         objectMapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
         try {
             featureTableJson = StringUtils.doPadding8Bytes(objectMapper.writeValueAsString(featureTable));
-            batchTableJson = StringUtils.doPadding8Bytes(objectMapper.writeValueAsString(batchTableMap));
+            batchTable.build(objectMapper);
+            batchTableJson = batchTable.getJson();
         } catch (JsonProcessingException e) {
             log.error("[ERROR] :", e);
             throw new RuntimeException(e);
@@ -246,16 +186,15 @@ public class Instanced3DModel implements TileModel {
         int featureTableBinaryByteLength = featureTableBytes.length;
 
         batchTableJSONByteLength = batchTableJson.length();
-        int batchTableBinaryByteLength = 0;
+        byte[] batchTableBinary = batchTable.getBinary();
+        int batchTableBinaryByteLength = batchTableBinary.length;
 
         String lod = contentInfo.getLod().toString();
         String gltfUrl = "instance-" + lod + ".glb";
         int byteLength = 32 + featureTableJSONByteLength + featureTableBinaryByteLength + batchTableJSONByteLength + batchTableBinaryByteLength + gltfUrl.length();
 
-        File gltfOutputFile = outputRoot.resolve(gltfUrl).toFile();
-        if (!gltfOutputFile.exists()) {
-            createInstance(gltfOutputFile, contentInfo, tileInfos.get(0));
-        }
+        // the instance glb of a lod is encoded once and shared by the i3dm of all the tiles via its uri
+        instanceFiles.computeIfAbsent(gltfUrl, (key) -> createInstance(outputRoot.resolve(key).toFile(), contentInfo, tileInfos.get(0)));
 
         File b3dmOutputFile = outputRoot.resolve(nodeCode + "." + MAGIC).toFile();
         try (LittleEndianDataOutputStream stream = new LittleEndianDataOutputStream(new BufferedOutputStream(new FileOutputStream(b3dmOutputFile)))) {
@@ -276,7 +215,7 @@ public class Instanced3DModel implements TileModel {
             stream.writePureText(featureTableJson);
             stream.write(featureTableBytes);
             stream.writePureText(batchTableJson);
-            //stream.write(new byte[0]);
+            stream.write(batchTableBinary);
             stream.writePureText(gltfUrl);// padding
         } catch (Exception e) {
             log.error("[ERROR] :", e);
@@ -284,52 +223,51 @@ public class Instanced3DModel implements TileModel {
         return contentInfo;
     }
 
-    private synchronized void createInstance(File file, ContentInfo contentInfo, TileInfo tileInfo) {
+    private File createInstance(File file, ContentInfo contentInfo, TileInfo tileInfo) {
         boolean isVoxelLod = GlobalOptions.getInstance().isVoxelLod();
 
         try {
-            if (!file.exists()) {
-                log.info("[Create][Instance] Create instance file : {}", file.getName());
-                GaiaScene firstGaiaScene = tileInfo.getScene();
-                firstGaiaScene = firstGaiaScene.clone();
-
-                GaiaSet set = GaiaSet.fromGaiaScene(firstGaiaScene);
-                tileInfo.setSet(set);
-
-                List<TileInfo> batchTileInfos = new ArrayList<>();
-                batchTileInfos.add(tileInfo);
-
-                GaiaBatcher gaiaBatcher = new GaiaBatcher();
-                GaiaSet gaiaSet = gaiaBatcher.runBatching(batchTileInfos, contentInfo.getNodeCode(), contentInfo.getLod());
-                GaiaScene resultGaiaScene = new GaiaScene(gaiaSet);
-
-                GaiaBoundingBox boundingBox = resultGaiaScene.getBoundingBox();
-                float minSize = (float)boundingBox.getMinSize();
-
-                if (isVoxelLod) {
-                    int lod = contentInfo.getLod().getLevel();
-                    if (lod > 0) {
-                        float octreeMinSize = minSize;
-                        if (lod == 1) {
-                            octreeMinSize = minSize / 8.0f;
-                        } else if (lod == 2) {
-                            octreeMinSize = minSize / 4.0f;
-                        } else if (lod == 3) {
-                            octreeMinSize = minSize / 2.0f;
-                        } else if (lod == 4) {
-                            octreeMinSize = minSize;
-                        }
-                        resultGaiaScene = GeometryUtils.getGaiaSceneLego(resultGaiaScene, octreeMinSize);
+            log.info("[Create][Instance] Create instance file : {}", file.getName());
+            GaiaScene firstGaiaScene = tileInfo.getScene();
+            firstGaiaScene = firstGaiaScene.clone();
+
+            GaiaSet set = GaiaSet.fromGaiaScene(firstGaiaScene);
+            tileInfo.setSet(set);
+
+            List<TileInfo> batchTileInfos = new ArrayList<>();
+            batchTileInfos.add(tileInfo);
+
+            GaiaBatcher gaiaBatcher = new GaiaBatcher();
+            GaiaSet gaiaSet = gaiaBatcher.runBatching(batchTileInfos, contentInfo.getNodeCode(), contentInfo.getLod());
+            GaiaScene resultGaiaScene = new GaiaScene(gaiaSet);
+
+            GaiaBoundingBox boundingBox = resultGaiaScene.getBoundingBox();
+            float minSize = (float)boundingBox.getMinSize();
+
+            if (isVoxelLod) {
+                int lod = contentInfo.getLod().getLevel();
+                if (lod > 0) {
+                    float octreeMinSize = minSize;
+                    if (lod == 1) {
+                        octreeMinSize = minSize / 8.0f;
+                    } else if (lod == 2) {
+                        octreeMinSize = minSize / 4.0f;
+                    } else if (lod == 3) {
+                        octreeMinSize = minSize / 2.0f;
+                    } else if (lod == 4) {
+                        octreeMinSize = minSize;
                     }
+                    resultGaiaScene = GeometryUtils.getGaiaSceneLego(resultGaiaScene, octreeMinSize);
                 }
-
-                /*boolean isRotateUpAxis = GlobalOptions.getInstance().isSwapUpAxis();
-                if (isRotateUpAxis) {
-                    Matrix4d transformMatrix = resultGaiaScene.getNodes().get(0).getTransformMatrix();
-                    transformMatrix.rotateX(Math.toRadians(-90));
-                }*/
-                gltfWriter.writeGlb(resultGaiaScene, file);
             }
+
+            /*boolean isRotateUpAxis = GlobalOptions.getInstance().isSwapUpAxis();
+            if (isRotateUpAxis) {
+                Matrix4d transformMatrix = resultGaiaScene.getNodes().get(0).getTransformMatrix();
+                transformMatrix.rotateX(Math.toRadians(-90));
+            }*/
+            gltfWriter.writeGlb(resultGaiaScene, file);
+            return file;
         } catch (Exception e) {
             log.error("[ERROR] :", e);
             throw new RuntimeException(e);
@@ -4,6 +4,13 @@ import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+/**
+ * Feature table binary of the i3dm, the instance arrays are written one after another.
+ */
 @Slf4j
 @Setter
 @Getter
@@ -13,51 +20,34 @@ public class Instanced3DModelBinary {
     private float[] normalRights;
     private float[] scales;
 
-    public byte[] getPositionBytes() {
-        byte[] positionsBytes = new byte[positions.length * 4];
-        for (int i = 0; i < positions.length; i++) {
-            int intBits = Float.floatToIntBits(positions[i]);
-            positionsBytes[i * 4] = (byte) (intBits & 0xff);
-            positionsBytes[i * 4 + 1] = (byte) ((intBits >> 8) & 0xff);
-            positionsBytes[i * 4 + 2] = (byte) ((intBits >> 16) & 0xff);
-            positionsBytes[i * 4 + 3] = (byte) ((intBits >> 24) & 0xff);
-        }
-        return positionsBytes;
+    public int getPositionByteOffset() {
+        return 0;
+    }
+
+    public int getNormalUpByteOffset() {
+        return getPositionByteOffset() + positions.length * 4;
     }
 
-    public byte[] getNormalUpBytes() {
-        byte[] normalUpsBytes = new byte[normalUps.length * 4];
-        for (int i = 0; i < normalUps.length; i++) {
-            int intBits = Float.floatToIntBits(normalUps[i]);
-            normalUpsBytes[i * 4] = (byte) (intBits & 0xff);
-            normalUpsBytes[i * 4 + 1] = (byte) ((intBits >> 8) & 0xff);
-            normalUpsBytes[i * 4 + 2] = (byte) ((intBits >> 16) & 0xff);
-            normalUpsBytes[i * 4 + 3] = (byte) ((intBits >> 24) & 0xff);
-        }
-        return normalUpsBytes;
+    public int getNormalRightByteOffset() {
+        return getNormalUpByteOffset() + normalUps.length * 4;
     }
 
-    public byte[] getNormalRightBytes() {
-        byte[] normalRightsBytes = new byte[normalRights.length * 4];
-        for (int i = 0; i < normalRights.length; i++) {
-            int intBits = Float.floatToIntBits(normalRights[i]);
-            normalRightsBytes[i * 4] = (byte) (intBits & 0xff);
-            normalRightsBytes[i * 4 + 1] = (byte) ((intBits >> 8) & 0xff);
-            normalRightsBytes[i * 4 + 2] = (byte) ((intBits >> 16) & 0xff);
-            normalRightsBytes[i * 4 + 3] = (byte) ((intBits >> 24) & 0xff);
-        }
-        return normalRightsBytes;
+    public int getScaleByteOffset() {
+        return getNormalRightByteOffset() + normalRights.length * 4;
     }
 
-    public byte[] getScaleBytes() {
-        byte[] scalesBytes = new byte[scales.length * 4];
-        for (int i = 0; i < scales.length; i++) {
-            int intBits = Float.floatToIntBits(scales[i]);
-            scalesBytes[i * 4] = (byte) (intBits & 0xff);
-            scalesBytes[i * 4 + 1] = (byte) ((intBits >> 8) & 0xff);
-            scalesBytes[i * 4 + 2] = (byte) ((intBits >> 16) & 0xff);
-            scalesBytes[i * 4 + 3] = (byte) ((intBits >> 24) & 0xff);
-        }
-        return scalesBytes;
+    /**
+     * @return the little endian arrays in a single buffer, padded to 8 bytes
+     */
+    public byte[] getBytes() {
+        int byteLength = getScaleByteOffset() + scales.length * 4;
+        int paddedByteLength = (byteLength + 7) & ~7;
+        ByteBuffer buffer = ByteBuffer.allocate(paddedByteLength).order(ByteOrder.LITTLE_ENDIAN);
+        FloatBuffer floatBuffer = buffer.asFloatBuffer();
+        floatBuffer.put(positions);
+        floatBuffer.put(normalUps);
+        floatBuffer.put(normalRights);
+        floatBuffer.put(scales);
+        return buffer.array();
     }
 }
@@ -4,6 +4,7 @@ import com.gaia3d.basic.exchangable.GaiaSet;
 import com.gaia3d.basic.model.GaiaAttribute;
 import com.gaia3d.basic.model.GaiaScene;
 import com.gaia3d.basic.pointcloud.GaiaPointCloud;
+import com.gaia3d.process.scheduler.TaskMemoryEstimator;
 import com.gaia3d.process.tileprocess.tile.TileInfo;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -27,6 +28,7 @@ public class GaiaMinimizer implements PreProcess {
 
     private void minimizeGaiaScene(TileInfo tileInfo, GaiaScene scene) {
         if (scene != null) {
+            tileInfo.setMemoryBytes(TaskMemoryEstimator.estimateScene(scene));
             GaiaSet tempSet = GaiaSet.fromGaiaScene(scene);
             Path tempPath = tempSet.writeFile(tileInfo.getTempPath(), tileInfo.getSerial(), tempSet.getAttribute());
             tileInfo.setTempPath(tempPath);
@@ -4,27 +4,24 @@ import com.gaia3d.basic.geometry.GaiaBoundingBox;
 import com.gaia3d.basic.model.*;
 import com.gaia3d.basic.types.FormatType;
 import com.gaia3d.command.mago.GlobalOptions;
+import com.gaia3d.converter.terrain.TerrainService;
 import com.gaia3d.converter.kml.KmlInfo;
 import com.gaia3d.process.tileprocess.tile.TileInfo;
 import com.gaia3d.util.GlobeUtils;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.geotools.coverage.grid.GridCoverage2D;
-import org.geotools.geometry.DirectPosition2D;
-import org.geotools.referencing.crs.DefaultGeographicCRS;
 import org.joml.Matrix4d;
 import org.joml.Matrix4f;
 import org.joml.Vector3d;
 import org.locationtech.proj4j.CoordinateReferenceSystem;
 import org.locationtech.proj4j.ProjCoordinate;
-import org.opengis.geometry.DirectPosition;
 
 import java.util.List;
 
 @Slf4j
 @AllArgsConstructor
 public class GaiaStrictTranslator implements PreProcess {
-    private final List<GridCoverage2D> coverages;
+    private final TerrainService terrainService;
 
     @Override
     public TileInfo run(TileInfo tileInfo) {
@@ -44,18 +41,14 @@ public class GaiaStrictTranslator implements PreProcess {
         this.transformSceneVertexPositionsToLocalCoords(gaiaScene, centerGeoCoord, bboxLC);
 
         // set position terrain height
-        coverages.forEach((coverage) -> {
-            DirectPosition2D memSave_posWorld = new DirectPosition2D(DefaultGeographicCRS.WGS84, centerGeoCoord.x, centerGeoCoord.y);
-            double[] memSave_alt = new double[1];
-            memSave_alt[0] = 0;
-            try {
-                coverage.evaluate((DirectPosition) memSave_posWorld, memSave_alt);
-            } catch (Exception e) {
-                log.error("[ERROR] :", e);
-                log.warn("[WARN] Failed to evaluate terrain height", e);
+        if (!terrainService.isEmpty()) {
+            double altitude = terrainService.getHeight(centerGeoCoord.x, centerGeoCoord.y);
+            if (Double.isNaN(altitude)) {
+                log.warn("[WARN] Failed to evaluate terrain height. Out of range");
+                altitude = 0;
             }
-            centerGeoCoord.z = memSave_alt[0];
-        });
+            centerGeoCoord.z = altitude;
+        }
 
         // calculate cartographic bounding box
         double[] centerCartesianWC = GlobeUtils.geographicToCartesianWgs84(centerGeoCoord.x, centerGeoCoord.y, centerGeoCoord.z);
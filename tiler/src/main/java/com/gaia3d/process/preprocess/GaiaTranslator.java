@@ -5,26 +5,21 @@ import com.gaia3d.basic.model.GaiaNode;
 import com.gaia3d.basic.model.GaiaScene;
 import com.gaia3d.basic.types.FormatType;
 import com.gaia3d.command.mago.GlobalOptions;
+import com.gaia3d.converter.terrain.TerrainService;
 import com.gaia3d.converter.kml.KmlInfo;
 import com.gaia3d.process.tileprocess.tile.TileInfo;
 import com.gaia3d.util.GlobeUtils;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.geotools.coverage.grid.GridCoverage2D;
-import org.geotools.geometry.DirectPosition2D;
-import org.geotools.referencing.crs.DefaultGeographicCRS;
 import org.joml.Matrix4d;
 import org.joml.Vector3d;
 import org.locationtech.proj4j.CoordinateReferenceSystem;
 import org.locationtech.proj4j.ProjCoordinate;
-import org.opengis.geometry.DirectPosition;
-
-import java.util.List;
 
 @Slf4j
 @AllArgsConstructor
 public class GaiaTranslator implements PreProcess {
-    private final List<GridCoverage2D> coverages;
+    private final TerrainService terrainService;
 
     @Override
     public TileInfo run(TileInfo tileInfo) {
@@ -47,18 +42,14 @@ public class GaiaTranslator implements PreProcess {
         }
 
         // set position terrain height
-        coverages.forEach((coverage) -> {
-            DirectPosition worldPosition = new DirectPosition2D(DefaultGeographicCRS.WGS84, center.x, center.y);
-            double[] altitude = new double[1];
-            altitude[0] = 0;
-            try {
-                coverage.evaluate(worldPosition, altitude);
-            } catch (Exception e) {
+        if (!terrainService.isEmpty()) {
+            double altitude = terrainService.getHeight(center.x, center.y);
+            if (Double.isNaN(altitude)) {
                 log.warn("[WARN] Failed to load terrain height. Out of range");
-                log.debug("- Detail : ", e);
+                altitude = 0;
             }
-            center.z = altitude[0];
-        });
+            center.z = altitude;
+        }
 
         KmlInfo kmlInfo = getKmlInfo(tileInfo, center);
         Matrix4d translationMatrix = new Matrix4d().translate(translation);
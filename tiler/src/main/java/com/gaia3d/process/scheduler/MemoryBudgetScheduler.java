@@ -0,0 +1,114 @@
+package com.gaia3d.process.scheduler;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Runs the tasks of a stage on a fixed number of threads, admitting a task only while the estimated memory of the running tasks fits the heap budget.
+ * The largest task that fits the remaining budget is started first, so the large tasks run early with few others and the small tasks fill the remaining budget.
+ * A task larger than the whole budget runs alone.
+ */
+@Slf4j
+public class MemoryBudgetScheduler {
+    private final int threadCount;
+    private final long budgetBytes;
+    private final boolean stopOnFailure;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private long availableBytes;
+    private int runningCount = 0;
+    @Getter
+    private int maxRunningCount = 0;
+    private Throwable failure = null;
+
+    /**
+     * @param threadCount the maximum number of concurrently running tasks
+     * @param budgetBytes the heap budget of the concurrently running tasks
+     * @param stopOnFailure whether to stop scheduling and throw when a task fails, for debugging
+     */
+    public MemoryBudgetScheduler(int threadCount, long budgetBytes, boolean stopOnFailure) {
+        this.threadCount = Math.max(threadCount, 1);
+        this.budgetBytes = Math.max(budgetBytes, 1);
+        this.stopOnFailure = stopOnFailure;
+        this.availableBytes = this.budgetBytes;
+    }
+
+    public void execute(List<ScheduledTask> tasks) throws InterruptedException {
+        // pending tasks by estimated bytes, tasks of the same size keep their order
+        TreeMap<Long, ArrayDeque<ScheduledTask>> pendingTasks = new TreeMap<>();
+        for (ScheduledTask task : tasks) {
+            pendingTasks.computeIfAbsent(Math.min(Math.max(task.getMemoryBytes(), 0), budgetBytes), (key) -> new ArrayDeque<>()).add(task);
+        }
+
+        ExecutorService executorService = Executors.newFixedThreadPool(threadCount);
+        lock.lock();
+        try {
+            while (!pendingTasks.isEmpty()) {
+                if (stopOnFailure && failure != null) {
+                    throw new RuntimeException(failure);
+                }
+                Map.Entry<Long, ArrayDeque<ScheduledTask>> entry = runningCount < threadCount ? pendingTasks.floorEntry(availableBytes) : null;
+                if (entry == null) {
+                    released.await();
+                    continue;
+                }
+                long reservedBytes = entry.getKey();
+                ScheduledTask task = entry.getValue().poll();
+                if (entry.getValue().isEmpty()) {
+                    pendingTasks.remove(reservedBytes);
+                }
+                availableBytes -= reservedBytes;
+                runningCount++;
+                maxRunningCount = Math.max(maxRunningCount, runningCount);
+                executorService.execute(() -> run(task, reservedBytes));
+            }
+            while (runningCount > 0) {
+                released.await();
+            }
+            if (stopOnFailure && failure != null) {
+                throw new RuntimeException(failure);
+            }
+        } finally {
+            lock.unlock();
+            executorService.shutdownNow();
+            executorService.awaitTermination(2, TimeUnit.SECONDS);
+        }
+        log.debug("[Scheduler] {} tasks, budget {} MB, max running tasks {}", tasks.size(), budgetBytes / 1024 / 1024, maxRunningCount);
+    }
+
+    private void run(ScheduledTask task, long reservedBytes) {
+        try {
+            task.getTask().run();
+        } catch (Throwable e) {
+            log.error("[ERROR] Failed to execute task.", e);
+            lock.lock();
+            try {
+                if (failure == null) {
+                    failure = e;
+                }
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            lock.lock();
+            try {
+                availableBytes += reservedBytes;
+                runningCount--;
+                released.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
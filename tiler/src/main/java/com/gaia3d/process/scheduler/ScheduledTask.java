@@ -0,0 +1,14 @@
+package com.gaia3d.process.scheduler;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * A task of a pipeline stage with the estimated heap bytes it holds while running.
+ */
+@Getter
+@AllArgsConstructor
+public class ScheduledTask {
+    private final Runnable task;
+    private final long memoryBytes;
+}
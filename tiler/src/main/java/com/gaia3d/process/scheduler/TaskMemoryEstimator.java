@@ -0,0 +1,119 @@
+package com.gaia3d.process.scheduler;
+
+import com.gaia3d.basic.model.GaiaMaterial;
+import com.gaia3d.basic.model.GaiaPrimitive;
+import com.gaia3d.basic.model.GaiaScene;
+import com.gaia3d.basic.model.GaiaTexture;
+import com.gaia3d.basic.pointcloud.GaiaPointCloud;
+import com.gaia3d.process.tileprocess.tile.ContentInfo;
+import com.gaia3d.process.tileprocess.tile.TileInfo;
+import com.gaia3d.util.ImageUtils;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Rough estimates of the heap bytes held by the pre-process and post-process tasks, used to admit the tasks against the memory budget.
+ */
+public class TaskMemoryEstimator {
+    public static final long MIN_TASK_BYTES = 4L * 1024 * 1024;
+    // GaiaVertex with its position, normal, texcoord and color objects
+    private static final long BYTES_PER_VERTEX = 200;
+    // GaiaFace with its indices array
+    private static final long BYTES_PER_TRIANGLE = 64;
+    // decoded ARGB images
+    private static final long BYTES_PER_PIXEL = 4;
+    // parsed scene against the size of the input file
+    private static final long INPUT_FILE_FACTOR = 8;
+    // deserialized set against the size of the temp file
+    private static final long TEMP_FILE_FACTOR = 4;
+    // batched set, texture atlas and glb buffers on top of the tiles of a content
+    private static final long CONTENT_FACTOR = 3;
+
+    /**
+     * Estimates the pre-processing of an input or temp file from its size, the scene is not loaded yet.
+     */
+    public static long estimateFile(File file) {
+        return Math.max(file.length() * INPUT_FILE_FACTOR, MIN_TASK_BYTES);
+    }
+
+    /**
+     * Estimates a loaded scene from its vertex count, triangle count and the dimensions of its textures.
+     * The dimensions of textures that are not decoded yet are read from the image headers.
+     */
+    public static long estimateScene(GaiaScene scene) {
+        long vertexCount = 0;
+        for (GaiaPrimitive primitive : scene.extractPrimitives(null)) {
+            vertexCount += primitive.getVertices().size();
+        }
+        long bytes = vertexCount * BYTES_PER_VERTEX + scene.calcTriangleCount() * BYTES_PER_TRIANGLE;
+
+        Set<String> texturePaths = new HashSet<>();
+        for (GaiaMaterial material : scene.getMaterials()) {
+            for (List<GaiaTexture> textures : material.getTextures().values()) {
+                for (GaiaTexture texture : textures) {
+                    bytes += estimateTexture(texture, texturePaths);
+                }
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Estimates a pre-processed tile, from the estimate of its scene before it was minimized, its points or the size of its temp file.
+     */
+    public static long estimateTileInfo(TileInfo tileInfo) {
+        if (tileInfo.getMemoryBytes() > 0) {
+            return tileInfo.getMemoryBytes();
+        }
+        GaiaPointCloud pointCloud = tileInfo.getPointCloud();
+        if (pointCloud != null) {
+            return Math.max(pointCloud.getVertices().size(), pointCloud.getVertexCount()) * BYTES_PER_VERTEX;
+        }
+        if (tileInfo.getScene() != null) {
+            return estimateScene(tileInfo.getScene());
+        }
+        if (tileInfo.getTempPath() != null && tileInfo.getTempPath().toFile().isFile()) {
+            return tileInfo.getTempPath().toFile().length() * TEMP_FILE_FACTOR;
+        }
+        return 0;
+    }
+
+    /**
+     * Estimates the post-processing of a content from the tiles it loads.
+     */
+    public static long estimateContent(ContentInfo contentInfo) {
+        long bytes = 0;
+        if (contentInfo.getTileInfos() != null) {
+            for (TileInfo tileInfo : contentInfo.getTileInfos()) {
+                bytes += estimateTileInfo(tileInfo);
+            }
+        }
+        if (contentInfo.getRemainTileInfos() != null) {
+            for (TileInfo tileInfo : contentInfo.getRemainTileInfos()) {
+                bytes += estimateTileInfo(tileInfo);
+            }
+        }
+        return Math.max(bytes * CONTENT_FACTOR, MIN_TASK_BYTES);
+    }
+
+    private static long estimateTexture(GaiaTexture texture, Set<String> texturePaths) {
+        if (texture.getWidth() > 0 && texture.getHeight() > 0) {
+            return (long) texture.getWidth() * texture.getHeight() * BYTES_PER_PIXEL;
+        }
+        if (texture.getPath() == null || texture.getParentPath() == null) {
+            return 0;
+        }
+        String fullPath = texture.getFullPath();
+        if (!texturePaths.add(fullPath) || !new File(fullPath).isFile()) {
+            return 0;
+        }
+        int[] size = ImageUtils.readImageSize(fullPath);
+        if (size[0] <= 0 || size[1] <= 0) {
+            return 0;
+        }
+        return (long) size[0] * size[1] * BYTES_PER_PIXEL;
+    }
+}
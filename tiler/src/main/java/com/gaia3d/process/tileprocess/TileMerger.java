@@ -1,6 +1,8 @@
 package com.gaia3d.process.tileprocess;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.json.JsonWriteFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.gaia3d.command.mago.GlobalOptions;
@@ -14,16 +16,32 @@ import org.apache.commons.io.FileUtils;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Merges the tileset.json files under the input path into a tileset.json of the output path.
+ * Only the root nodes are read, in parallel, and the roots of the previous merge are kept in a manifest,
+ * so a tileset is read again only when its file has changed.
+ */
 @Slf4j
 public class TileMerger {
+    private static final String MANIFEST_NAME = "tileset-merge-manifest.json";
 
     private static GlobalOptions globalOptions = GlobalOptions.getInstance();
 
+    private final ObjectMapper objectMapper;
+
+    public TileMerger() {
+        this.objectMapper = new ObjectMapper();
+        this.objectMapper.getFactory().configure(JsonWriteFeature.ESCAPE_NON_ASCII.mappedFeature(), true);
+        this.objectMapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+    }
+
     public void merge() {
         log.info("Starting tileset merging.");
 
@@ -31,20 +49,24 @@ public class TileMerger {
         File inputPath = new File(globalOptions.getInputPath());
         File outputPath = new File(globalOptions.getOutputPath());
         File tilesetPath = new File(outputPath, tilesetName);
+        File manifestPath = new File(outputPath, MANIFEST_NAME);
 
         // find all tileset.json files
         List<File> tilesetJsons = findAllTilesetJsons(inputPath);
+        tilesetJsons.removeIf(file -> file.getAbsoluteFile().equals(tilesetPath.getAbsoluteFile()));
 
         log.info("Found {} tileset.json files.", tilesetJsons.size());
 
-        // parse all tileset.json files
-        Map<File, Tileset> tilesets = parseTilesetJsons(tilesetJsons);
+        // read the roots of the changed tileset.json files
+        Map<String, TilesetRootInfo> previousRootInfos = readManifest(manifestPath);
+        List<TilesetRootInfo> rootInfos = readTilesetRoots(inputPath, tilesetJsons, previousRootInfos);
 
         // calculate bounding box and geospatial information and merge tilesets
-        Tileset tileset = mergeTilesets(tilesets);
+        Tileset tileset = mergeTilesets(rootInfos);
 
         // write merged tileset.json
         writeTilesetJson(tilesetPath, tileset);
+        writeManifest(manifestPath, rootInfos);
         log.info("End tileset combining.");
     }
 
@@ -64,30 +86,115 @@ public class TileMerger {
         }
     }
 
-    private Map<File, Tileset> parseTilesetJsons(List<File> tilesetJsons) {
-        //List<Tileset> tilesets = new ArrayList<>();
-        Map<File, Tileset> tilesetMap = new HashMap<>();
+    private Map<String, TilesetRootInfo> readManifest(File manifestPath) {
+        Map<String, TilesetRootInfo> rootInfos = new HashMap<>();
+        if (!manifestPath.exists()) {
+            return rootInfos;
+        }
+        try {
+            TilesetRootInfo[] manifest = objectMapper.readValue(manifestPath, TilesetRootInfo[].class);
+            for (TilesetRootInfo rootInfo : manifest) {
+                rootInfos.put(rootInfo.getUri(), rootInfo);
+            }
+        } catch (IOException e) {
+            log.warn("[WARN] Failed to read the merge manifest, all tilesets are read again. : {}", manifestPath);
+        }
+        return rootInfos;
+    }
 
-        ObjectMapper objectMapper = new ObjectMapper();
-        objectMapper.getFactory().configure(JsonWriteFeature.ESCAPE_NON_ASCII.mappedFeature(), true);
-        objectMapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
-        objectMapper.setSerializationInclusion(JsonInclude.Include.NON_EMPTY);
-        objectMapper.setSerializationInclusion(JsonInclude.Include.NON_DEFAULT);
+    private void writeManifest(File manifestPath, List<TilesetRootInfo> rootInfos) {
+        try {
+            objectMapper.writeValue(manifestPath, rootInfos);
+        } catch (IOException e) {
+            log.error("Failed to write the merge manifest.", e);
+            throw new RuntimeException(e);
+        }
+    }
 
+    private List<TilesetRootInfo> readTilesetRoots(File inputPath, List<File> tilesetJsons, Map<String, TilesetRootInfo> previousRootInfos) {
+        List<TilesetRootInfo> rootInfos = new ArrayList<>();
+        List<Callable<TilesetRootInfo>> tasks = new ArrayList<>();
         for (File tilesetJson : tilesetJsons) {
-            try {
-                Tileset tileset = objectMapper.readValue(tilesetJson, Tileset.class);
-                tilesetMap.put(tilesetJson, tileset);
-            } catch (IOException e) {
-                throw new RuntimeException(e);
+            String uri = getRelativePath(inputPath, tilesetJson);
+            long lastModified = tilesetJson.lastModified();
+            long length = tilesetJson.length();
+            TilesetRootInfo previousRootInfo = previousRootInfos.get(uri);
+            if (previousRootInfo != null && previousRootInfo.isSameFile(lastModified, length)) {
+                rootInfos.add(previousRootInfo);
+                continue;
             }
+            tasks.add(() -> {
+                TilesetRootInfo rootInfo = readTilesetRoot(tilesetJson);
+                rootInfo.setUri(uri);
+                rootInfo.setLastModified(lastModified);
+                rootInfo.setLength(length);
+                return rootInfo;
+            });
         }
-        return tilesetMap;
+        log.info("Reading {} changed tileset.json files, {} unchanged.", tasks.size(), rootInfos.size());
+
+        ExecutorService executorService = Executors.newFixedThreadPool(globalOptions.getMultiThreadCount());
+        try {
+            for (Future<TilesetRootInfo> future : executorService.invokeAll(tasks)) {
+                rootInfos.add(future.get());
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            log.error("[ERROR] Failed to read tileset.json.", e);
+            throw new RuntimeException(e);
+        } finally {
+            executorService.shutdown();
+        }
+        rootInfos.sort(Comparator.comparing(TilesetRootInfo::getUri));
+        return rootInfos;
     }
 
-    private Tileset mergeTilesets(Map<File, Tileset> tilesetMap) {
-        File inputPath = new File(globalOptions.getInputPath());
+    /**
+     * Streams the tileset.json and binds only the geometric error and the transform and bounding volume of the root,
+     * the children of the root are skipped without being parsed into objects.
+     */
+    private TilesetRootInfo readTilesetRoot(File tilesetJson) throws IOException {
+        TilesetRootInfo rootInfo = new TilesetRootInfo();
+        boolean hasGeometricError = false;
+        boolean hasRoot = false;
+        try (JsonParser parser = objectMapper.getFactory().createParser(tilesetJson)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Invalid tileset.json : " + tilesetJson);
+            }
+            while (!(hasGeometricError && hasRoot) && parser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = parser.getCurrentName();
+                parser.nextToken();
+                if ("geometricError".equals(fieldName)) {
+                    rootInfo.setGeometricError(parser.getValueAsDouble());
+                    hasGeometricError = true;
+                } else if ("root".equals(fieldName)) {
+                    readRootNode(parser, rootInfo);
+                    hasRoot = true;
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        if (!hasRoot) {
+            throw new IOException("No root node in tileset.json : " + tilesetJson);
+        }
+        return rootInfo;
+    }
+
+    private void readRootNode(JsonParser parser, TilesetRootInfo rootInfo) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            parser.nextToken();
+            if ("transform".equals(fieldName)) {
+                rootInfo.setTransform(objectMapper.readValue(parser, float[].class));
+            } else if ("boundingVolume".equals(fieldName)) {
+                rootInfo.setBoundingVolume(objectMapper.readValue(parser, BoundingVolume.class));
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
 
+    private Tileset mergeTilesets(List<TilesetRootInfo> rootInfos) {
         double geometricError = 0.0;
         Tileset mergedTileset = new Tileset();
 
@@ -104,32 +211,21 @@ public class TileMerger {
         Node root = new Node();
         root.setRefine(Node.RefineType.ADD);
 
-        List<File> tilesetFiles = new ArrayList<>(tilesetMap.keySet());
-        for (File tilesetFile : tilesetFiles) {
-            Tileset tileset = tilesetMap.get(tilesetFile);
-            Node tilesetRoot = tileset.getRoot();
-            double tilesetGeometricError = tileset.getGeometricError();
+        for (TilesetRootInfo rootInfo : rootInfos) {
+            double tilesetGeometricError = rootInfo.getGeometricError();
             geometricError = Math.max(geometricError, tilesetGeometricError);
 
             Node newChildNode = new Node();
             newChildNode.setRefine(Node.RefineType.REPLACE);
             newChildNode.setGeometricError(tilesetGeometricError);
-            if (tilesetRoot.getTransform() != null)
-                newChildNode.setTransform(tilesetRoot.getTransform());
-            if (tilesetRoot.getBoundingVolume() != null)
-                newChildNode.setBoundingVolume(tilesetRoot.getBoundingVolume());
-
-            BoundingVolume boundingVolume = tilesetRoot.getBoundingVolume();
-            //BoundingVolume.BoundingVolumeType boundingVolumeType = boundingVolume.getType();
-
-            if (boundingVolume.getBox() != null) {
-                // calculate bounding box
-            } else if (boundingVolume.getSphere() != null) {
-                // calculate bounding sphere
-            } else if (boundingVolume.getRegion() != null) {
-                // calculate bounding region
-                double[] boundingBox = boundingVolume.getRegion();
-
+            if (rootInfo.getTransform() != null)
+                newChildNode.setTransform(rootInfo.getTransform());
+            if (rootInfo.getBoundingVolume() != null)
+                newChildNode.setBoundingVolume(rootInfo.getBoundingVolume());
+
+            // the region of the box, sphere or region volume
+            double[] boundingBox = rootInfo.getRegion();
+            if (boundingBox != null) {
                 globalBoundingBox[0] = Math.min(globalBoundingBox[0], boundingBox[0]); // minX
                 globalBoundingBox[1] = Math.min(globalBoundingBox[1], boundingBox[1]); // minY
                 globalBoundingBox[2] = Math.max(globalBoundingBox[2], boundingBox[2]); // maxX
@@ -138,15 +234,13 @@ public class TileMerger {
                 globalBoundingBox[5] = Math.max(globalBoundingBox[5], boundingBox[5]); // maxZ
             }
 
-            String uri = getRelativePath(inputPath, tilesetFile);
-
             Content content = new Content();
-            content.setUri(uri);
+            content.setUri(rootInfo.getUri());
             newChildNode.setContent(content);
 
             children.add(newChildNode);
-            root.setChildren(children);
         }
+        root.setChildren(children);
 
         geometricError = Math.min(geometricError, globalOptions.getMaxGeometricError());
 
@@ -161,13 +255,9 @@ public class TileMerger {
         root.setGeometricError(geometricError);
         root.setBoundingVolume(globalBoundingVolume);
 
-
-        // merge tilesets
-
         return mergedTileset;
     }
 
-
     private List<File> findAllTilesetJsons(File inputPath) {
         List<File> files = (List<File>) FileUtils.listFiles(inputPath, new String[]{"json"}, true);
         files.removeIf(file -> !file.getName().equals("tileset.json"));
@@ -0,0 +1,117 @@
+package com.gaia3d.process.tileprocess;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.gaia3d.process.tileprocess.tile.tileset.node.BoundingVolume;
+import com.gaia3d.util.GlobeUtils;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.joml.Vector3d;
+
+/**
+ * The root node of a tileset.json to merge, it is also an entry of the merge manifest.
+ * The file size and modified time tell whether the tileset has changed since the previous merge.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class TilesetRootInfo {
+    private String uri;
+    private long lastModified;
+    private long length;
+    private double geometricError;
+    private float[] transform;
+    private BoundingVolume boundingVolume;
+
+    public boolean isSameFile(long lastModified, long length) {
+        return this.lastModified == lastModified && this.length == length;
+    }
+
+    /**
+     * Geographic region (radians, meters) enclosing the bounding volume of the root.
+     * The box and sphere volumes are in the coordinates of the root transform, their corners are placed on the globe.
+     * @return minX, minY, maxX, maxY, minZ, maxZ or null if the root has no bounding volume
+     */
+    @JsonIgnore
+    public double[] getRegion() {
+        if (boundingVolume == null) {
+            return null;
+        }
+        if (boundingVolume.getRegion() != null) {
+            return boundingVolume.getRegion().clone();
+        }
+
+        double[] corners;
+        if (boundingVolume.getBox() != null) {
+            double[] box = boundingVolume.getBox();
+            corners = new double[8 * 3];
+            for (int i = 0; i < 8; i++) {
+                double signX = (i & 1) == 0 ? -1.0d : 1.0d;
+                double signY = (i & 2) == 0 ? -1.0d : 1.0d;
+                double signZ = (i & 4) == 0 ? -1.0d : 1.0d;
+                for (int axis = 0; axis < 3; axis++) {
+                    corners[i * 3 + axis] = box[axis] + signX * box[3 + axis] + signY * box[6 + axis] + signZ * box[9 + axis];
+                }
+            }
+            transformPositions(corners);
+        } else if (boundingVolume.getSphere() != null) {
+            double[] sphere = boundingVolume.getSphere();
+            double[] center = new double[]{sphere[0], sphere[1], sphere[2]};
+            transformPositions(center);
+            double radius = sphere[3] * getMaxScale();
+            corners = new double[8 * 3];
+            for (int i = 0; i < 8; i++) {
+                corners[i * 3] = center[0] + ((i & 1) == 0 ? -radius : radius);
+                corners[i * 3 + 1] = center[1] + ((i & 2) == 0 ? -radius : radius);
+                corners[i * 3 + 2] = center[2] + ((i & 4) == 0 ? -radius : radius);
+            }
+        } else {
+            return null;
+        }
+
+        double[] region = new double[]{Double.MAX_VALUE, Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE, Double.MAX_VALUE, -Double.MAX_VALUE};
+        for (int i = 0; i < corners.length; i += 3) {
+            Vector3d geographic = GlobeUtils.cartesianToGeographicWgs84(corners[i], corners[i + 1], corners[i + 2]);
+            double longitude = Math.toRadians(geographic.x);
+            double latitude = Math.toRadians(geographic.y);
+            region[0] = Math.min(region[0], longitude);
+            region[1] = Math.min(region[1], latitude);
+            region[2] = Math.max(region[2], longitude);
+            region[3] = Math.max(region[3], latitude);
+            region[4] = Math.min(region[4], geographic.z);
+            region[5] = Math.max(region[5], geographic.z);
+        }
+        return region;
+    }
+
+    /**
+     * Applies the column-major root transform to the xyz positions.
+     */
+    private void transformPositions(double[] positions) {
+        if (transform == null || transform.length != 16) {
+            return;
+        }
+        for (int i = 0; i < positions.length; i += 3) {
+            double x = positions[i];
+            double y = positions[i + 1];
+            double z = positions[i + 2];
+            positions[i] = transform[0] * x + transform[4] * y + transform[8] * z + transform[12];
+            positions[i + 1] = transform[1] * x + transform[5] * y + transform[9] * z + transform[13];
+            positions[i + 2] = transform[2] * x + transform[6] * y + transform[10] * z + transform[14];
+        }
+    }
+
+    private double getMaxScale() {
+        if (transform == null || transform.length != 16) {
+            return 1.0d;
+        }
+        double maxScale = 0.0d;
+        for (int column = 0; column < 3; column++) {
+            double x = transform[column * 4];
+            double y = transform[column * 4 + 1];
+            double z = transform[column * 4 + 2];
+            maxScale = Math.max(maxScale, Math.sqrt(x * x + y * y + z * z));
+        }
+        return maxScale;
+    }
+}
@@ -1,13 +1,11 @@
 package com.gaia3d.process.tileprocess.tile;
 
-import com.fasterxml.jackson.annotation.JsonInclude;
-import com.fasterxml.jackson.core.json.JsonWriteFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.gaia3d.basic.exception.TileProcessingException;
 import com.gaia3d.basic.geometry.GaiaBoundingBox;
 import com.gaia3d.command.mago.GlobalOptions;
 import com.gaia3d.process.tileprocess.Tiler;
 import com.gaia3d.process.tileprocess.tile.tileset.Tileset;
+import com.gaia3d.process.tileprocess.tile.tileset.TilesetWriter;
 import com.gaia3d.process.tileprocess.tile.tileset.asset.Asset;
 import com.gaia3d.process.tileprocess.tile.tileset.node.BoundingVolume;
 import com.gaia3d.process.tileprocess.tile.tileset.node.Content;
@@ -17,11 +15,8 @@ import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.joml.Matrix4d;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -34,10 +29,12 @@ public class Batched3DModelTiler extends DefaultTiler implements Tiler {
 
     @Override
     public Tileset run(List<TileInfo> tileInfos) {
+        // the nodes are contiguous ranges of the tiles sorted along the hilbert curve
+        tileInfos = TilePartitioner.sortByHilbertKey(tileInfos);
         double geometricError = calcGeometricError(tileInfos);
         geometricError = DecimalUtils.cut(geometricError);
 
-        GaiaBoundingBox globalBoundingBox = calcBoundingBox(tileInfos);
+        GaiaBoundingBox globalBoundingBox = TilePartitioner.calcBoundingBox(tileInfos);
         Matrix4d transformMatrix = getTransformMatrix(globalBoundingBox);
         if (globalOptions.isClassicTransformMatrix()) {
             rotateX90(transformMatrix);
@@ -64,18 +61,12 @@ public class Batched3DModelTiler extends DefaultTiler implements Tiler {
     }
 
     public void writeTileset(Tileset tileset) {
-        Path outputPath = new File(globalOptions.getOutputPath()).toPath();
-        File tilesetFile = outputPath.resolve("tileset.json").toFile();
-        ObjectMapper objectMapper = new ObjectMapper();
-        objectMapper.getFactory().configure(JsonWriteFeature.ESCAPE_NON_ASCII.mappedFeature(), true);
-        objectMapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
-        objectMapper.setSerializationInclusion(JsonInclude.Include.NON_EMPTY);
-        objectMapper.setSerializationInclusion(JsonInclude.Include.NON_DEFAULT);
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(tilesetFile))) {
-            String result = objectMapper.writeValueAsString(tileset);
+        File outputPath = new File(globalOptions.getOutputPath());
+        TilesetWriter tilesetWriter = new TilesetWriter(globalOptions.getSplitDepth(), globalOptions.getMultiThreadCount(), globalOptions.isImplicitTiling(), globalOptions.getSubtreeLevels());
+        try {
             log.info("[Tile][Tileset] write 'tileset.json' file.");
-            writer.write(result);
-            globalOptions.setTilesetSize(result.length());
+            long tilesetSize = tilesetWriter.write(tileset, outputPath);
+            globalOptions.setTilesetSize(tilesetSize);
         } catch (IOException e) {
             log.error("[ERROR] :", e);
             throw new TileProcessingException(e.getMessage());
@@ -83,9 +74,6 @@ public class Batched3DModelTiler extends DefaultTiler implements Tiler {
     }
 
     private void createNode(Node parentNode, List<TileInfo> tileInfos, int nodeDepth) throws IOException {
-        BoundingVolume parentBoundingVolume = parentNode.getBoundingVolume();
-        BoundingVolume squareBoundingVolume = parentBoundingVolume.createSqureBoundingVolume();
-
         boolean refineAdd = globalOptions.isRefineAdd();
         long triangleLimit = globalOptions.getMaxTriangles();
         long totalTriangleCount = tileInfos.stream().mapToLong(TileInfo::getTriangleCount).sum();
@@ -108,7 +96,7 @@ public class Batched3DModelTiler extends DefaultTiler implements Tiler {
                 createNode(childNode, tileInfos, nodeDepth + 1);
             }
         } else if (totalTriangleCount > triangleLimit) {
-            List<List<TileInfo>> childrenScenes = squareBoundingVolume.distributeScene(tileInfos);
+            List<List<TileInfo>> childrenScenes = TilePartitioner.splitBalanced(tileInfos, 4);
             for (int index = 0; index < childrenScenes.size(); index++) {
                 List<TileInfo> childTileInfos = childrenScenes.get(index);
                 Node childNode = createLogicalNode(parentNode, childTileInfos, index);
@@ -118,7 +106,7 @@ public class Batched3DModelTiler extends DefaultTiler implements Tiler {
                 }
             }
         } else if (totalTriangleCount > 1) {
-            List<List<TileInfo>> childrenScenes = squareBoundingVolume.distributeScene(tileInfos);
+            List<List<TileInfo>> childrenScenes = TilePartitioner.splitBalanced(tileInfos, 4);
             for (int index = 0; index < childrenScenes.size(); index++) {
                 List<TileInfo> childTileInfos = childrenScenes.get(index);
 
@@ -152,7 +140,7 @@ public class Batched3DModelTiler extends DefaultTiler implements Tiler {
         log.info("[Tile][LogicalNode][" + nodeCode + "][OBJECT{}]", tileInfos.size());
 
         double geometricError = calcGeometricError(tileInfos);
-        GaiaBoundingBox boundingBox = calcBoundingBox(tileInfos);
+        GaiaBoundingBox boundingBox = TilePartitioner.calcBoundingBox(tileInfos);
         Matrix4d transformMatrix = getTransformMatrix(boundingBox);
         if (globalOptions.isClassicTransformMatrix()) {
             rotateX90(transformMatrix);
@@ -179,7 +167,7 @@ public class Batched3DModelTiler extends DefaultTiler implements Tiler {
         int maxLevel = globalOptions.getMaxLod();
         boolean refineAdd = globalOptions.isRefineAdd();
 
-        GaiaBoundingBox childBoundingBox = calcBoundingBox(tileInfos);
+        GaiaBoundingBox childBoundingBox = TilePartitioner.calcBoundingBox(tileInfos);
         Matrix4d transformMatrix = getTransformMatrix(childBoundingBox);
         if (globalOptions.isClassicTransformMatrix()) {
             rotateX90(transformMatrix);
@@ -233,7 +221,7 @@ public class Batched3DModelTiler extends DefaultTiler implements Tiler {
             contentInfo.setTransformMatrix(transformMatrix);
 
             Content content = new Content();
-            content.setUri("data/" + nodeCode + ".b3dm");
+            content.setUri("data/" + nodeCode + "." + globalOptions.getOutputFormat().getExtension());
             content.setContentInfo(contentInfo);
             childNode.setContent(content);
         } else {
@@ -1,6 +1,7 @@
 package com.gaia3d.process.tileprocess.tile;
 
 import com.gaia3d.basic.geometry.GaiaBoundingBox;
+import com.gaia3d.basic.types.FormatType;
 import com.gaia3d.command.mago.GlobalOptions;
 import com.gaia3d.converter.kml.KmlInfo;
 import com.gaia3d.process.tileprocess.tile.tileset.asset.*;
@@ -56,6 +57,10 @@ public abstract class DefaultTiler {
 
     protected Asset createAsset() {
         Asset asset = new Asset();
+        // glb contents are 3D Tiles 1.1
+        if (FormatType.GLB == GlobalOptions.getInstance().getOutputFormat()) {
+            asset.setVersion("1.1");
+        }
         Extras extras = new Extras();
         Cesium cesium = new Cesium();
         Ion ion = new Ion();
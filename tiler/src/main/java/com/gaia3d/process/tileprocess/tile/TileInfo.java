@@ -1,6 +1,7 @@
 package com.gaia3d.process.tileprocess.tile;
 
 import com.gaia3d.basic.exchangable.GaiaSet;
+import com.gaia3d.basic.exchangable.GaiaSetCache;
 import com.gaia3d.basic.geometry.GaiaBoundingBox;
 import com.gaia3d.basic.model.GaiaNode;
 import com.gaia3d.basic.model.GaiaScene;
@@ -45,6 +46,8 @@ public class TileInfo {
     @Builder.Default
     private long triangleCount = 0;
     @Builder.Default
+    private long memoryBytes = 0; // estimated heap bytes of the scene before it was minimized
+    @Builder.Default
     private boolean isI3dm = false;
 
     private void init() {
@@ -78,7 +81,7 @@ public class TileInfo {
             this.set = null;
         }
         try {
-            this.set = GaiaSet.readFile(this.tempPath);
+            this.set = GaiaSetCache.getInstance().readFile(this.tempPath);
         } catch (IOException e) {
             log.error("Failed to read the temp file: {}", this.tempPath);
         }
@@ -134,6 +137,7 @@ public class TileInfo {
                 .tempPathLod(this.tempPathLod)
                 .cartographicBBox(this.cartographicBBox)
                 .triangleCount(this.triangleCount)
+                .memoryBytes(this.memoryBytes)
                 .isI3dm(this.isI3dm)
                 .build();
     }
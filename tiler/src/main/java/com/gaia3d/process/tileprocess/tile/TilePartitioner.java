@@ -0,0 +1,145 @@
+package com.gaia3d.process.tileprocess.tile;
+
+import com.gaia3d.basic.geometry.GaiaBoundingBox;
+import lombok.extern.slf4j.Slf4j;
+import org.joml.Vector3d;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Partitions the tiles of the batched tiler along a hilbert curve.
+ * The cartographic bounds of the tiles are computed once and the tiles are sorted by the hilbert key of their center,
+ * so every quadtree node is a contiguous range of the sorted tiles and is split into ranges of balanced triangle counts.
+ */
+@Slf4j
+public class TilePartitioner {
+    // the keys stay below 2^31, so the key and the tile index share one positive long
+    private static final int HILBERT_ORDER = 15;
+
+    /**
+     * Computes the cartographic bounding box of each tile and sorts the tiles by the hilbert key of its center.
+     * @return the sorted copy of the tiles
+     */
+    public static List<TileInfo> sortByHilbertKey(List<TileInfo> tileInfos) {
+        int tileCount = tileInfos.size();
+        long[] hilbertKeys = getHilbertKeys(tileInfos);
+        long[] keys = new long[tileCount];
+        for (int i = 0; i < tileCount; i++) {
+            keys[i] = (hilbertKeys[i] << 32) | i;
+        }
+        Arrays.sort(keys);
+
+        List<TileInfo> sortedTileInfos = new ArrayList<>(tileCount);
+        for (long key : keys) {
+            sortedTileInfos.add(tileInfos.get((int) key));
+        }
+        return sortedTileInfos;
+    }
+
+    /**
+     * Hilbert keys of the tile centers, in a square grid covering the centers of all the tiles.
+     */
+    public static long[] getHilbertKeys(List<TileInfo> tileInfos) {
+        int tileCount = tileInfos.size();
+        double[] centers = new double[tileCount * 2];
+        GaiaBoundingBox globalBoundingBox = new GaiaBoundingBox();
+        for (int i = 0; i < tileCount; i++) {
+            TileInfo tileInfo = tileInfos.get(i);
+            GaiaBoundingBox cartographicBoundingBox = getCartographicBoundingBox(tileInfo);
+            Vector3d center = cartographicBoundingBox.getCenter();
+            centers[i * 2] = center.x;
+            centers[i * 2 + 1] = center.y;
+            globalBoundingBox.addPoint(center);
+        }
+
+        double minX = globalBoundingBox.getMinX();
+        double minY = globalBoundingBox.getMinY();
+        double size = Math.max(globalBoundingBox.getMaxX() - minX, globalBoundingBox.getMaxY() - minY);
+        double scale = size > 0.0d ? ((1 << HILBERT_ORDER) - 1) / size : 0.0d;
+        long[] keys = new long[tileCount];
+        for (int i = 0; i < tileCount; i++) {
+            int x = (int) Math.round((centers[i * 2] - minX) * scale);
+            int y = (int) Math.round((centers[i * 2 + 1] - minY) * scale);
+            keys[i] = getHilbertKey(x, y, HILBERT_ORDER);
+        }
+        return keys;
+    }
+
+    /**
+     * Splits the sorted tiles into contiguous ranges with about the same number of triangles.
+     * A range is empty when a single tile holds more triangles than a share.
+     */
+    public static List<List<TileInfo>> splitBalanced(List<TileInfo> sortedTileInfos, int count) {
+        long totalTriangleCount = 0;
+        for (TileInfo tileInfo : sortedTileInfos) {
+            totalTriangleCount += Math.max(tileInfo.getTriangleCount(), 1);
+        }
+
+        List<List<TileInfo>> result = new ArrayList<>(count);
+        int start = 0;
+        long accumulated = 0;
+        for (int part = 0; part < count; part++) {
+            long partLimit = totalTriangleCount * (part + 1) / count;
+            int end = start;
+            // keep at least one tile for each of the remaining parts if possible
+            int maxEnd = sortedTileInfos.size() - (count - part - 1);
+            if (part == count - 1) {
+                end = sortedTileInfos.size();
+            } else {
+                while (end < maxEnd && (end == start || accumulated + Math.max(sortedTileInfos.get(end).getTriangleCount(), 1) <= partLimit)) {
+                    accumulated += Math.max(sortedTileInfos.get(end).getTriangleCount(), 1);
+                    end++;
+                }
+            }
+            result.add(new ArrayList<>(sortedTileInfos.subList(start, Math.max(start, end))));
+            start = Math.max(start, end);
+        }
+        return result;
+    }
+
+    /**
+     * Sums the cartographic bounding boxes computed by {@link #sortByHilbertKey}.
+     */
+    public static GaiaBoundingBox calcBoundingBox(List<TileInfo> tileInfos) {
+        GaiaBoundingBox boundingBox = new GaiaBoundingBox();
+        for (TileInfo tileInfo : tileInfos) {
+            boundingBox.addBoundingBox(getCartographicBoundingBox(tileInfo));
+        }
+        return boundingBox;
+    }
+
+    /**
+     * Distance of the cell (x, y) along the hilbert curve filling a square of 2^order cells on a side.
+     */
+    public static long getHilbertKey(int x, int y, int order) {
+        long key = 0;
+        for (int s = 1 << (order - 1); s > 0; s >>= 1) {
+            int rx = (x & s) > 0 ? 1 : 0;
+            int ry = (y & s) > 0 ? 1 : 0;
+            key += (long) s * s * ((3 * rx) ^ ry);
+            // rotate the quadrant
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = s - 1 - x;
+                    y = s - 1 - y;
+                }
+                int temp = x;
+                x = y;
+                y = temp;
+            }
+        }
+        return key;
+    }
+
+    private static GaiaBoundingBox getCartographicBoundingBox(TileInfo tileInfo) {
+        GaiaBoundingBox cartographicBoundingBox = tileInfo.getCartographicBBox();
+        if (cartographicBoundingBox == null) {
+            cartographicBoundingBox = tileInfo.getBoundingBox().convertLocalToLonlatBoundingBox(tileInfo.getKmlInfo().getPosition());
+            tileInfo.setCartographicBBox(cartographicBoundingBox);
+        }
+        return cartographicBoundingBox;
+    }
+}
@@ -0,0 +1,393 @@
+package com.gaia3d.process.tileprocess.tile.tileset;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.json.JsonWriteFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.gaia3d.process.tileprocess.tile.ContentInfo;
+import com.gaia3d.process.tileprocess.tile.tileset.asset.Asset;
+import com.gaia3d.process.tileprocess.tile.tileset.node.BoundingVolume;
+import com.gaia3d.process.tileprocess.tile.tileset.node.Content;
+import com.gaia3d.process.tileprocess.tile.tileset.node.Node;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Writes an octree tileset as 3D Tiles 1.1 implicit tiling.
+ * The tileset.json only holds the root tile with the content and subtree uri templates,
+ * the tile, content and child subtree availability of every subtree is written into binary .subtree files.
+ * Only regular octrees qualify, the node codes must descend by octant digit ("R", "R0".."R7", ...)
+ * and the child regions must be the octants of their parent region, see {@link #isImplicitOctree(Node)}.
+ */
+@Slf4j
+public class ImplicitTilesetWriter {
+    public static final String SUBTREE_DIRECTORY = "subtrees";
+    private static final String CONTENT_NAME_TEMPLATE = "{level}_{x}_{y}_{z}";
+    private static final String SUBTREE_URI_TEMPLATE = SUBTREE_DIRECTORY + "/{level}_{x}_{y}_{z}.subtree";
+    private static final String IMPLICIT_TILING_VERSION = "1.1";
+    private static final int SUBTREE_MAGIC = 0x74627573; // "subt"
+    private static final int SUBTREE_VERSION = 1;
+    private static final int SUBTREE_HEADER_LENGTH = 24;
+    private static final double OCTANT_TOLERANCE = 1.0e-3;
+    private static final double REGION_EPSILON = 2.0e-8;
+    private static final int MAX_SUBTREE_LEVELS = 8;
+
+    private final ObjectMapper objectMapper;
+    private final int subtreeLevels;
+
+    /**
+     * @param subtreeLevels the number of levels in each subtree file, from 1 to 8
+     */
+    public ImplicitTilesetWriter(int subtreeLevels) {
+        this.subtreeLevels = Math.max(1, Math.min(MAX_SUBTREE_LEVELS, subtreeLevels));
+        this.objectMapper = new ObjectMapper();
+        objectMapper.getFactory().configure(JsonWriteFeature.ESCAPE_NON_ASCII.mappedFeature(), true);
+        objectMapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        objectMapper.setSerializationInclusion(JsonInclude.Include.NON_EMPTY);
+        objectMapper.setSerializationInclusion(JsonInclude.Include.NON_DEFAULT);
+        objectMapper.disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /**
+     * Checks whether the tree can be written as an implicit octree.
+     * Every child code is the parent code with one octant digit, the children have no transform
+     * and their regions are the octants of the parent region, and every content uses the same file extension.
+     */
+    public static boolean isImplicitOctree(Node root) {
+        if (root == null || root.getNodeCode() == null || !hasRegion(root)) {
+            return false;
+        }
+        Set<String> extensions = new HashSet<>();
+        return isImplicitNode(root, extensions) && extensions.size() <= 1;
+    }
+
+    private static boolean isImplicitNode(Node node, Set<String> extensions) {
+        Content content = node.getContent();
+        if (content != null) {
+            if (content.getUri() == null || content.getUri().lastIndexOf('.') < 0) {
+                return false;
+            }
+            extensions.add(getExtension(content.getUri()));
+        }
+        List<Node> children = node.getChildren();
+        if (children == null) {
+            return true;
+        }
+        boolean[] octants = new boolean[8];
+        for (Node child : children) {
+            int octant = getOctant(node, child);
+            if (octant < 0 || octants[octant] || child.getTransform() != null || !hasRegion(child)) {
+                return false;
+            }
+            octants[octant] = true;
+            if (!isOctantRegion(node.getBoundingVolume().getRegion(), child.getBoundingVolume().getRegion(), octant)) {
+                return false;
+            }
+            if (!isImplicitNode(child, extensions)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean hasRegion(Node node) {
+        BoundingVolume boundingVolume = node.getBoundingVolume();
+        return boundingVolume != null && boundingVolume.getRegion() != null && boundingVolume.getBox() == null && boundingVolume.getSphere() == null;
+    }
+
+    /**
+     * The octant digit of the child code, 0 to 3 are the bottom octants counterclockwise from the south-west,
+     * 4 to 7 the top octants in the same order.
+     */
+    private static int getOctant(Node parent, Node child) {
+        String parentCode = parent.getNodeCode();
+        String childCode = child.getNodeCode();
+        if (childCode == null || childCode.length() != parentCode.length() + 1 || !childCode.startsWith(parentCode)) {
+            return -1;
+        }
+        char digit = childCode.charAt(parentCode.length());
+        return digit >= '0' && digit <= '7' ? digit - '0' : -1;
+    }
+
+    private static boolean isOctantRegion(double[] parentRegion, double[] childRegion, int octant) {
+        int[] bits = getOctantBits(octant);
+        for (int axis = 0; axis < 3; axis++) {
+            int minIndex = axis < 2 ? axis : 4;
+            int maxIndex = axis < 2 ? axis + 2 : 5;
+            double min = parentRegion[minIndex];
+            double max = parentRegion[maxIndex];
+            double mid = (min + max) / 2.0;
+            double expectedMin = bits[axis] == 0 ? min : mid;
+            double expectedMax = bits[axis] == 0 ? mid : max;
+            double tolerance = (max - min) * OCTANT_TOLERANCE + REGION_EPSILON;
+            if (Math.abs(childRegion[minIndex] - expectedMin) > tolerance || Math.abs(childRegion[maxIndex] - expectedMax) > tolerance) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the x (east), y (north) and z (up) bits of the octant digit
+     */
+    private static int[] getOctantBits(int octant) {
+        int x = (octant == 1 || octant == 2 || octant == 5 || octant == 6) ? 1 : 0;
+        int y = (octant == 2 || octant == 3 || octant == 6 || octant == 7) ? 1 : 0;
+        int z = octant >= 4 ? 1 : 0;
+        return new int[]{x, y, z};
+    }
+
+    private static String getExtension(String uri) {
+        return uri.substring(uri.lastIndexOf('.') + 1);
+    }
+
+    /**
+     * Writes the tileset.json and the subtree files into the output directory.
+     * The tileset must be written before the post processes, the contents are renamed to the content uri template
+     * so the post processes write every content file at its implicit tile coordinates.
+     * @return the total size of the written tileset and subtree files in bytes
+     */
+    public long write(Tileset tileset, File outputPath) throws IOException {
+        Node root = tileset.getRoot();
+        Map<String, Subtree> subtrees = new LinkedHashMap<>();
+        ImplicitState state = new ImplicitState();
+        collect(root, 0, 0, 0, 0, subtrees, state);
+
+        String extension = state.extension != null ? state.extension : "b3dm";
+        String contentUriTemplate = "data/" + CONTENT_NAME_TEMPLATE + "." + extension;
+
+        File tilesetFile = new File(outputPath, TilesetWriter.TILESET_FILE_NAME);
+        writeTilesetFile(tilesetFile, tileset, contentUriTemplate, state);
+        long tilesetSize = tilesetFile.length();
+
+        File subtreePath = new File(outputPath, SUBTREE_DIRECTORY);
+        if (!subtreePath.exists() && !subtreePath.mkdirs()) {
+            throw new IOException("Failed to create subtree directory : " + subtreePath.getAbsolutePath());
+        }
+        for (Subtree subtree : subtrees.values()) {
+            File subtreeFile = new File(subtreePath, subtree.name + ".subtree");
+            writeSubtreeFile(subtreeFile, subtree);
+            tilesetSize += subtreeFile.length();
+        }
+        log.info("[Tile][Tileset] write {} subtree files, {} available levels.", subtrees.size(), state.maxLevel + 1);
+        return tilesetSize;
+    }
+
+    private void collect(Node node, int level, long x, long y, long z, Map<String, Subtree> subtrees, ImplicitState state) {
+        int rootLevel = (level / subtreeLevels) * subtreeLevels;
+        int localLevel = level - rootLevel;
+        Subtree subtree = subtrees.computeIfAbsent(createName(rootLevel, x >> localLevel, y >> localLevel, z >> localLevel), name -> new Subtree(name, subtreeLevels));
+        long mask = (1L << localLevel) - 1;
+        int tileIndex = getLevelOffset(localLevel) + (int) morton(x & mask, y & mask, z & mask);
+        subtree.tileAvailability.set(tileIndex);
+
+        // the root of a subtree is available in the child subtree availability of its parent subtree
+        if (localLevel == 0 && level > 0) {
+            long parentMask = (1L << subtreeLevels) - 1;
+            String parentName = createName(level - subtreeLevels, x >> subtreeLevels, y >> subtreeLevels, z >> subtreeLevels);
+            subtrees.get(parentName).childSubtreeAvailability.set((int) morton(x & parentMask, y & parentMask, z & parentMask));
+        }
+
+        state.maxLevel = Math.max(state.maxLevel, level);
+        if (level > 0) {
+            state.rootGeometricError = Math.max(state.rootGeometricError, node.getGeometricError() * (1L << level));
+        }
+
+        Content content = node.getContent();
+        if (content != null) {
+            subtree.contentAvailability.set(tileIndex);
+            String extension = getExtension(content.getUri());
+            if (state.extension == null) {
+                state.extension = extension;
+                state.refine = node.getRefine();
+            }
+            String contentName = createName(level, x, y, z);
+            content.setUri("data/" + contentName + "." + extension);
+            ContentInfo contentInfo = content.getContentInfo();
+            if (contentInfo != null) {
+                contentInfo.setNodeCode(contentName);
+            }
+        }
+
+        List<Node> children = node.getChildren();
+        if (children == null) {
+            return;
+        }
+        for (Node child : children) {
+            int[] bits = getOctantBits(getOctant(node, child));
+            collect(child, level + 1, (x << 1) | bits[0], (y << 1) | bits[1], (z << 1) | bits[2], subtrees, state);
+        }
+    }
+
+    private void writeTilesetFile(File file, Tileset tileset, String contentUriTemplate, ImplicitState state) throws IOException {
+        Node root = tileset.getRoot();
+        Asset asset = new Asset();
+        asset.setVersion(IMPLICIT_TILING_VERSION);
+        if (tileset.getAsset() != null) {
+            asset.setExtras(tileset.getAsset().getExtras());
+        }
+        double rootGeometricError = state.maxLevel > 0 ? state.rootGeometricError : root.getGeometricError();
+        Node.RefineType refine = state.refine != null ? state.refine : root.getRefine();
+
+        try (OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(file));
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+            generator.writeStartObject();
+            generator.writeFieldName("asset");
+            objectMapper.writeValue(generator, asset);
+            generator.writeNumberField("geometricError", tileset.getGeometricError());
+
+            generator.writeObjectFieldStart("root");
+            generator.writeFieldName("boundingVolume");
+            objectMapper.writeValue(generator, root.getBoundingVolume());
+            if (refine != null) {
+                generator.writeStringField("refine", refine.name());
+            }
+            generator.writeNumberField("geometricError", rootGeometricError);
+            if (root.getTransform() != null) {
+                generator.writeFieldName("transform");
+                objectMapper.writeValue(generator, root.getTransform());
+            }
+            generator.writeObjectFieldStart("content");
+            generator.writeStringField("uri", contentUriTemplate);
+            generator.writeEndObject();
+            generator.writeObjectFieldStart("implicitTiling");
+            generator.writeStringField("subdivisionScheme", "OCTREE");
+            generator.writeNumberField("subtreeLevels", subtreeLevels);
+            generator.writeNumberField("availableLevels", state.maxLevel + 1);
+            generator.writeObjectFieldStart("subtrees");
+            generator.writeStringField("uri", SUBTREE_URI_TEMPLATE);
+            generator.writeEndObject();
+            generator.writeEndObject();
+            generator.writeEndObject();
+
+            if (tileset.getProperties() != null) {
+                generator.writeFieldName("properties");
+                objectMapper.writeValue(generator, tileset.getProperties());
+            }
+            generator.writeEndObject();
+        }
+    }
+
+    /**
+     * Writes the binary subtree, the availabilities that are neither all set nor all unset are bitstreams
+     * in the internal buffer, each buffer view aligned to 8 bytes.
+     */
+    private void writeSubtreeFile(File file, Subtree subtree) throws IOException {
+        int tileCount = getLevelOffset(subtreeLevels);
+        int childSubtreeCount = 1 << (3 * subtreeLevels);
+
+        ByteArrayOutputStream binary = new ByteArrayOutputStream();
+        ObjectNode json = objectMapper.createObjectNode();
+        ArrayNode bufferViews = objectMapper.createArrayNode();
+        json.set("tileAvailability", createAvailability(subtree.tileAvailability, tileCount, binary, bufferViews));
+        ArrayNode contentAvailability = objectMapper.createArrayNode();
+        contentAvailability.add(createAvailability(subtree.contentAvailability, tileCount, binary, bufferViews));
+        json.set("contentAvailability", contentAvailability);
+        json.set("childSubtreeAvailability", createAvailability(subtree.childSubtreeAvailability, childSubtreeCount, binary, bufferViews));
+        if (!bufferViews.isEmpty()) {
+            ArrayNode buffers = objectMapper.createArrayNode();
+            buffers.addObject().put("byteLength", binary.size());
+            json.set("buffers", buffers);
+            json.set("bufferViews", bufferViews);
+        }
+
+        byte[] jsonBytes = objectMapper.writeValueAsString(json).getBytes(StandardCharsets.UTF_8);
+        int jsonByteLength = padMultiple8(jsonBytes.length);
+        byte[] binaryBytes = binary.toByteArray();
+
+        ByteBuffer header = ByteBuffer.allocate(SUBTREE_HEADER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(SUBTREE_MAGIC);
+        header.putInt(SUBTREE_VERSION);
+        header.putLong(jsonByteLength);
+        header.putLong(binaryBytes.length);
+
+        try (OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(file))) {
+            outputStream.write(header.array());
+            outputStream.write(jsonBytes);
+            for (int i = jsonBytes.length; i < jsonByteLength; i++) {
+                outputStream.write(' ');
+            }
+            outputStream.write(binaryBytes);
+        }
+    }
+
+    private ObjectNode createAvailability(BitSet availability, int bitCount, ByteArrayOutputStream binary, ArrayNode bufferViews) {
+        ObjectNode availabilityNode = objectMapper.createObjectNode();
+        int availableCount = availability.cardinality();
+        if (availableCount == 0 || availableCount == bitCount) {
+            availabilityNode.put("constant", availableCount == 0 ? 0 : 1);
+            return availabilityNode;
+        }
+        // the bits are packed least significant bit first, as BitSet.toByteArray does
+        byte[] bitstream = Arrays.copyOf(availability.toByteArray(), (bitCount + 7) / 8);
+        int byteOffset = binary.size();
+        binary.writeBytes(bitstream);
+        for (int i = bitstream.length; i < padMultiple8(bitstream.length); i++) {
+            binary.write(0);
+        }
+        ObjectNode bufferView = bufferViews.addObject();
+        bufferView.put("buffer", 0);
+        bufferView.put("byteOffset", byteOffset);
+        bufferView.put("byteLength", bitstream.length);
+        availabilityNode.put("bitstream", bufferViews.size() - 1);
+        availabilityNode.put("availableCount", availableCount);
+        return availabilityNode;
+    }
+
+    /**
+     * The number of tiles in the levels above the given local level, (8^level - 1) / 7.
+     */
+    private static int getLevelOffset(int localLevel) {
+        return ((1 << (3 * localLevel)) - 1) / 7;
+    }
+
+    /**
+     * Interleaves the bits of the tile coordinates, x in the least significant bit.
+     */
+    private static long morton(long x, long y, long z) {
+        long index = 0;
+        for (int bit = 0; bit < 21; bit++) {
+            index |= ((x >> bit) & 1L) << (3 * bit);
+            index |= ((y >> bit) & 1L) << (3 * bit + 1);
+            index |= ((z >> bit) & 1L) << (3 * bit + 2);
+        }
+        return index;
+    }
+
+    private static String createName(int level, long x, long y, long z) {
+        return level + "_" + x + "_" + y + "_" + z;
+    }
+
+    private static int padMultiple8(int length) {
+        return (length + 7) & ~7;
+    }
+
+    private static class Subtree {
+        private final String name;
+        private final BitSet tileAvailability;
+        private final BitSet contentAvailability;
+        private final BitSet childSubtreeAvailability;
+
+        Subtree(String name, int subtreeLevels) {
+            this.name = name;
+            this.tileAvailability = new BitSet(getLevelOffset(subtreeLevels));
+            this.contentAvailability = new BitSet(getLevelOffset(subtreeLevels));
+            this.childSubtreeAvailability = new BitSet(1 << (3 * subtreeLevels));
+        }
+    }
+
+    private static class ImplicitState {
+        private int maxLevel = 0;
+        private double rootGeometricError = 0.0d;
+        private String extension;
+        private Node.RefineType refine;
+    }
+}
@@ -0,0 +1,206 @@
+package com.gaia3d.process.tileprocess.tile.tileset;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.json.JsonWriteFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.gaia3d.process.tileprocess.tile.tileset.asset.Asset;
+import com.gaia3d.process.tileprocess.tile.tileset.node.Node;
+import com.gaia3d.process.tileprocess.tile.tileset.node.Properties;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Writes the tileset tree through a streaming json generator, node by node, without building the whole json string.
+ * When the split depth is set, the subtrees below the split depth are written into external tileset files
+ * in the output directory and their parent files reference them with the content uri of a stub tile.
+ * The external tilesets of the same level are written in parallel.
+ * When implicit tiling is enabled and the tree is a regular octree, the {@link ImplicitTilesetWriter} writes it instead.
+ */
+@Slf4j
+public class TilesetWriter {
+    public static final String TILESET_FILE_NAME = "tileset.json";
+    private static final String EXTERNAL_TILESET_PREFIX = "tileset_";
+
+    private final ObjectMapper objectMapper;
+    private final int splitDepth;
+    private final int threadCount;
+    private final boolean implicitTiling;
+    private final int subtreeLevels;
+    private final Set<String> externalTilesetNames = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger externalTilesetCount = new AtomicInteger(0);
+
+    /**
+     * @param splitDepth the depth of the external tileset roots, 0 to write a single tileset.json
+     * @param threadCount the number of threads writing the external tilesets
+     */
+    public TilesetWriter(int splitDepth, int threadCount) {
+        this(splitDepth, threadCount, false, 0);
+    }
+
+    /**
+     * @param splitDepth the depth of the external tileset roots, 0 to write a single tileset.json
+     * @param threadCount the number of threads writing the external tilesets
+     * @param implicitTiling write the octree tilesets as implicit tiling with subtree files
+     * @param subtreeLevels the number of levels in each subtree file
+     */
+    public TilesetWriter(int splitDepth, int threadCount, boolean implicitTiling, int subtreeLevels) {
+        this.splitDepth = splitDepth;
+        this.threadCount = Math.max(1, threadCount);
+        this.implicitTiling = implicitTiling;
+        this.subtreeLevels = subtreeLevels;
+        this.objectMapper = new ObjectMapper();
+        objectMapper.getFactory().configure(JsonWriteFeature.ESCAPE_NON_ASCII.mappedFeature(), true);
+        objectMapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        objectMapper.setSerializationInclusion(JsonInclude.Include.NON_EMPTY);
+        objectMapper.setSerializationInclusion(JsonInclude.Include.NON_DEFAULT);
+        objectMapper.disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /**
+     * Writes the tileset.json, and the external tilesets, into the output directory.
+     * @return the total size of the written tileset files in bytes
+     */
+    public long write(Tileset tileset, File outputPath) throws IOException {
+        if (implicitTiling) {
+            if (ImplicitTilesetWriter.isImplicitOctree(tileset.getRoot())) {
+                return new ImplicitTilesetWriter(subtreeLevels).write(tileset, outputPath);
+            }
+            log.warn("[WARN][Tile][Tileset] The tree is not a regular octree, the tileset is written without implicit tiling.");
+        }
+        File tilesetFile = new File(outputPath, TILESET_FILE_NAME);
+        List<ExternalTileset> externalTilesets = new ArrayList<>();
+        writeTilesetFile(tilesetFile, tileset.getAsset(), tileset.getGeometricError(), tileset.getProperties(), tileset.getRoot(), true, externalTilesets);
+        long tilesetSize = tilesetFile.length();
+        if (!externalTilesets.isEmpty()) {
+            tilesetSize += writeExternalTilesets(outputPath, tileset.getAsset(), externalTilesets);
+            log.info("[Tile][Tileset] write {} external tileset files.", externalTilesetCount.get());
+        }
+        return tilesetSize;
+    }
+
+    private long writeExternalTilesets(File outputPath, Asset asset, List<ExternalTileset> externalTilesets) throws IOException {
+        ExecutorService executorService = Executors.newFixedThreadPool(threadCount);
+        long tilesetSize = 0;
+        try {
+            // level by level, the tasks never wait for each other
+            List<ExternalTileset> pendingTilesets = externalTilesets;
+            while (!pendingTilesets.isEmpty()) {
+                List<Future<List<ExternalTileset>>> futures = new ArrayList<>();
+                for (ExternalTileset externalTileset : pendingTilesets) {
+                    futures.add(executorService.submit(() -> {
+                        List<ExternalTileset> nestedTilesets = new ArrayList<>();
+                        File file = new File(outputPath, externalTileset.getUri());
+                        Node root = externalTileset.getRoot();
+                        writeTilesetFile(file, asset, root.getGeometricError(), null, root, false, nestedTilesets);
+                        return nestedTilesets;
+                    }));
+                }
+                List<ExternalTileset> nextTilesets = new ArrayList<>();
+                for (Future<List<ExternalTileset>> future : futures) {
+                    nextTilesets.addAll(future.get());
+                }
+                for (ExternalTileset externalTileset : pendingTilesets) {
+                    tilesetSize += new File(outputPath, externalTileset.getUri()).length();
+                }
+                pendingTilesets = nextTilesets;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        } finally {
+            executorService.shutdown();
+        }
+        return tilesetSize;
+    }
+
+    private void writeTilesetFile(File file, Asset asset, double geometricError, Properties properties, Node root, boolean writeRootTransform, List<ExternalTileset> externalTilesets) throws IOException {
+        try (OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(file));
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+            generator.writeStartObject();
+            generator.writeFieldName("asset");
+            objectMapper.writeValue(generator, asset);
+            generator.writeNumberField("geometricError", geometricError);
+            generator.writeFieldName("root");
+            writeNode(generator, root, 0, writeRootTransform, externalTilesets);
+            if (properties != null) {
+                generator.writeFieldName("properties");
+                objectMapper.writeValue(generator, properties);
+            }
+            generator.writeEndObject();
+        }
+    }
+
+    /**
+     * Writes the node and its children.
+     * The node at the split depth is written as a stub tile whose content is the external tileset of the subtree,
+     * the transform stays in the stub so the root of the external tileset is written without it.
+     */
+    private void writeNode(JsonGenerator generator, Node node, int depth, boolean writeTransform, List<ExternalTileset> externalTilesets) throws IOException {
+        List<Node> children = node.getChildren();
+        boolean hasChildren = children != null && !children.isEmpty();
+        boolean isExternal = splitDepth > 0 && depth == splitDepth && hasChildren;
+
+        generator.writeStartObject();
+        if (node.getBoundingVolume() != null) {
+            generator.writeFieldName("boundingVolume");
+            objectMapper.writeValue(generator, node.getBoundingVolume());
+        }
+        if (node.getRefine() != null) {
+            generator.writeStringField("refine", node.getRefine().name());
+        }
+        generator.writeNumberField("geometricError", node.getGeometricError());
+        if (writeTransform && node.getTransform() != null) {
+            generator.writeFieldName("transform");
+            objectMapper.writeValue(generator, node.getTransform());
+        }
+
+        if (isExternal) {
+            String uri = createExternalTilesetName(node);
+            externalTilesets.add(new ExternalTileset(uri, node));
+            generator.writeObjectFieldStart("content");
+            generator.writeStringField("uri", uri);
+            generator.writeEndObject();
+        } else {
+            if (hasChildren) {
+                generator.writeArrayFieldStart("children");
+                for (Node child : children) {
+                    writeNode(generator, child, depth + 1, true, externalTilesets);
+                }
+                generator.writeEndArray();
+            }
+            if (node.getContent() != null) {
+                generator.writeFieldName("content");
+                objectMapper.writeValue(generator, node.getContent());
+            }
+        }
+        generator.writeEndObject();
+    }
+
+    private String createExternalTilesetName(Node node) {
+        String nodeCode = node.getNodeCode();
+        if (nodeCode != null && externalTilesetNames.add(nodeCode)) {
+            externalTilesetCount.incrementAndGet();
+            return EXTERNAL_TILESET_PREFIX + nodeCode + ".json";
+        }
+        return EXTERNAL_TILESET_PREFIX + externalTilesetCount.incrementAndGet() + ".json";
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class ExternalTileset {
+        private final String uri;
+        private final Node root;
+    }
+}
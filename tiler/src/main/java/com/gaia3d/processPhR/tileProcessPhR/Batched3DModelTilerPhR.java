@@ -1,8 +1,5 @@
 package com.gaia3d.processPhR.tileProcessPhR;
 
-import com.fasterxml.jackson.annotation.JsonInclude;
-import com.fasterxml.jackson.core.json.JsonWriteFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.gaia3d.TilerExtensionModule;
 import com.gaia3d.basic.exception.TileProcessingException;
 import com.gaia3d.basic.exchangable.GaiaSet;
@@ -21,6 +18,7 @@ import com.gaia3d.process.tileprocess.tile.DefaultTiler;
 import com.gaia3d.process.tileprocess.tile.LevelOfDetail;
 import com.gaia3d.process.tileprocess.tile.TileInfo;
 import com.gaia3d.process.tileprocess.tile.tileset.Tileset;
+import com.gaia3d.process.tileprocess.tile.tileset.TilesetWriter;
 import com.gaia3d.process.tileprocess.tile.tileset.asset.Asset;
 import com.gaia3d.process.tileprocess.tile.tileset.node.BoundingVolume;
 import com.gaia3d.process.tileprocess.tile.tileset.node.Content;
@@ -957,7 +955,7 @@ public class Batched3DModelTilerPhR extends DefaultTiler implements Tiler {
             contentInfo.setTransformMatrix(nodeTMatrix);
 
             Content content = new Content();
-            content.setUri("data/" + nodeCode + ".b3dm");
+            content.setUri("data/" + nodeCode + "." + globalOptions.getOutputFormat().getExtension());
             content.setContentInfo(contentInfo);
             if(node.getContent() != null) {
                 log.info("Error : node.getContent() is not null. NetSurfaces lod 5 or more******************************");
@@ -1553,18 +1551,12 @@ public class Batched3DModelTilerPhR extends DefaultTiler implements Tiler {
     }
 
     public void writeTileset(Tileset tileset) {
-        Path outputPath = new File(globalOptions.getOutputPath()).toPath();
-        File tilesetFile = outputPath.resolve("tileset.json").toFile();
-        ObjectMapper objectMapper = new ObjectMapper();
-        objectMapper.getFactory().configure(JsonWriteFeature.ESCAPE_NON_ASCII.mappedFeature(), true);
-        objectMapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
-        //objectMapper.setSerializationInclusion(JsonInclude.Include.NON_EMPTY);
-        //objectMapper.setSerializationInclusion(JsonInclude.Include.NON_DEFAULT);
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(tilesetFile))) {
-            String result = objectMapper.writeValueAsString(tileset);
+        File outputPath = new File(globalOptions.getOutputPath());
+        TilesetWriter tilesetWriter = new TilesetWriter(globalOptions.getSplitDepth(), globalOptions.getMultiThreadCount(), globalOptions.isImplicitTiling(), globalOptions.getSubtreeLevels());
+        try {
             log.info("[Tile][Tileset] write 'tileset.json' file.");
-            writer.write(result);
-            globalOptions.setTilesetSize(result.length());
+            long tilesetSize = tilesetWriter.write(tileset, outputPath);
+            globalOptions.setTilesetSize(tilesetSize);
         } catch (IOException e) {
             log.error("[ERROR] :", e);
             throw new TileProcessingException(e.getMessage());
@@ -1710,7 +1702,7 @@ public class Batched3DModelTilerPhR extends DefaultTiler implements Tiler {
                 contentInfo.setTransformMatrix(transformMatrix);
 
                 Content content = new Content();
-                content.setUri("data/" + nodeCode + ".b3dm");
+                content.setUri("data/" + nodeCode + "." + globalOptions.getOutputFormat().getExtension());
                 content.setContentInfo(contentInfo);
                 if(childNode.getContent() != null) {
                     log.error("Error : childNode.getContent() is not null.");
@@ -1784,7 +1776,7 @@ public class Batched3DModelTilerPhR extends DefaultTiler implements Tiler {
             contentInfo.setTransformMatrix(transformMatrix);
 
             Content content = new Content();
-            content.setUri("data/" + nodeCode + ".b3dm");
+            content.setUri("data/" + nodeCode + "." + globalOptions.getOutputFormat().getExtension());
             content.setContentInfo(contentInfo);
             childNode.setContent(content);
         } else {
@@ -0,0 +1,132 @@
+package com.gaia3d.basic.exchangable;
+
+import com.gaia3d.basic.model.GaiaScene;
+import com.gaia3d.basic.types.AttributeType;
+import com.gaia3d.converter.EasySceneCreator;
+import lombok.extern.slf4j.Slf4j;
+import org.joml.Vector3d;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class GaiaSetCacheTest {
+
+    @TempDir
+    File tempDir;
+
+    private static final int IMAGE_BYTES = 64 * 64 * 4;
+
+    @Test
+    void getImageCopy() {
+        GaiaSetCache cache = GaiaSetCache.getInstance();
+        long maxBytes = cache.getMaxBytes();
+        cache.clear();
+        cache.setMaxBytes(IMAGE_BYTES * 4L);
+
+        File file = new File("cache-test-a.png");
+        BufferedImage image = createImage(0xFF00FF00);
+        assertNull(cache.getImage(file));
+        cache.putImage(file, image);
+        BufferedImage cached = cache.getImage(file);
+        assertNotNull(cached);
+        assertNotSame(image, cached);
+        assertEquals(image.getRGB(10, 10), cached.getRGB(10, 10));
+
+        // the copies do not share pixels with the cache
+        cached.setRGB(10, 10, 0xFFFF0000);
+        assertEquals(0xFF00FF00, cache.getImage(file).getRGB(10, 10));
+
+        cache.clear();
+        cache.setMaxBytes(maxBytes);
+    }
+
+    @Test
+    void evictLeastRecentlyUsed() {
+        GaiaSetCache cache = GaiaSetCache.getInstance();
+        long maxBytes = cache.getMaxBytes();
+        cache.clear();
+        cache.setMaxBytes(IMAGE_BYTES * 2L);
+
+        File first = new File("cache-test-first.png");
+        File second = new File("cache-test-second.png");
+        File third = new File("cache-test-third.png");
+        cache.putImage(first, createImage(0xFFFFFFFF));
+        cache.putImage(second, createImage(0xFFFFFFFF));
+        assertNotNull(cache.getImage(first));
+        cache.putImage(third, createImage(0xFFFFFFFF));
+
+        assertNotNull(cache.getImage(first));
+        assertNull(cache.getImage(second));
+        assertNotNull(cache.getImage(third));
+        assertTrue(cache.getUsedBytes() <= cache.getMaxBytes());
+
+        cache.setMaxBytes(0);
+        assertEquals(0, cache.getUsedBytes());
+        cache.putImage(first, createImage(0xFFFFFFFF));
+        assertNull(cache.getImage(first));
+        cache.logStatistics();
+
+        cache.clear();
+        cache.setMaxBytes(maxBytes);
+    }
+
+    @Test
+    void readFileCopies() throws IOException {
+        GaiaSetCache cache = GaiaSetCache.getInstance();
+        long maxBytes = cache.getMaxBytes();
+        cache.clear();
+        cache.setMaxBytes(1024 * 1024);
+
+        EasySceneCreator easySceneCreator = new EasySceneCreator();
+        GaiaScene scene = easySceneCreator.createScene(new File(tempDir, "grid.glb"));
+        scene.getNodes().get(0).getChildren().add(easySceneCreator.createGridNode(4, 4));
+        Path path = GaiaSet.fromGaiaScene(scene).writeFileInThePath(tempDir.toPath().resolve("grid.mgb"));
+
+        GaiaSet first = cache.readFile(path);
+        float[] positions = getPositions(first).clone();
+        // the relocator and the simplifier modify the sets in place
+        first.translate(new Vector3d(100.0d, 200.0d, 300.0d));
+        assertEquals(positions[0] + 100.0f, getPositions(first)[0], 1e-3f);
+
+        long setHits = cache.getSetHits();
+        GaiaSet second = cache.readFile(path);
+        assertEquals(setHits + 1, cache.getSetHits());
+        assertNotSame(first, second);
+        assertArrayEquals(positions, getPositions(second));
+
+        cache.clear();
+        cache.setMaxBytes(maxBytes);
+    }
+
+    @Test
+    void disabledByDefault() {
+        GaiaSetCache cache = GaiaSetCache.getInstance();
+        assertEquals(0, cache.getMaxBytes());
+
+        File file = new File("cache-test-disabled.png");
+        cache.putImage(file, createImage(0xFFFFFFFF));
+        assertNull(cache.getImage(file));
+        assertEquals(0, cache.getUsedBytes());
+    }
+
+    private float[] getPositions(GaiaSet gaiaSet) {
+        return gaiaSet.getBufferDataList().get(0).getBuffers().get(AttributeType.POSITION).getFloats();
+    }
+
+    private BufferedImage createImage(int argb) {
+        BufferedImage image = new BufferedImage(64, 64, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < 64; y++) {
+            for (int x = 0; x < 64; x++) {
+                image.setRGB(x, y, argb);
+            }
+        }
+        return image;
+    }
+}
@@ -0,0 +1,101 @@
+package com.gaia3d.basic.geometry;
+
+import com.gaia3d.basic.model.GaiaFace;
+import com.gaia3d.basic.model.GaiaPrimitive;
+import com.gaia3d.basic.model.GaiaSurface;
+import com.gaia3d.basic.model.GaiaVertex;
+import com.gaia3d.util.GaiaPrimitiveUtils;
+import org.joml.Vector2d;
+import org.joml.Vector3d;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GaiaVertexWelderTest {
+
+    private GaiaVertex createVertex(double x, double y, double z) {
+        GaiaVertex vertex = new GaiaVertex();
+        vertex.setPosition(new Vector3d(x, y, z));
+        return vertex;
+    }
+
+    @Test
+    void weldAcrossCellBorder() {
+        // the two vertices are in different cells, but closer than the error
+        List<GaiaVertex> vertices = new ArrayList<>();
+        vertices.add(createVertex(0.99999, 0.0, 0.0));
+        vertices.add(createVertex(1.00001, 0.0, 0.0));
+        vertices.add(createVertex(5.0, 0.0, 0.0));
+
+        GaiaVertexWelder vertexWelder = new GaiaVertexWelder(1e-3, false, false, false, false);
+        int[] masterIndices = vertexWelder.findMasterIndices(vertices);
+        assertArrayEquals(new int[]{0, 0, 2}, masterIndices);
+    }
+
+    @Test
+    void weldKeepsTexCoordSeams() {
+        GaiaVertex vertexA = createVertex(1.0, 1.0, 1.0);
+        vertexA.setTexcoords(new Vector2d(0.0, 0.0));
+        GaiaVertex vertexB = createVertex(1.0, 1.0, 1.0);
+        vertexB.setTexcoords(new Vector2d(0.5, 0.0));
+        List<GaiaVertex> vertices = List.of(vertexA, vertexB);
+
+        int[] withTexCoord = new GaiaVertexWelder(1e-4, true, false, false, false).findMasterIndices(vertices);
+        assertArrayEquals(new int[]{0, 1}, withTexCoord);
+
+        int[] withoutTexCoord = new GaiaVertexWelder(1e-4, false, false, false, false).findMasterIndices(vertices);
+        assertArrayEquals(new int[]{0, 0}, withoutTexCoord);
+    }
+
+    @Test
+    void weldPrimitive() {
+        // two quads sharing an edge, with duplicated vertices on the shared edge
+        GaiaPrimitive primitive = GaiaPrimitiveUtils.getRectangularNet(2, 2, 1.0, 1.0, false);
+        GaiaPrimitive other = GaiaPrimitiveUtils.getRectangularNet(2, 2, 1.0, 1.0, false);
+        other.translate(new Vector3d(1.0, 0.0, 0.0));
+        GaiaPrimitiveUtils.mergePrimitives(primitive, other);
+        assertEquals(8, primitive.getVertices().size());
+
+        primitive.weldVertices(1e-6, false, false, false, false);
+        assertEquals(6, primitive.getVertices().size());
+        assertEquals(4, primitive.getFacesCount());
+        assertTrue(primitive.check());
+    }
+
+    @Test
+    void weldRemovesDegeneratedFaces() {
+        List<GaiaVertex> vertices = new ArrayList<>();
+        vertices.add(createVertex(0.0, 0.0, 0.0));
+        vertices.add(createVertex(0.0, 0.0, 0.0));
+        vertices.add(createVertex(1.0, 0.0, 0.0));
+        GaiaSurface surface = new GaiaSurface();
+        GaiaFace face = new GaiaFace();
+        face.setIndices(new int[]{0, 1, 2});
+        surface.getFaces().add(face);
+
+        GaiaVertexWelder vertexWelder = new GaiaVertexWelder(1e-6, false, false, false, false);
+        List<GaiaVertex> welded = vertexWelder.weld(vertices, List.of(surface));
+        assertEquals(2, welded.size());
+        assertTrue(surface.getFaces().isEmpty());
+    }
+
+    @Test
+    void weldLargeGrid() {
+        int size = 200;
+        GaiaPrimitive primitive = GaiaPrimitiveUtils.getRectangularNet(size, size, 100.0, 100.0, false);
+        primitive.unWeldVertices();
+        int facesCount = primitive.getFacesCount();
+        assertEquals(facesCount * 3, primitive.getVertices().size());
+
+        long startTime = System.currentTimeMillis();
+        primitive.weldVertices(1e-6, false, false, false, false);
+        long endTime = System.currentTimeMillis();
+
+        assertEquals(size * size, primitive.getVertices().size());
+        assertEquals(facesCount, primitive.getFacesCount());
+        assertTrue(endTime - startTime < 10000);
+    }
+}
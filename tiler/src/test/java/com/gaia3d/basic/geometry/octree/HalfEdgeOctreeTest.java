@@ -0,0 +1,55 @@
+package com.gaia3d.basic.geometry.octree;
+
+import com.gaia3d.basic.halfedge.HalfEdgeVertex;
+import lombok.extern.slf4j.Slf4j;
+import org.joml.Vector3d;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class HalfEdgeOctreeTest {
+
+    @Test
+    void extractLeavesDepthFirst() {
+        List<HalfEdgeVertex> vertices = new ArrayList<>();
+        for (int z = 0; z < 4; z++) {
+            for (int y = 0; y < 4; y++) {
+                for (int x = 0; x < 4; x++) {
+                    HalfEdgeVertex vertex = new HalfEdgeVertex();
+                    vertex.setPosition(new Vector3d(x + 0.5, y + 0.5, z + 0.5));
+                    vertices.add(vertex);
+                }
+            }
+        }
+
+        HalfEdgeOctree octree = new HalfEdgeOctree(null);
+        octree.setSize(0.0, 0.0, 0.0, 4.0, 4.0, 4.0);
+        octree.setMaxDepth(2);
+        octree.getVertices().addAll(vertices);
+        octree.makeTreeByMinBoxSize(0.5);
+
+        List<HalfEdgeOctree> leaves = new ArrayList<>();
+        octree.extractOctreesWithContents(leaves);
+        assertTrue(octree.getVertices().isEmpty());
+        assertEquals(64, leaves.size());
+
+        // the first 8 leaves are the children of the first child of the root
+        for (int i = 0; i < 8; i++) {
+            HalfEdgeOctree leaf = leaves.get(i);
+            assertEquals(2, leaf.getCoordinate().getDepth());
+            assertTrue(leaf.getCoordinate().getX() < 2 && leaf.getCoordinate().getY() < 2 && leaf.getCoordinate().getZ() < 2);
+        }
+        for (HalfEdgeOctree leaf : leaves) {
+            assertEquals(1, leaf.getVertices().size());
+            Vector3d position = leaf.getVertices().get(0).getPosition();
+            assertEquals(leaf.getCoordinate().getX() + 0.5, position.x, 1e-12);
+            assertEquals(leaf.getCoordinate().getY() + 0.5, position.y, 1e-12);
+            assertEquals(leaf.getCoordinate().getZ() + 0.5, position.z, 1e-12);
+            assertTrue(leaf.intersectsPoint(position));
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.gaia3d.basic.geometry.octree;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class LinearOctreeTest {
+
+    @Test
+    void partitionItems() {
+        int size = 8;
+        double[] positions = createGrid(size, 1.0);
+        LinearOctree octree = new LinearOctree(positions);
+        octree.setMaxDepth(3);
+        octree.makeTree();
+
+        // a full tree of depth 3 with one point in each leaf
+        assertEquals(1 + 8 + 64 + 512, octree.getNodeCount());
+        int[] leaves = octree.getLeavesWithItems();
+        assertEquals(size * size * size, leaves.length);
+
+        boolean[] visited = new boolean[size * size * size];
+        for (int leaf : leaves) {
+            assertEquals(3, octree.getDepth(leaf));
+            assertEquals(1, octree.getItemCount(leaf));
+            int item = octree.getItem(octree.getItemStart(leaf));
+            assertFalse(visited[item]);
+            visited[item] = true;
+            assertEquals(leaf, octree.findLeaf(positions[item * 3], positions[item * 3 + 1], positions[item * 3 + 2]));
+        }
+
+        // the children own consecutive ranges of the parent
+        int root = 0;
+        assertEquals(octree.getItemStart(root), octree.getItemStart(octree.getChild(root, 0)));
+        for (int i = 1; i < 8; i++) {
+            assertEquals(octree.getItemEnd(octree.getChild(root, i - 1)), octree.getItemStart(octree.getChild(root, i)));
+        }
+        assertEquals(octree.getItemEnd(root), octree.getItemEnd(octree.getChild(root, 7)));
+    }
+
+    @Test
+    void stopSplitting() {
+        double[] positions = createGrid(8, 1.0);
+        LinearOctree octree = new LinearOctree(positions);
+        octree.setMaxDepth(10);
+        octree.setMinItemCount(9);
+        octree.makeTree();
+        for (int leaf : octree.getLeavesWithItems()) {
+            assertEquals(8, octree.getItemCount(leaf));
+        }
+
+        octree = new LinearOctree(positions);
+        octree.setMaxDepth(10);
+        octree.setMinBoxSize(3.0);
+        octree.makeTree();
+        for (int leaf : octree.getLeavesWithItems()) {
+            assertEquals(2, octree.getDepth(leaf));
+        }
+
+        octree = new LinearOctree(new double[0]);
+        octree.makeTree();
+        assertEquals(0, octree.getLeavesWithItems().length);
+        assertEquals(-1, octree.findLeaf(1.0, 1.0, 1.0));
+    }
+
+    @Test
+    void visitLeavesDepthFirst() {
+        double[] positions = createGrid(4, 1.0);
+        LinearOctree octree = new LinearOctree(positions);
+        octree.setRootBounds(0.0, 0.0, 0.0, 8.0, 8.0, 8.0);
+        octree.setMaxDepth(2);
+        octree.makeTree();
+
+        // the grid fills the first child of the root only
+        List<Integer> leaves = new ArrayList<>();
+        octree.forEachLeafWithItems(leaves::add);
+        assertEquals(8, leaves.size());
+        int firstChild = octree.getChild(0, 0);
+        for (int i = 0; i < 8; i++) {
+            int leaf = leaves.get(i);
+            assertEquals(octree.getChild(firstChild, i), leaf);
+            assertEquals(8, octree.getItemCount(leaf));
+            assertEquals(2, octree.getCoordinate(leaf).getDepth());
+        }
+        assertEquals(2.0, octree.getBoundingBox(leaves.get(0)).getMaxX(), 1e-12);
+    }
+
+    @Test
+    void findNeighbor() {
+        LinearOctree octree = new LinearOctree(createGrid(8, 1.0));
+        octree.setMaxDepth(3);
+        octree.makeTree();
+
+        int leaf = octree.findLeaf(3.0, 3.0, 3.0);
+        int right = octree.findNeighbor(leaf, LinearOctree.RIGHT);
+        int rear = octree.findNeighbor(leaf, LinearOctree.REAR);
+        int top = octree.findNeighbor(leaf, LinearOctree.TOP);
+        assertEquals(octree.findLeaf(4.0, 3.0, 3.0), right);
+        assertEquals(octree.findLeaf(3.0, 4.0, 3.0), rear);
+        assertEquals(octree.findLeaf(3.0, 3.0, 4.0), top);
+        assertEquals(leaf, octree.findNeighbor(right, LinearOctree.LEFT));
+        assertEquals(leaf, octree.findNeighbor(rear, LinearOctree.FRONT));
+        assertEquals(leaf, octree.findNeighbor(top, LinearOctree.BOTTOM));
+
+        int corner = octree.findLeaf(0.0, 0.0, 0.0);
+        assertEquals(-1, octree.findNeighbor(corner, LinearOctree.LEFT));
+        assertEquals(-1, octree.findNeighbor(corner, LinearOctree.FRONT));
+        assertEquals(-1, octree.findNeighbor(corner, LinearOctree.BOTTOM));
+    }
+
+    @Test
+    void findItemsAcrossLeafBorders() {
+        // two points on both sides of the center of the root
+        double[] positions = new double[]{
+                0.0, 0.0, 0.0,
+                10.0, 10.0, 10.0,
+                4.9999, 5.0, 5.0,
+                5.0001, 5.0, 5.0
+        };
+        LinearOctree octree = new LinearOctree(positions);
+        octree.setMaxDepth(5);
+        octree.makeTree();
+        assertNotEquals(octree.findLeaf(4.9999, 5.0, 5.0), octree.findLeaf(5.0001, 5.0, 5.0));
+
+        List<Integer> found = new ArrayList<>();
+        octree.forEachItemWithinDistance(4.9999, 5.0, 5.0, 0.001, found::add);
+        assertEquals(2, found.size());
+        assertTrue(found.contains(2));
+        assertTrue(found.contains(3));
+
+        found.clear();
+        octree.forEachItemWithinDistance(0.0, 0.0, 0.0, 0.001, found::add);
+        assertEquals(List.of(0), found);
+    }
+
+    private double[] createGrid(int size, double spacing) {
+        double[] positions = new double[size * size * size * 3];
+        int index = 0;
+        for (int z = 0; z < size; z++) {
+            for (int y = 0; y < size; y++) {
+                for (int x = 0; x < size; x++) {
+                    positions[index++] = x * spacing;
+                    positions[index++] = y * spacing;
+                    positions[index++] = z * spacing;
+                }
+            }
+        }
+        return positions;
+    }
+}
@@ -0,0 +1,254 @@
+package com.gaia3d.basic.geometry.tessellator;
+
+import lombok.extern.slf4j.Slf4j;
+import org.geotools.data.shapefile.ShapefileDataStore;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.joml.Vector3d;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.Polygon;
+import org.opengis.feature.simple.SimpleFeature;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class GaiaEarcutTessellatorTest {
+    private static final String INPUT_PATH = "D:/data/mago-3d-tiler/release-sample";
+    private static final double AREA_TOLERANCE = 1e-6;
+
+    private static class Footprint {
+        List<Vector3d> exterior;
+        List<List<Vector3d>> interiors = new ArrayList<>();
+    }
+
+    @Test
+    void tessellateSquare() {
+        List<Vector3d> square = new ArrayList<>();
+        square.add(new Vector3d(0, 0, 0));
+        square.add(new Vector3d(1, 0, 0));
+        square.add(new Vector3d(1, 1, 0));
+        square.add(new Vector3d(0, 1, 0));
+
+        List<Integer> indices = new ArrayList<>();
+        new GaiaEarcutTessellator().tessellate3D(square, indices);
+        assertEquals(6, indices.size());
+        assertEquals(1.0, calculateArea(square, indices), AREA_TOLERANCE);
+    }
+
+    @Test
+    void tessellateCourtyard() {
+        Footprint footprint = createCourtyard(0, 0, 20, 10);
+        List<Vector3d> resultPoints = new ArrayList<>();
+        List<Integer> indices = new ArrayList<>();
+        new GaiaEarcutTessellator().tessellate3D(footprint.exterior, footprint.interiors, resultPoints, indices);
+
+        assertEquals(8, resultPoints.size());
+        assertEquals(8 * 3, indices.size());
+        assertEquals(20 * 20 - 10 * 10, calculateArea(resultPoints, indices), AREA_TOLERANCE);
+    }
+
+    @Test
+    void tessellateVerticalWall() {
+        // the wall is in the xz plane, the triangles must keep the winding of the polygon
+        List<Vector3d> wall = new ArrayList<>();
+        wall.add(new Vector3d(0, 0, 0));
+        wall.add(new Vector3d(4, 0, 0));
+        wall.add(new Vector3d(4, 0, 3));
+        wall.add(new Vector3d(0, 0, 3));
+
+        List<Integer> indices = new ArrayList<>();
+        new GaiaEarcutTessellator().tessellate3D(wall, indices);
+        assertEquals(6, indices.size());
+        assertEquals(12.0, calculateArea(wall, indices), AREA_TOLERANCE);
+
+        Vector3d normal = calculateTriangleNormal(wall, indices, 0);
+        assertTrue(normal.y < 0);
+    }
+
+    @Test
+    void compareWithGaiaTessellator() {
+        List<Footprint> footprints = createFootprints(2000, 1234L);
+        compareTessellators(footprints);
+    }
+
+    @Disabled
+    @Test
+    void compareWithGaiaTessellatorShapeFootprints() {
+        File input = new File(INPUT_PATH, "sample-shape/buildings.shp");
+        List<Footprint> footprints = readShapeFootprints(input);
+        compareTessellators(footprints);
+    }
+
+    private void compareTessellators(List<Footprint> footprints) {
+        GaiaTessellator tessellator = new GaiaTessellator();
+        GaiaEarcutTessellator earcutTessellator = new GaiaEarcutTessellator();
+
+        long tessellatorTime = 0;
+        long earcutTime = 0;
+        int verticesCount = 0;
+        for (Footprint footprint : footprints) {
+            verticesCount += footprint.exterior.size();
+            for (List<Vector3d> interior : footprint.interiors) {
+                verticesCount += interior.size();
+            }
+
+            List<Vector3d> expectedPoints = new ArrayList<>();
+            List<Integer> expectedIndices = new ArrayList<>();
+            long startTime = System.nanoTime();
+            tessellator.tessellate3D(footprint.exterior, footprint.interiors, expectedPoints, expectedIndices);
+            tessellatorTime += System.nanoTime() - startTime;
+
+            List<Vector3d> resultPoints = new ArrayList<>();
+            List<Integer> resultIndices = new ArrayList<>();
+            startTime = System.nanoTime();
+            earcutTessellator.tessellate3D(footprint.exterior, footprint.interiors, resultPoints, resultIndices);
+            earcutTime += System.nanoTime() - startTime;
+
+            assertEquals(0, resultIndices.size() % 3);
+            for (Integer index : resultIndices) {
+                assertTrue(index >= 0 && index < resultPoints.size());
+            }
+
+            double expectedArea = calculateArea(expectedPoints, expectedIndices);
+            double resultArea = calculateArea(resultPoints, resultIndices);
+            assertEquals(expectedArea, resultArea, Math.max(AREA_TOLERANCE, expectedArea * 1e-9));
+        }
+
+        log.info("[Tessellator] footprints : {}, vertices : {}", footprints.size(), verticesCount);
+        log.info("[Tessellator] GaiaTessellator : {} ms", tessellatorTime / 1000000);
+        log.info("[Tessellator] GaiaEarcutTessellator : {} ms", earcutTime / 1000000);
+    }
+
+    private List<Footprint> createFootprints(int count, long seed) {
+        Random random = new Random(seed);
+        List<Footprint> footprints = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            double x = random.nextDouble() * 1000.0;
+            double y = random.nextDouble() * 1000.0;
+            double size = 5.0 + random.nextDouble() * 30.0;
+            switch (i % 4) {
+                case 0 -> footprints.add(createRectangle(x, y, size, size * 0.6));
+                case 1 -> footprints.add(createLShape(x, y, size));
+                case 2 -> footprints.add(createCourtyard(x, y, size, size * 0.4));
+                default -> footprints.add(createStar(x, y, size, 8 + random.nextInt(120), random));
+            }
+        }
+        return footprints;
+    }
+
+    private Footprint createRectangle(double x, double y, double width, double height) {
+        Footprint footprint = new Footprint();
+        footprint.exterior = createRing(new double[]{x, y, x + width, y, x + width, y + height, x, y + height});
+        return footprint;
+    }
+
+    private Footprint createLShape(double x, double y, double size) {
+        double half = size * 0.5;
+        Footprint footprint = new Footprint();
+        footprint.exterior = createRing(new double[]{x, y, x + size, y, x + size, y + half, x + half, y + half, x + half, y + size, x, y + size});
+        return footprint;
+    }
+
+    private Footprint createCourtyard(double x, double y, double size, double holeSize) {
+        double offset = (size - holeSize) * 0.5;
+        Footprint footprint = new Footprint();
+        footprint.exterior = createRing(new double[]{x, y, x + size, y, x + size, y + size, x, y + size});
+        // interior rings are clockwise
+        double hx = x + offset;
+        double hy = y + offset;
+        footprint.interiors.add(createRing(new double[]{hx, hy, hx, hy + holeSize, hx + holeSize, hy + holeSize, hx + holeSize, hy}));
+        return footprint;
+    }
+
+    private Footprint createStar(double x, double y, double size, int pointsCount, Random random) {
+        List<Vector3d> ring = new ArrayList<>();
+        for (int i = 0; i < pointsCount; i++) {
+            double angle = 2.0 * Math.PI * i / pointsCount;
+            double radius = size * (0.5 + random.nextDouble() * 0.5);
+            ring.add(new Vector3d(x + Math.cos(angle) * radius, y + Math.sin(angle) * radius, 0.0));
+        }
+        Footprint footprint = new Footprint();
+        footprint.exterior = ring;
+        return footprint;
+    }
+
+    private List<Vector3d> createRing(double[] coordinates) {
+        List<Vector3d> ring = new ArrayList<>();
+        for (int i = 0; i < coordinates.length; i += 2) {
+            ring.add(new Vector3d(coordinates[i], coordinates[i + 1], 0.0));
+        }
+        return ring;
+    }
+
+    private List<Footprint> readShapeFootprints(File input) {
+        List<Footprint> footprints = new ArrayList<>();
+        ShapefileDataStore dataStore = null;
+        try {
+            dataStore = new ShapefileDataStore(input.toURI().toURL());
+            try (SimpleFeatureIterator iterator = dataStore.getFeatureSource().getFeatures().features()) {
+                while (iterator.hasNext()) {
+                    SimpleFeature feature = iterator.next();
+                    Geometry geometry = (Geometry) feature.getDefaultGeometry();
+                    if (geometry == null) {
+                        continue;
+                    }
+                    for (int i = 0; i < geometry.getNumGeometries(); i++) {
+                        if (geometry.getGeometryN(i) instanceof Polygon polygon) {
+                            Footprint footprint = new Footprint();
+                            footprint.exterior = convertRing(polygon.getExteriorRing());
+                            for (int j = 0; j < polygon.getNumInteriorRing(); j++) {
+                                footprint.interiors.add(convertRing(polygon.getInteriorRingN(j)));
+                            }
+                            footprints.add(footprint);
+                        }
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.error("[ERROR] Failed to read shape file : {}", input.getAbsolutePath(), e);
+        } finally {
+            if (dataStore != null) {
+                dataStore.dispose();
+            }
+        }
+        return footprints;
+    }
+
+    private List<Vector3d> convertRing(LineString ring) {
+        // the rings are closed, the last coordinate is dropped
+        Coordinate[] coordinates = ring.getCoordinates();
+        List<Vector3d> points = new ArrayList<>();
+        for (int i = 0; i < coordinates.length - 1; i++) {
+            points.add(new Vector3d(coordinates[i].x, coordinates[i].y, 0.0));
+        }
+        return points;
+    }
+
+    private double calculateArea(List<Vector3d> points, List<Integer> indices) {
+        double area = 0.0;
+        for (int i = 0; i < indices.size(); i += 3) {
+            Vector3d a = points.get(indices.get(i));
+            Vector3d b = points.get(indices.get(i + 1));
+            Vector3d c = points.get(indices.get(i + 2));
+            Vector3d ab = new Vector3d(b).sub(a);
+            Vector3d ac = new Vector3d(c).sub(a);
+            area += ab.cross(ac).length() * 0.5;
+        }
+        return area;
+    }
+
+    private Vector3d calculateTriangleNormal(List<Vector3d> points, List<Integer> indices, int triangleIndex) {
+        Vector3d a = points.get(indices.get(triangleIndex * 3));
+        Vector3d b = points.get(indices.get(triangleIndex * 3 + 1));
+        Vector3d c = points.get(indices.get(triangleIndex * 3 + 2));
+        return new Vector3d(b).sub(a).cross(new Vector3d(c).sub(a)).normalize();
+    }
+}
@@ -0,0 +1,71 @@
+package com.gaia3d.converter.jgltf;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class BasisuEncoderTest {
+
+    @Test
+    void etc1sArguments() {
+        BasisuEncoder encoder = new BasisuEncoder(new File("basisu"), TextureCompression.ETC1S, 128, 2);
+        List<String> arguments = encoder.getArguments(new File("texture.png"), new File("texture.ktx2"));
+
+        assertTrue(arguments.containsAll(List.of("-ktx2", "-mipmap")));
+        assertEquals("128", arguments.get(arguments.indexOf("-q") + 1));
+        assertEquals("2", arguments.get(arguments.indexOf("-comp_level") + 1));
+        assertFalse(arguments.contains("-uastc"));
+        assertTrue(arguments.get(arguments.indexOf("-output_file") + 1).endsWith("texture.ktx2"));
+    }
+
+    @Test
+    void uastcArguments() {
+        BasisuEncoder encoder = new BasisuEncoder(new File("basisu"), TextureCompression.UASTC, 1000, 9);
+        List<String> arguments = encoder.getArguments(new File("texture.png"), new File("texture.ktx2"));
+
+        // the quality and the effort are clamped, the highest quality has no rate distortion optimization
+        assertEquals(255, encoder.getQuality());
+        assertEquals(4, encoder.getEffort());
+        assertTrue(arguments.contains("-uastc"));
+        assertEquals("4", arguments.get(arguments.indexOf("-uastc_level") + 1));
+        assertFalse(arguments.contains("-uastc_rdo_l"));
+        assertFalse(arguments.contains("-q"));
+
+        encoder = new BasisuEncoder(new File("basisu"), TextureCompression.UASTC, 127, 1);
+        arguments = encoder.getArguments(new File("texture.png"), new File("texture.ktx2"));
+        assertEquals("2.000", arguments.get(arguments.indexOf("-uastc_rdo_l") + 1));
+    }
+
+    @Test
+    void resizeToBlocks() {
+        BufferedImage image = new BufferedImage(302, 170, BufferedImage.TYPE_INT_ARGB);
+        BufferedImage resized = BasisuEncoder.resizeToBlocks(image);
+        assertEquals(304, resized.getWidth());
+        assertEquals(172, resized.getHeight());
+
+        BufferedImage aligned = new BufferedImage(256, 128, BufferedImage.TYPE_INT_ARGB);
+        assertSame(aligned, BasisuEncoder.resizeToBlocks(aligned));
+    }
+
+    @Test
+    void checkKtx2Identifier() {
+        byte[] ktx2 = {(byte) 0xAB, 'K', 'T', 'X', ' ', '2', '0', (byte) 0xBB, '\r', '\n', 0x1A, '\n', 0, 0};
+        byte[] ktx1 = {(byte) 0xAB, 'K', 'T', 'X', ' ', '1', '1', (byte) 0xBB, '\r', '\n', 0x1A, '\n', 0, 0};
+        assertTrue(BasisuEncoder.isKtx2(ktx2));
+        assertFalse(BasisuEncoder.isKtx2(ktx1));
+        assertFalse(BasisuEncoder.isKtx2(new byte[4]));
+    }
+
+    @Test
+    void compressionFromName() {
+        assertEquals(TextureCompression.UASTC, TextureCompression.fromName("uastc"));
+        assertEquals(TextureCompression.ETC1S, TextureCompression.fromName("ETC1S"));
+        assertNull(TextureCompression.fromName("astc"));
+    }
+}
@@ -1,20 +1,152 @@
 package com.gaia3d.converter.jgltf;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gaia3d.basic.model.GaiaMaterial;
+import com.gaia3d.basic.model.GaiaNode;
 import com.gaia3d.basic.model.GaiaScene;
+import com.gaia3d.basic.model.GaiaTexture;
+import com.gaia3d.basic.types.TextureType;
 import com.gaia3d.command.Configurator;
 import com.gaia3d.command.mago.GlobalOptions;
+import com.gaia3d.converter.EasySceneCreator;
 import com.gaia3d.converter.assimp.AssimpConverter;
+import de.javagl.jgltf.model.GltfModel;
+import de.javagl.jgltf.model.ImageModel;
+import de.javagl.jgltf.model.io.GltfModelReader;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.FileUtils;
 import org.apache.logging.log4j.Level;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.awt.*;
+import java.awt.image.BufferedImage;
 import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 @Slf4j
 class GltfWriterTest {
 
+    @TempDir
+    File tempDir;
+
+    @Test
+    void writeGlbImageBufferView() throws IOException {
+        File file = new File(tempDir, "textured.glb");
+        EasySceneCreator easySceneCreator = new EasySceneCreator();
+        GaiaScene scene = easySceneCreator.createScene(file);
+        GaiaNode rootNode = scene.getNodes().get(0);
+        rootNode.getChildren().add(easySceneCreator.createGridNode(4, 4));
+
+        GaiaTexture texture = new GaiaTexture();
+        texture.setPath("texture.png");
+        texture.createImage(16, 16, BufferedImage.TYPE_INT_ARGB);
+        texture.fillImage(Color.RED);
+        GaiaMaterial material = scene.getMaterials().get(0);
+        material.getTextures().get(TextureType.DIFFUSE).add(texture);
+
+        new GltfWriter().writeGlb(scene, file);
+
+        GltfModel gltfModel = new GltfModelReader().read(file.toURI());
+        assertEquals(1, gltfModel.getImageModels().size());
+        ImageModel imageModel = gltfModel.getImageModels().get(0);
+        assertNull(imageModel.getUri());
+        assertNotNull(imageModel.getBufferViewModel());
+        assertEquals("image/png", imageModel.getMimeType());
+
+        // png signature
+        ByteBuffer imageData = imageModel.getImageData();
+        assertEquals((byte) 0x89, imageData.get(0));
+        assertEquals((byte) 'P', imageData.get(1));
+        assertEquals(1, gltfModel.getMeshModels().size());
+    }
+
+    @Test
+    void skipImageFailedToWrite() throws IOException {
+        File file = new File(tempDir, "unwritable.glb");
+        EasySceneCreator easySceneCreator = new EasySceneCreator();
+        GaiaScene scene = easySceneCreator.createScene(file);
+        scene.getNodes().get(0).getChildren().add(easySceneCreator.createGridNode(4, 4));
+
+        // no image writer encodes a bmp with an alpha channel
+        GaiaTexture texture = new GaiaTexture();
+        texture.setPath("texture.bmp");
+        texture.createImage(16, 16, BufferedImage.TYPE_INT_ARGB);
+        texture.fillImage(Color.RED);
+        scene.getMaterials().get(0).getTextures().get(TextureType.DIFFUSE).add(texture);
+
+        new GltfWriter().writeGlb(scene, file);
+
+        ByteBuffer glb = ByteBuffer.wrap(Files.readAllBytes(file.toPath())).order(ByteOrder.LITTLE_ENDIAN);
+        int jsonLength = glb.getInt(12);
+        JsonNode json = new ObjectMapper().readTree(new String(glb.array(), 20, jsonLength, StandardCharsets.UTF_8).trim());
+        assertNull(json.get("images"));
+        assertNull(json.get("textures"));
+        assertNull(json.get("materials").get(0).get("pbrMetallicRoughness").get("baseColorTexture"));
+        for (JsonNode bufferView : json.get("bufferViews")) {
+            assertTrue(bufferView.get("byteLength").asInt() >= 1);
+        }
+        assertEquals(1, new GltfModelReader().read(file.toURI()).getMeshModels().size());
+    }
+
+    @Test
+    void writeGlbPropertyTable() throws IOException {
+        File file = new File(tempDir, "features.glb");
+        EasySceneCreator easySceneCreator = new EasySceneCreator();
+        GaiaScene scene = easySceneCreator.createScene(file);
+        scene.getNodes().get(0).getChildren().add(easySceneCreator.createGridNode(4, 4));
+
+        GltfPropertyTable propertyTable = new GltfPropertyTable(2);
+        for (int featureId = 0; featureId < 2; featureId++) {
+            propertyTable.put("BatchId", featureId, String.valueOf(featureId));
+            propertyTable.put("building name", featureId, "building-" + featureId);
+            propertyTable.put("height", featureId, String.valueOf(1.5 + featureId));
+        }
+        double[] rtcCenter = new double[]{-3000000.0, 4000000.0, 3500000.0};
+        new GltfWriter().writeGlb(scene, file, propertyTable, rtcCenter);
+
+        ByteBuffer glb = ByteBuffer.wrap(Files.readAllBytes(file.toPath())).order(ByteOrder.LITTLE_ENDIAN);
+        int jsonLength = glb.getInt(12);
+        int binaryOffset = 20 + jsonLength + 8;
+        JsonNode json = new ObjectMapper().readTree(new String(glb.array(), 20, jsonLength, StandardCharsets.UTF_8).trim());
+        assertTrue(json.get("extensionsUsed").toString().contains("EXT_structural_metadata"));
+        assertTrue(json.get("extensionsUsed").toString().contains("EXT_mesh_features"));
+        assertEquals(rtcCenter[0], json.get("extensions").get("CESIUM_RTC").get("center").get(0).asDouble(), 0.0);
+
+        JsonNode primitive = json.get("meshes").get(0).get("primitives").get(0);
+        assertNotNull(primitive.get("attributes").get("_FEATURE_ID_0"));
+        assertNull(primitive.get("attributes").get("_BATCHID"));
+        JsonNode featureId = primitive.get("extensions").get("EXT_mesh_features").get("featureIds").get(0);
+        assertEquals(2, featureId.get("featureCount").asInt());
+        assertEquals(0, featureId.get("attribute").asInt());
+
+        JsonNode metadata = json.get("extensions").get("EXT_structural_metadata");
+        JsonNode classProperties = metadata.get("schema").get("classes").get(GltfPropertyTable.CLASS_NAME).get("properties");
+        assertEquals("UINT8", classProperties.get("BatchId").get("componentType").asText());
+        assertEquals("FLOAT32", classProperties.get("height").get("componentType").asText());
+        assertEquals("STRING", classProperties.get("building_name").get("type").asText());
+        assertEquals("building name", classProperties.get("building_name").get("name").asText());
+
+        JsonNode tableProperties = metadata.get("propertyTables").get(0).get("properties");
+        JsonNode heightView = json.get("bufferViews").get(tableProperties.get("height").get("values").asInt());
+        assertEquals(0, heightView.get("byteOffset").asInt() % 8);
+        assertEquals(2.5f, glb.getFloat(binaryOffset + heightView.get("byteOffset").asInt() + Float.BYTES));
+
+        JsonNode namesView = json.get("bufferViews").get(tableProperties.get("building_name").get("values").asInt());
+        JsonNode offsetsView = json.get("bufferViews").get(tableProperties.get("building_name").get("stringOffsets").asInt());
+        int start = glb.getInt(binaryOffset + offsetsView.get("byteOffset").asInt() + Integer.BYTES);
+        int end = glb.getInt(binaryOffset + offsetsView.get("byteOffset").asInt() + 2 * Integer.BYTES);
+        assertEquals("building-1", new String(glb.array(), binaryOffset + namesView.get("byteOffset").asInt() + start, end - start, StandardCharsets.UTF_8));
+    }
+
     @Disabled
     @Test
     void testQuantization() {
@@ -0,0 +1,70 @@
+package com.gaia3d.converter.jgltf;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class MeshOptimizerTest {
+
+    @Test
+    void optimizeVertexCache() {
+        int size = 64;
+        int vertexCount = (size + 1) * (size + 1);
+        int[] indices = createShuffledGrid(size);
+
+        int[] optimized = MeshOptimizer.optimizeVertexCache(indices, vertexCount);
+        assertEquals(getTriangles(indices), getTriangles(optimized));
+
+        double before = MeshOptimizer.getAverageCacheMissRatio(indices, vertexCount, 16);
+        double after = MeshOptimizer.getAverageCacheMissRatio(optimized, vertexCount, 16);
+        log.info("ACMR {} -> {}", before, after);
+        assertTrue(after < 0.8);
+        assertTrue(after < before / 2);
+    }
+
+    @Test
+    void optimizeVertexFetch() {
+        int[] indices = new int[]{4, 2, 0, 0, 2, 3};
+        int[] remap = MeshOptimizer.optimizeVertexFetchRemap(indices, 6);
+        assertArrayEquals(new int[]{2, 4, 1, 3, 0, 5}, remap);
+        assertArrayEquals(new int[]{0, 1, 2, 2, 1, 3}, MeshOptimizer.remapIndices(indices, remap));
+        assertArrayEquals(new short[]{0, 1, 2, 2, 1, 3}, MeshOptimizer.remapUnsignedShortIndices(indices, remap));
+
+        float[] positions = new float[]{0, 0, 0, 1, 1, 1, 2, 2, 2, 3, 3, 3, 4, 4, 4, 5, 5, 5};
+        float[] remapped = MeshOptimizer.remapVertices(positions, remap, 3);
+        assertArrayEquals(new float[]{4, 4, 4, 2, 2, 2, 0, 0, 0, 3, 3, 3, 1, 1, 1, 5, 5, 5}, remapped);
+    }
+
+    private int[] createShuffledGrid(int size) {
+        List<int[]> triangles = new ArrayList<>();
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                int a = y * (size + 1) + x;
+                int b = a + 1;
+                int c = a + size + 1;
+                int d = c + 1;
+                triangles.add(new int[]{a, b, d});
+                triangles.add(new int[]{a, d, c});
+            }
+        }
+        Collections.shuffle(triangles, new Random(11));
+        int[] indices = new int[triangles.size() * 3];
+        for (int i = 0; i < triangles.size(); i++) {
+            System.arraycopy(triangles.get(i), 0, indices, i * 3, 3);
+        }
+        return indices;
+    }
+
+    private List<String> getTriangles(int[] indices) {
+        List<String> triangles = new ArrayList<>();
+        for (int i = 0; i < indices.length; i += 3) {
+            triangles.add(indices[i] + "/" + indices[i + 1] + "/" + indices[i + 2]);
+        }
+        Collections.sort(triangles);
+        return triangles;
+    }
+}
@@ -0,0 +1,136 @@
+package com.gaia3d.converter.jgltf;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class MeshoptEncoderTest {
+
+    @Test
+    void encodeVertexBuffer() {
+        // a grid with normals, 300 vertices span two vertex blocks
+        int count = 300;
+        int byteStride = 24;
+        ByteBuffer vertices = ByteBuffer.allocate(count * byteStride).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < count; i++) {
+            vertices.putFloat(i % 20);
+            vertices.putFloat(i / 20);
+            vertices.putFloat(0.0f);
+            vertices.putFloat(0.0f);
+            vertices.putFloat(0.0f);
+            vertices.putFloat(1.0f);
+        }
+        vertices.flip();
+
+        byte[] encoded = MeshoptEncoder.encodeVertexBuffer(vertices, count, byteStride);
+        log.info("vertex buffer {} bytes -> {} bytes", count * byteStride, encoded.length);
+        assertEquals((byte) 0xa0, encoded[0]);
+        assertTrue(encoded.length < count * byteStride / 2);
+        assertArrayEquals(vertices.array(), decodeVertexBuffer(encoded, count, byteStride));
+
+        // random bytes take the raw mode of the byte groups
+        byte[] noise = new byte[17 * 4 * 8];
+        new Random(7).nextBytes(noise);
+        byte[] encodedNoise = MeshoptEncoder.encodeVertexBuffer(ByteBuffer.wrap(noise), 17, 32);
+        assertArrayEquals(noise, decodeVertexBuffer(encodedNoise, 17, 32));
+    }
+
+    @Test
+    void encodeIndexSequence() {
+        int[] values = new int[]{0, 1, 2, 2, 1, 3, 70000, 70001, 2, 5, 4, 3, 69999, 0, 1};
+        ByteBuffer intIndices = ByteBuffer.allocate(values.length * 4).order(ByteOrder.LITTLE_ENDIAN);
+        for (int value : values) {
+            intIndices.putInt(value);
+        }
+        intIndices.flip();
+        byte[] encoded = MeshoptEncoder.encodeIndexSequence(intIndices, values.length, 4);
+        assertEquals((byte) 0xd1, encoded[0]);
+        assertArrayEquals(values, decodeIndexSequence(encoded, values.length));
+
+        ByteBuffer shortIndices = ByteBuffer.allocate(6 * 2).order(ByteOrder.LITTLE_ENDIAN);
+        shortIndices.putShort((short) 0).putShort((short) 1).putShort((short) 65535).putShort((short) 65534).putShort((short) 3).putShort((short) 2);
+        shortIndices.flip();
+        byte[] encodedShorts = MeshoptEncoder.encodeIndexSequence(shortIndices, 6, 2);
+        assertArrayEquals(new int[]{0, 1, 65535, 65534, 3, 2}, decodeIndexSequence(encodedShorts, 6));
+    }
+
+    /**
+     * Reference decoder of the ATTRIBUTES mode (vertex codec version 0).
+     */
+    private byte[] decodeVertexBuffer(byte[] data, int count, int byteStride) {
+        byte[] result = new byte[count * byteStride];
+        byte[] lastVertex = new byte[byteStride];
+        System.arraycopy(data, data.length - byteStride, lastVertex, 0, byteStride);
+        int position = 1;
+        int blockSize = Math.min((8192 / byteStride) & ~15, 256);
+        for (int vertexOffset = 0; vertexOffset < count; vertexOffset += blockSize) {
+            int blockCount = Math.min(blockSize, count - vertexOffset);
+            int groupCount = (blockCount + 15) / 16;
+            for (int k = 0; k < byteStride; k++) {
+                int headerPosition = position;
+                position += (groupCount + 3) / 4;
+                int[] deltas = new int[groupCount * 16];
+                for (int group = 0; group < groupCount; group++) {
+                    int mode = (data[headerPosition + group / 4] >> ((group % 4) * 2)) & 3;
+                    int bits = new int[]{0, 2, 4, 8}[mode];
+                    if (bits == 8) {
+                        for (int i = 0; i < 16; i++) {
+                            deltas[group * 16 + i] = data[position++] & 0xFF;
+                        }
+                    } else if (bits > 0) {
+                        int sentinel = (1 << bits) - 1;
+                        int valuesPerByte = 8 / bits;
+                        int extraPosition = position + 16 / valuesPerByte;
+                        for (int i = 0; i < 16; i++) {
+                            int packed = data[position + i / valuesPerByte] & 0xFF;
+                            int value = (packed >> (8 - bits * (i % valuesPerByte + 1))) & sentinel;
+                            deltas[group * 16 + i] = value == sentinel ? data[extraPosition++] & 0xFF : value;
+                        }
+                        position = extraPosition;
+                    }
+                }
+                int previous = lastVertex[k];
+                for (int i = 0; i < blockCount; i++) {
+                    int delta = deltas[i];
+                    previous = (byte) (previous + ((delta >>> 1) ^ -(delta & 1)));
+                    result[(vertexOffset + i) * byteStride + k] = (byte) previous;
+                }
+            }
+            System.arraycopy(result, (vertexOffset + blockCount - 1) * byteStride, lastVertex, 0, byteStride);
+        }
+        assertEquals(data.length - Math.max(byteStride, 32), position);
+        return result;
+    }
+
+    /**
+     * Reference decoder of the INDICES mode (index sequence codec version 1).
+     */
+    private int[] decodeIndexSequence(byte[] data, int count) {
+        int[] result = new int[count];
+        int[] last = new int[2];
+        int position = 1;
+        for (int i = 0; i < count; i++) {
+            int value = 0;
+            int shift = 0;
+            int read;
+            do {
+                read = data[position++] & 0xFF;
+                value |= (read & 0x7F) << shift;
+                shift += 7;
+            } while ((read & 0x80) != 0);
+            int current = value & 1;
+            value >>>= 1;
+            int delta = (value >>> 1) ^ -(value & 1);
+            result[i] = last[current] + delta;
+            last[current] = result[i];
+        }
+        assertEquals(data.length - 4, position);
+        return result;
+    }
+}
@@ -3,6 +3,7 @@ package com.gaia3d.converter.jgltf;
 import com.gaia3d.command.Configurator;
 import lombok.extern.slf4j.Slf4j;
 import org.joml.Matrix4d;
+import org.joml.Vector3d;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -129,4 +130,38 @@ class QuantizerTest {
         };
         assertArrayEquals(expectedQuantizedPositions, quantizedPositions);
     }
+
+    @Test
+    void quantizeNormalBytes() {
+        float[] normals = new float[]{0, 0, 2, 1, 1, 0, 0, 0, 0};
+        byte[] quantizedNormals = Quantizer.quantizeNormalBytes(normals);
+        assertArrayEquals(new byte[]{0, 0, 127, 0, 90, 90, 0, 0, 0, 0, 0, 0}, quantizedNormals);
+    }
+
+    @Test
+    void encodeOctahedralNormalBytes() {
+        float[] normals = new float[]{
+                0, 0, 1,
+                0, 0, -1,
+                1, 0, 0,
+                0.3f, -0.5f, -0.8f,
+                -0.6f, 0.6f, 0.2f,
+                -0.1f, -0.2f, -0.9f
+        };
+        byte[] encodedNormals = Quantizer.encodeOctahedralNormalBytes(normals);
+        assertEquals(normals.length / 3 * 4, encodedNormals.length);
+        for (int i = 0; i < normals.length / 3; i++) {
+            // decoded like the meshopt OCTAHEDRAL filter
+            float x = encodedNormals[i * 4];
+            float y = encodedNormals[i * 4 + 1];
+            float z = encodedNormals[i * 4 + 2] - Math.abs(x) - Math.abs(y);
+            float t = Math.min(z, 0.0f);
+            x += x >= 0.0f ? t : -t;
+            y += y >= 0.0f ? t : -t;
+
+            Vector3d decoded = new Vector3d(x, y, z).normalize();
+            Vector3d expected = new Vector3d(normals[i * 3], normals[i * 3 + 1], normals[i * 3 + 2]).normalize();
+            assertTrue(Math.toDegrees(decoded.angle(expected)) < 1.5, "normal " + i + " : " + decoded + " != " + expected);
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,96 @@
+package com.gaia3d.converter.kml;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class StaxKmlReaderTest {
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    void readSampleKml() {
+        File file = new File(Objects.requireNonNull(getClass().getClassLoader().getResource("sample-kml/a_bd001.kml")).getFile());
+        KmlInfo kmlInfo = new StaxKmlReader().read(file);
+
+        assertNotNull(kmlInfo);
+        assertEquals("a_bd001", kmlInfo.getName());
+        assertEquals("a_bd001.dae", kmlInfo.getHref());
+        assertEquals("clampToGround", kmlInfo.getAltitudeMode());
+        assertEquals(127.1719337, kmlInfo.getPosition().x, 1e-9);
+        assertEquals(37.62362101, kmlInfo.getPosition().y, 1e-9);
+        assertEquals(1.0, kmlInfo.getScaleX(), 1e-9);
+    }
+
+    @Test
+    void streamPlacemarks() throws IOException {
+        int placemarkCount = 1000;
+        File file = writeKml(placemarkCount);
+
+        AttributeReader reader = new StaxKmlReader();
+        List<KmlInfo> kmlInfos = reader.readAll(file);
+        assertEquals(placemarkCount, kmlInfos.size());
+
+        KmlInfo last = kmlInfos.get(placemarkCount - 1);
+        assertEquals("model-999", last.getName());
+        assertEquals("model-999.glb", last.getHref());
+        assertEquals(999.0, last.getHeading(), 1e-9);
+        assertEquals(2.0, last.getScaleZ(), 1e-9);
+        assertEquals("999", last.getProperties().get("index"));
+        assertEquals("tree", last.getProperties().get("type"));
+
+        // the stream is lazy, the first placemark is emitted before the document is read
+        try (Stream<KmlInfo> stream = reader.stream(file)) {
+            Iterator<KmlInfo> iterator = stream.iterator();
+            assertTrue(iterator.hasNext());
+            assertEquals("model-0", iterator.next().getName());
+        }
+    }
+
+    @Test
+    void skipPlacemarkWithoutModel() throws IOException {
+        File file = new File(tempDir, "points.kml");
+        Files.writeString(file.toPath(), """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <kml xmlns="http://www.opengis.net/kml/2.2">
+                  <Document>
+                    <Placemark><name>point</name><Point><coordinates>127.0,37.0,0</coordinates></Point></Placemark>
+                  </Document>
+                </kml>
+                """);
+        assertTrue(new StaxKmlReader().readAll(file).isEmpty());
+    }
+
+    private File writeKml(int placemarkCount) throws IOException {
+        StringBuilder builder = new StringBuilder();
+        builder.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        builder.append("<kml xmlns=\"http://www.opengis.net/kml/2.2\"><Document><name>instances</name>\n");
+        for (int i = 0; i < placemarkCount; i++) {
+            builder.append("<Placemark><name>model-").append(i).append("</name>");
+            builder.append("<ExtendedData><Data name=\"index\"><value>").append(i).append("</value></Data>");
+            builder.append("<Data name=\"type\"><value>tree</value></Data></ExtendedData>");
+            builder.append("<Model><altitudeMode>clampToGround</altitudeMode>");
+            builder.append("<Location><longitude>127.0</longitude><latitude>37.0</latitude><altitude>0</altitude></Location>");
+            builder.append("<Orientation><heading>").append(i).append("</heading><tilt>0</tilt><roll>0</roll></Orientation>");
+            builder.append("<Scale><x>2</x><y>2</y><z>2</z></Scale>");
+            builder.append("<Link><href>model-").append(i).append(".glb</href></Link></Model></Placemark>\n");
+        }
+        builder.append("</Document></kml>\n");
+
+        File file = new File(tempDir, "instances.kml");
+        Files.writeString(file.toPath(), builder.toString());
+        return file;
+    }
+}
@@ -0,0 +1,135 @@
+package com.gaia3d.converter.loader;
+
+import com.gaia3d.basic.model.GaiaScene;
+import com.gaia3d.basic.types.FormatType;
+import com.gaia3d.command.mago.GlobalOptions;
+import com.gaia3d.converter.Converter;
+import com.gaia3d.converter.geometry.GaiaSceneTempGroup;
+import com.gaia3d.converter.kml.StaxKmlReader;
+import com.gaia3d.process.tileprocess.tile.TileInfo;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class BatchedFileLoaderTest {
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    void loadKmlModelsConcurrently() throws IOException {
+        int placemarkCount = 40;
+        File file = writeKml(placemarkCount, -1);
+        Map<Converter, Thread> converterThreads = new ConcurrentHashMap<>();
+        BatchedFileLoader fileLoader = createFileLoader(converterThreads);
+        try {
+            List<TileInfo> tileInfos = fileLoader.loadTileInfo(file);
+            assertNotNull(tileInfos);
+            assertEquals(placemarkCount, tileInfos.size());
+            // the tile infos keep the placemark order
+            for (int i = 0; i < placemarkCount; i++) {
+                assertEquals("model-" + i, tileInfos.get(i).getKmlInfo().getName());
+                assertEquals("model-" + i + ".glb", tileInfos.get(i).getScene().getOriginalPath().toFile().getName());
+            }
+            // every model thread loads with its own converter
+            assertTrue(converterThreads.size() > 1);
+            assertEquals(converterThreads.size(), converterThreads.values().stream().distinct().count());
+        } finally {
+            fileLoader.close();
+        }
+    }
+
+    @Test
+    void failKmlWithFailedModel() throws IOException {
+        File file = writeKml(20, 13);
+        BatchedFileLoader fileLoader = createFileLoader(new ConcurrentHashMap<>());
+        try {
+            assertNull(fileLoader.loadTileInfo(file));
+        } finally {
+            fileLoader.close();
+        }
+    }
+
+    private BatchedFileLoader createFileLoader(Map<Converter, Thread> converterThreads) {
+        GlobalOptions globalOptions = GlobalOptions.getInstance();
+        globalOptions.setInputFormat(FormatType.KML);
+        globalOptions.setOutputPath(tempDir.getAbsolutePath());
+        globalOptions.setMultiThreadCount((byte) 4);
+        return new BatchedFileLoader(() -> new ModelConverter(converterThreads), new StaxKmlReader(), null);
+    }
+
+    /**
+     * Writes placemarks referencing model-i.glb, the failed index references a model that does not load.
+     */
+    private File writeKml(int placemarkCount, int failedIndex) throws IOException {
+        StringBuilder builder = new StringBuilder();
+        builder.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        builder.append("<kml xmlns=\"http://www.opengis.net/kml/2.2\"><Document>\n");
+        for (int i = 0; i < placemarkCount; i++) {
+            String href = i == failedIndex ? "failed.glb" : "model-" + i + ".glb";
+            builder.append("<Placemark><name>model-").append(i).append("</name><Model>");
+            builder.append("<Location><longitude>127.0</longitude><latitude>37.0</latitude><altitude>0</altitude></Location>");
+            builder.append("<Link><href>").append(href).append("</href></Link></Model></Placemark>\n");
+        }
+        builder.append("</Document></kml>\n");
+
+        File file = new File(tempDir, "models.kml");
+        Files.writeString(file.toPath(), builder.toString());
+        return file;
+    }
+
+    private static class ModelConverter implements Converter {
+        private final Map<Converter, Thread> converterThreads;
+
+        private ModelConverter(Map<Converter, Thread> converterThreads) {
+            this.converterThreads = converterThreads;
+        }
+
+        @Override
+        public List<GaiaScene> load(String path) {
+            return load(new File(path));
+        }
+
+        @Override
+        public List<GaiaScene> load(File file) {
+            Thread previousThread = converterThreads.putIfAbsent(this, Thread.currentThread());
+            assertTrue(previousThread == null || previousThread == Thread.currentThread());
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            List<GaiaScene> scenes = new ArrayList<>();
+            if (file.getName().equals("failed.glb")) {
+                scenes.add(null);
+            } else {
+                GaiaScene scene = new GaiaScene();
+                scene.setOriginalPath(file.toPath());
+                scenes.add(scene);
+            }
+            return scenes;
+        }
+
+        @Override
+        public List<GaiaScene> load(Path path) {
+            return load(path.toFile());
+        }
+
+        @Override
+        public List<GaiaSceneTempGroup> convertTemp(File input, File output) {
+            return null;
+        }
+    }
+}
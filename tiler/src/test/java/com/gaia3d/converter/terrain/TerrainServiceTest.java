@@ -0,0 +1,134 @@
+package com.gaia3d.converter.terrain;
+
+import com.gaia3d.basic.geometry.GaiaBoundingBox;
+import com.gaia3d.converter.geometry.GaiaExtrusionBuilding;
+import com.gaia3d.converter.kml.KmlInfo;
+import com.gaia3d.process.preprocess.GaiaInstanceTranslator;
+import com.gaia3d.process.tileprocess.tile.TileInfo;
+import lombok.extern.slf4j.Slf4j;
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.coverage.grid.GridCoverageFactory;
+import org.geotools.gce.geotiff.GeoTiffWriter;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.joml.Vector3d;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class TerrainServiceTest {
+    private static final double PIXEL_SIZE = 0.1d;
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    void sampleBilinear() throws IOException {
+        File file = writeDem(new File(tempDir, "dem.tif"), 127.0d, 37.0d, 4, 0.0d);
+        TerrainService terrainService = TerrainService.load(file, TerrainService.DEFAULT_CACHE_SIZE);
+        assertFalse(terrainService.isEmpty());
+
+        // pixel centers
+        assertEquals(0.0d, terrainService.getHeight(127.05d, 37.15d), 1e-4);
+        assertEquals(30.0d, terrainService.getHeight(127.35d, 37.15d), 1e-4);
+        // between pixel centers
+        assertEquals(15.0d, terrainService.getHeight(127.20d, 37.22d), 1e-4);
+        // half pixel border is clamped to the edge pixel
+        assertEquals(30.0d, terrainService.getHeight(127.39d, 37.2d), 1e-4);
+        // out of range
+        assertTrue(Double.isNaN(terrainService.getHeight(128.0d, 37.2d)));
+        terrainService.close();
+    }
+
+    @Test
+    void sampleDirectory() throws IOException {
+        File directory = new File(tempDir, "dem");
+        assertTrue(directory.mkdirs());
+        writeDem(new File(directory, "west.tif"), 127.0d, 37.0d, 4, 0.0d);
+        writeDem(new File(directory, "east.tif"), 127.4d, 37.0d, 4, 100.0d);
+
+        TerrainService terrainService = TerrainService.load(directory, 4);
+        double[] longitudes = {127.05d, 127.25d, 127.45d, 127.75d, 129.0d};
+        double[] latitudes = {37.2d, 37.2d, 37.2d, 37.2d, 37.2d};
+        double[] heights = new double[longitudes.length];
+        terrainService.getHeights(longitudes, latitudes, heights, longitudes.length);
+
+        assertEquals(0.0d, heights[0], 1e-4);
+        assertEquals(20.0d, heights[1], 1e-4);
+        assertEquals(100.0d, heights[2], 1e-4);
+        assertEquals(130.0d, heights[3], 1e-4);
+        assertTrue(Double.isNaN(heights[4]));
+        terrainService.close();
+    }
+
+    @Test
+    void drapeBuildings() throws IOException {
+        File file = writeDem(new File(tempDir, "slope.tif"), 127.0d, 37.0d, 4, 0.0d);
+        TerrainService terrainService = TerrainService.load(file, TerrainService.DEFAULT_CACHE_SIZE);
+
+        List<Vector3d> positions = new ArrayList<>();
+        positions.add(new Vector3d(127.05d, 37.15d, 0.0d));
+        positions.add(new Vector3d(127.25d, 37.15d, 0.0d));
+        positions.add(new Vector3d(127.25d, 37.25d, 0.0d));
+        positions.add(new Vector3d(127.05d, 37.25d, 0.0d));
+        GaiaBoundingBox boundingBox = new GaiaBoundingBox();
+        positions.forEach(boundingBox::addPoint);
+        GaiaExtrusionBuilding building = GaiaExtrusionBuilding.builder().positions(positions).boundingBox(boundingBox).build();
+
+        new TerrainDraper(terrainService).drapeBuildings(List.of(building));
+        // the offsets are relative to the terrain height at the center (10.0)
+        assertEquals(-10.0d, positions.get(0).z, 1e-4);
+        assertEquals(10.0d, positions.get(1).z, 1e-4);
+        assertEquals(10.0d, positions.get(2).z, 1e-4);
+        assertEquals(-10.0d, positions.get(3).z, 1e-4);
+        terrainService.close();
+    }
+
+    @Test
+    void translateInstances() throws IOException {
+        File file = writeDem(new File(tempDir, "instances.tif"), 127.0d, 37.0d, 4, 0.0d);
+        TerrainService terrainService = TerrainService.load(file, TerrainService.DEFAULT_CACHE_SIZE);
+        GaiaInstanceTranslator translator = new GaiaInstanceTranslator(terrainService);
+
+        KmlInfo clamped = KmlInfo.builder().position(new Vector3d(127.25d, 37.15d, 5.0d)).build();
+        translator.run(TileInfo.builder().kmlInfo(clamped).build());
+        assertEquals(20.0d, clamped.getPosition().z, 1e-4);
+
+        KmlInfo absolute = KmlInfo.builder().position(new Vector3d(127.25d, 37.15d, 5.0d)).altitudeMode("absolute").build();
+        translator.run(TileInfo.builder().kmlInfo(absolute).build());
+        assertEquals(5.0d, absolute.getPosition().z, 1e-4);
+
+        // out of range instances stay on the ellipsoid
+        KmlInfo outside = KmlInfo.builder().position(new Vector3d(128.0d, 37.15d, 5.0d)).build();
+        translator.run(TileInfo.builder().kmlInfo(outside).build());
+        assertEquals(0.0d, outside.getPosition().z, 1e-4);
+        terrainService.close();
+    }
+
+    /**
+     * Writes a DEM whose height is 10 per pixel column from the west, plus the base height.
+     */
+    private File writeDem(File file, double minLon, double minLat, int size, double baseHeight) throws IOException {
+        float[][] matrix = new float[size][size];
+        for (int row = 0; row < size; row++) {
+            for (int column = 0; column < size; column++) {
+                matrix[row][column] = (float) (baseHeight + column * 10.0d);
+            }
+        }
+        double extent = size * PIXEL_SIZE;
+        ReferencedEnvelope envelope = new ReferencedEnvelope(minLon, minLon + extent, minLat, minLat + extent, DefaultGeographicCRS.WGS84);
+        GridCoverage2D coverage = new GridCoverageFactory().create("dem", matrix, envelope);
+
+        GeoTiffWriter writer = new GeoTiffWriter(file);
+        writer.write(coverage, null);
+        writer.dispose();
+        return file;
+    }
+}
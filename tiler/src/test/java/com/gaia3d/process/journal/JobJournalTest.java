@@ -0,0 +1,213 @@
+package com.gaia3d.process.journal;
+
+import com.gaia3d.basic.geometry.GaiaBoundingBox;
+import com.gaia3d.command.mago.GlobalOptions;
+import com.gaia3d.converter.kml.KmlInfo;
+import com.gaia3d.process.tileprocess.tile.ContentInfo;
+import com.gaia3d.process.tileprocess.tile.TileInfo;
+import lombok.extern.slf4j.Slf4j;
+import org.joml.Matrix4d;
+import org.joml.Vector3d;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class JobJournalTest {
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    void resumeCompletedSteps() throws IOException {
+        File tempPath = new File(tempDir, "temp");
+        File contentPath = new File(tempDir, "data");
+        File inputFile = new File(tempDir, "input.kml");
+        Files.writeString(inputFile.toPath(), "input");
+
+        JobJournal journal = JobJournal.open(tempPath, contentPath, "job", false);
+        File tempFile = writeFile(new File(tempPath, "0/0.bin"), "points");
+        journal.completeTemp(List.of(tempFile));
+        TileInfo tileInfo = createTileInfo(writeFile(new File(tempPath, "model/0/model.mgb"), "model"));
+        journal.completeFile(inputFile, List.of(tileInfo));
+        ContentInfo contentInfo = createContentInfo("R0");
+        writeFile(new File(contentPath, "R0.b3dm"), "content");
+        journal.completeContent(contentInfo);
+        journal.close();
+
+        journal = JobJournal.open(tempPath, contentPath, "job", true);
+        assertEquals(List.of(tempFile.getAbsoluteFile()), journal.restoreTemp());
+        List<TileInfo> restoredTileInfos = journal.restoreTileInfos(inputFile);
+        assertNotNull(restoredTileInfos);
+        assertEquals(1, restoredTileInfos.size());
+        TileInfo restoredTileInfo = restoredTileInfos.get(0);
+        assertEquals(tileInfo.getSerial(), restoredTileInfo.getSerial());
+        assertEquals(tileInfo.getName(), restoredTileInfo.getName());
+        assertEquals(tileInfo.getTempPath(), restoredTileInfo.getTempPath());
+        assertEquals(tileInfo.getTriangleCount(), restoredTileInfo.getTriangleCount());
+        assertTrue(tileInfo.getTransformMatrix().equals(restoredTileInfo.getTransformMatrix(), 0.0));
+        assertEquals(tileInfo.getBoundingBox().getMaxPosition(), restoredTileInfo.getBoundingBox().getMaxPosition());
+        assertEquals(tileInfo.getBoundingBox().getMinPosition(), restoredTileInfo.getBoundingBox().getMinPosition());
+        assertEquals(tileInfo.getKmlInfo().getPosition(), restoredTileInfo.getKmlInfo().getPosition());
+        assertEquals(tileInfo.getKmlInfo().getHeading(), restoredTileInfo.getKmlInfo().getHeading());
+        assertEquals(tileInfo.getKmlInfo().getProperties(), restoredTileInfo.getKmlInfo().getProperties());
+        assertTrue(journal.isContentWritten(contentInfo));
+        assertFalse(journal.isContentWritten(createContentInfo("R1")));
+        journal.close();
+    }
+
+    @Test
+    void repeatModifiedSteps() throws IOException {
+        File tempPath = new File(tempDir, "temp");
+        File contentPath = new File(tempDir, "data");
+        File inputFile = new File(tempDir, "input.kml");
+
+        JobJournal journal = JobJournal.open(tempPath, contentPath, "job", false);
+        journal.completeTemp(List.of(inputFile));
+        File modelFile = writeFile(new File(tempPath, "model/0/model.mgb"), "model");
+        journal.completeFile(inputFile, List.of(createTileInfo(modelFile)));
+        ContentInfo contentInfo = createContentInfo("R0");
+        File contentFile = writeFile(new File(contentPath, "R0.b3dm"), "content");
+        journal.completeContent(contentInfo);
+        journal.close();
+
+        // a modified temp file and a truncated content file
+        writeFile(modelFile, "modal");
+        writeFile(contentFile, "cont");
+        journal = JobJournal.open(tempPath, contentPath, "job", true);
+        assertNotNull(journal.restoreTemp());
+        assertNull(journal.restoreTileInfos(inputFile));
+        assertFalse(journal.isContentWritten(contentInfo));
+        journal.close();
+    }
+
+    @Test
+    void ignoreIncompleteEntry() throws IOException {
+        File tempPath = new File(tempDir, "temp");
+        File contentPath = new File(tempDir, "data");
+
+        JobJournal journal = JobJournal.open(tempPath, contentPath, "job", false);
+        ContentInfo contentInfo = createContentInfo("R0");
+        writeFile(new File(contentPath, "R0.b3dm"), "content");
+        journal.completeContent(contentInfo);
+        journal.close();
+
+        // a crash while the next entry was written
+        Path journalPath = new File(tempPath, JobJournal.JOURNAL_FILE_NAME).toPath();
+        Files.writeString(journalPath, "{\"type\":\"CONTENT\",\"sou", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        journal = JobJournal.open(tempPath, contentPath, "job", true);
+        assertTrue(journal.isContentWritten(contentInfo));
+        journal.close();
+    }
+
+    @Test
+    void restartAnotherJob() throws IOException {
+        File tempPath = new File(tempDir, "temp");
+        File contentPath = new File(tempDir, "data");
+
+        JobJournal journal = JobJournal.open(tempPath, contentPath, "job", false);
+        ContentInfo contentInfo = createContentInfo("R0");
+        writeFile(new File(contentPath, "R0.b3dm"), "content");
+        journal.completeContent(contentInfo);
+        journal.close();
+
+        journal = JobJournal.open(tempPath, contentPath, "another job", true);
+        assertFalse(journal.isContentWritten(contentInfo));
+        journal.close();
+
+        // the journal was started again for the other job
+        journal = JobJournal.open(tempPath, contentPath, "job", true);
+        assertFalse(journal.isContentWritten(contentInfo));
+        journal.close();
+    }
+
+    @Test
+    void restartWithChangedOptions() throws IOException {
+        File tempPath = new File(tempDir, "temp");
+        File contentPath = new File(tempDir, "data");
+        File inputFile = writeFile(new File(tempDir, "input.kml"), "input");
+        List<File> inputFiles = List.of(inputFile);
+
+        GlobalOptions globalOptions = new GlobalOptions();
+        globalOptions.setInputPath(tempDir.getAbsolutePath());
+        globalOptions.setMaxLod(3);
+        String fingerprint = JobJournal.createFingerprint(globalOptions, inputFiles);
+        ContentInfo contentInfo = createContentInfo("R0");
+        writeFile(new File(contentPath, "R0.b3dm"), "content");
+        JobJournal journal = JobJournal.open(tempPath, contentPath, fingerprint, false);
+        journal.completeContent(contentInfo);
+        journal.close();
+
+        // the options of the run do not change the tiles
+        globalOptions.setMultiThreadCount((byte) 8);
+        globalOptions.setResume(true);
+        assertEquals(fingerprint, JobJournal.createFingerprint(globalOptions, inputFiles));
+        journal = JobJournal.open(tempPath, contentPath, JobJournal.createFingerprint(globalOptions, inputFiles), true);
+        assertTrue(journal.isContentWritten(contentInfo));
+        journal.close();
+
+        globalOptions.setUseQuantization(true);
+        String quantizedFingerprint = JobJournal.createFingerprint(globalOptions, inputFiles);
+        assertNotEquals(fingerprint, quantizedFingerprint);
+        journal = JobJournal.open(tempPath, contentPath, quantizedFingerprint, true);
+        assertFalse(journal.isContentWritten(contentInfo));
+        journal.completeContent(contentInfo);
+        journal.close();
+
+        globalOptions.setMaxLod(4);
+        String maxLodFingerprint = JobJournal.createFingerprint(globalOptions, inputFiles);
+        assertNotEquals(quantizedFingerprint, maxLodFingerprint);
+        journal = JobJournal.open(tempPath, contentPath, maxLodFingerprint, true);
+        assertFalse(journal.isContentWritten(contentInfo));
+        journal.close();
+    }
+
+    private TileInfo createTileInfo(File tempFile) {
+        GaiaBoundingBox boundingBox = new GaiaBoundingBox();
+        boundingBox.addPoint(-1.0, -2.0, -3.0);
+        boundingBox.addPoint(4.0, 5.0, 6.0);
+        KmlInfo kmlInfo = KmlInfo.builder()
+                .name("model")
+                .position(new Vector3d(127.0, 37.0, 10.0))
+                .altitudeMode("absolute")
+                .heading(90.0)
+                .href("model.dae")
+                .scaleX(1.0)
+                .scaleY(1.0)
+                .scaleZ(1.0)
+                .properties(Map.of("name", "model"))
+                .build();
+        return TileInfo.builder()
+                .serial(3)
+                .name("model")
+                .kmlInfo(kmlInfo)
+                .transformMatrix(new Matrix4d().translate(1.0, 2.0, 3.0).rotateZ(0.5))
+                .boundingBox(boundingBox)
+                .tempPath(tempFile.toPath())
+                .triangleCount(12)
+                .build();
+    }
+
+    private ContentInfo createContentInfo(String nodeCode) {
+        ContentInfo contentInfo = new ContentInfo();
+        contentInfo.setName(nodeCode);
+        contentInfo.setNodeCode(nodeCode);
+        return contentInfo;
+    }
+
+    private File writeFile(File file, String text) throws IOException {
+        file.getParentFile().mkdirs();
+        Files.writeString(file.toPath(), text, StandardCharsets.UTF_8);
+        return file;
+    }
+}
@@ -0,0 +1,178 @@
+package com.gaia3d.process.postprocess;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class MeshSimplifierTest {
+
+    @Test
+    void simplifyFlatGrid() {
+        int size = 10;
+        float[] positions = createGridPositions(size, 0.0f);
+        int[] indices = createGridIndices(size, 0, size + 1);
+
+        int[] simplified = MeshSimplifier.simplify(positions, indices, 0.01d);
+        log.info("flat grid triangles {} -> {}", indices.length / 3, simplified.length / 3);
+        assertTrue(simplified.length / 3 <= indices.length / 3 / 5);
+        // the borders and corners are kept
+        assertEquals(size * size, getArea(positions, simplified), 1e-3);
+        assertTrue(isUsed(simplified, 0));
+        assertTrue(isUsed(simplified, size));
+        assertTrue(isUsed(simplified, size * (size + 1)));
+        assertTrue(isUsed(simplified, (size + 1) * (size + 1) - 1));
+    }
+
+    @Test
+    void simplifyWithinTargetError() {
+        int size = 10;
+        float[] positions = createGridPositions(size, 1.0f);
+        int[] indices = createGridIndices(size, 0, size + 1);
+
+        int[] unchanged = MeshSimplifier.simplify(positions, indices, 0.001d);
+        assertEquals(indices.length, unchanged.length);
+
+        int[] simplified = MeshSimplifier.simplify(positions, indices, 0.5d);
+        log.info("curved grid triangles {} -> {}", indices.length / 3, simplified.length / 3);
+        assertTrue(simplified.length < indices.length);
+    }
+
+    @Test
+    void simplifyAlongSeam() {
+        // the column x = 5 has two wedges, the left half uses the first ones and the right half the copies
+        int size = 10;
+        float[] gridPositions = createGridPositions(size, 0.0f);
+        int gridVertexCount = (size + 1) * (size + 1);
+        float[] positions = new float[(gridVertexCount + size + 1) * 3];
+        System.arraycopy(gridPositions, 0, positions, 0, gridPositions.length);
+        int[] seamCopies = new int[gridVertexCount];
+        for (int y = 0; y <= size; y++) {
+            int vertex = y * (size + 1) + 5;
+            int copy = gridVertexCount + y;
+            System.arraycopy(gridPositions, vertex * 3, positions, copy * 3, 3);
+            seamCopies[vertex] = copy;
+        }
+        int[] indices = createGridIndices(size, 0, size + 1);
+        for (int i = 0; i < indices.length; i += 3) {
+            if (getCentroidX(positions, indices, i) > 5.0f) {
+                for (int corner = 0; corner < 3; corner++) {
+                    int vertex = indices[i + corner];
+                    if (vertex % (size + 1) == 5 && vertex < gridVertexCount) {
+                        indices[i + corner] = seamCopies[vertex];
+                    }
+                }
+            }
+        }
+
+        int[] simplified = MeshSimplifier.simplify(positions, indices, 0.01d);
+        log.info("seam grid triangles {} -> {}", indices.length / 3, simplified.length / 3);
+        assertTrue(simplified.length < indices.length / 2);
+        assertEquals(size * size, getArea(positions, simplified), 1e-3);
+        for (int i = 0; i < simplified.length; i += 3) {
+            boolean isRight = getCentroidX(positions, simplified, i) > 5.0f;
+            for (int corner = 0; corner < 3; corner++) {
+                int vertex = simplified[i + corner];
+                if (positions[vertex * 3] == 5.0f) {
+                    // the wedges stay on their side of the seam
+                    assertEquals(isRight, vertex >= gridVertexCount);
+                }
+            }
+        }
+    }
+
+    @Test
+    void keepSplitNormalCorners() {
+        // a cube with one vertex per face corner, all corners have three wedges
+        List<float[]> corners = new ArrayList<>();
+        List<Integer> indexList = new ArrayList<>();
+        int[][] faces = {{0, 1, 3, 2}, {4, 6, 7, 5}, {0, 4, 5, 1}, {2, 3, 7, 6}, {0, 2, 6, 4}, {1, 5, 7, 3}};
+        for (int[] face : faces) {
+            int offset = corners.size();
+            for (int corner : face) {
+                corners.add(new float[]{corner & 1, (corner >> 1) & 1, (corner >> 2) & 1});
+            }
+            indexList.add(offset);
+            indexList.add(offset + 1);
+            indexList.add(offset + 2);
+            indexList.add(offset);
+            indexList.add(offset + 2);
+            indexList.add(offset + 3);
+        }
+        float[] positions = new float[corners.size() * 3];
+        for (int i = 0; i < corners.size(); i++) {
+            System.arraycopy(corners.get(i), 0, positions, i * 3, 3);
+        }
+        int[] indices = indexList.stream().mapToInt(Integer::intValue).toArray();
+
+        int[] simplified = MeshSimplifier.simplify(positions, indices, 10.0d);
+        assertEquals(indices.length, simplified.length);
+    }
+
+    private float[] createGridPositions(int size, float curvature) {
+        float[] positions = new float[(size + 1) * (size + 1) * 3];
+        for (int y = 0; y <= size; y++) {
+            for (int x = 0; x <= size; x++) {
+                int vertex = y * (size + 1) + x;
+                float dx = x - size / 2.0f;
+                float dy = y - size / 2.0f;
+                positions[vertex * 3] = x;
+                positions[vertex * 3 + 1] = y;
+                positions[vertex * 3 + 2] = curvature * (dx * dx + dy * dy) / (size * size);
+            }
+        }
+        return positions;
+    }
+
+    private int[] createGridIndices(int size, int offset, int rowLength) {
+        int[] indices = new int[size * size * 6];
+        int count = 0;
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                int a = offset + y * rowLength + x;
+                int b = a + 1;
+                int c = a + rowLength;
+                int d = c + 1;
+                indices[count++] = a;
+                indices[count++] = b;
+                indices[count++] = d;
+                indices[count++] = a;
+                indices[count++] = d;
+                indices[count++] = c;
+            }
+        }
+        return indices;
+    }
+
+    private float getCentroidX(float[] positions, int[] indices, int offset) {
+        return (positions[indices[offset] * 3] + positions[indices[offset + 1] * 3] + positions[indices[offset + 2] * 3]) / 3.0f;
+    }
+
+    private double getArea(float[] positions, int[] indices) {
+        double area = 0.0d;
+        for (int i = 0; i < indices.length; i += 3) {
+            int a = indices[i] * 3;
+            int b = indices[i + 1] * 3;
+            int c = indices[i + 2] * 3;
+            double abx = positions[b] - positions[a];
+            double aby = positions[b + 1] - positions[a + 1];
+            double acx = positions[c] - positions[a];
+            double acy = positions[c + 1] - positions[a + 1];
+            area += (abx * acy - aby * acx) / 2.0d;
+        }
+        return area;
+    }
+
+    private boolean isUsed(int[] indices, int vertex) {
+        for (int index : indices) {
+            if (index == vertex) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
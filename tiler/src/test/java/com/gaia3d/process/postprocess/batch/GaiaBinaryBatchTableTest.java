@@ -0,0 +1,70 @@
+package com.gaia3d.process.postprocess.batch;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class GaiaBinaryBatchTableTest {
+
+    @Test
+    void buildTypedColumns() throws JsonProcessingException {
+        int batchLength = 3;
+        GaiaBinaryBatchTable batchTable = new GaiaBinaryBatchTable(batchLength);
+        for (int batchId = 0; batchId < batchLength; batchId++) {
+            batchTable.put("BatchId", batchId, String.valueOf(batchId));
+            batchTable.put("name", batchId, "building-" + batchId);
+            batchTable.put("height", batchId, String.valueOf(1.5 + batchId));
+            batchTable.put("area", batchId, String.valueOf(100000 * (batchId + 1)));
+            batchTable.put("price", batchId, "0.123456789");
+            batchTable.put("code", batchId, "00" + batchId);
+        }
+        batchTable.put("floors", 1, "3");
+        batchTable.build(new ObjectMapper());
+
+        assertEquals(0, batchTable.getJson().length() % 8);
+        assertEquals(0, batchTable.getBinary().length % 8);
+
+        JsonNode json = new ObjectMapper().readTree(batchTable.getJson());
+        assertEquals("UNSIGNED_BYTE", json.get("BatchId").get("componentType").asText());
+        assertEquals("SCALAR", json.get("BatchId").get("type").asText());
+        assertEquals("FLOAT", json.get("height").get("componentType").asText());
+        assertEquals("UNSIGNED_INT", json.get("area").get("componentType").asText());
+        assertEquals("DOUBLE", json.get("price").get("componentType").asText());
+
+        // strings, numbers with leading zeros and missing values stay json arrays aligned to the batch ids
+        assertEquals("building-2", json.get("name").get(2).asText());
+        assertEquals("001", json.get("code").get(1).asText());
+        assertEquals(batchLength, json.get("floors").size());
+        assertEquals("", json.get("floors").get(0).asText());
+        assertEquals("3", json.get("floors").get(1).asText());
+
+        ByteBuffer binary = ByteBuffer.wrap(batchTable.getBinary()).order(ByteOrder.LITTLE_ENDIAN);
+        int heightOffset = json.get("height").get("byteOffset").asInt();
+        assertEquals(0, heightOffset % 8);
+        assertEquals(3.5f, binary.getFloat(heightOffset + 2 * Float.BYTES));
+        int areaOffset = json.get("area").get("byteOffset").asInt();
+        assertEquals(300000, binary.getInt(areaOffset + 2 * Integer.BYTES));
+        int priceOffset = json.get("price").get("byteOffset").asInt();
+        assertEquals(0.123456789, binary.getDouble(priceOffset), 0.0);
+        assertEquals(2, binary.get(json.get("BatchId").get("byteOffset").asInt() + 2));
+    }
+
+    @Test
+    void keepLargeIdentifiersAsStrings() throws JsonProcessingException {
+        GaiaBinaryBatchTable batchTable = new GaiaBinaryBatchTable(1);
+        batchTable.put("id", 0, "12345678901234567890");
+        batchTable.build(new ObjectMapper());
+
+        JsonNode json = new ObjectMapper().readTree(batchTable.getJson());
+        assertEquals("12345678901234567890", json.get("id").get(0).asText());
+        assertEquals(0, batchTable.getBinary().length);
+    }
+}
@@ -0,0 +1,92 @@
+package com.gaia3d.process.scheduler;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class MemoryBudgetSchedulerTest {
+
+    @Test
+    void keepWithinBudget() throws InterruptedException {
+        long budget = 100;
+        AtomicLong runningBytes = new AtomicLong(0);
+        AtomicLong maxRunningBytes = new AtomicLong(0);
+        AtomicInteger completedCount = new AtomicInteger(0);
+        List<ScheduledTask> tasks = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            long bytes = i % 4 == 0 ? 60 : 10;
+            tasks.add(new ScheduledTask(() -> {
+                maxRunningBytes.accumulateAndGet(runningBytes.addAndGet(bytes), Math::max);
+                sleep(5);
+                runningBytes.addAndGet(-bytes);
+                completedCount.incrementAndGet();
+            }, bytes));
+        }
+
+        MemoryBudgetScheduler scheduler = new MemoryBudgetScheduler(8, budget, false);
+        scheduler.execute(tasks);
+
+        assertEquals(40, completedCount.get());
+        assertTrue(maxRunningBytes.get() <= budget);
+        // the small tasks are packed next to a large one
+        assertTrue(scheduler.getMaxRunningCount() > 1);
+    }
+
+    @Test
+    void runOversizedTaskAlone() throws InterruptedException {
+        AtomicInteger runningCount = new AtomicInteger(0);
+        AtomicInteger oversizedNeighbourCount = new AtomicInteger(0);
+        List<ScheduledTask> tasks = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            tasks.add(new ScheduledTask(() -> {
+                runningCount.incrementAndGet();
+                sleep(2);
+                runningCount.decrementAndGet();
+            }, 1));
+        }
+        tasks.add(new ScheduledTask(() -> {
+            oversizedNeighbourCount.set(runningCount.incrementAndGet() - 1);
+            sleep(10);
+            oversizedNeighbourCount.accumulateAndGet(runningCount.get() - 1, Math::max);
+            runningCount.decrementAndGet();
+        }, 1000));
+
+        MemoryBudgetScheduler scheduler = new MemoryBudgetScheduler(4, 10, false);
+        scheduler.execute(tasks);
+
+        assertEquals(0, oversizedNeighbourCount.get());
+        assertEquals(4, scheduler.getMaxRunningCount());
+    }
+
+    @Test
+    void stopOnFailure() {
+        List<ScheduledTask> tasks = new ArrayList<>();
+        AtomicInteger completedCount = new AtomicInteger(0);
+        tasks.add(new ScheduledTask(() -> {
+            throw new IllegalStateException("failed");
+        }, 10));
+        for (int i = 0; i < 10; i++) {
+            tasks.add(new ScheduledTask(completedCount::incrementAndGet, 1));
+        }
+
+        MemoryBudgetScheduler scheduler = new MemoryBudgetScheduler(1, 100, true);
+        assertThrows(RuntimeException.class, () -> scheduler.execute(tasks));
+        // the largest task runs first and nothing is started after it failed
+        assertEquals(0, completedCount.get());
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.gaia3d.process.tileprocess;
+
+import com.gaia3d.process.tileprocess.tile.tileset.node.BoundingVolume;
+import com.gaia3d.util.GlobeUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.joml.Matrix4d;
+import org.joml.Vector3d;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class TilesetRootInfoTest {
+
+    private static final double LONGITUDE = 127.0d;
+    private static final double LATITUDE = 37.0d;
+
+    @Test
+    void getRegionOfBox() {
+        Vector3d center = GlobeUtils.geographicToCartesianWgs84(new Vector3d(LONGITUDE, LATITUDE, 0.0d));
+        Matrix4d transformMatrix = GlobeUtils.transformMatrixAtCartesianPointWgs84(center);
+
+        BoundingVolume boundingVolume = new BoundingVolume(BoundingVolume.BoundingVolumeType.BOX);
+        boundingVolume.setBox(new double[]{0, 0, 0, 100, 0, 0, 0, 100, 0, 0, 0, 100});
+        TilesetRootInfo rootInfo = new TilesetRootInfo();
+        rootInfo.setTransform(transformMatrix.get(new float[16]));
+        rootInfo.setBoundingVolume(boundingVolume);
+
+        double[] region = rootInfo.getRegion();
+        log.info("box region : {}, {}, {}, {}, {}, {}", region[0], region[1], region[2], region[3], region[4], region[5]);
+        assertRegionContainsCenter(region);
+        assertTrue(region[4] < -99.0d && region[4] > -101.0d);
+        assertTrue(region[5] > 99.0d && region[5] < 101.0d);
+    }
+
+    @Test
+    void getRegionOfSphere() {
+        Vector3d center = GlobeUtils.geographicToCartesianWgs84(new Vector3d(LONGITUDE, LATITUDE, 0.0d));
+
+        BoundingVolume boundingVolume = new BoundingVolume(BoundingVolume.BoundingVolumeType.SPHERE);
+        boundingVolume.setSphere(new double[]{center.x, center.y, center.z, 100});
+        TilesetRootInfo rootInfo = new TilesetRootInfo();
+        rootInfo.setBoundingVolume(boundingVolume);
+
+        double[] region = rootInfo.getRegion();
+        assertRegionContainsCenter(region);
+        assertTrue(region[4] <= -100.0d);
+        assertTrue(region[5] >= 100.0d);
+    }
+
+    @Test
+    void getRegionOfRegion() {
+        BoundingVolume boundingVolume = new BoundingVolume(BoundingVolume.BoundingVolumeType.REGION);
+        boundingVolume.setRegion(new double[]{2.2, 0.6, 2.3, 0.7, 0, 50});
+        TilesetRootInfo rootInfo = new TilesetRootInfo();
+        rootInfo.setBoundingVolume(boundingVolume);
+
+        assertArrayEquals(new double[]{2.2, 0.6, 2.3, 0.7, 0, 50}, rootInfo.getRegion());
+        assertNull(new TilesetRootInfo().getRegion());
+    }
+
+    private void assertRegionContainsCenter(double[] region) {
+        double longitude = Math.toRadians(LONGITUDE);
+        double latitude = Math.toRadians(LATITUDE);
+        assertTrue(region[0] < longitude && longitude < region[2]);
+        assertTrue(region[1] < latitude && latitude < region[3]);
+        // about 200 meters wide
+        assertTrue(region[2] - region[0] < 0.0001d);
+        assertTrue(region[3] - region[1] < 0.0001d);
+    }
+}
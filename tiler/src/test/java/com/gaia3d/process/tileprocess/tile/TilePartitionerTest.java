@@ -0,0 +1,116 @@
+package com.gaia3d.process.tileprocess.tile;
+
+import com.gaia3d.basic.geometry.GaiaBoundingBox;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class TilePartitionerTest {
+
+    @Test
+    void getHilbertKey() {
+        assertEquals(0, TilePartitioner.getHilbertKey(0, 0, 1));
+        assertEquals(1, TilePartitioner.getHilbertKey(0, 1, 1));
+        assertEquals(2, TilePartitioner.getHilbertKey(1, 1, 1));
+        assertEquals(3, TilePartitioner.getHilbertKey(1, 0, 1));
+
+        // consecutive keys are neighbouring cells
+        int order = 4;
+        int size = 1 << order;
+        int[][] cells = new int[size * size][];
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                cells[(int) TilePartitioner.getHilbertKey(x, y, order)] = new int[]{x, y};
+            }
+        }
+        for (int i = 1; i < cells.length; i++) {
+            int distance = Math.abs(cells[i][0] - cells[i - 1][0]) + Math.abs(cells[i][1] - cells[i - 1][1]);
+            assertEquals(1, distance);
+        }
+    }
+
+    @Test
+    void sortAcrossAllQuadrants() {
+        // one tile near each corner of the extent, the quadrants follow the curve 0 (0, 0), 1 (0, 1), 2 (1, 1), 3 (1, 0)
+        List<TileInfo> tileInfos = new ArrayList<>();
+        tileInfos.add(createTileInfo(127.1, 37.0, 100));
+        tileInfos.add(createTileInfo(127.1, 37.1, 100));
+        tileInfos.add(createTileInfo(127.0, 37.1, 100));
+        tileInfos.add(createTileInfo(127.0, 37.0, 100));
+        for (int i = 1; i < 8; i++) {
+            tileInfos.add(createTileInfo(127.0 + i * 0.0125, 37.0 + (i % 3) * 0.03, 100));
+        }
+        Collections.shuffle(tileInfos);
+
+        List<TileInfo> sortedTileInfos = TilePartitioner.sortByHilbertKey(tileInfos);
+        long[] sortedKeys = TilePartitioner.getHilbertKeys(sortedTileInfos);
+        for (int i = 1; i < sortedKeys.length; i++) {
+            assertTrue(sortedKeys[i - 1] <= sortedKeys[i]);
+        }
+
+        GaiaBoundingBox first = sortedTileInfos.get(0).getCartographicBBox();
+        GaiaBoundingBox last = sortedTileInfos.get(sortedTileInfos.size() - 1).getCartographicBBox();
+        assertEquals(127.0, first.getCenter().x, 1e-9);
+        assertEquals(37.0, first.getCenter().y, 1e-9);
+        assertEquals(127.1, last.getCenter().x, 1e-9);
+        assertEquals(37.0, last.getCenter().y, 1e-9);
+    }
+
+    @Test
+    void splitSortedGridIntoQuadrants() {
+        int size = 8;
+        List<TileInfo> tileInfos = new ArrayList<>();
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                tileInfos.add(createTileInfo(127.0 + x * 0.001, 37.0 + y * 0.001, 100));
+            }
+        }
+        Collections.shuffle(tileInfos);
+
+        List<TileInfo> sortedTileInfos = TilePartitioner.sortByHilbertKey(tileInfos);
+        List<List<TileInfo>> parts = TilePartitioner.splitBalanced(sortedTileInfos, 4);
+        assertEquals(4, parts.size());
+        for (List<TileInfo> part : parts) {
+            assertEquals(size * size / 4, part.size());
+            // each part covers one quadrant of the grid
+            GaiaBoundingBox boundingBox = TilePartitioner.calcBoundingBox(part);
+            assertEquals(0.0032, boundingBox.getMaxX() - boundingBox.getMinX(), 1e-9);
+            assertEquals(0.0032, boundingBox.getMaxY() - boundingBox.getMinY(), 1e-9);
+        }
+    }
+
+    @Test
+    void splitByTriangleCount() {
+        List<TileInfo> tileInfos = new ArrayList<>();
+        tileInfos.add(createTileInfo(127.0, 37.0, 3000));
+        for (int i = 1; i <= 9; i++) {
+            tileInfos.add(createTileInfo(127.0 + i * 0.001, 37.0, 100));
+        }
+
+        List<List<TileInfo>> parts = TilePartitioner.splitBalanced(tileInfos, 4);
+        assertEquals(1, parts.get(0).size());
+        assertEquals(tileInfos.size(), parts.stream().mapToInt(List::size).sum());
+        for (List<TileInfo> part : parts) {
+            assertFalse(part.isEmpty());
+        }
+
+        List<List<TileInfo>> smallParts = TilePartitioner.splitBalanced(tileInfos.subList(0, 2), 4);
+        assertEquals(2, smallParts.stream().filter((part) -> !part.isEmpty()).count());
+    }
+
+    private TileInfo createTileInfo(double longitude, double latitude, long triangleCount) {
+        GaiaBoundingBox cartographicBoundingBox = new GaiaBoundingBox();
+        cartographicBoundingBox.addPoint(longitude - 0.0001, latitude - 0.0001, 0.0);
+        cartographicBoundingBox.addPoint(longitude + 0.0001, latitude + 0.0001, 10.0);
+        return TileInfo.builder()
+                .cartographicBBox(cartographicBoundingBox)
+                .triangleCount(triangleCount)
+                .build();
+    }
+}
@@ -0,0 +1,165 @@
+package com.gaia3d.process.tileprocess.tile.tileset;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.gaia3d.process.tileprocess.tile.ContentInfo;
+import com.gaia3d.process.tileprocess.tile.tileset.asset.Asset;
+import com.gaia3d.process.tileprocess.tile.tileset.node.BoundingVolume;
+import com.gaia3d.process.tileprocess.tile.tileset.node.Content;
+import com.gaia3d.process.tileprocess.tile.tileset.node.Node;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class ImplicitTilesetWriterTest {
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    void writeImplicitTileset() throws IOException {
+        Tileset tileset = createOctreeTileset();
+        assertTrue(ImplicitTilesetWriter.isImplicitOctree(tileset.getRoot()));
+
+        TilesetWriter tilesetWriter = new TilesetWriter(0, 1, true, 1);
+        tilesetWriter.write(tileset, tempDir);
+
+        JsonNode json = new ObjectMapper().readTree(new File(tempDir, TilesetWriter.TILESET_FILE_NAME));
+        assertEquals("1.1", json.get("asset").get("version").asText());
+        JsonNode root = json.get("root");
+        assertNull(root.get("children"));
+        assertEquals("data/{level}_{x}_{y}_{z}.b3dm", root.get("content").get("uri").asText());
+        JsonNode implicitTiling = root.get("implicitTiling");
+        assertEquals("OCTREE", implicitTiling.get("subdivisionScheme").asText());
+        assertEquals(1, implicitTiling.get("subtreeLevels").asInt());
+        assertEquals(3, implicitTiling.get("availableLevels").asInt());
+        assertEquals("subtrees/{level}_{x}_{y}_{z}.subtree", implicitTiling.get("subtrees").get("uri").asText());
+
+        // R26 is the east, north and top octant of R2, the contents are renamed to the tile coordinates
+        Node leaf = tileset.getRoot().getChildren().get(1).getChildren().get(0);
+        assertEquals("data/2_3_3_1.b3dm", leaf.getContent().getUri());
+        assertEquals("2_3_3_1", leaf.getContent().getContentInfo().getNodeCode());
+
+        File subtreePath = new File(tempDir, ImplicitTilesetWriter.SUBTREE_DIRECTORY);
+        assertEquals(5, subtreePath.listFiles().length);
+
+        // the root subtree has the children R0 (morton 0) and R2 (morton 3) as child subtrees
+        JsonNode rootSubtree = readSubtree(new File(subtreePath, "0_0_0_0.subtree"));
+        assertEquals(1, rootSubtree.get("tileAvailability").get("constant").asInt());
+        assertEquals(1, rootSubtree.get("contentAvailability").get(0).get("constant").asInt());
+        JsonNode childSubtreeAvailability = rootSubtree.get("childSubtreeAvailability");
+        assertEquals(2, childSubtreeAvailability.get("availableCount").asInt());
+        JsonNode bufferView = rootSubtree.get("bufferViews").get(childSubtreeAvailability.get("bitstream").asInt());
+        assertEquals(0, bufferView.get("byteOffset").asInt() % 8);
+        assertEquals(1, bufferView.get("byteLength").asInt());
+        assertEquals(0b00001001, rootSubtree.get("binary").get(bufferView.get("byteOffset").asInt()).asInt());
+
+        // R0 has no content
+        JsonNode emptySubtree = readSubtree(new File(subtreePath, "1_0_0_0.subtree"));
+        assertEquals(0, emptySubtree.get("contentAvailability").get(0).get("constant").asInt());
+        assertTrue(new File(subtreePath, "2_0_1_1.subtree").exists());
+    }
+
+    @Test
+    void fallbackToExplicitTileset() throws IOException {
+        Tileset tileset = createOctreeTileset();
+        Node child = tileset.getRoot().getChildren().get(0);
+        child.getBoundingVolume().setRegion(new double[]{0.0, 0.0, 0.3, 0.3, 0.0, 40.0});
+        assertFalse(ImplicitTilesetWriter.isImplicitOctree(tileset.getRoot()));
+
+        new TilesetWriter(0, 1, true, 4).write(tileset, tempDir);
+        JsonNode root = new ObjectMapper().readTree(new File(tempDir, TilesetWriter.TILESET_FILE_NAME)).get("root");
+        assertNull(root.get("implicitTiling"));
+        assertEquals(2, root.get("children").size());
+        assertFalse(new File(tempDir, ImplicitTilesetWriter.SUBTREE_DIRECTORY).exists());
+    }
+
+    /**
+     * Reads the json chunk of the subtree, the binary chunk is added as the "binary" byte array.
+     */
+    private JsonNode readSubtree(File file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath())).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals("subt", new String(buffer.array(), 0, 4, StandardCharsets.US_ASCII));
+        buffer.position(4);
+        assertEquals(1, buffer.getInt());
+        int jsonByteLength = (int) buffer.getLong();
+        int binaryByteLength = (int) buffer.getLong();
+        assertEquals(0, jsonByteLength % 8);
+        assertEquals(0, binaryByteLength % 8);
+        assertEquals(file.length(), 24 + jsonByteLength + binaryByteLength);
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        ObjectNode json = (ObjectNode) objectMapper.readTree(new String(buffer.array(), 24, jsonByteLength, StandardCharsets.UTF_8).trim());
+        ArrayNode binary = json.putArray("binary");
+        for (int i = 0; i < binaryByteLength; i++) {
+            binary.add(buffer.get(24 + jsonByteLength + i) & 0xFF);
+        }
+        return json;
+    }
+
+    /**
+     * R (content), R0 (empty) - R07 (content), R2 (content) - R26 (content)
+     */
+    private Tileset createOctreeTileset() {
+        double[] rootRegion = new double[]{0.0, 0.0, 0.8, 0.8, 0.0, 80.0};
+        Node root = createNode("R", rootRegion, 1000.0d, true);
+        Node empty = createNode("R0", createOctantRegion(rootRegion, 0), 16.0d, false);
+        empty.getChildren().add(createNode("R07", createOctantRegion(empty.getBoundingVolume().getRegion(), 7), 8.0d, true));
+        Node child = createNode("R2", createOctantRegion(rootRegion, 2), 16.0d, true);
+        child.getChildren().add(createNode("R26", createOctantRegion(child.getBoundingVolume().getRegion(), 6), 8.0d, true));
+        root.getChildren().add(empty);
+        root.getChildren().add(child);
+
+        Tileset tileset = new Tileset();
+        tileset.setAsset(new Asset());
+        tileset.setGeometricError(1000.0d);
+        tileset.setRoot(root);
+        return tileset;
+    }
+
+    private double[] createOctantRegion(double[] region, int octant) {
+        boolean east = octant == 1 || octant == 2 || octant == 5 || octant == 6;
+        boolean north = octant == 2 || octant == 3 || octant == 6 || octant == 7;
+        boolean top = octant >= 4;
+        double midX = (region[0] + region[2]) / 2.0;
+        double midY = (region[1] + region[3]) / 2.0;
+        double midZ = (region[4] + region[5]) / 2.0;
+        return new double[]{
+                east ? midX : region[0], north ? midY : region[1], east ? region[2] : midX, north ? region[3] : midY,
+                top ? midZ : region[4], top ? region[5] : midZ};
+    }
+
+    private Node createNode(String nodeCode, double[] region, double geometricError, boolean hasContent) {
+        BoundingVolume boundingVolume = new BoundingVolume(BoundingVolume.BoundingVolumeType.REGION);
+        boundingVolume.setRegion(region);
+
+        Node node = new Node();
+        node.setNodeCode(nodeCode);
+        node.setBoundingVolume(boundingVolume);
+        node.setGeometricError(geometricError);
+        node.setRefine(Node.RefineType.REPLACE);
+        node.setChildren(new ArrayList<>());
+        if (hasContent) {
+            ContentInfo contentInfo = new ContentInfo();
+            contentInfo.setNodeCode(nodeCode);
+            Content content = new Content();
+            content.setUri("data/" + nodeCode + ".b3dm");
+            content.setContentInfo(contentInfo);
+            node.setContent(content);
+        }
+        return node;
+    }
+}
@@ -0,0 +1,104 @@
+package com.gaia3d.process.tileprocess.tile.tileset;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gaia3d.process.tileprocess.tile.tileset.asset.Asset;
+import com.gaia3d.process.tileprocess.tile.tileset.node.BoundingVolume;
+import com.gaia3d.process.tileprocess.tile.tileset.node.Content;
+import com.gaia3d.process.tileprocess.tile.tileset.node.Node;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class TilesetWriterTest {
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    void writeSingleTileset() throws IOException {
+        TilesetWriter tilesetWriter = new TilesetWriter(0, 2);
+        long tilesetSize = tilesetWriter.write(createTileset(), tempDir);
+
+        File tilesetFile = new File(tempDir, TilesetWriter.TILESET_FILE_NAME);
+        assertEquals(tilesetFile.length(), tilesetSize);
+        assertEquals(1, tempDir.listFiles().length);
+
+        JsonNode root = new ObjectMapper().readTree(tilesetFile).get("root");
+        assertEquals(16, root.get("transform").size());
+        assertEquals("data/R.b3dm", root.get("content").get("uri").asText());
+        assertEquals(2, root.get("children").size());
+        JsonNode leaf = root.get("children").get(1).get("children").get(0);
+        assertEquals("data/R10.b3dm", leaf.get("content").get("uri").asText());
+        assertEquals(6, leaf.get("boundingVolume").get("region").size());
+    }
+
+    @Test
+    void writeExternalTilesets() throws IOException {
+        TilesetWriter tilesetWriter = new TilesetWriter(1, 2);
+        tilesetWriter.write(createTileset(), tempDir);
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        JsonNode root = objectMapper.readTree(new File(tempDir, TilesetWriter.TILESET_FILE_NAME)).get("root");
+        assertEquals(2, root.get("children").size());
+
+        // the stub keeps the transform and the bounding volume, and references the subtree
+        JsonNode stub = root.get("children").get(1);
+        assertNull(stub.get("children"));
+        assertEquals(8.0d, stub.get("geometricError").asDouble());
+        assertEquals(16, stub.get("transform").size());
+        String uri = stub.get("content").get("uri").asText();
+        assertEquals("tileset_R1.json", uri);
+
+        JsonNode externalTileset = objectMapper.readTree(new File(tempDir, uri));
+        assertEquals("1.0", externalTileset.get("asset").get("version").asText());
+        assertEquals(8.0d, externalTileset.get("geometricError").asDouble());
+        JsonNode externalRoot = externalTileset.get("root");
+        assertNull(externalRoot.get("transform"));
+        assertEquals("data/R1.b3dm", externalRoot.get("content").get("uri").asText());
+        assertEquals(2, externalRoot.get("children").size());
+        assertEquals("data/R11.b3dm", externalRoot.get("children").get(1).get("content").get("uri").asText());
+    }
+
+    private Tileset createTileset() {
+        Node root = createNode("R", 16.0d);
+        root.setTransform(new float[]{1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1, 0, 100, 200, 300, 1});
+        for (int i = 0; i < 2; i++) {
+            Node child = createNode("R" + i, 8.0d);
+            child.setTransform(new float[]{1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1, 0, i, 0, 0, 1});
+            for (int j = 0; j < 2; j++) {
+                child.getChildren().add(createNode("R" + i + j, 0.0d));
+            }
+            root.getChildren().add(child);
+        }
+
+        Tileset tileset = new Tileset();
+        tileset.setAsset(new Asset());
+        tileset.setGeometricError(32.0d);
+        tileset.setRoot(root);
+        return tileset;
+    }
+
+    private Node createNode(String nodeCode, double geometricError) {
+        BoundingVolume boundingVolume = new BoundingVolume(BoundingVolume.BoundingVolumeType.REGION);
+        boundingVolume.setRegion(new double[]{0.1, 0.2, 0.3, 0.4, 0.0, 10.0});
+        Content content = new Content();
+        content.setUri("data/" + nodeCode + ".b3dm");
+
+        Node node = new Node();
+        node.setNodeCode(nodeCode);
+        node.setBoundingVolume(boundingVolume);
+        node.setGeometricError(geometricError);
+        node.setRefine(Node.RefineType.REPLACE);
+        node.setContent(content);
+        node.setChildren(new ArrayList<>());
+        return node;
+    }
+}
@@ -9,6 +9,7 @@ import com.gaia3d.command.Configurator;
 import com.gaia3d.command.mago.GlobalOptions;
 import com.gaia3d.converter.assimp.AssimpConverter;
 import com.gaia3d.converter.jgltf.GltfWriter;
+import com.gaia3d.converter.terrain.TerrainService;
 import com.gaia3d.process.postprocess.batch.GaiaBatcher;
 import com.gaia3d.process.preprocess.GaiaRotator;
 import com.gaia3d.process.preprocess.GaiaStrictTranslator;
@@ -56,7 +57,7 @@ class Batched3DModelTilerPhRTest {
                 .build();
 
         GaiaRotator rotator = new GaiaRotator();
-        GaiaStrictTranslator translatorExact = new GaiaStrictTranslator(new ArrayList<>());
+        GaiaStrictTranslator translatorExact = new GaiaStrictTranslator(new TerrainService());
         rotator.run(preTileInfo);
         translatorExact.run(preTileInfo);
         GaiaSet gaiaSet = GaiaSet.fromGaiaScene(scene);